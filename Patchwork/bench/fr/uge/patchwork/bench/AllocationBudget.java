@@ -0,0 +1,126 @@
+package fr.uge.patchwork.bench;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ *
+ * Measure the bytes allocated by the current thread around a block of code,
+ * and check them against budgets.
+ *
+ * <p>
+ * An operation is run first to warm it up, so the JIT can remove
+ * the allocations it is able to remove, then it is measured over
+ * many iterations. The budget is in bytes by operation.
+ * A few hundred bytes over all the iterations are tolerated,
+ * for the one-off allocations of the JVM (class loading, JIT...).
+ *
+ */
+final class AllocationBudget {
+
+  // bytes tolerated over all the measured runs
+  private static final long NOISE = 1024;
+
+  /**
+   * Result of a checked operation
+   * @param name of the operation
+   * @param bytes allocated by operation
+   * @param budget in bytes by operation
+   * @param iterations number of measured runs
+   */
+  record Result(String name, double bytes, long budget, int iterations) {
+    boolean exceeded() {
+      return bytes * iterations > budget * iterations + NOISE;
+    }
+
+    @Override
+    public String toString() {
+      return String.format("%-36s %10.2f bytes/op  budget %8d  %s",
+          name, bytes, budget, exceeded() ? "EXCEEDED" : "ok");
+    }
+  }
+
+  private final com.sun.management.ThreadMXBean threads;
+  private final int warmup;
+  private final int iterations;
+  private final List<Result> results = new ArrayList<>();
+
+  /**
+   * @param warmup number of runs before the measure
+   * @param iterations number of measured runs
+   */
+  AllocationBudget(int warmup, int iterations) {
+    if(warmup < 0 || iterations < 1) {
+      throw new IllegalArgumentException("Invalid number of runs");
+    }
+    if(!(ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean bean)
+        || !bean.isThreadAllocatedMemorySupported()) {
+      throw new UnsupportedOperationException("The allocated bytes can't be measured on this JVM");
+    }
+    bean.setThreadAllocatedMemoryEnabled(true);
+    threads = bean;
+    this.warmup = warmup;
+    this.iterations = iterations;
+  }
+
+  /**
+   * @return the bytes allocated by the current thread since its start
+   */
+  long allocatedBytes() {
+    return threads.getThreadAllocatedBytes(Thread.currentThread().getId());
+  }
+
+  /**
+   * Measure the bytes allocated by an operation
+   * @param operation
+   * @return the mean of the allocated bytes by run
+   */
+  double measure(Runnable operation) {
+    Objects.requireNonNull(operation, "The operation can't be null");
+    for(var i = 0; i < warmup; i++) {
+      operation.run();
+    }
+    // cost of the measure itself
+    var empty = -allocatedBytes() + allocatedBytes();
+    var start = allocatedBytes();
+    for(var i = 0; i < iterations; i++) {
+      operation.run();
+    }
+    var allocated = allocatedBytes() - start - empty;
+    return Math.max(0, (double) allocated / iterations);
+  }
+
+  /**
+   * Measure an operation and check it against its budget
+   * @param name of the operation
+   * @param budget in bytes by operation
+   * @param operation
+   * @return the result
+   */
+  Result check(String name, long budget, Runnable operation) {
+    Objects.requireNonNull(name, "The name can't be null");
+    if(budget < 0) {
+      throw new IllegalArgumentException("The budget can't be negative");
+    }
+    var result = new Result(name, measure(operation), budget, iterations);
+    results.add(result);
+    return result;
+  }
+
+  /**
+   * @return the results of the checked operations
+   */
+  List<Result> results() {
+    return List.copyOf(results);
+  }
+
+  /**
+   * @return the results over budget
+   */
+  List<Result> exceeded() {
+    return results.stream().filter(Result::exceeded).toList();
+  }
+
+}
@@ -0,0 +1,146 @@
+package fr.uge.patchwork.bench;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Set;
+
+import fr.uge.patchwork.controller.PatchworkController;
+import fr.uge.patchwork.model.Game;
+import fr.uge.patchwork.model.GameMode;
+import fr.uge.patchwork.model.component.QuiltBoard;
+import fr.uge.patchwork.model.component.gameboard.TrackBoard;
+import fr.uge.patchwork.model.component.gameboard.event.Event;
+import fr.uge.patchwork.model.component.gameboard.event.EventType;
+import fr.uge.patchwork.model.component.patch.Coordinates;
+import fr.uge.patchwork.model.component.patch.RegularPatch;
+import fr.uge.patchwork.model.component.player.HumanPlayer;
+import fr.uge.patchwork.model.component.player.Player;
+import fr.uge.patchwork.model.component.player.automa.Automa;
+import fr.uge.patchwork.model.component.player.automa.AutomaDifficulty;
+import fr.uge.patchwork.model.component.player.automa.DeckType;
+import fr.uge.patchwork.model.engine.Bot;
+import fr.uge.patchwork.model.engine.Engine;
+import fr.uge.patchwork.model.engine.GreedyBot;
+import fr.uge.patchwork.model.engine.Rules;
+import fr.uge.patchwork.model.engine.SideSetup;
+import fr.uge.patchwork.view.gui.GraphicalUserInterface;
+
+/**
+ *
+ * Allocation budgets of the hot operations, see {@link AllocationBudget}.
+ *
+ * <p>
+ * The operations of the engine must not allocate anything in steady state.
+ * The budgets of the operations of the object model are a bit above the
+ * allocations they do today, they must be lowered when these operations improve.
+ * The program exits with 1 if a budget is exceeded.
+ *
+ */
+public final class AllocationBudgets {
+
+  private AllocationBudgets() {}
+
+  /**
+   * A position of the middle of a game, a quilt side to play
+   */
+  private static Engine middleGame(SideSetup second) throws IOException {
+    var engine = Engine.create(Rules.of(GameMode.PATCHWORK_FULL), SideSetup.quilt(), second, 7);
+    var bot = new GreedyBot();
+    while(engine.ply() < 20 || engine.isAutoma(engine.current()) || engine.pendingLeathers() > 0) {
+      engine.play(Bot.nextMove(engine, bot));
+    }
+    return engine;
+  }
+
+  /**
+   * A position where an Automa has to play
+   */
+  private static Engine automaToPlay() throws IOException {
+    var engine = Engine.create(Rules.of(GameMode.PATCHWORK_AUTOMA),
+        SideSetup.automa(AutomaDifficulty.LEGEND, DeckType.NORMAL), SideSetup.quilt(), 3);
+    if(!engine.isAutoma(engine.current())) {
+      throw new AssertionError("The Automa plays first");
+    }
+    return engine;
+  }
+
+  private static void engineBudgets(AllocationBudget budget) throws IOException {
+    var engine = middleGame(SideSetup.quilt());
+    var moves = new int[engine.rules().maxMoves()];
+    var count = engine.legalMoves(moves);
+    budget.check("engine.legalMoves", 0, () -> engine.legalMoves(moves));
+    budget.check("engine.playUndo", 0, () -> {
+      for(var i = 0; i < count; i++) {
+        engine.play(moves[i]);
+        engine.undo();
+      }
+    });
+    var shape = engine.slotPiece(0).shape(0);
+    var rows = new long[9];
+    for(var y = 0; y < rows.length; y++) {
+      rows[y] = engine.quiltRow(0, y);
+    }
+    budget.check("engine.fits", 0, () -> {
+      for(var y = 0; y < 9; y++) {
+        for(var x = 0; x < 9; x++) {
+          shape.fits(rows, 9, y, x);
+        }
+      }
+    });
+    budget.check("engine.deadCells", 0, () -> engine.deadCells(0));
+    var symmetries = new int[Engine.SIDES];
+    budget.check("engine.canonicalHash", 0, () -> {
+      // the quilt of the side to play changes, the key is not reused
+      engine.play(moves[count - 1]);
+      engine.canonicalHash(symmetries);
+      engine.undo();
+      engine.canonicalHash(symmetries);
+    });
+    var automa = automaToPlay();
+    budget.check("engine.automaMove", 0, automa::automaMove);
+    budget.check("engine.automaPlayUndo", 0, () -> {
+      automa.play(automa.automaMove());
+      automa.undo();
+    });
+  }
+
+  private static void modelBudgets(AllocationBudget budget) throws IOException {
+    var patches = Fixtures.fullPatches();
+    var quilt = Fixtures.quilt(patches, 8);
+    var patch = patches.get(patches.size() - 1);
+    patch.absoluteMoveTo(new Coordinates(4, 4));
+    budget.check("quiltBoard.canAdd", 400, () -> quilt.canAdd(patch));
+    budget.check("quiltBoard.fitsAnywhere", 64, () -> quilt.fitsAnywhere(patch.form()));
+
+    var player = new HumanPlayer("Player", 5, new QuiltBoard(9, 9));
+    var events = List.of(new Event(EventType.BUTTON_INCOME, 5), new Event(EventType.PATCH_INCOME, 8));
+    var other = new HumanPlayer("Other", 5, new QuiltBoard(9, 9));
+    var track = new TrackBoard(54, Set.<Player>of(player, other), events);
+    budget.check("trackBoard.movePlayer", 800, () -> {
+      track.movePlayer(player, 10);
+      player.move(0);
+    });
+
+    var game = Game.automa(AutomaDifficulty.LEGEND, DeckType.NORMAL, 42);
+    var controller = new PatchworkController(GraphicalUserInterface.offscreen(1, 1), game);
+    var automa = game.trackBoard().players().stream()
+        .filter(Automa.class::isInstance)
+        .map(Automa.class::cast)
+        .findFirst().orElseThrow();
+    List<RegularPatch> available = game.patchManager().patches(3);
+    budget.check("controller.automaPlayCard", 2_000, () -> controller.automaPlayCard(automa, available));
+  }
+
+  public static void main(String[] args) throws IOException {
+    var budget = new AllocationBudget(20_000, 20_000);
+    engineBudgets(budget);
+    modelBudgets(budget);
+    budget.results().forEach(System.out::println);
+    var exceeded = budget.exceeded();
+    if(!exceeded.isEmpty()) {
+      System.err.println(exceeded.size() + " allocation budget(s) exceeded");
+      System.exit(1);
+    }
+  }
+
+}
@@ -0,0 +1,67 @@
+package fr.uge.patchwork.bench;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import fr.uge.patchwork.controller.PatchworkController;
+import fr.uge.patchwork.model.Game;
+import fr.uge.patchwork.model.component.patch.RegularPatch;
+import fr.uge.patchwork.model.component.player.automa.Automa;
+import fr.uge.patchwork.model.component.player.automa.AutomaDifficulty;
+import fr.uge.patchwork.model.component.player.automa.DeckType;
+import fr.uge.patchwork.view.gui.GraphicalUserInterface;
+
+/**
+ * 
+ * Patch selection of the automa for each card of a deck
+ *
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class AutomaBenchmark {
+  
+  @Param({"NORMAL", "TACTICAL"})
+  private DeckType deck;
+  private PatchworkController controller;
+  private Automa automa;
+  private List<RegularPatch> patches;
+  
+  @Setup
+  public void setup() throws IOException {
+    var game = Game.automa(AutomaDifficulty.LEGEND, deck, 42);
+    controller = new PatchworkController(GraphicalUserInterface.offscreen(1, 1), game);
+    automa = game.trackBoard().players().stream()
+        .filter(Automa.class::isInstance)
+        .map(Automa.class::cast)
+        .findFirst().orElseThrow();
+    patches = game.patchManager().patches(3);
+  }
+  
+  /**
+   * Resolve the filters of the current card, then draw the next one
+   */
+  @Benchmark
+  public RegularPatch automaPlayCard() {
+    var patch = controller.automaPlayCard(automa, patches);
+    automa.discardCard();
+    return patch;
+  }
+  
+}
@@ -0,0 +1,61 @@
+package fr.uge.patchwork.bench;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.util.List;
+
+import fr.uge.patchwork.model.component.QuiltBoard;
+import fr.uge.patchwork.model.component.patch.Coordinates;
+import fr.uge.patchwork.model.component.patch.RegularPatch;
+
+/**
+ * 
+ * Data shared by the benchmarks
+ *
+ */
+final class Fixtures {
+  
+  private Fixtures() {}
+  
+  /**
+   * The patches of the full game
+   * @return a new list of new patches
+   */
+  static List<RegularPatch> fullPatches() {
+    try {
+      return RegularPatch.fromFile(Path.of("resources/settings/full/patchwork_full.txt"));
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+  
+  /**
+   * A 9x9 quilt filled with the first given patches
+   * that can be placed, scanning the quilt line by line
+   * @param patches
+   * @param count max number of patches to place
+   * @return the quilt
+   */
+  static QuiltBoard quilt(List<RegularPatch> patches, int count) {
+    var quilt = new QuiltBoard(9, 9);
+    var placed = 0;
+    for(var patch: patches) {
+      if(placed == count) {
+        break;
+      }
+      search:
+      for(var y = 0; y < quilt.height(); y++) {
+        for(var x = 0; x < quilt.width(); x++) {
+          patch.absoluteMoveTo(new Coordinates(y, x));
+          if(quilt.add(patch)) {
+            placed++;
+            break search;
+          }
+        }
+      }
+    }
+    return quilt;
+  }
+  
+}
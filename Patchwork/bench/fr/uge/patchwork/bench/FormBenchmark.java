@@ -0,0 +1,59 @@
+package fr.uge.patchwork.bench;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import fr.uge.patchwork.model.component.patch.Form;
+
+/**
+ * 
+ * Transformations and parsing of a form
+ *
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FormBenchmark {
+  
+  private final String text = "xxx\n o \nxxx";
+  private Form form;
+  
+  @Setup
+  public void setup() {
+    form = Form.fromText(text);
+  }
+  
+  @Benchmark
+  public Form rotateRight() {
+    return form.rotateRight();
+  }
+  
+  @Benchmark
+  public Form rotateLeft() {
+    return form.rotateLeft();
+  }
+  
+  @Benchmark
+  public Form flip() {
+    return form.flip();
+  }
+  
+  @Benchmark
+  public Form fromText() {
+    return Form.fromText(text);
+  }
+  
+}
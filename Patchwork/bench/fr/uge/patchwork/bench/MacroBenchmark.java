@@ -0,0 +1,488 @@
+package fr.uge.patchwork.bench;
+
+import java.io.IOException;
+import java.lang.ProcessBuilder.Redirect;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Properties;
+
+import fr.uge.patchwork.model.GameMode;
+import fr.uge.patchwork.model.archive.GameRecord;
+import fr.uge.patchwork.model.archive.GameReplayer;
+import fr.uge.patchwork.model.component.player.automa.AutomaDifficulty;
+import fr.uge.patchwork.model.component.player.automa.DeckType;
+import fr.uge.patchwork.model.engine.Bot;
+import fr.uge.patchwork.model.engine.Engine;
+import fr.uge.patchwork.model.engine.GreedyBot;
+import fr.uge.patchwork.model.engine.Rules;
+
+/**
+ *
+ * Macro benchmark playing complete seeded games, for each game mode.
+ *
+ * <p>
+ * The scenarios are:
+ * <ul>
+ * <li>automa_vs_automa and bot_vs_automa: games played by the engine,
+ * the greedy bot playing the quilt side.</li>
+ * <li>model_replay: games of the greedy bot recorded by the engine before
+ * the measure, then replayed on the object model with
+ * {@link GameReplayer}, so the measure covers the code the controller runs:
+ * the creation of the game from its settings, the track board, the patch
+ * manager, the quilts and the Automa cards.</li>
+ * </ul>
+ * For each scenario it reports the games per second, the p50 and p99
+ * of the turn latency and the bytes allocated by game.
+ * <p>
+ * Each scenario runs in several new virtual machines (forks), so the code
+ * compiled for a scenario doesn't depend on the scenarios run before it.
+ * A fork plays warmup rounds then measured rounds and keeps the median
+ * of the games per second of its rounds, so a pause of the machine during
+ * one round doesn't move the result, and the run keeps the median fork,
+ * so a fork where the JIT compiler made other choices doesn't either.
+ * The medians are compared to a baseline file, the run fails if a scenario
+ * is slower than the baseline by more than the threshold twice in a row:
+ * the slower scenarios are measured again once before failing.
+ * The baseline depends on the machine: record it again with --record
+ * after a change of machine, and in the commit of any change meant
+ * to change the throughput.
+ *
+ * <pre>
+ * options:
+ *   --games n        games by scenario and round (default 200)
+ *   --rounds n       measured rounds, the median is kept (default 7)
+ *   --warmup n       warmup rounds by fork, not measured (default 6)
+ *   --round-millis n minimum time of a round, the games are played
+ *                    again until then (default 300)
+ *   --forks n        virtual machines by scenario, the median is kept,
+ *                    0 to run in this one (default 3)
+ *   --baseline file  baseline to compare to, or to record
+ *   --threshold pct  max slowdown in percent (default 20)
+ *   --record         write the results as the new baseline
+ *   --output file    also write the results in this file
+ * </pre>
+ *
+ */
+public final class MacroBenchmark {
+
+  private enum Matchup {
+    AUTOMA_VS_AUTOMA, BOT_VS_AUTOMA, MODEL_REPLAY
+  }
+
+  private record Scenario(GameMode gameMode, Matchup matchup) {
+    String name() {
+      return gameMode.name().toLowerCase() + "." + matchup.name().toLowerCase();
+    }
+
+    static Scenario of(String name) {
+      var dot = name.indexOf('.');
+      if(dot == -1) {
+        throw new IllegalArgumentException("Unknown scenario " + name);
+      }
+      return new Scenario(GameMode.valueOf(name.substring(0, dot).toUpperCase()),
+          Matchup.valueOf(name.substring(dot + 1).toUpperCase()));
+    }
+  }
+
+  private record Result(Scenario scenario, int games, double gamesPerSecond, double slowest, double fastest,
+      long p50, long p99, long bytesPerGame) {
+
+    @Override
+    public String toString() {
+      return String.format("%-40s %9.1f games/s (%.1f-%.1f)  turn p50 %7.2f us  p99 %8.2f us  %9d bytes/game",
+          scenario.name(), gamesPerSecond, slowest, fastest, p50 / 1_000.0, p99 / 1_000.0, bytesPerGame);
+    }
+  }
+
+  // prefix of the result written by a fork
+  private static final String RESULT = "result ";
+
+  /**
+   * The games of a scenario, each one given by a seed
+   */
+  @FunctionalInterface
+  private interface Games {
+    /**
+     * Play a game, writing the latency of each turn from an offset
+     * @return the number of turns
+     */
+    int play(long seed, long[] latencies, int offset);
+  }
+
+  /**
+   * The measures of a scenario over the rounds
+   */
+  private static final class Measures {
+    private final Games games;
+    private final double[] gamesPerSecond;
+    private final long[] latencies;
+    private int turns;
+    private long played;
+    private long allocated;
+
+    private Measures(Games games, int rounds, int maxTurns) {
+      this.games = games;
+      gamesPerSecond = new double[rounds];
+      latencies = new long[maxTurns];
+    }
+  }
+
+  private final int games;
+  private final int rounds;
+  private final int warmup;
+  private final long roundNanos;
+  // null if the allocated bytes can't be measured
+  private final com.sun.management.ThreadMXBean threads;
+
+  private MacroBenchmark(int games, int rounds, int warmup, int roundMillis) {
+    this.games = games;
+    this.rounds = rounds;
+    this.warmup = warmup;
+    roundNanos = roundMillis * 1_000_000L;
+    var bean = ManagementFactory.getThreadMXBean();
+    if(bean instanceof com.sun.management.ThreadMXBean sunBean
+        && sunBean.isThreadAllocatedMemorySupported()) {
+      sunBean.setThreadAllocatedMemoryEnabled(true);
+      threads = sunBean;
+    } else {
+      threads = null;
+    }
+  }
+
+  /**
+   * The sides of a scenario, the model only has quilts in the basic
+   * and full modes and a quilt against an Automa in the Automa mode
+   */
+  private static GameRecord.Side[] sides(Scenario scenario) {
+    return switch(scenario.matchup()) {
+      case AUTOMA_VS_AUTOMA -> new GameRecord.Side[] {
+          GameRecord.Side.automa(AutomaDifficulty.FELLOW, DeckType.NORMAL),
+          GameRecord.Side.automa(AutomaDifficulty.LEGEND, DeckType.TACTICAL) };
+      case BOT_VS_AUTOMA -> new GameRecord.Side[] {
+          GameRecord.Side.quilt(),
+          GameRecord.Side.automa(AutomaDifficulty.LEGEND, DeckType.NORMAL) };
+      case MODEL_REPLAY -> new GameRecord.Side[] {
+          GameRecord.Side.quilt(),
+          scenario.gameMode() == GameMode.PATCHWORK_AUTOMA
+              ? GameRecord.Side.automa(AutomaDifficulty.LEGEND, DeckType.NORMAL)
+              : GameRecord.Side.quilt() };
+    };
+  }
+
+  /**
+   * Play a game with the engine, writing the latency of each turn
+   * @return the number of turns
+   */
+  private static int play(Engine engine, Bot bot, long[] latencies, int offset) {
+    var turns = 0;
+    while(!engine.isFinished()) {
+      var start = System.nanoTime();
+      engine.play(Bot.nextMove(engine, bot));
+      var end = System.nanoTime();
+      if(latencies != null && offset + turns < latencies.length) {
+        latencies[offset + turns] = end - start;
+      }
+      turns++;
+    }
+    return turns;
+  }
+
+  /**
+   * Replay a record on the object model, writing the latency of each move
+   * @return the number of moves
+   */
+  private static int replay(GameRecord record, long[] latencies, int offset) {
+    GameReplayer replayer;
+    try {
+      replayer = new GameReplayer(record);
+    } catch(IOException e) {
+      throw new UncheckedIOException(e);
+    }
+    var turns = 0;
+    while(replayer.hasNext()) {
+      var start = System.nanoTime();
+      replayer.next();
+      var end = System.nanoTime();
+      if(latencies != null && offset + turns < latencies.length) {
+        latencies[offset + turns] = end - start;
+      }
+      turns++;
+    }
+    return turns;
+  }
+
+  private Games games(Scenario scenario) throws IOException {
+    var gameMode = scenario.gameMode();
+    var rules = Rules.of(gameMode);
+    var sides = sides(scenario);
+    var first = sides[0].setup();
+    var second = sides[1].setup();
+    var bot = new GreedyBot();
+    if(scenario.matchup() != Matchup.MODEL_REPLAY) {
+      return (seed, latencies, offset) -> play(Engine.create(rules, first, second, seed), bot, latencies, offset);
+    }
+    var records = new GameRecord[games];
+    for(var seed = 0; seed < games; seed++) {
+      var engine = Engine.create(rules, first, second, seed);
+      play(engine, bot, null, 0);
+      records[seed] = GameRecord.of(gameMode, sides[0], sides[1], seed, engine);
+    }
+    return (seed, latencies, offset) -> replay(records[(int) seed], latencies, offset);
+  }
+
+  /**
+   * Play the games of a round, again from the first one until the round
+   * lasts the minimum time, so the short games are measured over enough time
+   */
+  private void round(Measures measures, int round) {
+    var allocationStart = threads == null ? 0 : threads.getCurrentThreadAllocatedBytes();
+    var start = System.nanoTime();
+    var played = 0;
+    long time;
+    do {
+      for(var seed = 0; seed < games; seed++) {
+        measures.turns += measures.games.play(seed, measures.latencies, measures.turns);
+      }
+      played += games;
+      time = System.nanoTime() - start;
+    } while(time < roundNanos);
+    measures.allocated += threads == null ? 0 : threads.getCurrentThreadAllocatedBytes() - allocationStart;
+    measures.played += played;
+    measures.gamesPerSecond[round] = played * 1_000_000_000.0 / time;
+  }
+
+  private Result run(Scenario scenario) throws IOException {
+    var games = games(scenario);
+    var warmupMeasures = new Measures(games, warmup, 0);
+    for(var round = 0; round < warmup; round++) {
+      round(warmupMeasures, round);
+    }
+    // a game has less than 4 turns by space and side
+    var maxTurns = rounds * this.games * 8 * Rules.of(scenario.gameMode()).spaces();
+    var measures = new Measures(games, rounds, maxTurns);
+    for(var round = 0; round < rounds; round++) {
+      round(measures, round);
+    }
+    var measured = Math.min(measures.turns, measures.latencies.length);
+    Arrays.sort(measures.latencies, 0, measured);
+    var speeds = measures.gamesPerSecond.clone();
+    Arrays.sort(speeds);
+    return new Result(scenario, this.games, median(speeds), speeds[0], speeds[speeds.length - 1],
+        percentile(measures.latencies, measured, 50), percentile(measures.latencies, measured, 99),
+        threads == null ? -1 : measures.allocated / measures.played);
+  }
+
+  /**
+   * Run a scenario in new virtual machines, with the options and the JVM options
+   * of this one, so each fork compiles the code of the scenario only
+   * @return the fork with the median games per second, the slowest and fastest rounds of all the forks
+   */
+  private static Result fork(Scenario scenario, int forks, List<String> options) throws IOException {
+    var command = new ArrayList<String>();
+    command.add(Path.of(System.getProperty("java.home"), "bin", "java").toString());
+    command.addAll(ManagementFactory.getRuntimeMXBean().getInputArguments());
+    command.addAll(List.of("-cp", System.getProperty("java.class.path"), MacroBenchmark.class.getName()));
+    command.addAll(options);
+    command.addAll(List.of("--scenario", scenario.name()));
+    var results = new ArrayList<Result>();
+    for(var i = 0; i < forks; i++) {
+      var process = new ProcessBuilder(command).redirectError(Redirect.INHERIT).start();
+      Result result = null;
+      try(var reader = process.inputReader()) {
+        String line;
+        while((line = reader.readLine()) != null) {
+          if(line.startsWith(RESULT)) {
+            result = parse(line);
+          }
+        }
+      }
+      int status;
+      try {
+        status = process.waitFor();
+      } catch(InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new IOException("Interrupted while waiting for the fork of " + scenario.name(), e);
+      }
+      if(status != 0 || result == null) {
+        throw new IOException("The fork of " + scenario.name() + " failed with the status " + status);
+      }
+      results.add(result);
+    }
+    results.sort(Comparator.comparingDouble(Result::gamesPerSecond));
+    var median = results.get(results.size() / 2);
+    var slowest = results.stream().mapToDouble(Result::slowest).min().orElseThrow();
+    var fastest = results.stream().mapToDouble(Result::fastest).max().orElseThrow();
+    return new Result(scenario, median.games(), median.gamesPerSecond(), slowest, fastest,
+        median.p50(), median.p99(), median.bytesPerGame());
+  }
+
+  private static String format(Result result) {
+    return String.format(Locale.ROOT, RESULT + "%s %d %.1f %.1f %.1f %d %d %d", result.scenario().name(),
+        result.games(), result.gamesPerSecond(), result.slowest(), result.fastest(),
+        result.p50(), result.p99(), result.bytesPerGame());
+  }
+
+  private static Result parse(String line) {
+    var parts = line.substring(RESULT.length()).split(" ");
+    return new Result(Scenario.of(parts[0]), Integer.parseInt(parts[1]), Double.parseDouble(parts[2]),
+        Double.parseDouble(parts[3]), Double.parseDouble(parts[4]),
+        Long.parseLong(parts[5]), Long.parseLong(parts[6]), Long.parseLong(parts[7]));
+  }
+
+  private static double median(double[] sorted) {
+    var middle = sorted.length / 2;
+    return sorted.length % 2 == 1 ? sorted[middle] : (sorted[middle - 1] + sorted[middle]) / 2;
+  }
+
+  private static long percentile(long[] sorted, int length, int percentile) {
+    if(length == 0) {
+      return 0;
+    }
+    return sorted[Math.min(length - 1, (length * percentile) / 100)];
+  }
+
+  private static Properties load(Path path) throws IOException {
+    var properties = new Properties();
+    try(Reader reader = Files.newBufferedReader(path)) {
+      properties.load(reader);
+    }
+    return properties;
+  }
+
+  private static void store(List<Result> results, Path path) throws IOException {
+    var properties = new Properties();
+    for(var result: results) {
+      var name = result.scenario().name();
+      properties.setProperty(name + ".gamesPerSecond", String.format(Locale.ROOT, "%.1f", result.gamesPerSecond()));
+      properties.setProperty(name + ".turnP50", Long.toString(result.p50()));
+      properties.setProperty(name + ".turnP99", Long.toString(result.p99()));
+      properties.setProperty(name + ".bytesPerGame", Long.toString(result.bytesPerGame()));
+    }
+    var parent = path.toAbsolutePath().getParent();
+    if(parent != null) {
+      Files.createDirectories(parent);
+    }
+    try(Writer writer = Files.newBufferedWriter(path)) {
+      properties.store(writer, "Patchwork macro benchmark, median games per second, latencies in ns");
+    }
+  }
+
+  /**
+   * Compare the results to a baseline
+   * @return the regressions, empty if none
+   */
+  private static List<String> regressions(List<Result> results, Properties baseline, double threshold) {
+    var regressions = new ArrayList<String>();
+    for(var result: results) {
+      var name = result.scenario().name();
+      var value = baseline.getProperty(name + ".gamesPerSecond");
+      if(value == null) {
+        System.out.println("no baseline for " + name);
+        continue;
+      }
+      var expected = Double.parseDouble(value);
+      var change = (result.gamesPerSecond() - expected) * 100 / expected;
+      System.out.println(String.format("%-40s %+7.1f%% vs baseline (%.1f games/s)", name, change, expected));
+      if(change < -threshold) {
+        regressions.add(name);
+      }
+    }
+    return regressions;
+  }
+
+  private static void usage() {
+    System.err.println("MacroBenchmark [--games n] [--rounds n] [--warmup n] [--round-millis n] [--forks n] "
+        + "[--baseline file] [--threshold pct] [--record] [--output file] [--scenario name]");
+    System.exit(2);
+  }
+
+  public static void main(String[] args) throws IOException {
+    var games = 200;
+    var rounds = 7;
+    var warmup = 6;
+    var roundMillis = 300;
+    var forks = 3;
+    Scenario scenario = null;
+    Path baseline = null;
+    Path output = null;
+    var threshold = 20.0;
+    var record = false;
+    for(var i = 0; i < args.length; i++) {
+      switch(args[i]) {
+        case "--games" -> games = Integer.parseInt(args[++i]);
+        case "--rounds" -> rounds = Integer.parseInt(args[++i]);
+        case "--warmup" -> warmup = Integer.parseInt(args[++i]);
+        case "--round-millis" -> roundMillis = Integer.parseInt(args[++i]);
+        case "--forks" -> forks = Integer.parseInt(args[++i]);
+        case "--scenario" -> scenario = Scenario.of(args[++i]);
+        case "--baseline" -> baseline = Path.of(args[++i]);
+        case "--threshold" -> threshold = Double.parseDouble(args[++i]);
+        case "--record" -> record = true;
+        case "--output" -> output = Path.of(args[++i]);
+        default -> usage();
+      }
+    }
+    if(games < 1 || rounds < 1 || warmup < 0 || roundMillis < 0 || forks < 0 || threshold < 0) {
+      usage();
+    }
+    var benchmark = new MacroBenchmark(games, rounds, warmup, roundMillis);
+    if(scenario != null) { // in a fork
+      System.out.println(format(benchmark.run(scenario)));
+      return;
+    }
+    var options = List.of("--games", "" + games, "--rounds", "" + rounds, "--warmup", "" + warmup,
+        "--round-millis", "" + roundMillis);
+    var results = new ArrayList<Result>();
+    for(var gameMode: GameMode.values()) {
+      for(var matchup: Matchup.values()) {
+        var current = new Scenario(gameMode, matchup);
+        var result = forks == 0 ? benchmark.run(current) : fork(current, forks, options);
+        System.out.println(result);
+        results.add(result);
+      }
+    }
+    if(output != null) {
+      store(results, output);
+    }
+    if(baseline == null) {
+      return;
+    }
+    if(record) {
+      store(results, baseline);
+      System.out.println("baseline recorded in " + baseline);
+      return;
+    }
+    if(!Files.exists(baseline)) {
+      System.out.println("no baseline in " + baseline + ", record it with --record");
+      return;
+    }
+    var expected = load(baseline);
+    var regressions = regressions(results, expected, threshold);
+    if(!regressions.isEmpty()) {
+      // measured again once, a slow period of the machine doesn't last for both
+      System.out.println("measuring again " + regressions);
+      var again = new ArrayList<Result>();
+      for(var name: regressions) {
+        var current = Scenario.of(name);
+        var result = forks == 0 ? benchmark.run(current) : fork(current, forks, options);
+        System.out.println(result);
+        again.add(result);
+      }
+      regressions = regressions(again, expected, threshold);
+    }
+    if(!regressions.isEmpty()) {
+      System.err.println("throughput regression of more than " + threshold + "% for " + regressions);
+      System.exit(1);
+    }
+  }
+
+}
@@ -0,0 +1,64 @@
+package fr.uge.patchwork.bench;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import fr.uge.patchwork.model.component.patch.Coordinates;
+import fr.uge.patchwork.model.component.patch.Form;
+import fr.uge.patchwork.model.component.patch.Patch2D;
+
+/**
+ * 
+ * Placement tests of a patch
+ *
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class Patch2DBenchmark {
+  
+  private Patch2D patch;
+  private Patch2D other;
+  
+  @Setup
+  public void setup() {
+    patch = new Patch2D(Form.fromText("xxx\n o \nxxx"));
+    patch.absoluteMoveTo(new Coordinates(4, 4));
+    // close but not overlapping, all the cells are tested
+    other = new Patch2D(Form.fromText("xox\nx x"));
+    other.absoluteMoveTo(new Coordinates(6, 4));
+  }
+  
+  @Benchmark
+  public boolean overlap() {
+    return patch.overlap(other);
+  }
+  
+  @Benchmark
+  public boolean fits() {
+    return patch.fits(8, 8);
+  }
+  
+  @Benchmark
+  public void canMove(Blackhole blackhole) {
+    blackhole.consume(patch.canMoveUp(0));
+    blackhole.consume(patch.canMoveDown(9));
+    blackhole.consume(patch.canMoveLeft(0));
+    blackhole.consume(patch.canMoveRight(9));
+  }
+  
+}
@@ -0,0 +1,60 @@
+package fr.uge.patchwork.bench;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import fr.uge.patchwork.model.SplitMix64;
+import fr.uge.patchwork.model.component.gameboard.PatchManager;
+import fr.uge.patchwork.model.component.patch.RegularPatch;
+
+/**
+ * 
+ * Access and removal of the patches around the board
+ *
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PatchManagerBenchmark {
+  
+  private List<RegularPatch> all;
+  private PatchManager manager;
+  
+  @Setup(Level.Trial)
+  public void setupTrial() {
+    all = Fixtures.fullPatches();
+  }
+  
+  @Setup(Level.Invocation)
+  public void setup() {
+    manager = new PatchManager(all, new SplitMix64(42));
+  }
+  
+  @Benchmark
+  public List<RegularPatch> patches() {
+    return manager.patches(3);
+  }
+  
+  @Benchmark
+  public PatchManager removeAtToken() {
+    manager.moveNeutralToken(2);
+    manager.removeAtToken();
+    return manager;
+  }
+  
+}
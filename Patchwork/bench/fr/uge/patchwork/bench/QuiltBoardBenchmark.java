@@ -0,0 +1,101 @@
+package fr.uge.patchwork.bench;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import fr.uge.patchwork.model.component.QuiltBoard;
+import fr.uge.patchwork.model.component.QuiltRegions;
+import fr.uge.patchwork.model.component.QuiltSymmetry;
+import fr.uge.patchwork.model.component.patch.Coordinates;
+import fr.uge.patchwork.model.component.patch.RegularPatch;
+
+/**
+ * 
+ * Queries on a quilt filled with a given number of patches
+ *
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class QuiltBoardBenchmark {
+  
+  @Param({"4", "12"})
+  private int patches;
+  private QuiltBoard quilt;
+  private RegularPatch candidate;
+  private final QuiltRegions regions = new QuiltRegions();
+  private final QuiltSymmetry symmetry = new QuiltSymmetry();
+  private long[] rows;
+  private long[] image;
+  
+  @Setup
+  public void setup() {
+    var all = Fixtures.fullPatches();
+    quilt = Fixtures.quilt(all, patches);
+    candidate = all.get(all.size() - 1);
+    candidate.absoluteMoveTo(new Coordinates(7, 7));
+    rows = quilt.rows();
+    image = new long[rows.length];
+  }
+  
+  @Benchmark
+  public boolean canAdd() {
+    return quilt.canAdd(candidate);
+  }
+  
+  @Benchmark
+  public boolean fitsAnywhere() {
+    return quilt.fitsAnywhere(candidate.form());
+  }
+  
+  @Benchmark
+  public boolean hasFilledSquare() {
+    return quilt.hasFilledSquare(7);
+  }
+  
+  @Benchmark
+  public int regions() {
+    regions.analyze(rows, quilt.width(), 3);
+    return regions.regions();
+  }
+  
+  @Benchmark
+  public int deadCells() {
+    return regions.deadCells(rows, quilt.width(), 3);
+  }
+  
+  @Benchmark
+  public int largestRectangle() {
+    return QuiltRegions.largestRectangle(rows, quilt.width());
+  }
+  
+  @Benchmark
+  public int canonicalize() {
+    return symmetry.canonicalize(rows, quilt.width(), image);
+  }
+
+  @Benchmark
+  public long canonicalHash() {
+    return symmetry.canonicalHash(rows, quilt.width());
+  }
+  
+  @Benchmark
+  public int countEmptySpaces() {
+    return quilt.countEmptySpaces();
+  }
+  
+}
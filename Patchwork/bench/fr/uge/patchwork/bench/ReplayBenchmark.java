@@ -0,0 +1,77 @@
+package fr.uge.patchwork.bench;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import fr.uge.patchwork.model.GameMode;
+import fr.uge.patchwork.model.archive.GameRecord;
+import fr.uge.patchwork.model.archive.Replayer;
+import fr.uge.patchwork.model.component.player.automa.AutomaDifficulty;
+import fr.uge.patchwork.model.component.player.automa.DeckType;
+import fr.uge.patchwork.model.engine.Bot;
+import fr.uge.patchwork.model.engine.Engine;
+import fr.uge.patchwork.model.engine.GreedyBot;
+import fr.uge.patchwork.model.engine.Rules;
+
+/**
+ *
+ * Encoding, decoding and replay of the record of a full game,
+ * greedy bot vs Automa
+ *
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ReplayBenchmark {
+
+  private GameRecord record;
+  private byte[] bytes;
+  private Replayer replayer;
+
+  @Setup
+  public void setup() throws IOException {
+    var first = GameRecord.Side.quilt();
+    var second = GameRecord.Side.automa(AutomaDifficulty.LEGEND, DeckType.NORMAL);
+    var engine = Engine.create(Rules.of(GameMode.PATCHWORK_AUTOMA), first.setup(), second.setup(), 42);
+    var bot = new GreedyBot();
+    while(!engine.isFinished()) {
+      engine.play(Bot.nextMove(engine, bot));
+    }
+    record = GameRecord.of(GameMode.PATCHWORK_AUTOMA, first, second, 42, engine);
+    bytes = record.toBytes();
+    replayer = new Replayer(record);
+  }
+
+  @Benchmark
+  public byte[] encode() throws IOException {
+    return record.toBytes();
+  }
+
+  @Benchmark
+  public GameRecord decode() throws IOException {
+    return GameRecord.fromBytes(bytes);
+  }
+
+  /**
+   * Replay the whole game, the moves of the Automa included
+   */
+  @Benchmark
+  public Engine replay() {
+    return replayer.replay();
+  }
+
+}
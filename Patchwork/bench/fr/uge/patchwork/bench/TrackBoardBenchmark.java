@@ -0,0 +1,61 @@
+package fr.uge.patchwork.bench;
+
+import java.io.IOException;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import fr.uge.patchwork.model.Game;
+import fr.uge.patchwork.model.component.gameboard.TrackBoard;
+import fr.uge.patchwork.model.component.player.Player;
+
+/**
+ * 
+ * Moves on the track board of a full game
+ *
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TrackBoardBenchmark {
+  
+  private TrackBoard board;
+  private Player player;
+  
+  @Setup
+  public void setup() throws IOException {
+    board = Game.full(42).trackBoard();
+    player = board.latestPlayer();
+    // the other player is ahead
+    board.movePlayer(board.players().get(0) == player ? board.players().get(1) : board.players().get(0), 20);
+  }
+  
+  /**
+   * Move forward over button events then back
+   */
+  @Benchmark
+  public void movePlayer(Blackhole blackhole) {
+    blackhole.consume(board.movePlayer(player, 13));
+    blackhole.consume(board.movePlayer(player, -13));
+  }
+  
+  @Benchmark
+  public Optional<Player> nextPlayerFrom() {
+    return board.nextPlayerFrom(1);
+  }
+  
+}
@@ -0,0 +1,11 @@
+/**
+ * JMH micro benchmarks of the model layer.
+ * 
+ * <p>
+ * Run with <code>ant bench</code>, the results are written in json
+ * in the bench-results directory.
+ * <p>
+ * The macro benchmark of complete games runs with <code>ant bench-macro</code>
+ * and the allocation budgets of the hot operations with <code>ant bench-alloc</code>.
+ */
+package fr.uge.patchwork.bench;
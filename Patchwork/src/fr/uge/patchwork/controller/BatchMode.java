@@ -0,0 +1,428 @@
+package fr.uge.patchwork.controller;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.IntFunction;
+import java.util.stream.IntStream;
+
+import fr.uge.patchwork.model.Game;
+import fr.uge.patchwork.model.GameMode;
+import fr.uge.patchwork.model.SplitMix64;
+import fr.uge.patchwork.model.archive.GameRecord;
+import fr.uge.patchwork.model.archive.Replayer;
+import fr.uge.patchwork.model.archive.Snapshot;
+import fr.uge.patchwork.model.component.player.automa.AutomaDifficulty;
+import fr.uge.patchwork.model.component.player.automa.DeckType;
+import fr.uge.patchwork.model.engine.Bot;
+import fr.uge.patchwork.model.engine.Engine;
+import fr.uge.patchwork.model.engine.OpeningBook;
+import fr.uge.patchwork.model.engine.Rules;
+import fr.uge.patchwork.model.engine.SideSetup;
+import fr.uge.patchwork.tournament.Contestant;
+import fr.uge.patchwork.tournament.Tournament;
+import fr.uge.patchwork.view.gui.OffscreenRenderer;
+
+/**
+ *
+ * The commands of the program run without interface, for batch jobs:
+ * simulate, bench, replay, render, book and tournament.
+ *
+ * <p>
+ * The commands only read their options, never {@code System.in},
+ * and open no window, so they run on a server.
+ * The games are played with the engine, the game of index i of a command
+ * has the seed of index i of the generator of the seed option,
+ * so the results do not depend on the number of threads.
+ *
+ */
+public final class BatchMode {
+
+  private static final Set<String> COMMANDS = Set.of("simulate", "bench", "replay", "render", "book",
+      "tournament");
+
+  private BatchMode() {
+    throw new AssertionError();
+  }
+
+  /**
+   * @param name
+   * @return true if name is the name of a batch command
+   */
+  public static boolean isCommand(String name) {
+    return COMMANDS.contains(name);
+  }
+
+  /**
+   * Print the commands and their options
+   * @param out
+   */
+  public static void usage(PrintStream out) {
+    out.println("""
+        simulate [options]       play games between two players, with the engine
+          --mode basic|full|automa   game mode (default full)
+          --players first,second     players (default greedy,automa:legend), see tournament --help
+          --games n                  number of games (default 1)
+          --seed n                   seed of the first game (default 0)
+          --threads n                threads (default: the number of cores)
+          --output file              append the records of the games to an archive
+        bench [options]          measure the games per second of the engine
+          --mode, --players, --seed, --threads as simulate
+          --games n                  games by round (default 1000)
+          --rounds n                 measured rounds, after one round of warm up (default 5)
+        replay [options]         replay the games of an archive
+          --input file               the archive (required)
+          --game n                   only the game of index n, with its position
+          --ply n                    stop after n moves of both sides
+          --output file              write the results in CSV instead of the standard output
+        render [options]         draw a position into a png image
+          --input file               a saved game, or a new game given by:
+          --mode basic|full|automa   game mode (default full)
+          --automa difficulty[:deck] the Automa of the automa mode (default legend:normal)
+          --seed n                   seed of the new game (default 0)
+          --width n, --height n      size of the image (default 1920x1080)
+          --output file              the image (default position.png)
+          --record file              an archive instead: draw a game move by move,
+                                     frame-00000.png... (the first game, or --game n)
+          --out directory            the frames of the record (required with --record)
+          --threads n                threads drawing the frames (default: the number of cores)
+        book [options]           build an opening book by self-play, see book:file in tournament --help
+          --mode basic|full|automa   game mode (default full)
+          --games n                  number of games (default 100000)
+          --plies n                  the book positions are in the first n moves (default 6)
+          --seed n                   seed of the first game (default 0)
+          --threads n                threads (default: the number of cores)
+          --output file              the book (default book.bin)
+        tournament [options]     round robin tournament, see tournament --help""");
+  }
+
+  /**
+   * Run a batch command
+   * @param args the name of the command then its options
+   * @return the exit status
+   */
+  public static int run(String[] args) {
+    Objects.requireNonNull(args, "The arguments can't be null");
+    if(args.length == 0 || !isCommand(args[0])) {
+      throw new IllegalArgumentException("Expected a batch command");
+    }
+    // no window, even to render an image
+    System.setProperty("java.awt.headless", "true");
+    var options = Arrays.copyOfRange(args, 1, args.length);
+    if(args[0].equals("tournament")) {
+      return Tournament.command(options);
+    }
+    if(List.of(options).contains("--help")) {
+      usage(System.out);
+      return 0;
+    }
+    try {
+      switch(args[0]) {
+        case "simulate" -> simulate(parse(options, "--mode", "--players", "--games", "--seed", "--threads", "--output"));
+        case "bench" -> bench(parse(options, "--mode", "--players", "--games", "--rounds", "--seed", "--threads"));
+        case "replay" -> replay(parse(options, "--input", "--game", "--ply", "--output"));
+        case "render" -> render(parse(options, "--input", "--mode", "--automa", "--seed", "--width", "--height",
+            "--output", "--record", "--game", "--out", "--threads"));
+        case "book" -> book(parse(options, "--mode", "--games", "--plies", "--seed", "--threads", "--output"));
+        default -> throw new AssertionError("There shouldn't be other commands");
+      }
+      return 0;
+    } catch(IllegalArgumentException e) {
+      System.err.println(e.getMessage());
+      usage(System.err);
+      return 2;
+    } catch(IOException e) {
+      System.err.println(e.getMessage());
+      return 1;
+    }
+  }
+
+  /**
+   * Parse options given as pairs of name and value
+   */
+  private static Map<String, String> parse(String[] args, String... names) {
+    var allowed = Set.of(names);
+    var options = new HashMap<String, String>();
+    for(var i = 0; i < args.length; i += 2) {
+      if(!allowed.contains(args[i])) {
+        throw new IllegalArgumentException("Unknown option " + args[i]);
+      }
+      if(i + 1 == args.length) {
+        throw new IllegalArgumentException("The option " + args[i] + " needs a value");
+      }
+      options.put(args[i], args[i + 1]);
+    }
+    return options;
+  }
+
+  private static int intOption(Map<String, String> options, String name, int defaultValue, int min) {
+    var text = options.get(name);
+    var value = text == null ? defaultValue : Integer.parseInt(text);
+    if(value < min) {
+      throw new IllegalArgumentException("The option " + name + " must be at least " + min);
+    }
+    return value;
+  }
+
+  private static long seedOption(Map<String, String> options) {
+    return Long.parseLong(options.getOrDefault("--seed", "0"));
+  }
+
+  private static int threadsOption(Map<String, String> options) {
+    return intOption(options, "--threads", Runtime.getRuntime().availableProcessors(), 1);
+  }
+
+  private static GameMode modeOption(Map<String, String> options) {
+    return Tournament.parseGameMode(options.getOrDefault("--mode", "full"));
+  }
+
+  private static Path requiredPath(Map<String, String> options, String name) {
+    var text = options.get(name);
+    if(text == null) {
+      throw new IllegalArgumentException("The option " + name + " is required");
+    }
+    return Path.of(text);
+  }
+
+  /**
+   * The two players of a game, the first one plays first
+   */
+  private record Match(GameMode gameMode, Rules rules, Contestant first, Contestant second,
+      SideSetup firstSetup, SideSetup secondSetup) {
+
+    static Match of(Map<String, String> options) throws IOException {
+      var gameMode = modeOption(options);
+      var players = Contestant.parse(options.getOrDefault("--players", "greedy,automa:legend"));
+      if(players.size() != 2) {
+        throw new IllegalArgumentException("Expected two players, not " + players.size());
+      }
+      var first = players.get(0);
+      var second = players.get(1);
+      return new Match(gameMode, Rules.of(gameMode), first, second, first.side().setup(), second.side().setup());
+    }
+
+    /**
+     * Play a whole game, each game has its own bots
+     */
+    Engine play(long seed) {
+      var bots = new Bot[] {
+          first.bot() == null ? null : first.bot().get(),
+          second.bot() == null ? null : second.bot().get() };
+      var engine = Engine.create(rules, firstSetup, secondSetup, seed);
+      while(!engine.isFinished()) {
+        var side = engine.current();
+        engine.play(engine.isAutoma(side) ? engine.automaMove() : bots[side].chooseMove(engine));
+      }
+      return engine;
+    }
+  }
+
+  /**
+   * The seed of the game of an index, the value of this index
+   * of the generator of the seed, computed without the values before it
+   */
+  private static long gameSeed(long seed, int game) {
+    return new SplitMix64(seed + game * SplitMix64.GOLDEN_GAMMA).nextLong();
+  }
+
+  /**
+   * Compute the result of each game on a pool of threads
+   * @return the results, in the order of the games
+   */
+  private static <T> List<T> playAll(int games, int threads, IntFunction<T> game) {
+    var pool = new ForkJoinPool(threads);
+    try {
+      return pool.submit(() -> IntStream.range(0, games).parallel().mapToObj(game).toList()).join();
+    } finally {
+      pool.shutdown();
+    }
+  }
+
+  /**
+   * The result of a simulated game
+   */
+  private record Result(int firstScore, int secondScore, int winner, int ply, GameRecord record) {}
+
+  private static void simulate(Map<String, String> options) throws IOException {
+    var match = Match.of(options);
+    Contestant.prepare(match.rules(), List.of(match.first(), match.second()));
+    var games = intOption(options, "--games", 1, 1);
+    var seed = seedOption(options);
+    var threads = threadsOption(options);
+    var output = options.containsKey("--output") ? Path.of(options.get("--output")) : null;
+    var start = System.nanoTime();
+    var results = playAll(games, threads, game -> {
+      var gameSeed = gameSeed(seed, game);
+      var engine = match.play(gameSeed);
+      var record = output == null ? null
+          : GameRecord.of(match.gameMode(), match.first().side(), match.second().side(), gameSeed, engine);
+      return new Result(engine.score(0), engine.score(1), engine.winner(), engine.ply(), record);
+    });
+    var time = (System.nanoTime() - start) / 1_000_000_000.0;
+    if(output != null) {
+      for(var result: results) {
+        result.record().appendTo(output);
+      }
+    }
+    var wins = new int[Engine.SIDES];
+    var scores = new long[Engine.SIDES];
+    var ties = 0;
+    for(var result: results) {
+      if(result.winner() < 0) {
+        ties++;
+      } else {
+        wins[result.winner()]++;
+      }
+      scores[0] += result.firstScore();
+      scores[1] += result.secondScore();
+    }
+    if(games == 1) {
+      var result = results.get(0);
+      System.out.println(String.format(Locale.ROOT, "seed %d: %s %d, %s %d, %d moves", gameSeed(seed, 0),
+          match.first().name(), result.firstScore(), match.second().name(), result.secondScore(), result.ply()));
+    }
+    System.out.println(String.format(Locale.ROOT, "%-26s %5d wins, mean score %7.2f", match.first().name(),
+        wins[0], (double) scores[0] / games));
+    System.out.println(String.format(Locale.ROOT, "%-26s %5d wins, mean score %7.2f", match.second().name(),
+        wins[1], (double) scores[1] / games));
+    System.out.println(String.format(Locale.ROOT, "%d ties, %d games in %.2f s on %d threads",
+        ties, games, time, threads));
+  }
+
+  private static void bench(Map<String, String> options) throws IOException {
+    var match = Match.of(options);
+    Contestant.prepare(match.rules(), List.of(match.first(), match.second()));
+    var games = intOption(options, "--games", 1000, 1);
+    var rounds = intOption(options, "--rounds", 5, 1);
+    var seed = seedOption(options);
+    var threads = threadsOption(options);
+    var best = 0.0;
+    // the first round warms up the JIT
+    for(var round = 0; round <= rounds; round++) {
+      var start = System.nanoTime();
+      var plies = playAll(games, threads, game -> match.play(gameSeed(seed, game)).ply());
+      var time = (System.nanoTime() - start) / 1_000_000_000.0;
+      var moves = plies.stream().mapToLong(Integer::longValue).sum();
+      var speed = games / time;
+      System.out.println(String.format(Locale.ROOT, "%s %d: %.0f games/s, %.0f moves/s",
+          round == 0 ? "warm up" : "round", round, speed, moves / time));
+      if(round != 0) {
+        best = Math.max(best, speed);
+      }
+    }
+    System.out.println(String.format(Locale.ROOT, "best: %.0f games/s on %d threads", best, threads));
+  }
+
+  private static void book(Map<String, String> options) throws IOException {
+    var gameMode = modeOption(options);
+    var games = intOption(options, "--games", 100_000, 1);
+    var plies = intOption(options, "--plies", 6, 1);
+    var seed = seedOption(options);
+    var threads = threadsOption(options);
+    var output = Path.of(options.getOrDefault("--output", "book.bin"));
+    var start = System.nanoTime();
+    var entries = OpeningBook.selfPlay(Rules.of(gameMode), games, plies, seed, threads);
+    OpeningBook.write(entries, gameMode, output);
+    var time = (System.nanoTime() - start) / 1_000_000_000.0;
+    System.out.println(String.format(Locale.ROOT, "%d actions from %d games in %.2f s on %d threads: %s",
+        entries.size(), games, time, threads, output));
+  }
+
+  private static void replay(Map<String, String> options) throws IOException {
+    var records = GameRecord.readAll(requiredPath(options, "--input"));
+    var ply = intOption(options, "--ply", Integer.MAX_VALUE, 0);
+    var from = 0;
+    var to = records.size();
+    if(options.containsKey("--game")) {
+      from = intOption(options, "--game", 0, 0);
+      if(from >= records.size()) {
+        throw new IllegalArgumentException("The archive only has " + records.size() + " games");
+      }
+      to = from + 1;
+    }
+    var lines = new StringBuilder("game,mode,first,second,seed,moves,ply,first_score,second_score,winner\n");
+    Engine engine = null;
+    for(var i = from; i < to; i++) {
+      var record = records.get(i);
+      engine = new Replayer(record).replay(ply);
+      lines.append(i).append(',')
+        .append(record.gameMode().name().toLowerCase(Locale.ROOT)).append(',')
+        .append(sideName(record.first())).append(',')
+        .append(sideName(record.second())).append(',')
+        .append(record.seed()).append(',')
+        .append(record.moveCount()).append(',')
+        .append(engine.ply()).append(',')
+        .append(engine.score(0)).append(',')
+        .append(engine.score(1)).append(',')
+        .append(engine.isFinished() ? engine.winner() : "").append('\n');
+    }
+    if(options.containsKey("--output")) {
+      Files.writeString(Path.of(options.get("--output")), lines);
+      return;
+    }
+    System.out.print(lines);
+    if(to - from == 1) {
+      System.out.println(engine);
+    }
+  }
+
+  private static String sideName(GameRecord.Side side) {
+    if(!side.isAutoma()) {
+      return "quilt";
+    }
+    return "automa-" + side.difficulty().name().toLowerCase(Locale.ROOT) + "-"
+        + side.deckType().name().toLowerCase(Locale.ROOT);
+  }
+
+  private static void render(Map<String, String> options) throws IOException {
+    var width = intOption(options, "--width", 1920, 1);
+    var height = intOption(options, "--height", 1080, 1);
+    if(options.containsKey("--record")) {
+      renderRecord(options, new OffscreenRenderer(width, height));
+      return;
+    }
+    var output = Path.of(options.getOrDefault("--output", "position.png"));
+    Game game;
+    if(options.containsKey("--input")) {
+      game = Snapshot.load(Path.of(options.get("--input"))).game();
+    } else {
+      var seed = seedOption(options);
+      game = switch(modeOption(options)) {
+        case PATCHWORK_BASIC -> Game.basic(seed);
+        case PATCHWORK_FULL -> Game.full(seed);
+        case PATCHWORK_AUTOMA -> {
+          var parts = options.getOrDefault("--automa", "legend").toUpperCase(Locale.ROOT).split(":");
+          yield Game.automa(AutomaDifficulty.valueOf(parts[0]),
+              parts.length > 1 ? DeckType.valueOf(parts[1]) : DeckType.NORMAL, seed);
+        }
+      };
+    }
+    new OffscreenRenderer(width, height).export(game, output);
+    System.out.println(output);
+  }
+
+  private static void renderRecord(Map<String, String> options, OffscreenRenderer renderer) throws IOException {
+    var records = GameRecord.readAll(requiredPath(options, "--record"));
+    var directory = requiredPath(options, "--out");
+    var index = intOption(options, "--game", 0, 0);
+    if(index >= records.size()) {
+      throw new IllegalArgumentException("The archive only has " + records.size() + " games");
+    }
+    var threads = threadsOption(options);
+    var start = System.nanoTime();
+    var frames = renderer.exportRecord(records.get(index), directory, threads);
+    var time = (System.nanoTime() - start) / 1e9;
+    System.out.println(String.format(Locale.ROOT, "%d frames of game %d in %.2f s on %d threads: %s",
+        frames.size(), index, time, threads, directory));
+  }
+
+}
@@ -0,0 +1,60 @@
+package fr.uge.patchwork.controller;
+
+import java.util.Objects;
+
+import fr.uge.patchwork.model.component.patch.Coordinates;
+import fr.uge.patchwork.model.component.patch.Patch;
+import fr.uge.patchwork.model.component.patch.Shape;
+import fr.uge.patchwork.model.component.player.HumanPlayer;
+import fr.uge.patchwork.model.engine.Bot;
+import fr.uge.patchwork.model.engine.Engine;
+import fr.uge.patchwork.model.engine.Move;
+
+/**
+ * A player of the game played by a bot of the engine.
+ * The bot chooses its moves on the engine of the game
+ * (see {@link fr.uge.patchwork.model.archive.GameRecorder#engine()}),
+ * the controller plays them on the game as the choices of a player.
+ * @param player the player of the game
+ * @param bot the bot choosing its moves
+ */
+record ComputerPlayer(HumanPlayer player, Bot bot) {
+
+  ComputerPlayer {
+    Objects.requireNonNull(player, "The player can't be null");
+    Objects.requireNonNull(bot, "The bot can't be null");
+  }
+
+  /**
+   * Choose the move of the player
+   * @param engine the engine of the game, where the player must play
+   * @return the move, see {@link Move}
+   * @throws IllegalArgumentException if the player does not play in the engine
+   */
+  int chooseMove(Engine engine) {
+    if(engine.isFinished() || engine.isAutoma(engine.current())) {
+      throw new IllegalArgumentException("The computer does not play in this position");
+    }
+    return bot.chooseMove(engine);
+  }
+
+  /**
+   * Turn and move a patch to the place of a move,
+   * the patch bought by a move or a leather patch
+   * @param patch
+   * @param move a move that buys a patch or places a leather patch
+   * @throws IllegalArgumentException if the move places no patch
+   */
+  static void moveTo(Patch patch, int move) {
+    Objects.requireNonNull(patch, "The patch can't be null");
+    switch(Move.kind(move)) {
+      case Move.BUY -> {
+        Shape.transform(patch, Move.orientation(move));
+        var shape = Shape.of(patch.form());
+        patch.absoluteMoveTo(new Coordinates(Move.y(move) + shape.originY(), Move.x(move) + shape.originX()));
+      }
+      case Move.LEATHER -> patch.absoluteMoveTo(new Coordinates(Move.y(move), Move.x(move)));
+      default -> throw new IllegalArgumentException("The move places no patch: " + Move.toString(move));
+    }
+  }
+}
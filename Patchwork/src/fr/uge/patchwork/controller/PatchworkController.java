@@ -1,10 +1,12 @@
 package fr.uge.patchwork.controller;
 
-import static java.util.stream.Collectors.groupingBy;
-import static java.util.stream.Collectors.toList;
+import static java.util.stream.Collectors.toSet;
 
 import java.awt.Color;
 import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
 import java.util.HashSet;
 import java.util.LinkedHashSet;
 import java.util.List;
@@ -12,13 +14,18 @@ import java.util.Objects;
 import java.util.Optional;
 import java.util.Set;
 import java.util.Stack;
-import java.util.TreeMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Supplier;
 
 import fr.uge.patchwork.model.Game;
+import fr.uge.patchwork.model.GameActions;
 import fr.uge.patchwork.model.GameMode;
+import fr.uge.patchwork.model.archive.GameRecord;
+import fr.uge.patchwork.model.archive.GameRecorder;
+import fr.uge.patchwork.model.archive.Snapshot;
 import fr.uge.patchwork.model.component.QuiltBoard;
+import fr.uge.patchwork.model.component.gameboard.PatchManager;
 import fr.uge.patchwork.model.component.gameboard.event.Event;
-import fr.uge.patchwork.model.component.gameboard.event.EventType;
 import fr.uge.patchwork.model.component.patch.Coordinates;
 import fr.uge.patchwork.model.component.patch.LeatherPatch;
 import fr.uge.patchwork.model.component.patch.Patch;
@@ -28,6 +35,17 @@ import fr.uge.patchwork.model.component.player.Player;
 import fr.uge.patchwork.model.component.player.automa.Automa;
 import fr.uge.patchwork.model.component.player.automa.AutomaDifficulty;
 import fr.uge.patchwork.model.component.player.automa.DeckType;
+import fr.uge.patchwork.model.endgame.Completion;
+import fr.uge.patchwork.model.endgame.CompletionSolver;
+import fr.uge.patchwork.model.engine.Bot;
+import fr.uge.patchwork.model.engine.Move;
+import fr.uge.patchwork.model.engine.SearchBot;
+import fr.uge.patchwork.model.hint.HintService;
+import fr.uge.patchwork.monitoring.Counter;
+import fr.uge.patchwork.monitoring.Histogram;
+import fr.uge.patchwork.monitoring.MetricsExporter;
+import fr.uge.patchwork.monitoring.MetricsRegistry;
+import fr.uge.patchwork.monitoring.TurnEvent;
 import fr.uge.patchwork.view.UserInterface;
 import fr.uge.patchwork.view.cli.CommandLineInterface;
 import fr.uge.patchwork.view.gui.GraphicalUserInterface;
@@ -35,19 +53,70 @@ import fr.umlv.zen5.Application;
 
 public class PatchworkController {
   
+  private static final Histogram TURNS = MetricsRegistry.global().histogram("controller.turn");
+  private static final Counter PLAYER_TURNS = MetricsRegistry.global().counter("controller.turns.player");
+  private static final Counter AUTOMA_TURNS = MetricsRegistry.global().counter("controller.turns.automa");
+  private static final Counter GAMES = MetricsRegistry.global().counter("controller.games");
+  // file of the saved game, -Dpatchwork.save
+  private static final Path SAVE = Path.of(System.getProperty("patchwork.save", "patchwork.sav"));
+  // save the game at the start of each turn, -Dpatchwork.autosave=true
+  private static final boolean AUTOSAVE = Boolean.getBoolean("patchwork.autosave");
+  // the best places of the manipulated patch, shown with 'h'
+  private static final HintService HINTS = new HintService(3);
+  // whether the quilt can be finished without hole, searched below this number of empty cells
+  private static final int ENDGAME_CELLS = 16;
+  private static final CompletionSolver ENDGAME =
+      new CompletionSolver(200_000, Runtime.getRuntime().availableProcessors());
+  // time of a move of the computer in milliseconds, -Dpatchwork.computer.budget
+  private static final long COMPUTER_BUDGET = Long.getLong("patchwork.computer.budget", 1_000);
+  
   // The current player of the turn
   private Player player;
   // the interface to play on
   private UserInterface ui;
   // the game data
   private Game game;
+  // the rules of the actions on the game
+  private GameActions actions;
   // triggered during the turn
   private Stack<Event> triggeredEvents = new Stack<>();
-  // the specialTile of the board
-  private boolean specialTile = true;
+  // the action of the current turn, for the monitoring
+  private String action;
+  // the actions of the game for the archive, null if the game is not recorded
+  private GameRecorder recorder;
+  // the player played by the computer, null if the players are all humans or Automa
+  private ComputerPlayer computer;
+  // the computer mode was chosen in the game mode menu
+  private boolean againstComputer;
+  // creates the bot of the computer player
+  private final Supplier<Bot> computerBot;
+  // show the hints when a patch is manipulated, -Dpatchwork.hints=true at start
+  private boolean showHints = Boolean.getBoolean("patchwork.hints");
 
   public PatchworkController(UserInterface ui) {
+    this(ui, () -> new SearchBot(Duration.ofMillis(COMPUTER_BUDGET), ENDGAME));
+  }
+  
+  /**
+   * @param ui
+   * @param computerBot creates the bot of the player played by the computer
+   */
+  PatchworkController(UserInterface ui, Supplier<Bot> computerBot) {
     this.ui = Objects.requireNonNull(ui);
+    this.computerBot = Objects.requireNonNull(computerBot);
+  }
+  
+  /**
+   * Controller of an already created game, 
+   * ready for the first turn
+   * @param ui
+   * @param game
+   */
+  public PatchworkController(UserInterface ui, Game game) {
+    this(ui);
+    this.game = Objects.requireNonNull(game);
+    actions = new GameActions(game);
+    player = firstPlayer();
   }
   
   /**
@@ -62,6 +131,7 @@ public class PatchworkController {
             new KeybindedChoice('b', "The basic game")
             , new KeybindedChoice('f', "The full game")
             , new KeybindedChoice('a', "Automa")
+            , new KeybindedChoice('c', "Against the computer")
             , new KeybindedChoice('q', "Quit")));
     var wantToPlay = true;
     GameMode gameMode;
@@ -73,6 +143,10 @@ public class PatchworkController {
           case 'b' -> GameMode.PATCHWORK_BASIC;
           case 'f' -> GameMode.PATCHWORK_FULL;
           case 'a' -> GameMode.PATCHWORK_AUTOMA;
+          case 'c' -> {
+            againstComputer = true;
+            yield GameMode.PATCHWORK_FULL;
+          }
           case 'q' -> {
             wantToPlay = false;
             yield null;
@@ -150,20 +224,102 @@ public class PatchworkController {
    * @throws IOException from Game creation during settings files parsing
    */
   public boolean init() throws IOException {
+   if(Files.exists(SAVE) && choseResume() && resume()) {
+     return true;
+   }
    var gameMode = choseGameMode();
    if(gameMode.isEmpty()) {
      return false;
    }
+   // -Dpatchwork.seed=n replays the same shuffles
+   var seed = Long.getLong("patchwork.seed", ThreadLocalRandom.current().nextLong());
+   var second = GameRecord.Side.quilt();
    game = switch(gameMode.get()) {
-     case PATCHWORK_BASIC -> Game.basic();
-     case PATCHWORK_FULL -> Game.full();
-     case PATCHWORK_AUTOMA -> Game.automa(choseDifficulty(), choseDeck());
+     case PATCHWORK_BASIC -> Game.basic(seed);
+     case PATCHWORK_FULL -> againstComputer ? Game.computer(seed) : Game.full(seed);
+     case PATCHWORK_AUTOMA -> {
+       var difficulty = choseDifficulty();
+       var deckType = choseDeck();
+       second = GameRecord.Side.automa(difficulty, deckType);
+       yield Game.automa(difficulty, deckType, seed);
+     }
     };
+    recorder = new GameRecorder(gameMode.get(), GameRecord.Side.quilt(), second, seed);
+    actions = new GameActions(game);
+    player = firstPlayer();
+    computer = computerPlayer();
+    GAMES.increment();
+    return true;
+  }
+  
+  /**
+   * Ask if the saved game must be resumed
+   * @return true to resume the saved game, false for a new game
+   */
+  private boolean choseResume() {
+    var choices = new LinkedHashSet<KeybindedChoice>(List.of(
+        new KeybindedChoice('r', "Resume the saved game")
+        , new KeybindedChoice('n', "New game")));
+    for(;;) {
+      ui.clear();
+      var choice = ui.simpleMenu("Saved game", choices);
+      if(choice.isPresent()) {
+        return choice.get().key() == 'r';
+      }
+      ui.display();
+    }
+  }
+  
+  /**
+   * Resume the saved game, at the start of the turn it was saved
+   * @return true if the game could be loaded
+   */
+  private boolean resume() {
+    Snapshot snapshot;
+    try {
+      snapshot = Snapshot.load(SAVE);
+    } catch (IOException e) {
+      System.err.println("The saved game can't be loaded: " + e.getMessage());
+      return false;
+    }
+    game = snapshot.game();
+    recorder = snapshot.recorder();
+    actions = new GameActions(game);
+    player = game.trackBoard().latestPlayer();
+    computer = computerPlayer();
+    GAMES.increment();
+    return true;
+  }
+  
+  /**
+   * Save the game in the file given by -Dpatchwork.save,
+   * it will be resumed at the start of the current turn
+   */
+  private void save() {
+    try {
+      new Snapshot(game, recorder).save(SAVE);
+    } catch (IOException e) {
+      System.err.println("The game can't be saved: " + e.getMessage());
+    }
+  }
+  
+  /**
+   * The player of the game named {@link Game#COMPUTER}, played by a bot
+   * @return the computer player, null if there is none
+   */
+  private ComputerPlayer computerPlayer() {
+    return game.trackBoard().players().stream()
+        .filter(p -> p instanceof HumanPlayer human && human.name().equals(Game.COMPUTER))
+        .findFirst()
+        .map(p -> new ComputerPlayer((HumanPlayer) p, computerBot.get()))
+        .orElse(null);
+  }
+  
+  private Player firstPlayer() {
     var humanPlayers = game.trackBoard().playersAt(0).stream()
         .filter(HumanPlayer.class::isInstance).toList();
     // the first player is always human
-    player = humanPlayers.get(humanPlayers.size() - 1); 
-    return true;
+    return humanPlayers.get(humanPlayers.size() - 1); 
   }
   
   /**
@@ -173,22 +329,85 @@ public class PatchworkController {
    */
   public boolean run() {
     do {
+      if(AUTOSAVE) {
+        save();
+      }
       triggeredEvents.clear();
+      var start = System.nanoTime();
+      var event = new TurnEvent();
+      event.begin();
+      var position = player.position();
+      var triggered = 0;
       if(player.isAutonomous()) {
         playAutoma((Automa) player);
-        continue;
+        triggered = triggeredEvents.size();
+      }else if(computer != null && player == computer.player()) {
+        playComputer();
+        triggered = triggeredEvents.size();
+        playComputerEvents();
       }else {
-        
-      }
-      if(!playTurn()) { // quit asked
-       return false; 
+        if(!playTurn()) { // quit asked
+          commitTurn(event, start, position, 0);
+          archive();
+          return false; 
+        }
+        triggered = triggeredEvents.size();
+        playEvents();
       }
-      playEvents();
+      commitTurn(event, start, position, triggered);
     }while((player = game.trackBoard().latestPlayer()) != null   
         && player.position() != game.trackBoard().spaces());
+    archive();
+    deleteSave();
     return endGame();
   }
   
+  /**
+   * A finished game can't be resumed
+   */
+  private void deleteSave() {
+    try {
+      Files.deleteIfExists(SAVE);
+    } catch (IOException e) {
+      System.err.println("The saved game can't be deleted: " + e.getMessage());
+    }
+  }
+  
+  /**
+   * Append the record of the game to the archive file
+   * given by -Dpatchwork.archive, if any
+   */
+  private void archive() {
+    var file = System.getProperty("patchwork.archive");
+    if(file == null || recorder == null) {
+      return;
+    }
+    if(!recorder.isValid()) {
+      System.err.println("The game can't be archived, it diverged from the engine");
+      return;
+    }
+    try {
+      recorder.toRecord().appendTo(Path.of(file));
+    } catch (IOException e) {
+      System.err.println("The game can't be archived: " + e.getMessage());
+    }
+  }
+  
+  private void commitTurn(TurnEvent event, long start, int position, int triggered) {
+    TURNS.recordSince(start);
+    (player.isAutonomous() ? AUTOMA_TURNS : PLAYER_TURNS).increment();
+    if(event.shouldCommit()) {
+      event.player = player.name();
+      event.automa = player.isAutonomous();
+      event.action = action;
+      event.positionBefore = position;
+      event.positionAfter = player.position();
+      event.buttons = player.buttons();
+      event.triggeredEvents = triggered;
+      event.commit();
+    }
+  }
+  
   /**
    * End game loop
    * @param ui
@@ -224,15 +443,16 @@ public class PatchworkController {
       var event = triggeredEvents.peek();
       switch(event.type()) {
         case BUTTON_INCOME -> {
-          int amount = ((HumanPlayer) player).quilt().buttons();
-          if(amount != 0) {
-            player.addButtons(amount);
-          }
+          actions.buttonIncome((HumanPlayer) player);
           triggeredEvents.pop();
         }
         case PATCH_INCOME -> {
-          if(manipulatePatch(new LeatherPatch())) {
-            game.trackBoard().removeEvent(event);
+          var leather = new LeatherPatch();
+          if(manipulatePatch(leather)) {
+            if(recorder != null) {
+              recorder.leather(leather);
+            }
+            actions.claim(event);
             triggeredEvents.pop();
           }
         }
@@ -241,19 +461,14 @@ public class PatchworkController {
       ui.display();
     }
     // check 7x7 filled square on the player quilt board
-    if((((HumanPlayer) player).quilt().hasFilledSquare(7))) {
-      receiveSpecialTile();
-    }
+    actions.checkSpecialTile((HumanPlayer) player);
   }
 
   /**
    * The current player receive the special tile
    */
   public void receiveSpecialTile() {
-    if(specialTile) {
-      player.earnSpecialTile();
-      specialTile = false;
-    }
+    actions.receiveSpecialTile(player);
   }
 
   /**
@@ -261,33 +476,72 @@ public class PatchworkController {
    * @param automa
    */
   private void playAutoma(Automa automa) {
-    var patches = game.patchManager().patches(3);
-    var card = automa.card();
-    var affordablePatches = patches.stream()
-        .filter(p -> p.price() <= card.virtualButtons())
-        .toList();
-    if(affordablePatches.size() == 0) {
-      advancePlayer();
-    }else {
-      var patch = affordablePatches.get(0);
-      if(affordablePatches.size() > 1) {
-        patch = automaPlayCard(automa, patches);
-      }
-      game.trackBoard().movePlayer(player, patch.moves());
-      // update patch manager
-      game.patchManager().moveNeutralToken(patches.indexOf(patch));
-      game.patchManager().removeAtToken();
-      automa.add(patch);
+    var turn = actions.playAutoma(automa);
+    action = turn.advanced() ? "advance" : "buy";
+    triggeredEvents.addAll(turn.events());
+    if(recorder != null) {
+      recorder.automa();
+    }
+  }
+  
+  /**
+   * Play a turn of the computer, its move chosen by its bot
+   * on the engine of the recorder
+   */
+  private void playComputer() {
+    var human = computer.player();
+    if(recorder == null || !recorder.isValid()) {
+      // no engine follows the game, the computer can only advance
+      triggeredEvents.addAll(actions.advance(human));
+      action = "advance";
+      return;
     }
-    // check events
-    var buttonIncomeEventsCount = triggeredEvents.stream()
-        .filter(e -> e.type().equals(EventType.BUTTON_INCOME)).count();
-    automa.addButtons((int) (card.buttonIncome() * buttonIncomeEventsCount));
-    // Special tile
-    if(automa.position() >= game.trackBoard().spaces() - automa.difficulty().spaces()) {
-      receiveSpecialTile();
+    var move = computer.chooseMove(recorder.engine());
+    if(Move.kind(move) != Move.BUY) {
+      triggeredEvents.addAll(actions.advance(human));
+      recorder.advance();
+      action = "advance";
+      return;
     }
-    automa.discardCard();
+    var slot = Move.slot(move);
+    var patch = game.patchManager().patches(3).get(slot);
+    ComputerPlayer.moveTo(patch, move);
+    if(!human.placePatch(patch)) {
+      throw new IllegalStateException("The computer can't play " + Move.toString(move));
+    }
+    recorder.buy(slot, patch);
+    triggeredEvents.addAll(actions.buy(human, patch));
+    action = "buy";
+  }
+  
+  /**
+   * Play the triggered events of the computer during the turn,
+   * its leather patches are placed by its bot
+   */
+  private void playComputerEvents() {
+    var human = computer.player();
+    while(!triggeredEvents.isEmpty()) {
+      var event = triggeredEvents.pop();
+      switch(event.type()) {
+        case BUTTON_INCOME -> actions.buttonIncome(human);
+        case PATCH_INCOME -> {
+          // without an engine or without empty cell, the leather patch is lost
+          if(recorder == null || !recorder.isValid() || human.quilt().countEmptySpaces() == 0) {
+            continue;
+          }
+          var leather = new LeatherPatch();
+          var move = computer.chooseMove(recorder.engine());
+          ComputerPlayer.moveTo(leather, move);
+          if(!human.placePatch(leather)) {
+            throw new IllegalStateException("The computer can't play " + Move.toString(move));
+          }
+          recorder.leather(leather);
+          actions.claim(event);
+        }
+        default -> throw new AssertionError();
+      }
+    }
+    actions.checkSpecialTile(human);
   }
   
   /**
@@ -297,39 +551,7 @@ public class PatchworkController {
    * @return the selected patch
    */
   public RegularPatch automaPlayCard(Automa automa, List<RegularPatch> patches) {
-    var card = automa.card();
-    var nextPlayer = game.trackBoard().nextPlayerFrom(automa.position() + 1);
-    var maxPosition = nextPlayer.isPresent() ? 
-        nextPlayer.get().position() - automa.position() 
-        : game.trackBoard().spaces();
-    // tiles
-    var filteredPatches = List.copyOf(patches);
-    var iterator = card.filters().iterator();
-    while(iterator.hasNext()) {
-      var filterType = iterator.next();
-      switch(filterType) {
-        case LARGEST -> {
-          var patchesBySize = patches.stream()
-              .collect(groupingBy(p -> p.form().countCoordinates(), TreeMap::new, toList()));
-          filteredPatches = List.copyOf(patchesBySize.lastEntry().getValue());
-        }
-        case MOST_BUTTONS -> {
-          var patchesByButtons = patches.stream()
-              .collect(groupingBy(RegularPatch::buttons, TreeMap::new, toList()));
-          filteredPatches = List.copyOf(patchesByButtons.lastEntry().getValue());
-        }
-        case NO_OVERTAKE -> { // We must now which player are ahead 
-          var patchesBymoves = patches.stream()
-              .filter(p -> p.moves() <= maxPosition)
-              .collect(groupingBy(RegularPatch::buttons, TreeMap::new, toList()));
-          var patchWithNoOvertake = patchesBymoves.lastEntry();
-          if(patchWithNoOvertake != null) {
-            filteredPatches = List.copyOf(patchWithNoOvertake.getValue());
-          }
-        }
-      }
-    }
-    return filteredPatches.get(filteredPatches.size() - 1);
+    return actions.automaPatch(automa, patches);
   }
   
   /**
@@ -338,13 +560,19 @@ public class PatchworkController {
    * the game, otherwise true
    */
   boolean playTurn() {
+    var completion = completion();
+    ponder();
     for(;;) {
       ui.clear();
       ui.draw(game.trackBoard());
       ui.draw(game.patchManager());
+      if(completion != null) {
+        ui.drawCompletion((HumanPlayer) player, completion);
+      }
       ui.display();
       var chose = ui.turnMenu(availableActions());
       if(chose.isPresent()) {
+        stopPondering();
         switch (chose.get().key()) {
           case 's' -> { 
             // select a patch
@@ -352,33 +580,78 @@ public class PatchworkController {
             // try placing it on the quilt
             if(manipulatePatch(selectedPatch)) { 
               // placed
-              game.trackBoard().movePlayer(player, selectedPatch.moves());
-              // update patch manager
-              game.patchManager().moveNeutralToken(game.patchManager().patches(3).indexOf(selectedPatch));
-              game.patchManager().removeAtToken();
+              if(recorder != null) {
+                recorder.buy(game.patchManager().patches(3).indexOf(selectedPatch), selectedPatch);
+              }
+              triggeredEvents.addAll(actions.buy(player, selectedPatch));
+              action = "buy";
               return true;
             }
           }
           case 'a' -> {
-            player.addButtons(advancePlayer());
+            triggeredEvents.addAll(actions.advance(player));
+            if(recorder != null) {
+              recorder.advance();
+            }
+            action = "advance";
             return true;
           }
+          case 'v' -> save();
           case 'r' -> {
+            action = "quit";
             return false; // quit asked
           }
           default -> throw new AssertionError("There shouldn't be other choices");
         }
+        // the turn goes on
+        ponder();
       }    
       ui.display();
     }
   }
   
+  /**
+   * Let the computer search the position of the human in the background,
+   * if the human plays against the computer
+   */
+  private void ponder() {
+    if(computer != null && recorder != null && recorder.isValid()) {
+      computer.bot().ponder(recorder.engine());
+    }
+  }
+  
+  /**
+   * Stop the search of the computer started by {@link #ponder()}, if any
+   */
+  private void stopPondering() {
+    if(computer != null) {
+      computer.bot().stopPondering();
+    }
+  }
+  
+  /**
+   * Search if the quilt of the current player can be finished
+   * without hole with the patches left, once it has few empty cells
+   * @return the completion, null if the quilt has too many empty cells
+   */
+  private Completion completion() {
+    if(!(player instanceof HumanPlayer human)) {
+      return null;
+    }
+    var empty = human.quilt().countEmptySpaces();
+    if(empty == 0 || empty > ENDGAME_CELLS) {
+      return null;
+    }
+    return ENDGAME.solve(human.quilt(), game.patchManager().circle());
+  }
+  
   private RegularPatch selectPatch(List<RegularPatch> patches) {
+    var selectable = selectablePatches(patches);
     for(;;) {
       ui.clear();
       ui.draw(game.trackBoard());
       ui.display();
-      var selectedPatch = ui.selectPatch(patches, game.patchManager());
+      var selectedPatch = ui.selectPatch(patches, selectable, game.patchManager());
       if(selectedPatch.isPresent()) {
         return selectedPatch.get();
       }
@@ -387,18 +660,16 @@ public class PatchworkController {
   }
   
   /**
-   * Advance the current player to the space in front of the next player. This
-   * action lead to button income proportional of number of crossed spaces.
-   * @return the amount of spaces moved
+   * The patches the current player can buy:
+   * the ones he can afford and place somewhere on his quilt
+   * @param patches
+   * @return the patches that can be selected
    */
-  public int advancePlayer() {
-    int moves = 1;
-    var nextPlayer = game.trackBoard().nextPlayerFrom(player.position() + moves);
-    if(nextPlayer.isPresent()) { // player ahead
-      moves = nextPlayer.get().position() + 1 - player.position();
-    }
-    triggeredEvents.addAll(game.trackBoard().movePlayer(player, moves));
-    return moves;
+  private Set<RegularPatch> selectablePatches(List<RegularPatch> patches) {
+    var quilt = ((HumanPlayer) player).quilt();
+    return patches.stream()
+        .filter(patch -> player.buttons() >= patch.price() && quilt.fitsAnywhere(patch.form()))
+        .collect(toSet());
   }
   
   /**
@@ -415,31 +686,69 @@ public class PatchworkController {
     // We use a dummy quilt to play with the patch
     var hplayer = (HumanPlayer) player;
     patch.absoluteMoveTo(new Coordinates(hplayer.quilt().width() / 2, hplayer.quilt().height() / 2));
-    var loop = true;
-    do {
-      ui.clear();
-      ui.drawDummyQuilt(hplayer, patch);
-      ui.display();
-      var chose = ui.manipulatePatch(availableManipulations(hplayer.quilt(), patch));
-      if(chose.isPresent()) {
-        switch (chose.get().key()) {
-          case 's'  -> patch.moveUp();
-          case 'w' -> patch.moveDown();
-          case 'd' -> patch.moveRight();
-          case 'q' -> patch.moveLeft();
-          case 'z' -> patch.rotateLeft();
-          case 'a' -> patch.rotateRight();
-          case 'f' -> patch.flip();
-          case 'p' -> {
-            return hplayer.placePatch(patch);
+    if(showHints) {
+      requestHints(hplayer.quilt(), patch);
+    }
+    try {
+      var loop = true;
+      do {
+        ui.clear();
+        ui.drawDummyQuilt(hplayer, patch);
+        if(showHints) {
+          ui.drawHints(hplayer, HINTS.hints());
+        }
+        ui.display();
+        var chose = ui.manipulatePatch(availableManipulations(hplayer.quilt(), patch));
+        if(chose.isPresent()) {
+          switch (chose.get().key()) {
+            case 's'  -> patch.moveUp();
+            case 'w' -> patch.moveDown();
+            case 'd' -> patch.moveRight();
+            case 'q' -> patch.moveLeft();
+            case 'z' -> patch.rotateLeft();
+            case 'a' -> patch.rotateRight();
+            case 'f' -> patch.flip();
+            case 'h' -> toggleHints(hplayer.quilt(), patch);
+            case 'p' -> {
+              return hplayer.placePatch(patch);
+            }
+            case 'b' -> loop = false;
+            default -> { throw new AssertionError("There shouldn't be other choices"); }
           }
-          case 'b' -> loop = false;
-          default -> { throw new AssertionError("There shouldn't be other choices"); }
         }
-      }
-      ui.display();
-    } while (loop);
-    return false;
+        ui.display();
+      } while (loop);
+      return false;
+    } finally {
+      HINTS.cancel();
+    }
+  }
+  
+  /**
+   * Show or hide the hints of the manipulated patch,
+   * they are computed in the background when shown
+   * @param quilt
+   * @param patch
+   */
+  private void toggleHints(QuiltBoard quilt, Patch patch) {
+    showHints = !showHints;
+    if(showHints) {
+      requestHints(quilt, patch);
+    } else {
+      HINTS.cancel();
+    }
+  }
+  
+  /**
+   * Start the computation of the hints of a patch,
+   * knowing the smallest patch left around the board
+   * @param quilt
+   * @param patch
+   */
+  private void requestHints(QuiltBoard quilt, Patch patch) {
+    var circle = game.patchManager().circle();
+    var smallest = circle.isEmpty() ? 1 : circle.get(PatchManager.minPatch(circle)).form().countCoordinates();
+    HINTS.request(quilt, patch.form(), smallest);
   }
   
   /**
@@ -452,12 +761,10 @@ public class PatchworkController {
     if(game.trackBoard().playerCanAdvance(player)) {
       choices.add(new KeybindedChoice('a', "Advance"));
     }
-    var patches = game.patchManager().patches(3);
-    if(!patches.isEmpty() &&
-        patches.stream()
-        .anyMatch(patch -> player.buttons() >= patch.price())) {
+    if(!selectablePatches(game.patchManager().patches(3)).isEmpty()) {
       choices.add(new KeybindedChoice('s', "Select a patch"));
     }
+    choices.add(new KeybindedChoice('v', "Save"));
     choices.add(new KeybindedChoice('r', "Ragequit"));
     return choices;
   }
@@ -490,6 +797,7 @@ public class PatchworkController {
         new KeybindedChoice('z', "rotate left"), 
         new KeybindedChoice('a', "rotate right"),
         new KeybindedChoice('f', "flip"),
+        new KeybindedChoice('h', showHints ? "hide hints" : "hints"),
         new KeybindedChoice('b', "back"));
     choices.addAll(basicChoices);
     return choices;
@@ -521,12 +829,41 @@ public class PatchworkController {
   }
   
   public static void help() {
-    System.out.println("-c for cli -g for gui");
+    System.out.println("-c for cli -g for gui, or a batch command:");
+    BatchMode.usage(System.out);
   }
   
   
 
+  /**
+   * Export the metrics periodically if the system property
+   * "patchwork.metrics" gives a file (csv or text), every
+   * "patchwork.metrics.period" seconds (10 by default),
+   * and a last time when the program stops
+   */
+  private static void exportMetrics() {
+    var file = System.getProperty("patchwork.metrics");
+    if(file == null) {
+      return;
+    }
+    var period = Long.getLong("patchwork.metrics.period", 10);
+    var exporter = MetricsExporter.of(MetricsRegistry.global(), Path.of(file));
+    exporter.start(Duration.ofSeconds(period));
+    Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+      try {
+        exporter.close();
+      } catch (IOException e) {
+        System.err.println(e.getMessage());
+      }
+    }));
+  }
+
   public static void main(String[] args) {
+    exportMetrics();
+    if(args.length > 0 && BatchMode.isCommand(args[0])) {
+      System.exit(BatchMode.run(args));
+      return;
+    }
     var cli = true;
     if(args.length > 0) {
       if(args.length > 1) {
@@ -543,7 +880,9 @@ public class PatchworkController {
       }
     }  
     if(cli) {
-      startGame(new CommandLineInterface());
+      var ui = new CommandLineInterface();
+      ui.init();
+      startGame(ui);
     }else {
       Application.run(Color.BLACK, (context) -> {
         var ui = new GraphicalUserInterface(context);
@@ -3,9 +3,10 @@ package fr.uge.patchwork.model;
 import java.io.IOException;
 import java.nio.file.Path;
 import java.util.ArrayList;
-import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Objects;
+import java.util.concurrent.ThreadLocalRandom;
 
 import fr.uge.patchwork.model.component.QuiltBoard;
 import fr.uge.patchwork.model.component.gameboard.PatchManager;
@@ -20,10 +21,40 @@ import fr.uge.patchwork.model.component.player.automa.AutomaDifficulty;
 import fr.uge.patchwork.model.component.player.automa.DeckType;
 
 /**
- * The data of a patchwork game
+ * The data of a patchwork game.
+ * <p>
+ * A game is built from a seed: the same seed always gives the same
+ * circle of patches and the same Automa decks, and the seed is split
+ * in one generator by component, so games built in parallel share nothing.
+ * The seeds give the same games as {@link fr.uge.patchwork.model.engine.Engine#create}.
  */
 public record Game(GameMode gameMode, TrackBoard trackBoard, 
-    PatchManager patchManager) {
+    PatchManager patchManager, long seed) {
+  
+  /**
+   * Number of spaces of the track board
+   */
+  public static final int SPACES = 54;
+  /**
+   * Side of the quilts of the players
+   */
+  public static final int QUILT_SIDE = 9;
+  /**
+   * Buttons of a player at the start of a game
+   */
+  public static final int STARTING_BUTTONS = 5;
+  /**
+   * Positions of the button income events of the full game
+   */
+  public static final List<Integer> BUTTON_INCOME_POSITIONS = List.of(5, 11, 17, 23, 29, 35, 41, 47);
+  /**
+   * Positions of the leather patch events of the full game
+   */
+  public static final List<Integer> PATCH_INCOME_POSITIONS = List.of(20, 26, 32, 44, 50);
+  /**
+   * Name of the player played by the computer, see {@link #computer(long)}
+   */
+  public static final String COMPUTER = "Computer";
   
   public Game {
     Objects.requireNonNull(gameMode, "The game mode can't be null");
@@ -31,47 +62,111 @@ public record Game(GameMode gameMode, TrackBoard trackBoard,
     Objects.requireNonNull(patchManager, "The patche manager can't be null");
   }
   
-  // public void save() ?
-  // public void loadFromSave() ?
+  /**
+   * Return the path of the settings file of the patches of a game mode
+   * @param gameMode
+   * @return the path
+   */
+  public static Path patchesPath(GameMode gameMode) {
+    Objects.requireNonNull(gameMode, "The game mode can't be null");
+    return switch(gameMode) {
+      case PATCHWORK_BASIC -> Path.of("resources/settings/basic/patchwork_basic.txt");
+      case PATCHWORK_FULL, PATCHWORK_AUTOMA -> Path.of("resources/settings/full/patchwork_full.txt");
+    };
+  }
+  
+  /**
+   * Create the events of the full game
+   * @return the events
+   */
+  private static List<Event> fullEvents() {
+    var events = new ArrayList<Event>();
+    for(var pos: BUTTON_INCOME_POSITIONS) {
+      events.add(new Event(EventType.BUTTON_INCOME, pos));
+    }
+    for(var pos: PATCH_INCOME_POSITIONS) {
+      events.add(new Event(EventType.PATCH_INCOME, pos));
+    }
+    return events;
+  }
+  
+  /**
+   * The players of a game, the first one plays first
+   * as the last arrived on the first space
+   */
+  private static LinkedHashSet<Player> players(Player first, Player second) {
+    return new LinkedHashSet<>(List.of(second, first));
+  }
+  
+  private static long randomSeed() {
+    return ThreadLocalRandom.current().nextLong();
+  }
   
   /**
    * Create a 1vs1 patchwork game with basic set of patch
    * with no events nor special tile
+   * @param seed
+   * @return the game environnement
+   * @throws IOException if an error occur while paring file setting
+   */
+  public static Game basic(long seed) throws IOException {
+    var random = new SplitMix64(seed);
+    var players = players(
+        new HumanPlayer("Player 1", STARTING_BUTTONS, new QuiltBoard(QUILT_SIDE, QUILT_SIDE)),
+        new HumanPlayer("Player 2", STARTING_BUTTONS, new QuiltBoard(QUILT_SIDE, QUILT_SIDE)));
+    var trackBoard = new TrackBoard(SPACES, players, List.of());
+    var patchManager = new PatchManager(RegularPatch.fromFile(patchesPath(GameMode.PATCHWORK_BASIC)), random.split());
+    return new Game(GameMode.PATCHWORK_BASIC, trackBoard, patchManager, seed);
+  }
+  
+  /**
+   * Create a basic game with a random seed, see {@link #basic(long)}
    * @return the game environnement
    * @throws IOException if an error occur while paring file setting
    */
   public static Game basic() throws IOException {
-    var events = new ArrayList<Event>();
-    var players = new HashSet<Player>(List.of(
-        new HumanPlayer("Player 1", 5, new QuiltBoard(9,9)),
-        new HumanPlayer("Player 2", 5, new QuiltBoard(9,9))));
-    var patchesPath = Path.of("resources/settings/basic/patchwork_basic.txt");
-    var trackBoard = new TrackBoard(54, players, events);
-    var patchManager = new PatchManager(RegularPatch.fromFile(patchesPath));
-    return new Game(GameMode.PATCHWORK_BASIC, trackBoard, patchManager);
+    return basic(randomSeed());
   }
   
   /**
    * Create a 1vs1 patchwork game with the full set of patch
    * and events
+   * @param seed
+   * @return the game environnement
+   * @throws IOException if an error occur while paring file setting
+   */
+  public static Game full(long seed) throws IOException {
+    return full("Player 2", seed);
+  }
+  
+  private static Game full(String second, long seed) throws IOException {
+    var random = new SplitMix64(seed);
+    var players = players(
+        new HumanPlayer("Player 1", STARTING_BUTTONS, new QuiltBoard(QUILT_SIDE, QUILT_SIDE)),
+        new HumanPlayer(second, STARTING_BUTTONS, new QuiltBoard(QUILT_SIDE, QUILT_SIDE)));
+    var trackBoard = new TrackBoard(SPACES, players, fullEvents());
+    var patchManager = new PatchManager(RegularPatch.fromFile(patchesPath(GameMode.PATCHWORK_FULL)), random.split());
+    return new Game(GameMode.PATCHWORK_FULL, trackBoard, patchManager, seed);
+  }
+  
+  /**
+   * Create a full game, see {@link #full(long)}, where the second
+   * player is named {@link #COMPUTER}, to be played by the computer
+   * @param seed
+   * @return the game environnement
+   * @throws IOException if an error occur while paring file setting
+   */
+  public static Game computer(long seed) throws IOException {
+    return full(COMPUTER, seed);
+  }
+  
+  /**
+   * Create a full game with a random seed, see {@link #full(long)}
    * @return the game environnement
    * @throws IOException if an error occur while paring file setting
    */
   public static Game full() throws IOException {
-    var events = new ArrayList<Event>();
-    var players = new HashSet<Player>(List.of(
-        new HumanPlayer("Player 1", 5, new QuiltBoard(9,9)),
-        new HumanPlayer("Player 2", 5, new QuiltBoard(9,9))));
-    var patchesPath = Path.of("resources/settings/full/patchwork_full.txt");
-    for(var pos: List.of(5, 11, 17, 23, 29, 35, 41, 47)) {
-      events.add(new Event(EventType.BUTTON_INCOME, pos));
-    }
-    for(var pos: List.of(20, 26, 32, 44, 50)) {
-      events.add(new Event(EventType.PATCH_INCOME, pos));
-    }
-    var trackBoard = new TrackBoard(54, players, events);
-    var patchManager = new PatchManager(RegularPatch.fromFile(patchesPath));
-    return new Game(GameMode.PATCHWORK_FULL, trackBoard, patchManager);    
+    return full(randomSeed());
   }
   
   /**
@@ -79,24 +174,31 @@ public record Game(GameMode gameMode, TrackBoard trackBoard,
    * and with a player as Automa
    * @param difficulty
    * @param deckType
+   * @param seed
+   * @return the game environnement
+   * @throws IOException if an error occur while paring file setting
+   */
+  public static Game automa(AutomaDifficulty difficulty, DeckType deckType, long seed) throws IOException {
+    var random = new SplitMix64(seed);
+    // the patches are shuffled before the deck is split
+    var patchRandom = random.split();
+    var players = players(
+        new HumanPlayer("Player 1", STARTING_BUTTONS, new QuiltBoard(QUILT_SIDE, QUILT_SIDE)),
+        new Automa(difficulty, DeckType.fromType(deckType), random.split()));
+    var trackBoard = new TrackBoard(SPACES, players, fullEvents());
+    var patchManager = new PatchManager(RegularPatch.fromFile(patchesPath(GameMode.PATCHWORK_AUTOMA)), patchRandom);
+    return new Game(GameMode.PATCHWORK_AUTOMA, trackBoard, patchManager, seed);
+  }
+  
+  /**
+   * Create an Automa game with a random seed, see {@link #automa(AutomaDifficulty, DeckType, long)}
+   * @param difficulty
+   * @param deckType
    * @return the game environnement
    * @throws IOException if an error occur while paring file setting
    */
   public static Game automa(AutomaDifficulty difficulty, DeckType deckType) throws IOException {
-    var events = new ArrayList<Event>();
-    var players = new HashSet<Player>(List.of(
-        new HumanPlayer("Player 1", 5, new QuiltBoard(9,9)),
-        new Automa(difficulty, DeckType.fromType(deckType))));
-    var patchesPath = Path.of("resources/settings/full/patchwork_full.txt");
-    for(var pos: List.of(5, 11, 17, 23, 29, 35, 41, 47)) {
-      events.add(new Event(EventType.BUTTON_INCOME, pos));
-    }
-    for(var pos: List.of(20, 26, 32, 44, 50)) {
-      events.add(new Event(EventType.PATCH_INCOME, pos));
-    }
-    var trackBoard = new TrackBoard(54, players, events);
-    var patchManager = new PatchManager(RegularPatch.fromFile(patchesPath));
-    return new Game(GameMode.PATCHWORK_AUTOMA, trackBoard, patchManager);
+    return automa(difficulty, deckType, randomSeed());
   }
   
 }
@@ -0,0 +1,271 @@
+package fr.uge.patchwork.model;
+
+import static java.util.stream.Collectors.groupingBy;
+import static java.util.stream.Collectors.toList;
+
+import java.util.List;
+import java.util.Objects;
+import java.util.TreeMap;
+
+import fr.uge.patchwork.model.component.gameboard.event.Event;
+import fr.uge.patchwork.model.component.gameboard.event.EventType;
+import fr.uge.patchwork.model.component.patch.RegularPatch;
+import fr.uge.patchwork.model.component.player.HumanPlayer;
+import fr.uge.patchwork.model.component.player.Player;
+import fr.uge.patchwork.model.component.player.automa.Automa;
+import fr.uge.patchwork.monitoring.AutomaCardEvent;
+import fr.uge.patchwork.monitoring.Histogram;
+import fr.uge.patchwork.monitoring.MetricsRegistry;
+
+/**
+ *
+ * The actions of the players on a game, with the rules of the game:
+ * what happens once a player has chosen what to do, without any interface.
+ *
+ * <p>
+ * The controller asks the players for their choices and plays them
+ * with these actions, and the replays of the records on the object model
+ * (see {@link fr.uge.patchwork.model.archive.GameReplayer}) play the recorded
+ * moves with them, so both follow the same rules.
+ *
+ */
+public final class GameActions {
+
+  private static final Histogram AUTOMA_CARDS = MetricsRegistry.global().histogram("controller.automa.card");
+  // patches available after the neutral token
+  private static final int SLOTS = 3;
+  // side of the filled square giving the special tile
+  private static final int SQUARE_SIDE = 7;
+
+  private final Game game;
+  // the special tile is still available
+  private boolean specialTile;
+
+  /**
+   * The turn of an Automa
+   * @param bought the patch bought, null if the Automa advanced
+   * @param events the events crossed
+   */
+  public record AutomaTurn(RegularPatch bought, List<Event> events) {
+
+    public AutomaTurn {
+      events = List.copyOf(events);
+    }
+
+    public boolean advanced() {
+      return bought == null;
+    }
+  }
+
+  /**
+   * @param game
+   */
+  public GameActions(Game game) {
+    this.game = Objects.requireNonNull(game, "The game can't be null");
+    specialTile = game.trackBoard().players().stream().noneMatch(Player::specialTile);
+  }
+
+  public Game game() {
+    return game;
+  }
+
+  /**
+   * @return the player of the turn: the latest one on the track board
+   */
+  public Player currentPlayer() {
+    return game.trackBoard().latestPlayer();
+  }
+
+  /**
+   * @return true once all the players are on the last space
+   */
+  public boolean isFinished() {
+    return game.trackBoard().isFinished();
+  }
+
+  /**
+   * Advance a player to the space in front of the next player, or of one space.
+   * A player with a quilt earns a button by space.
+   * @param player
+   * @return the events crossed
+   */
+  public List<Event> advance(Player player) {
+    Objects.requireNonNull(player, "The player can't be null");
+    var moves = 1;
+    var nextPlayer = game.trackBoard().nextPlayerFrom(player.position() + moves);
+    if(nextPlayer.isPresent()) { // player ahead
+      moves = nextPlayer.get().position() + 1 - player.position();
+    }
+    var events = game.trackBoard().movePlayer(player, moves);
+    if(!player.isAutonomous()) {
+      player.addButtons(moves);
+    }
+    return events;
+  }
+
+  /**
+   * Buy a patch: the player moves by the time of the patch
+   * and the neutral token moves to the place of the patch.
+   * A player with a quilt must have placed the patch on its quilt before,
+   * see {@link HumanPlayer#placePatch(fr.uge.patchwork.model.component.patch.Patch)}
+   * @param player
+   * @param patch one of the patches after the neutral token
+   * @return the events crossed
+   */
+  public List<Event> buy(Player player, RegularPatch patch) {
+    Objects.requireNonNull(player, "The player can't be null");
+    Objects.requireNonNull(patch, "The patch can't be null");
+    var index = game.patchManager().patches(SLOTS).indexOf(patch);
+    if(index == -1) {
+      throw new IllegalArgumentException("The patch is not after the neutral token");
+    }
+    var events = game.trackBoard().movePlayer(player, patch.moves());
+    game.patchManager().moveNeutralToken(index);
+    game.patchManager().removeAtToken();
+    if(player instanceof Automa automa) {
+      automa.add(patch);
+    }
+    return events;
+  }
+
+  /**
+   * Give a player with a quilt the buttons of the patches of its quilt,
+   * for a button income event
+   * @param player
+   */
+  public void buttonIncome(HumanPlayer player) {
+    Objects.requireNonNull(player, "The player can't be null");
+    var amount = player.quilt().buttons();
+    if(amount != 0) {
+      player.addButtons(amount);
+    }
+  }
+
+  /**
+   * Remove a leather patch event from the track board,
+   * once its leather patch is placed on a quilt
+   * @param event
+   */
+  public void claim(Event event) {
+    game.trackBoard().removeEvent(event);
+  }
+
+  /**
+   * Give the special tile to a player with a filled 7x7 square on its quilt,
+   * at the end of its turn
+   * @param player
+   */
+  public void checkSpecialTile(HumanPlayer player) {
+    if(player.quilt().hasFilledSquare(SQUARE_SIDE)) {
+      receiveSpecialTile(player);
+    }
+  }
+
+  /**
+   * Give the special tile to a player, if nobody has it yet
+   * @param player
+   */
+  public void receiveSpecialTile(Player player) {
+    Objects.requireNonNull(player, "The player can't be null");
+    if(specialTile) {
+      player.earnSpecialTile();
+      specialTile = false;
+    }
+  }
+
+  /**
+   * Play the turn of an Automa with its current card: it buys the patch
+   * chosen by the card if it can afford one, otherwise it advances.
+   * It earns the button income of the card for each button income event
+   * crossed, then discards the card
+   * @param automa
+   * @return the turn
+   */
+  public AutomaTurn playAutoma(Automa automa) {
+    Objects.requireNonNull(automa, "The Automa can't be null");
+    var patches = game.patchManager().patches(SLOTS);
+    var card = automa.card();
+    var affordablePatches = patches.stream()
+        .filter(p -> p.price() <= card.virtualButtons())
+        .toList();
+    RegularPatch bought = null;
+    List<Event> events;
+    if(affordablePatches.size() == 0) {
+      events = advance(automa);
+    } else {
+      bought = affordablePatches.get(0);
+      if(affordablePatches.size() > 1) {
+        bought = automaPatch(automa, patches);
+      }
+      events = buy(automa, bought);
+    }
+    var buttonIncomeEventsCount = events.stream()
+        .filter(e -> e.type().equals(EventType.BUTTON_INCOME)).count();
+    automa.addButtons((int) (card.buttonIncome() * buttonIncomeEventsCount));
+    if(automa.position() >= game.trackBoard().spaces() - automa.difficulty().spaces()) {
+      receiveSpecialTile(automa);
+    }
+    automa.discardCard();
+    return new AutomaTurn(bought, events);
+  }
+
+  /**
+   * Choose the patch bought by an Automa with the filters of its current card
+   * @param automa
+   * @param patches the patches after the neutral token
+   * @return the selected patch
+   */
+  public RegularPatch automaPatch(Automa automa, List<RegularPatch> patches) {
+    var start = System.nanoTime();
+    var event = new AutomaCardEvent();
+    event.begin();
+    var card = automa.card();
+    var nextPlayer = game.trackBoard().nextPlayerFrom(automa.position() + 1);
+    var maxPosition = nextPlayer.isPresent() ?
+        nextPlayer.get().position() - automa.position()
+        : game.trackBoard().spaces();
+    // tiles
+    var filteredPatches = List.copyOf(patches);
+    var iterator = card.filters().iterator();
+    while(iterator.hasNext()) {
+      var filterType = iterator.next();
+      switch(filterType) {
+        case LARGEST -> {
+          var patchesBySize = patches.stream()
+              .collect(groupingBy(p -> p.form().countCoordinates(), TreeMap::new, toList()));
+          filteredPatches = List.copyOf(patchesBySize.lastEntry().getValue());
+        }
+        case MOST_BUTTONS -> {
+          var patchesByButtons = patches.stream()
+              .collect(groupingBy(RegularPatch::buttons, TreeMap::new, toList()));
+          filteredPatches = List.copyOf(patchesByButtons.lastEntry().getValue());
+        }
+        case NO_OVERTAKE -> { // We must now which player are ahead
+          var patchesBymoves = patches.stream()
+              .filter(p -> p.moves() <= maxPosition)
+              .collect(groupingBy(RegularPatch::buttons, TreeMap::new, toList()));
+          var patchWithNoOvertake = patchesBymoves.lastEntry();
+          if(patchWithNoOvertake != null) {
+            filteredPatches = List.copyOf(patchWithNoOvertake.getValue());
+          }
+        }
+      }
+    }
+    var chosen = filteredPatches.get(filteredPatches.size() - 1);
+    AUTOMA_CARDS.recordSince(start);
+    if(event.shouldCommit()) {
+      event.difficulty = automa.difficulty().name();
+      event.tactical = card.tactical();
+      event.filters = card.filters().toString();
+      event.virtualButtons = card.virtualButtons();
+      event.candidates = patches.size();
+      event.maxMoves = maxPosition;
+      event.chosenPrice = chosen.price();
+      event.chosenMoves = chosen.moves();
+      event.chosenButtons = chosen.buttons();
+      event.commit();
+    }
+    return chosen;
+  }
+
+}
@@ -0,0 +1,153 @@
+package fr.uge.patchwork.model;
+
+import java.util.List;
+import java.util.random.RandomGenerator;
+
+/**
+ *
+ * Splittable random generator, with the SplitMix64 algorithm
+ * of {@link java.util.SplittableRandom}.
+ *
+ * <p>
+ * Unlike {@link java.util.SplittableRandom}, the state of the generator
+ * can be read and restored, so a game can be saved, copied or
+ * replayed with the exact same random values.
+ * A generator is not thread safe, each thread must use its own split.
+ *
+ */
+public final class SplitMix64 implements RandomGenerator {
+
+  /**
+   * The gamma of a generator created from a seed
+   */
+  public static final long GOLDEN_GAMMA = 0x9e3779b97f4a7c15L;
+  private long seed;
+  private final long gamma;
+
+  /**
+   * The state of a generator
+   * @param seed
+   * @param gamma
+   */
+  public record State(long seed, long gamma) {
+    public State {
+      if((gamma & 1) == 0) {
+        throw new IllegalArgumentException("The gamma must be odd");
+      }
+    }
+  }
+
+  /**
+   * @param seed
+   */
+  public SplitMix64(long seed) {
+    this(seed, GOLDEN_GAMMA);
+  }
+
+  /**
+   * Restore a generator from its state
+   * @param state
+   */
+  public SplitMix64(State state) {
+    this(state.seed(), state.gamma());
+  }
+
+  private SplitMix64(long seed, long gamma) {
+    this.seed = seed;
+    this.gamma = gamma;
+  }
+
+  /**
+   * Mix the bits of a value, each bit of the result depends on all the bits of the value
+   * @param z
+   * @return the mixed value
+   */
+  public static long mix64(long z) {
+    z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+    z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+    return z ^ (z >>> 31);
+  }
+
+  private static long mixGamma(long z) {
+    z = (z ^ (z >>> 33)) * 0xff51afd7ed558ccdL;
+    z = (z ^ (z >>> 33)) * 0xc4ceb9fe1a85ec53L;
+    z = (z ^ (z >>> 33)) | 1L;
+    var n = Long.bitCount(z ^ (z >>> 1));
+    return (n < 24) ? z ^ 0xaaaaaaaaaaaaaaaaL : z;
+  }
+
+  @Override
+  public long nextLong() {
+    seed += gamma;
+    return mix64(seed);
+  }
+
+  /**
+   * Create a new generator, independent of this one,
+   * from the next values of this one
+   * @return the new generator
+   */
+  public SplitMix64 split() {
+    var splitSeed = nextLong();
+    seed += gamma;
+    return new SplitMix64(splitSeed, mixGamma(seed));
+  }
+
+  /**
+   * @return a generator with the same state, that will give the same values
+   */
+  public SplitMix64 copy() {
+    return new SplitMix64(seed, gamma);
+  }
+
+  /**
+   * @return the current state
+   */
+  public State state() {
+    return new State(seed, gamma);
+  }
+
+  /**
+   * Shuffle a list with the Fisher-Yates algorithm, the
+   * same permutation is done for the same state of the generator
+   * @param <T>
+   * @param list
+   */
+  public <T> void shuffle(List<T> list) {
+    for(var i = list.size() - 1; i > 0; i--) {
+      var j = nextInt(i + 1);
+      list.set(i, list.set(j, list.get(i)));
+    }
+  }
+
+  /**
+   * Shuffle the first elements of an array with the Fisher-Yates algorithm,
+   * as {@link #shuffle(List)} does
+   * @param array
+   * @param length number of elements to shuffle
+   */
+  public void shuffle(int[] array, int length) {
+    for(var i = length - 1; i > 0; i--) {
+      var j = nextInt(i + 1);
+      var tmp = array[i];
+      array[i] = array[j];
+      array[j] = tmp;
+    }
+  }
+
+  /**
+   * Shuffle an array with the Fisher-Yates algorithm,
+   * as {@link #shuffle(List)} does
+   * @param <T>
+   * @param array
+   */
+  public <T> void shuffle(T[] array) {
+    for(var i = array.length - 1; i > 0; i--) {
+      var j = nextInt(i + 1);
+      var tmp = array[i];
+      array[i] = array[j];
+      array[j] = tmp;
+    }
+  }
+
+}
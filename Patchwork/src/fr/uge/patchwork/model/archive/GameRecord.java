@@ -0,0 +1,383 @@
+package fr.uge.patchwork.model.archive;
+
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+
+import fr.uge.patchwork.model.GameMode;
+import fr.uge.patchwork.model.component.player.automa.AutomaDifficulty;
+import fr.uge.patchwork.model.component.player.automa.DeckType;
+import fr.uge.patchwork.model.engine.Engine;
+import fr.uge.patchwork.model.engine.Move;
+import fr.uge.patchwork.model.engine.Rules;
+import fr.uge.patchwork.model.engine.SideSetup;
+
+/**
+ *
+ * The record of a game: its configuration, its seed and the moves
+ * played by the sides with a quilt.
+ * The moves of an Automa are not recorded, the engine computes them
+ * again from the seed, see {@link Replayer}.
+ *
+ * <p>
+ * The binary format is:
+ * <pre>
+ * byte     version
+ * byte     game mode
+ * byte     setup of the side 0, then of the side 1: 0 for a quilt,
+ *          1 + difficulty * decks + deck for an Automa
+ * 8 bytes  seed, big endian
+ * varint   number of moves
+ * varint   each move: 0 to advance,
+ *          1 + ((slot * 8 + orientation) * height + y) * width + x to buy,
+ *          1 + 24 * width * height + y * width + x for a leather patch
+ * </pre>
+ * so a move takes 1 or 2 bytes on a 9x9 quilt, and a game a few dozen bytes.
+ * An archive file is a sequence of records, each one prefixed by its size as a varint.
+ *
+ */
+public final class GameRecord {
+
+  private static final int VERSION = 1;
+  private static final int HEADER = 12;
+
+  private final GameMode gameMode;
+  private final Side first;
+  private final Side second;
+  private final long seed;
+  private final int[] moves;
+
+  /**
+   * Who plays a side in a record
+   * @param difficulty of the Automa, null for a quilt
+   * @param deckType of the Automa, null for a quilt
+   */
+  public record Side(AutomaDifficulty difficulty, DeckType deckType) {
+
+    public Side {
+      if((difficulty == null) != (deckType == null)) {
+        throw new IllegalArgumentException("An Automa needs a difficulty and a deck");
+      }
+    }
+
+    public static Side quilt() {
+      return new Side(null, null);
+    }
+
+    public static Side automa(AutomaDifficulty difficulty, DeckType deckType) {
+      Objects.requireNonNull(difficulty, "The difficulty can't be null");
+      Objects.requireNonNull(deckType, "The deck type can't be null");
+      return new Side(difficulty, deckType);
+    }
+
+    public boolean isAutoma() {
+      return difficulty != null;
+    }
+
+    /**
+     * @return the setup of the side for the engine
+     * @throws IOException if the deck can't be read
+     */
+    public SideSetup setup() throws IOException {
+      return isAutoma() ? SideSetup.automa(difficulty, deckType) : SideSetup.quilt();
+    }
+
+    private int encode() {
+      return isAutoma() ? 1 + difficulty.ordinal() * DeckType.values().length + deckType.ordinal() : 0;
+    }
+
+    private static Side decode(int code) throws IOException {
+      if(code == 0) {
+        return quilt();
+      }
+      var decks = DeckType.values();
+      var difficulties = AutomaDifficulty.values();
+      if(code < 0 || code > difficulties.length * decks.length) {
+        throw new IOException("Invalid side " + code);
+      }
+      return automa(difficulties[(code - 1) / decks.length], decks[(code - 1) % decks.length]);
+    }
+  }
+
+  /**
+   * @param gameMode
+   * @param first side playing first
+   * @param second
+   * @param seed the seed of the game
+   * @param moves the moves of the sides with a quilt, in the order they were played
+   */
+  public GameRecord(GameMode gameMode, Side first, Side second, long seed, int[] moves) {
+    this.gameMode = Objects.requireNonNull(gameMode, "The game mode can't be null");
+    this.first = Objects.requireNonNull(first, "The first side can't be null");
+    this.second = Objects.requireNonNull(second, "The second side can't be null");
+    this.seed = seed;
+    this.moves = Objects.requireNonNull(moves, "The moves can't be null").clone();
+  }
+
+  /**
+   * Record the moves played on an engine since its creation
+   * @param gameMode
+   * @param first
+   * @param second
+   * @param seed the seed given to {@link Engine#create}
+   * @param engine
+   * @return the record
+   */
+  public static GameRecord of(GameMode gameMode, Side first, Side second, long seed, Engine engine) {
+    Objects.requireNonNull(engine, "The engine can't be null");
+    var moves = new int[engine.ply()];
+    var count = 0;
+    for(var i = 0; i < engine.ply(); i++) {
+      if(!engine.isAutoma(engine.playedBy(i))) {
+        moves[count++] = engine.playedMove(i);
+      }
+    }
+    return new GameRecord(gameMode, first, second, seed, Arrays.copyOf(moves, count));
+  }
+
+  public GameMode gameMode() {
+    return gameMode;
+  }
+
+  public Side first() {
+    return first;
+  }
+
+  public Side second() {
+    return second;
+  }
+
+  public long seed() {
+    return seed;
+  }
+
+  /**
+   * @return the number of recorded moves
+   */
+  public int moveCount() {
+    return moves.length;
+  }
+
+  /**
+   * @param index
+   * @return a recorded move, see {@link Move}
+   */
+  public int move(int index) {
+    return moves[index];
+  }
+
+  /**
+   * @return a copy of the recorded moves
+   */
+  public int[] moves() {
+    return moves.clone();
+  }
+
+  private static int encode(Rules rules, int move) {
+    var width = rules.quiltWidth();
+    var height = rules.quiltHeight();
+    return switch(Move.kind(move)) {
+      case Move.ADVANCE -> 0;
+      case Move.BUY -> 1 + ((Move.slot(move) * 8 + Move.orientation(move)) * height + Move.y(move)) * width + Move.x(move);
+      case Move.LEATHER -> 1 + 24 * width * height + Move.y(move) * width + Move.x(move);
+      default -> throw new IllegalStateException("Invalid move " + move);
+    };
+  }
+
+  private static int decode(Rules rules, int code) throws IOException {
+    if(code == 0) {
+      return Move.ADVANCE;
+    }
+    var width = rules.quiltWidth();
+    var height = rules.quiltHeight();
+    var index = code - 1;
+    if(index < 24 * width * height) {
+      var x = index % width;
+      index /= width;
+      var y = index % height;
+      index /= height;
+      return Move.buy(index / 8, index % 8, y, x);
+    }
+    index -= 24 * width * height;
+    if(index >= width * height) {
+      throw new IOException("Invalid move " + code);
+    }
+    return Move.leather(index / width, index % width);
+  }
+
+  /**
+   * @return the record in the binary format
+   * @throws IOException if the rules of the game mode can't be read
+   */
+  public byte[] toBytes() throws IOException {
+    var rules = Rules.of(gameMode);
+    var output = new ByteArrayOutputStream(HEADER + 2 + 2 * moves.length);
+    output.write(VERSION);
+    output.write(gameMode.ordinal());
+    output.write(first.encode());
+    output.write(second.encode());
+    for(var shift = 56; shift >= 0; shift -= 8) {
+      output.write((int) (seed >>> shift));
+    }
+    writeVarint(output, moves.length);
+    for(var move: moves) {
+      writeVarint(output, encode(rules, move));
+    }
+    return output.toByteArray();
+  }
+
+  /**
+   * Read a record in the binary format
+   * @param bytes
+   * @return the record
+   * @throws IOException if the record is invalid or the rules of its game mode can't be read
+   */
+  public static GameRecord fromBytes(byte[] bytes) throws IOException {
+    Objects.requireNonNull(bytes, "The bytes can't be null");
+    if(bytes.length < HEADER + 1) {
+      throw new IOException("Truncated record");
+    }
+    if(bytes[0] != VERSION) {
+      throw new IOException("Unknown record version " + bytes[0]);
+    }
+    var gameModes = GameMode.values();
+    if(bytes[1] < 0 || bytes[1] >= gameModes.length) {
+      throw new IOException("Invalid game mode " + bytes[1]);
+    }
+    var gameMode = gameModes[bytes[1]];
+    var first = Side.decode(bytes[2]);
+    var second = Side.decode(bytes[3]);
+    var seed = 0L;
+    for(var i = 4; i < HEADER; i++) {
+      seed = seed << 8 | (bytes[i] & 0xFF);
+    }
+    var rules = Rules.of(gameMode);
+    var offset = new int[] { HEADER };
+    var count = readVarint(bytes, offset);
+    if(count < 0 || count > bytes.length) {
+      throw new IOException("Invalid number of moves " + count);
+    }
+    var moves = new int[count];
+    for(var i = 0; i < count; i++) {
+      moves[i] = decode(rules, readVarint(bytes, offset));
+    }
+    if(offset[0] != bytes.length) {
+      throw new IOException("Trailing bytes after the record");
+    }
+    return new GameRecord(gameMode, first, second, seed, moves);
+  }
+
+  /**
+   * Append the record at the end of an archive file, created if needed
+   * @param archive
+   * @throws IOException
+   */
+  public void appendTo(Path archive) throws IOException {
+    Objects.requireNonNull(archive, "The archive can't be null");
+    var bytes = toBytes();
+    var output = new ByteArrayOutputStream(bytes.length + 5);
+    writeVarint(output, bytes.length);
+    output.write(bytes);
+    try(var stream = Files.newOutputStream(archive, StandardOpenOption.CREATE, StandardOpenOption.APPEND)) {
+      output.writeTo(stream);
+    }
+  }
+
+  /**
+   * Read all the records of an archive file
+   * @param archive
+   * @return the records, in the order they were appended
+   * @throws IOException if the file can't be read or a record is invalid
+   */
+  public static List<GameRecord> readAll(Path archive) throws IOException {
+    Objects.requireNonNull(archive, "The archive can't be null");
+    var records = new ArrayList<GameRecord>();
+    try(var input = Files.newInputStream(archive)) {
+      for(;;) {
+        var size = readVarint(input);
+        if(size < 0) {
+          return records;
+        }
+        var bytes = input.readNBytes(size);
+        if(bytes.length != size) {
+          throw new EOFException("Truncated record");
+        }
+        records.add(fromBytes(bytes));
+      }
+    }
+  }
+
+  private static void writeVarint(OutputStream output, int value) throws IOException {
+    while((value & ~0x7F) != 0) {
+      output.write((value & 0x7F) | 0x80);
+      value >>>= 7;
+    }
+    output.write(value);
+  }
+
+  private static int readVarint(byte[] bytes, int[] offset) throws IOException {
+    var value = 0;
+    for(var shift = 0; shift < 32; shift += 7) {
+      if(offset[0] == bytes.length) {
+        throw new EOFException("Truncated varint");
+      }
+      var b = bytes[offset[0]++];
+      value |= (b & 0x7F) << shift;
+      if(b >= 0) {
+        return value;
+      }
+    }
+    throw new IOException("Varint too long");
+  }
+
+  /**
+   * @return the value, or -1 at the end of the stream
+   */
+  private static int readVarint(InputStream input) throws IOException {
+    var value = 0;
+    for(var shift = 0; shift < 32; shift += 7) {
+      var b = input.read();
+      if(b < 0) {
+        if(shift == 0) {
+          return -1;
+        }
+        throw new EOFException("Truncated varint");
+      }
+      value |= (b & 0x7F) << shift;
+      if((b & 0x80) == 0) {
+        return value;
+      }
+    }
+    throw new IOException("Varint too long");
+  }
+
+  @Override
+  public boolean equals(Object obj) {
+    return obj instanceof GameRecord other
+        && gameMode == other.gameMode
+        && first.equals(other.first)
+        && second.equals(other.second)
+        && seed == other.seed
+        && Arrays.equals(moves, other.moves);
+  }
+
+  @Override
+  public int hashCode() {
+    return Objects.hash(gameMode, first, second, seed) * 31 + Arrays.hashCode(moves);
+  }
+
+  @Override
+  public String toString() {
+    return gameMode + " " + first + " vs " + second + " seed " + seed + ", " + moves.length + " moves";
+  }
+
+}
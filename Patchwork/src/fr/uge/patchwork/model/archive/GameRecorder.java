@@ -0,0 +1,184 @@
+package fr.uge.patchwork.model.archive;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Objects;
+
+import fr.uge.patchwork.model.GameMode;
+import fr.uge.patchwork.model.component.patch.Patch;
+import fr.uge.patchwork.model.component.patch.Shape;
+import fr.uge.patchwork.model.engine.Engine;
+import fr.uge.patchwork.model.engine.Move;
+import fr.uge.patchwork.model.engine.Rules;
+
+/**
+ *
+ * Record the actions of a game played with the object model,
+ * to build its {@link GameRecord}.
+ *
+ * <p>
+ * The actions are played on an engine created with the same seed,
+ * to find the engine move of a placed patch and to check the game
+ * follows the same rules. If an action is not legal for the engine,
+ * the recording stops and {@link #isValid()} returns false.
+ *
+ */
+public final class GameRecorder {
+
+  private final GameMode gameMode;
+  private final GameRecord.Side first;
+  private final GameRecord.Side second;
+  private final long seed;
+  private final Engine engine;
+  private int[] moves = new int[64];
+  private int count;
+  private boolean valid = true;
+
+  /**
+   * @param gameMode
+   * @param first side playing first
+   * @param second
+   * @param seed the seed of the game
+   * @throws IOException if the rules or the decks can't be read
+   */
+  public GameRecorder(GameMode gameMode, GameRecord.Side first, GameRecord.Side second, long seed) throws IOException {
+    this.gameMode = Objects.requireNonNull(gameMode, "The game mode can't be null");
+    this.first = Objects.requireNonNull(first, "The first side can't be null");
+    this.second = Objects.requireNonNull(second, "The second side can't be null");
+    this.seed = seed;
+    engine = Engine.create(Rules.of(gameMode), first.setup(), second.setup(), seed);
+  }
+
+  private GameRecorder(GameRecord record, Engine engine) {
+    gameMode = record.gameMode();
+    first = record.first();
+    second = record.second();
+    seed = record.seed();
+    this.engine = engine;
+    moves = Arrays.copyOf(record.moves(), Math.max(64, record.moveCount()));
+    count = record.moveCount();
+  }
+
+  /**
+   * Continue the recording of a game saved with {@link #toRecord()} and {@link #ply()}
+   * @param record
+   * @param ply
+   * @return the recorder
+   * @throws IOException if the rules or the decks of the record can't be read
+   * @throws IllegalArgumentException if the record does not reach the number of moves
+   */
+  public static GameRecorder resume(GameRecord record, int ply) throws IOException {
+    var engine = new Replayer(record).replay(ply);
+    if(engine.ply() != ply) {
+      throw new IllegalArgumentException("The record ends before " + ply + " moves");
+    }
+    return new GameRecorder(record, engine);
+  }
+
+  /**
+   * @return the number of moves of both sides played so far, Automa included
+   */
+  public int ply() {
+    return engine.ply();
+  }
+
+  /**
+   * @return a copy of the engine, in the position of the recorded actions
+   */
+  public Engine engine() {
+    return engine.copy();
+  }
+
+  /**
+   * @return false if an action did not follow the rules of the engine
+   */
+  public boolean isValid() {
+    return valid;
+  }
+
+  private void play(int move) {
+    if(!valid) {
+      return;
+    }
+    if(engine.isAutoma(engine.current()) || !engine.isLegal(move)) {
+      valid = false;
+      return;
+    }
+    engine.play(move);
+    if(count == moves.length) {
+      moves = Arrays.copyOf(moves, count * 2);
+    }
+    moves[count++] = move;
+  }
+
+  /**
+   * The current player advanced in front of the other one
+   */
+  public void advance() {
+    play(Move.ADVANCE);
+  }
+
+  /**
+   * The current player bought a patch and placed it on its quilt
+   * @param slot index of the patch after the neutral token
+   * @param placed the patch, at its place on the quilt
+   */
+  public void buy(int slot, Patch placed) {
+    Objects.requireNonNull(placed, "The patch can't be null");
+    if(!valid) {
+      return;
+    }
+    if(slot < 0 || slot >= engine.slots() || engine.isAutoma(engine.current())) {
+      valid = false;
+      return;
+    }
+    var piece = engine.slotPiece(slot);
+    var shape = Shape.of(placed.form());
+    // upper left corner of the shape on the quilt
+    var y = placed.absoluteOrigin().y() - shape.originY();
+    var x = placed.absoluteOrigin().x() - shape.originX();
+    for(var orientation = 0; orientation < Shape.ORIENTATIONS; orientation++) {
+      if(y >= 0 && x >= 0 && piece.shape(orientation).equals(shape)) {
+        play(Move.buy(slot, orientation, y, x));
+        return;
+      }
+    }
+    valid = false;
+  }
+
+  /**
+   * The current player placed a leather patch on its quilt
+   * @param placed the leather patch, at its place on the quilt
+   */
+  public void leather(Patch placed) {
+    Objects.requireNonNull(placed, "The patch can't be null");
+    var origin = placed.absoluteOrigin();
+    if(origin.y() < 0 || origin.x() < 0) {
+      valid = false;
+      return;
+    }
+    play(Move.leather(origin.y(), origin.x()));
+  }
+
+  /**
+   * The Automa played its turn, its move is not recorded
+   */
+  public void automa() {
+    if(!valid) {
+      return;
+    }
+    if(!engine.isAutoma(engine.current())) {
+      valid = false;
+      return;
+    }
+    engine.play(engine.automaMove());
+  }
+
+  /**
+   * @return the record of the actions so far
+   */
+  public GameRecord toRecord() {
+    return new GameRecord(gameMode, first, second, seed, Arrays.copyOf(moves, count));
+  }
+
+}
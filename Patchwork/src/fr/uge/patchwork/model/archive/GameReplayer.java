@@ -0,0 +1,186 @@
+package fr.uge.patchwork.model.archive;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.Objects;
+
+import fr.uge.patchwork.model.Game;
+import fr.uge.patchwork.model.GameActions;
+import fr.uge.patchwork.model.GameMode;
+import fr.uge.patchwork.model.component.gameboard.event.Event;
+import fr.uge.patchwork.model.component.patch.Coordinates;
+import fr.uge.patchwork.model.component.patch.LeatherPatch;
+import fr.uge.patchwork.model.component.patch.Patch;
+import fr.uge.patchwork.model.component.patch.Shape;
+import fr.uge.patchwork.model.component.player.HumanPlayer;
+import fr.uge.patchwork.model.component.player.automa.Automa;
+import fr.uge.patchwork.model.engine.Move;
+
+/**
+ *
+ * Replay a game record on the object model, move by move. <br>
+ * The game is created with the seed of the record, the recorded moves
+ * are played with the {@link GameActions} as the controller plays the choices
+ * of the players, and the turns of the Automa are played by its cards.
+ *
+ * <p>
+ * The moves are counted as in {@link Replayer}: a leather patch
+ * is a move of its own, so {@link #ply()} follows {@link fr.uge.patchwork.model.engine.Engine#ply()}.
+ * The object model only has games with two quilts in the basic and full modes,
+ * and with a quilt against an Automa in the Automa mode.
+ *
+ */
+public final class GameReplayer {
+
+  private final GameRecord record;
+  private final Game game;
+  private final GameActions actions;
+  // leather patch events crossed by a player, waiting for its leather moves
+  private final ArrayDeque<Event> leathers = new ArrayDeque<>();
+  private HumanPlayer leatherPlayer;
+  private int next;
+  private int ply;
+
+  /**
+   * @param record
+   * @throws IOException if the patches or the decks of the record can't be read
+   * @throws IllegalArgumentException if the object model has no game with the sides of the record
+   */
+  public GameReplayer(GameRecord record) throws IOException {
+    this.record = Objects.requireNonNull(record, "The record can't be null");
+    game = newGame(record);
+    actions = new GameActions(game);
+  }
+
+  private static Game newGame(GameRecord record) throws IOException {
+    var first = record.first();
+    var second = record.second();
+    return switch(record.gameMode()) {
+      case PATCHWORK_BASIC, PATCHWORK_FULL -> {
+        if(first.isAutoma() || second.isAutoma()) {
+          throw new IllegalArgumentException("The " + record.gameMode() + " games of the model have two quilts");
+        }
+        yield record.gameMode() == GameMode.PATCHWORK_BASIC
+            ? Game.basic(record.seed()) : Game.full(record.seed());
+      }
+      case PATCHWORK_AUTOMA -> {
+        if(first.isAutoma() || !second.isAutoma()) {
+          throw new IllegalArgumentException("The Automa games of the model have a quilt then an Automa");
+        }
+        yield Game.automa(second.difficulty(), second.deckType(), record.seed());
+      }
+    };
+  }
+
+  /**
+   * Replay a record on the object model
+   * @param record
+   * @param ply
+   * @return the game after ply moves, or less if the record ends before
+   * @throws IOException if the patches or the decks of the record can't be read
+   * @throws IllegalArgumentException if the object model has no game with the sides
+   * of the record, if ply is negative or a recorded move can't be played
+   */
+  public static Game replay(GameRecord record, int ply) throws IOException {
+    if(ply < 0) {
+      throw new IllegalArgumentException("The number of moves can't be negative");
+    }
+    var replayer = new GameReplayer(record);
+    while(replayer.ply() < ply && replayer.hasNext()) {
+      replayer.next();
+    }
+    return replayer.game();
+  }
+
+  /**
+   * @return the game, in its current position
+   */
+  public Game game() {
+    return game;
+  }
+
+  /**
+   * @return the number of moves played so far, Automa included
+   */
+  public int ply() {
+    return ply;
+  }
+
+  /**
+   * @return true if the game is not finished and the next move is known:
+   * a move of the Automa or a recorded move
+   */
+  public boolean hasNext() {
+    if(leathers.isEmpty() && actions.isFinished()) {
+      return false;
+    }
+    return (leathers.isEmpty() && actions.currentPlayer() instanceof Automa) || next < record.moveCount();
+  }
+
+  /**
+   * Play the next move
+   * @throws IllegalStateException if there is no next move, see {@link #hasNext()}
+   * @throws IllegalArgumentException if the recorded move can't be played
+   */
+  public void next() {
+    if(!hasNext()) {
+      throw new IllegalStateException("No move left");
+    }
+    // the player who crossed leather patch events places them before the next turn
+    var player = leathers.isEmpty() ? actions.currentPlayer() : leatherPlayer;
+    if(player instanceof Automa automa) {
+      actions.playAutoma(automa);
+      ply++;
+      return;
+    }
+    var human = (HumanPlayer) player;
+    var move = record.move(next);
+    if(!leathers.isEmpty()) {
+      if(Move.kind(move) != Move.LEATHER) {
+        throw new IllegalArgumentException("Expected a leather patch at move " + next + ": " + Move.toString(move));
+      }
+      var leather = new LeatherPatch();
+      leather.absoluteMoveTo(new Coordinates(Move.y(move), Move.x(move)));
+      place(human, leather);
+      actions.claim(leathers.poll());
+    } else {
+      var events = switch(Move.kind(move)) {
+        case Move.ADVANCE -> actions.advance(human);
+        case Move.BUY -> {
+          var patch = game.patchManager().patches(3).get(Move.slot(move));
+          Shape.transform(patch, Move.orientation(move));
+          var shape = Shape.of(patch.form());
+          patch.absoluteMoveTo(new Coordinates(Move.y(move) + shape.originY(), Move.x(move) + shape.originX()));
+          place(human, patch);
+          yield actions.buy(human, patch);
+        }
+        default -> throw new IllegalArgumentException("Unexpected move " + next + ": " + Move.toString(move));
+      };
+      for(var event: events) {
+        switch(event.type()) {
+          case BUTTON_INCOME -> actions.buttonIncome(human);
+          case PATCH_INCOME -> {
+            leathers.add(event);
+            leatherPlayer = human;
+          }
+          default -> throw new AssertionError();
+        }
+      }
+    }
+    next++;
+    ply++;
+    if(human.quilt().countEmptySpaces() == 0) {
+      leathers.clear(); // no more space for a leather patch
+    }
+    if(leathers.isEmpty()) {
+      actions.checkSpecialTile(human);
+    }
+  }
+
+  private void place(HumanPlayer player, Patch patch) {
+    if(!player.placePatch(patch)) {
+      throw new IllegalArgumentException("The move " + next + " can't be played: " + Move.toString(record.move(next)));
+    }
+  }
+
+}
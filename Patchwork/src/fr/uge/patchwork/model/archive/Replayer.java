@@ -0,0 +1,81 @@
+package fr.uge.patchwork.model.archive;
+
+import java.io.IOException;
+import java.util.Objects;
+
+import fr.uge.patchwork.model.engine.Engine;
+import fr.uge.patchwork.model.engine.Rules;
+import fr.uge.patchwork.model.engine.SideSetup;
+
+/**
+ *
+ * Rebuild the positions of a game record with the engine. <br>
+ * The engine is created with the seed of the record, then the recorded
+ * moves are played for the sides with a quilt and the moves
+ * of the Automa are computed again, so nothing is allocated by move.
+ *
+ */
+public final class Replayer {
+
+  private final GameRecord record;
+  private final Rules rules;
+  private final SideSetup first;
+  private final SideSetup second;
+
+  /**
+   * @param record
+   * @throws IOException if the rules or the decks of the record can't be read
+   */
+  public Replayer(GameRecord record) throws IOException {
+    this.record = Objects.requireNonNull(record, "The record can't be null");
+    rules = Rules.of(record.gameMode());
+    first = record.first().setup();
+    second = record.second().setup();
+  }
+
+  /**
+   * Replay a whole record
+   * @param record
+   * @return the engine after the last recorded move
+   * @throws IOException if the rules or the decks of the record can't be read
+   * @throws IllegalArgumentException if a recorded move is illegal
+   */
+  public static Engine replay(GameRecord record) throws IOException {
+    return new Replayer(record).replay();
+  }
+
+  /**
+   * @return the engine after the last recorded move
+   * @throws IllegalArgumentException if a recorded move is illegal
+   */
+  public Engine replay() {
+    return replay(Integer.MAX_VALUE);
+  }
+
+  /**
+   * Rebuild the position after a number of moves of both sides,
+   * Automa included, see {@link Engine#ply()}
+   * @param ply
+   * @return the engine, with ply moves played or less if the record ends before
+   * @throws IllegalArgumentException if ply is negative or a recorded move is illegal
+   */
+  public Engine replay(int ply) {
+    if(ply < 0) {
+      throw new IllegalArgumentException("The number of moves can't be negative");
+    }
+    var engine = Engine.create(rules, first, second, record.seed());
+    var next = 0;
+    while(engine.ply() < ply && !engine.isFinished()) {
+      if(engine.isAutoma(engine.current())) {
+        engine.play(engine.automaMove());
+      } else {
+        if(next == record.moveCount()) {
+          break;
+        }
+        engine.play(record.move(next++));
+      }
+    }
+    return engine;
+  }
+
+}
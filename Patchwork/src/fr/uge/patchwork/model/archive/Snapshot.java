@@ -0,0 +1,338 @@
+package fr.uge.patchwork.model.archive;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Objects;
+
+import fr.uge.patchwork.model.Game;
+import fr.uge.patchwork.model.GameMode;
+import fr.uge.patchwork.model.SplitMix64;
+import fr.uge.patchwork.model.component.QuiltBoard;
+import fr.uge.patchwork.model.component.gameboard.PatchManager;
+import fr.uge.patchwork.model.component.gameboard.TrackBoard;
+import fr.uge.patchwork.model.component.gameboard.event.Event;
+import fr.uge.patchwork.model.component.gameboard.event.EventType;
+import fr.uge.patchwork.model.component.patch.Coordinates;
+import fr.uge.patchwork.model.component.patch.Form;
+import fr.uge.patchwork.model.component.patch.LeatherPatch;
+import fr.uge.patchwork.model.component.patch.Patch;
+import fr.uge.patchwork.model.component.patch.RegularPatch;
+import fr.uge.patchwork.model.component.player.HumanPlayer;
+import fr.uge.patchwork.model.component.player.Player;
+import fr.uge.patchwork.model.component.player.automa.Automa;
+import fr.uge.patchwork.model.component.player.automa.AutomaDifficulty;
+import fr.uge.patchwork.model.component.player.automa.Card;
+import fr.uge.patchwork.model.component.player.automa.CardFilter;
+import fr.uge.patchwork.model.component.player.automa.NormalCard;
+import fr.uge.patchwork.model.component.player.automa.TacticalCard;
+
+/**
+ *
+ * A snapshot of a game between two turns, to save it and resume it later.
+ *
+ * <p>
+ * The snapshot holds the whole state of the object model: the patches
+ * around the board and the neutral token, the unclaimed events, the players
+ * in their order of arrival with their quilts, the Automa deck in its current
+ * order with its current card and the state of its generator, and who has
+ * the special tile. The record of the game can be kept with it, so
+ * the game is still archived once resumed.
+ * <p>
+ * A snapshot is a small binary file, about 1 KB, written in a temporary file
+ * then renamed, so a crash or a power cut while saving keeps the previous snapshot.
+ *
+ * @param game
+ * @param recorder the recorder of the game, null if the game is not recorded
+ */
+public record Snapshot(Game game, GameRecorder recorder) {
+
+  private static final int MAGIC = 0x50575331; // PWS1
+
+  public Snapshot {
+    Objects.requireNonNull(game, "The game can't be null");
+  }
+
+  /**
+   * Write the snapshot in a file, replacing the previous one atomically
+   * @param path
+   * @throws IOException if the file can't be written
+   */
+  public void save(Path path) throws IOException {
+    Objects.requireNonNull(path, "The path can't be null");
+    var bytes = new ByteArrayOutputStream(1024);
+    try(var output = new DataOutputStream(bytes)) {
+      write(output);
+    }
+    var directory = path.toAbsolutePath().getParent();
+    var temporary = Files.createTempFile(directory, path.getFileName().toString(), ".tmp");
+    try {
+      try(var channel = FileChannel.open(temporary, StandardOpenOption.WRITE)) {
+        var buffer = ByteBuffer.wrap(bytes.toByteArray());
+        while(buffer.hasRemaining()) {
+          channel.write(buffer);
+        }
+        channel.force(true); // on the disk before the rename
+      }
+      try {
+        Files.move(temporary, path, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+      } catch(AtomicMoveNotSupportedException e) {
+        Files.move(temporary, path, StandardCopyOption.REPLACE_EXISTING);
+      }
+    } finally {
+      Files.deleteIfExists(temporary);
+    }
+  }
+
+  /**
+   * Read a snapshot written by {@link #save(Path)}
+   * @param path
+   * @return the snapshot
+   * @throws IOException if the file can't be read or is not a valid snapshot
+   */
+  public static Snapshot load(Path path) throws IOException {
+    Objects.requireNonNull(path, "The path can't be null");
+    try(var input = new DataInputStream(new BufferedInputStream(Files.newInputStream(path)))) {
+      return read(input);
+    } catch(IllegalArgumentException e) {
+      throw new IOException("Invalid snapshot: " + e.getMessage(), e);
+    }
+  }
+
+  private void write(DataOutputStream output) throws IOException {
+    output.writeInt(MAGIC);
+    output.writeByte(game.gameMode().ordinal());
+    output.writeLong(game.seed());
+    // patches
+    var patchManager = game.patchManager();
+    var circle = patchManager.circle();
+    output.writeShort(circle.size());
+    for(var patch: circle) {
+      writePatch(output, patch);
+    }
+    output.writeShort(patchManager.neutralToken());
+    // track board
+    var trackBoard = game.trackBoard();
+    output.writeShort(trackBoard.spaces() + 1);
+    var events = trackBoard.events();
+    output.writeShort(events.size());
+    for(var event: events) {
+      output.writeByte(event.type().ordinal());
+      output.writeShort(event.position());
+    }
+    // players, in their order of arrival
+    var players = trackBoard.players();
+    output.writeByte(players.size());
+    for(var player: players) {
+      writePlayer(output, player);
+    }
+    // record
+    if(recorder == null || !recorder.isValid()) {
+      output.writeInt(0);
+    } else {
+      var record = recorder.toRecord().toBytes();
+      output.writeInt(record.length);
+      output.write(record);
+      output.writeInt(recorder.ply());
+    }
+  }
+
+  private static Snapshot read(DataInputStream input) throws IOException {
+    if(input.readInt() != MAGIC) {
+      throw new IOException("Not a snapshot of a patchwork game");
+    }
+    var gameModes = GameMode.values();
+    var gameMode = gameModes[Objects.checkIndex(input.readUnsignedByte(), gameModes.length)];
+    var seed = input.readLong();
+    // patches
+    var circle = new ArrayList<RegularPatch>();
+    var patchCount = input.readUnsignedShort();
+    for(var i = 0; i < patchCount; i++) {
+      circle.add((RegularPatch) readPatch(input));
+    }
+    var patchManager = PatchManager.restore(circle, input.readUnsignedShort());
+    // track board
+    var spaces = input.readUnsignedShort();
+    var events = new ArrayList<Event>();
+    var eventCount = input.readUnsignedShort();
+    var eventTypes = EventType.values();
+    for(var i = 0; i < eventCount; i++) {
+      var type = eventTypes[Objects.checkIndex(input.readUnsignedByte(), eventTypes.length)];
+      events.add(new Event(type, input.readUnsignedShort()));
+    }
+    var players = new LinkedHashSet<Player>();
+    var playerCount = input.readUnsignedByte();
+    for(var i = 0; i < playerCount; i++) {
+      players.add(readPlayer(input));
+    }
+    var game = new Game(gameMode, new TrackBoard(spaces, players, events), patchManager, seed);
+    // record
+    GameRecorder recorder = null;
+    var recordSize = input.readInt();
+    if(recordSize > 0) {
+      var record = GameRecord.fromBytes(input.readNBytes(recordSize));
+      recorder = GameRecorder.resume(record, input.readInt());
+    }
+    return new Snapshot(game, recorder);
+  }
+
+  private static void writePlayer(DataOutputStream output, Player player) throws IOException {
+    output.writeBoolean(player.isAutonomous());
+    output.writeShort(player.position());
+    output.writeShort(player.buttons());
+    output.writeBoolean(player.specialTile());
+    if(player instanceof HumanPlayer human) {
+      output.writeUTF(human.name());
+      var quilt = human.quilt();
+      output.writeByte(quilt.width());
+      output.writeByte(quilt.height());
+      output.writeShort(quilt.patches().size());
+      for(var patch: quilt.patches()) {
+        writePatch(output, patch);
+      }
+    } else if(player instanceof Automa automa) {
+      output.writeByte(automa.difficulty().ordinal());
+      var deck = automa.deck();
+      output.writeShort(deck.size());
+      for(var card: deck) {
+        writeCard(output, card);
+      }
+      output.writeShort(automa.currentCard());
+      var random = automa.randomState();
+      output.writeLong(random.seed());
+      output.writeLong(random.gamma());
+      var patches = automa.patches();
+      output.writeShort(patches.size());
+      for(var patch: patches) {
+        writePatch(output, patch);
+      }
+    } else {
+      throw new IllegalArgumentException("Unknown player " + player);
+    }
+  }
+
+  private static Player readPlayer(DataInputStream input) throws IOException {
+    var automa = input.readBoolean();
+    var position = input.readUnsignedShort();
+    var buttons = input.readUnsignedShort();
+    var specialTile = input.readBoolean();
+    Player player;
+    if(automa) {
+      var difficulties = AutomaDifficulty.values();
+      var difficulty = difficulties[Objects.checkIndex(input.readUnsignedByte(), difficulties.length)];
+      var deck = new ArrayList<Card>();
+      var cardCount = input.readUnsignedShort();
+      for(var i = 0; i < cardCount; i++) {
+        deck.add(readCard(input));
+      }
+      var currentCard = input.readUnsignedShort();
+      var random = new SplitMix64(new SplitMix64.State(input.readLong(), input.readLong()));
+      var restored = new Automa(difficulty, deck, currentCard, random);
+      var patchCount = input.readUnsignedShort();
+      for(var i = 0; i < patchCount; i++) {
+        restored.add((RegularPatch) readPatch(input));
+      }
+      restored.addButtons(buttons);
+      player = restored;
+    } else {
+      var name = input.readUTF();
+      var quilt = new QuiltBoard(input.readUnsignedByte(), input.readUnsignedByte());
+      var patchCount = input.readUnsignedShort();
+      for(var i = 0; i < patchCount; i++) {
+        var patch = readPatch(input);
+        var added = patch instanceof RegularPatch regular ? quilt.add(regular) : quilt.add(patch);
+        if(!added) {
+          throw new IOException("Overlapping patches on the quilt of " + name);
+        }
+      }
+      player = new HumanPlayer(name, buttons, quilt);
+    }
+    player.move(position);
+    if(specialTile) {
+      player.earnSpecialTile();
+    }
+    return player;
+  }
+
+  private static void writeCard(DataOutputStream output, Card card) throws IOException {
+    output.writeBoolean(card.tactical());
+    output.writeShort(card.virtualButtons());
+    output.writeShort(card.buttonIncome());
+    output.writeByte(card.filters().size());
+    for(var filter: card.filters()) {
+      output.writeByte(filter.ordinal());
+    }
+  }
+
+  private static Card readCard(DataInputStream input) throws IOException {
+    var tactical = input.readBoolean();
+    var virtualButtons = input.readShort();
+    var buttonIncome = input.readShort();
+    var filterTypes = CardFilter.values();
+    var filters = new ArrayList<CardFilter>();
+    var filterCount = input.readUnsignedByte();
+    for(var i = 0; i < filterCount; i++) {
+      filters.add(filterTypes[Objects.checkIndex(input.readUnsignedByte(), filterTypes.length)]);
+    }
+    return tactical
+        ? new TacticalCard(virtualButtons, buttonIncome, filters)
+        : new NormalCard(virtualButtons, buttonIncome, List.copyOf(filters));
+  }
+
+  /**
+   * A patch with its form as it was turned by the player and its place
+   */
+  private static void writePatch(DataOutputStream output, Patch patch) throws IOException {
+    if(patch instanceof RegularPatch regular) {
+      output.writeBoolean(true);
+      output.writeShort(regular.price());
+      output.writeShort(regular.moves());
+      output.writeShort(regular.buttons());
+      var coordinates = regular.form().coordinates();
+      output.writeByte(coordinates.size());
+      for(var c: coordinates) {
+        output.writeByte(c.y());
+        output.writeByte(c.x());
+      }
+    } else if(patch instanceof LeatherPatch) {
+      output.writeBoolean(false);
+    } else {
+      throw new IllegalArgumentException("Unknown patch " + patch);
+    }
+    output.writeShort(patch.absoluteOrigin().y());
+    output.writeShort(patch.absoluteOrigin().x());
+  }
+
+  private static Patch readPatch(DataInputStream input) throws IOException {
+    Patch patch;
+    if(input.readBoolean()) {
+      var price = input.readShort();
+      var moves = input.readShort();
+      var buttons = input.readShort();
+      var coordinates = new HashSet<Coordinates>();
+      var cells = input.readUnsignedByte();
+      for(var i = 0; i < cells; i++) {
+        coordinates.add(new Coordinates(input.readByte(), input.readByte()));
+      }
+      patch = new RegularPatch(price, moves, buttons, new Form(coordinates));
+    } else {
+      patch = new LeatherPatch();
+    }
+    patch.absoluteMoveTo(new Coordinates(input.readShort(), input.readShort()));
+    return patch;
+  }
+
+}
@@ -0,0 +1,7 @@
+/**
+ * Provides the archive of the games: a compact binary record of a game
+ * (its configuration, its seed and the moves of the players),
+ * a replayer rebuilding any position of a record with the engine,
+ * and the snapshots saving a game to resume it later
+ */
+package fr.uge.patchwork.model.archive;
@@ -5,21 +5,29 @@ import static java.util.stream.Collectors.toSet;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
 
 import fr.uge.patchwork.model.component.patch.Coordinates;
 import fr.uge.patchwork.model.component.patch.Form;
 import fr.uge.patchwork.model.component.patch.Patch;
 import fr.uge.patchwork.model.component.patch.RegularPatch;
+import fr.uge.patchwork.model.component.patch.Shape;
+import fr.uge.patchwork.monitoring.PatchPlacementEvent;
 
 /**
  * Implements a quilt board 
  * 
  */
 public class QuiltBoard {
+  // the shapes of the orientations of the forms, see fitsAnywhere
+  private static final ConcurrentHashMap<Form, Shape[]> SHAPES = new ConcurrentHashMap<>();
+  
   private final int width;
   private final int height;
   private ArrayList<Patch> patches = new ArrayList<>();
   private int buttons;
+  // the occupied cells as rows of bits, null if the quilt is wider than 64
+  private final long[] cells;
   
   
   public QuiltBoard(int width, int height) {
@@ -28,6 +36,7 @@ public class QuiltBoard {
     }
     this.width = width;
     this.height = height;
+    cells = width <= Long.SIZE ? new long[height] : null;
   }
   
   public List<Patch> patches() {
@@ -45,6 +54,11 @@ public class QuiltBoard {
   public boolean add(Patch patch) {
     if(canAdd(patch)) {
       patches.add(patch);
+      if(cells != null) {
+        for(var c: patch.absoluteCoordinates()) {
+          cells[c.y()] |= 1L << c.x();
+        }
+      }
       return true;
     }
     return false;
@@ -73,11 +87,33 @@ public class QuiltBoard {
    * @return
    */
   public boolean canAdd(Patch patch) {
+    var event = new PatchPlacementEvent();
+    event.begin();
+    var valid = fitsWithoutOverlap(patch);
+    if (event.shouldCommit()) {
+      event.cells = patch.form().countCoordinates();
+      event.patches = patches.size();
+      event.valid = valid;
+      event.commit();
+    }
+    return valid;
+  }
+  
+  private boolean fitsWithoutOverlap(Patch patch) {
     // fits ?
     if (!patch.fits(width - 1, height - 1)) {
       return false;
     }
     // Overlap ?
+    if (cells != null) {
+      var origin = patch.absoluteOrigin();
+      for (var c : patch.form().coordinates()) {
+        if ((cells[c.y() + origin.y()] & (1L << (c.x() + origin.x()))) != 0) {
+          return false;
+        }
+      }
+      return true;
+    }
     for (var p : patches()) {
       if (patch.overlap(p)) {
         
@@ -87,6 +123,27 @@ public class QuiltBoard {
     return true;
   }
   
+  /**
+   * Test if a form can be placed somewhere on the quilt,
+   * in any orientation. Each orientation is tested on all the columns
+   * of a row at once, see {@link Shape#placements(long[], int, int)}.
+   * A quilt wider than 64 columns is not tested: the answer is true
+   * @param form
+   * @return false if the form fits nowhere
+   */
+  public boolean fitsAnywhere(Form form) {
+    Objects.requireNonNull(form, "The form can't be null");
+    if (cells == null) {
+      return true;
+    }
+    for (var shape : SHAPES.computeIfAbsent(form, Shape::orientations)) {
+      if (shape.fitsAnywhere(cells, width)) {
+        return true;
+      }
+    }
+    return false;
+  }
+  
   /**
    * Test if the quilt has a filled square of size 'side'
    * @param side
@@ -128,6 +185,19 @@ public class QuiltBoard {
     return false;
   }
 
+  /**
+   * The cells of the quilt as rows of bits, see {@link fr.uge.patchwork.model.component.patch.Shape}:
+   * the bit x of the row y is set if the cell (y,x) is occupied
+   * @return a new array of the rows
+   * @throws IllegalStateException if the quilt is wider than 64 cells
+   */
+  public long[] rows() {
+    if(cells == null) {
+      throw new IllegalStateException("The quilt is wider than " + Long.SIZE);
+    }
+    return cells.clone();
+  }
+
   /**
    * Count the number of empty spaces on the Quilt
    * 
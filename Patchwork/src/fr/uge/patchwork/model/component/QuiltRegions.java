@@ -0,0 +1,267 @@
+package fr.uge.patchwork.model.component;
+
+import java.util.Objects;
+
+/**
+ *
+ * Analysis of the empty regions of a quilt, on its rows of bits
+ * (see {@link fr.uge.patchwork.model.component.patch.Shape}).
+ *
+ * <p>
+ * A region is filled a whole row at a time: it spreads along a row with
+ * shifts, in log2(64) steps, and goes to the row above or below with an AND,
+ * until no row changes. A quilt is limited to 64 columns, but can have
+ * any number of rows.
+ * <p>
+ * An instance keeps its buffers, so {@link #analyze(long[], int, int)}
+ * doesn't allocate once they are big enough.
+ * It is not thread safe, use one instance by thread.
+ *
+ */
+public final class QuiltRegions {
+
+  private long[] empty = new long[0];
+  private long[] region = new long[0];
+  private int regions;
+  private int largest;
+  private int smallest;
+  private int dead;
+
+  private static long mask(int width) {
+    return width == Long.SIZE ? -1L : (1L << width) - 1;
+  }
+
+  /**
+   * Spread some cells of a row to the cells of the mask next to them
+   * @param seed the cells to spread, in the mask
+   * @param mask the cells they can spread to
+   * @return the runs of the mask containing the cells of the seed
+   */
+  static long spread(long seed, long mask) {
+    // toward the high bits
+    var run = seed;
+    var free = mask;
+    run |= free & (run << 1);
+    free &= free << 1;
+    run |= free & (run << 2);
+    free &= free << 2;
+    run |= free & (run << 4);
+    free &= free << 4;
+    run |= free & (run << 8);
+    free &= free << 8;
+    run |= free & (run << 16);
+    free &= free << 16;
+    run |= free & (run << 32);
+    // toward the low bits
+    free = mask;
+    run |= free & (run >>> 1);
+    free &= free >>> 1;
+    run |= free & (run >>> 2);
+    free &= free >>> 2;
+    run |= free & (run >>> 4);
+    free &= free >>> 4;
+    run |= free & (run >>> 8);
+    free &= free >>> 8;
+    run |= free & (run >>> 16);
+    free &= free >>> 16;
+    run |= free & (run >>> 32);
+    return run;
+  }
+
+  /**
+   * Find the empty regions of a quilt, the cells connected by a side
+   * @param rows the rows of the quilt
+   * @param width the width of the quilt, at most 64
+   * @param minCells the cells of the smallest patch that can still be placed,
+   * the regions with less cells are dead
+   */
+  public void analyze(long[] rows, int width, int minCells) {
+    Objects.requireNonNull(rows, "The rows can't be null");
+    if(width < 1 || width > Long.SIZE) {
+      throw new IllegalArgumentException("The width must be in [1;" + Long.SIZE + "]");
+    }
+    var height = rows.length;
+    if(empty.length < height) {
+      empty = new long[height];
+      region = new long[height];
+    }
+    var full = mask(width);
+    for(var y = 0; y < height; y++) {
+      empty[y] = ~rows[y] & full;
+    }
+    regions = 0;
+    largest = 0;
+    smallest = 0;
+    dead = 0;
+    for(var y = 0; y < height; y++) {
+      // the rows above have no empty cell left, a region starting here stays below
+      while(empty[y] != 0) {
+        var size = fill(y, height);
+        regions++;
+        largest = Math.max(largest, size);
+        smallest = regions == 1 ? size : Math.min(smallest, size);
+        if(size < minCells) {
+          dead += size;
+        }
+      }
+    }
+  }
+
+  /**
+   * Fill the region of the first empty cell of the row 'top'
+   * and remove its cells from the empty cells.
+   * The rows of the region buffer are all 0 outside of a fill
+   * @return the number of cells of the region
+   */
+  private int fill(int top, int height) {
+    region[top] = spread(Long.lowestOneBit(empty[top]), empty[top]);
+    // last row of the region so far
+    var bottom = top;
+    var changed = true;
+    while(changed) {
+      changed = false;
+      for(var y = top + 1; y <= bottom + 1 && y < height; y++) {
+        var from = region[y - 1] & empty[y] & ~region[y];
+        if(from != 0) {
+          region[y] = spread(region[y] | from, empty[y]);
+          bottom = Math.max(bottom, y);
+          changed = true;
+        }
+      }
+      for(var y = bottom - 1; y >= top; y--) {
+        var from = region[y + 1] & empty[y] & ~region[y];
+        if(from != 0) {
+          region[y] = spread(region[y] | from, empty[y]);
+          changed = true;
+        }
+      }
+    }
+    var size = 0;
+    for(var y = top; y <= bottom; y++) {
+      size += Long.bitCount(region[y]);
+      empty[y] &= ~region[y];
+      region[y] = 0;
+    }
+    return size;
+  }
+
+  /**
+   * Count the empty cells of a quilt in regions smaller than a patch.
+   * Below 4 cells the regions are found without filling them,
+   * from the empty neighbors of each cell: a dead cell has none,
+   * and two neighbors with only one each are a dead domino.
+   * Otherwise the quilt is analyzed, see {@link #analyze(long[], int, int)}
+   * @param rows the rows of the quilt
+   * @param width the width of the quilt, at most 64
+   * @param minCells the cells of the smallest patch that can still be placed
+   * @return the number of dead cells
+   */
+  public int deadCells(long[] rows, int width, int minCells) {
+    Objects.requireNonNull(rows, "The rows can't be null");
+    if(width < 1 || width > Long.SIZE) {
+      throw new IllegalArgumentException("The width must be in [1;" + Long.SIZE + "]");
+    }
+    if(minCells > 3) {
+      analyze(rows, width, minCells);
+      return dead;
+    }
+    if(minCells < 2) {
+      return 0;
+    }
+    var full = mask(width);
+    var singles = 0;
+    var dominoes = 0;
+    var above = 0L;
+    var current = rows.length == 0 ? 0 : ~rows[0] & full;
+    var previousOne = 0L;
+    for(var y = 0; y < rows.length; y++) {
+      var below = y + 1 < rows.length ? ~rows[y + 1] & full : 0;
+      // empty neighbors on the left, right, above and below of each cell
+      var left = current << 1;
+      var right = current >>> 1;
+      var any = left | right | above | below;
+      var two = (left & right) | (above & below) | ((left | right) & (above | below));
+      singles += Long.bitCount(current & ~any);
+      var one = current & any & ~two;
+      dominoes += Long.bitCount(one & (one >>> 1)) + Long.bitCount(one & previousOne);
+      previousOne = one;
+      above = current;
+      current = below;
+    }
+    return minCells == 2 ? singles : singles + 2 * dominoes;
+  }
+
+  /**
+   * @return the number of empty regions found by the last analysis
+   */
+  public int regions() {
+    return regions;
+  }
+
+  /**
+   * @return the cells of the largest empty region, 0 if there is none
+   */
+  public int largest() {
+    return largest;
+  }
+
+  /**
+   * @return the cells of the smallest empty region, 0 if there is none
+   */
+  public int smallest() {
+    return smallest;
+  }
+
+  /**
+   * @return the empty cells in regions too small for the smallest patch
+   */
+  public int deadCells() {
+    return dead;
+  }
+
+  /**
+   * The area of the largest rectangle of empty cells of a quilt.
+   * The rows are intersected from each top row, a run of set bits
+   * is a rectangle as high as the intersected rows
+   * @param rows the rows of the quilt
+   * @param width the width of the quilt, at most 64
+   * @return the number of cells of the rectangle
+   */
+  public static int largestRectangle(long[] rows, int width) {
+    Objects.requireNonNull(rows, "The rows can't be null");
+    if(width < 1 || width > Long.SIZE) {
+      throw new IllegalArgumentException("The width must be in [1;" + Long.SIZE + "]");
+    }
+    var full = mask(width);
+    var best = 0;
+    for(var top = 0; top < rows.length && width * (rows.length - top) > best; top++) {
+      var common = full;
+      for(var bottom = top; bottom < rows.length; bottom++) {
+        common &= ~rows[bottom];
+        if(common == 0) {
+          break;
+        }
+        var run = longestRun(common);
+        best = Math.max(best, run * (bottom - top + 1));
+        // the runs only get shorter with the next rows
+        if(run * (rows.length - top) <= best) {
+          break;
+        }
+      }
+    }
+    return best;
+  }
+
+  /**
+   * @param bits
+   * @return the length of the longest run of set bits
+   */
+  private static int longestRun(long bits) {
+    var length = 0;
+    for(; bits != 0; bits &= bits >>> 1) {
+      length++;
+    }
+    return length;
+  }
+
+}
@@ -0,0 +1,277 @@
+package fr.uge.patchwork.model.component;
+
+import java.util.Objects;
+
+import fr.uge.patchwork.model.SplitMix64;
+
+/**
+ *
+ * Symmetries of a quilt, on its rows of bits
+ * (see {@link fr.uge.patchwork.model.component.patch.Shape}).
+ *
+ * <p>
+ * A symmetry is 3 bits: {@link #TRANSPOSE} swaps the rows and the columns,
+ * then {@link #REVERSE_ROWS} reverses the order of the rows and
+ * {@link #REVERSE_COLUMNS} the bits of each row, with {@link Long#reverse(long)}.
+ * The 8 symmetries are the rotations and the reflections of a square quilt,
+ * a quilt that is not square only has the 4 ones without transposition.
+ * <p>
+ * The patches can be placed in all their orientations and the special tile
+ * is a square, so the quilts that are the image of each other by a symmetry
+ * have the same future: {@link #canonicalize(long[], int, long[])} gives
+ * the same canonical image to all of them, the one of the smallest rows,
+ * and {@link #canonicalHash(long[], int)} its hash.
+ * <p>
+ * An instance keeps its buffers, so it doesn't allocate once they are big enough.
+ * It is not thread safe, use one instance by thread.
+ *
+ */
+public final class QuiltSymmetry {
+
+  /**
+   * Number of symmetries of a square quilt
+   */
+  public static final int SYMMETRIES = 8;
+  /**
+   * Reverse the bits of each row
+   */
+  public static final int REVERSE_COLUMNS = 1;
+  /**
+   * Reverse the order of the rows
+   */
+  public static final int REVERSE_ROWS = 2;
+  /**
+   * Swap the rows and the columns, before the reversals
+   */
+  public static final int TRANSPOSE = 4;
+
+  // the rows, their reversed bits, and the same for the transposed quilt
+  private long[] rows = new long[0];
+  private long[] reversed = new long[0];
+  private long[] transposed = new long[0];
+  private long[] transposedReversed = new long[0];
+  private int symmetry;
+
+  /**
+   * @param height
+   * @param width
+   * @return the number of symmetries of a quilt, 8 if it is square, 4 otherwise
+   */
+  public static int symmetries(int height, int width) {
+    return height == width ? SYMMETRIES : TRANSPOSE;
+  }
+
+  /**
+   * @param symmetry
+   * @return the symmetry undoing a symmetry
+   */
+  public static int inverse(int symmetry) {
+    Objects.checkIndex(symmetry, SYMMETRIES);
+    if((symmetry & TRANSPOSE) == 0) {
+      return symmetry;
+    }
+    // a reversal before the transposition is the other one after
+    return TRANSPOSE | (symmetry & REVERSE_COLUMNS) << 1 | (symmetry & REVERSE_ROWS) >> 1;
+  }
+
+  /**
+   * @param y
+   * @param x
+   * @param height of the quilt
+   * @param width of the quilt
+   * @param symmetry
+   * @return the row of the cell (y,x) in the image of a quilt by a symmetry
+   */
+  public static int row(int y, int x, int height, int width, int symmetry) {
+    Objects.checkIndex(symmetry, SYMMETRIES);
+    if((symmetry & TRANSPOSE) != 0) {
+      return (symmetry & REVERSE_ROWS) != 0 ? width - 1 - x : x;
+    }
+    return (symmetry & REVERSE_ROWS) != 0 ? height - 1 - y : y;
+  }
+
+  /**
+   * @param y
+   * @param x
+   * @param height of the quilt
+   * @param width of the quilt
+   * @param symmetry
+   * @return the column of the cell (y,x) in the image of a quilt by a symmetry
+   */
+  public static int column(int y, int x, int height, int width, int symmetry) {
+    Objects.checkIndex(symmetry, SYMMETRIES);
+    if((symmetry & TRANSPOSE) != 0) {
+      return (symmetry & REVERSE_COLUMNS) != 0 ? height - 1 - y : y;
+    }
+    return (symmetry & REVERSE_COLUMNS) != 0 ? width - 1 - x : x;
+  }
+
+  /**
+   * Write the image of a quilt by a symmetry
+   * @param rows the rows of the quilt
+   * @param width the width of the quilt, at most 64
+   * @param symmetry
+   * @param image the rows of the image, as many as the columns of the quilt
+   * if the symmetry transposes, as many as its rows otherwise
+   */
+  public static void transform(long[] rows, int width, int symmetry, long[] image) {
+    Objects.requireNonNull(rows, "The rows can't be null");
+    Objects.requireNonNull(image, "The image can't be null");
+    checkWidth(width);
+    Objects.checkIndex(symmetry, SYMMETRIES);
+    var transpose = (symmetry & TRANSPOSE) != 0;
+    var height = transpose ? width : rows.length;
+    var imageWidth = transpose ? rows.length : width;
+    if(image.length != height || imageWidth > Long.SIZE) {
+      throw new IllegalArgumentException("The image must have " + height + " rows of at most 64 columns");
+    }
+    if(transpose) {
+      transpose(image == rows ? rows.clone() : rows, width, image);
+    } else {
+      System.arraycopy(rows, 0, image, 0, height);
+    }
+    if((symmetry & REVERSE_COLUMNS) != 0) {
+      for(var y = 0; y < height; y++) {
+        image[y] = Long.reverse(image[y]) >>> (Long.SIZE - imageWidth);
+      }
+    }
+    if((symmetry & REVERSE_ROWS) != 0) {
+      for(int y = 0, z = height - 1; y < z; y++, z--) {
+        var row = image[y];
+        image[y] = image[z];
+        image[z] = row;
+      }
+    }
+  }
+
+  /**
+   * Transpose the rows of a quilt, each set cell (y,x) sets the bit y of the row x
+   */
+  private static void transpose(long[] rows, int width, long[] transposed) {
+    for(var x = 0; x < width; x++) {
+      transposed[x] = 0;
+    }
+    for(var y = 0; y < rows.length; y++) {
+      for(var cells = rows[y]; cells != 0; cells &= cells - 1) {
+        transposed[Long.numberOfTrailingZeros(cells)] |= 1L << y;
+      }
+    }
+  }
+
+  private static void checkWidth(int width) {
+    if(width < 1 || width > Long.SIZE) {
+      throw new IllegalArgumentException("The width must be in [1;" + Long.SIZE + "]");
+    }
+  }
+
+  /**
+   * Write the canonical image of a quilt: its image by its symmetries
+   * with the smallest rows, compared as unsigned numbers from the first row,
+   * the same for all the images of the quilt by its symmetries.
+   * The other images are not built: their rows are read in the rows of the quilt
+   * or of its transposition, with their bits reversed or not,
+   * from the first or the last row.
+   * @param rows the rows of the quilt
+   * @param width the width of the quilt, at most 64
+   * @param image the rows of the canonical image, as many as the rows of the quilt,
+   * can be the rows of the quilt
+   * @return the symmetry giving the canonical image
+   */
+  public int canonicalize(long[] rows, int width, long[] image) {
+    Objects.requireNonNull(rows, "The rows can't be null");
+    Objects.requireNonNull(image, "The image can't be null");
+    if(image.length != rows.length) {
+      throw new IllegalArgumentException("The image must have " + rows.length + " rows");
+    }
+    var best = smallest(rows, width);
+    for(var y = 0; y < rows.length; y++) {
+      image[y] = row(best, y, rows.length);
+    }
+    return best;
+  }
+
+  /**
+   * Hash the canonical image of a quilt, see {@link #canonicalize(long[], int, long[])}.
+   * The images of a quilt by its symmetries have the same hash, but the hash is
+   * not the canonical image: two quilts with other canonical images can have
+   * the same hash, compare their canonical images when it matters.
+   * The symmetry giving the canonical image is then {@link #symmetry()}.
+   * @param rows the rows of the quilt
+   * @param width the width of the quilt, at most 64
+   * @return the hash of the canonical image
+   */
+  public long canonicalHash(long[] rows, int width) {
+    var best = smallest(rows, width);
+    var height = rows.length;
+    var key = SplitMix64.mix64(height | (long) width << 32);
+    for(var y = 0; y < height; y++) {
+      key = SplitMix64.mix64(key ^ row(best, y, height));
+    }
+    return key;
+  }
+
+  /**
+   * Read the images of a quilt by its symmetries in the buffers
+   * @return the symmetry giving the smallest image
+   */
+  private int smallest(long[] rows, int width) {
+    Objects.requireNonNull(rows, "The rows can't be null");
+    checkWidth(width);
+    var height = rows.length;
+    if(this.rows.length < Math.max(height, width)) {
+      var size = Math.max(height, width);
+      this.rows = new long[size];
+      reversed = new long[size];
+      transposed = new long[size];
+      transposedReversed = new long[size];
+    }
+    for(var y = 0; y < height; y++) {
+      this.rows[y] = rows[y];
+      reversed[y] = Long.reverse(rows[y]) >>> (Long.SIZE - width);
+    }
+    var count = symmetries(height, width);
+    if(count == SYMMETRIES) {
+      transpose(rows, width, transposed);
+      for(var x = 0; x < width; x++) {
+        transposedReversed[x] = Long.reverse(transposed[x]) >>> (Long.SIZE - height);
+      }
+    }
+    var best = 0;
+    for(var s = 1; s < count; s++) {
+      if(compare(s, best, height) < 0) {
+        best = s;
+      }
+    }
+    symmetry = best;
+    return best;
+  }
+
+  /**
+   * @return the row y of the image by a symmetry of the last quilt read by {@link #smallest(long[], int)}
+   */
+  private long row(int symmetry, int y, int height) {
+    var source = (symmetry & TRANSPOSE) != 0
+        ? (symmetry & REVERSE_COLUMNS) != 0 ? transposedReversed : transposed
+        : (symmetry & REVERSE_COLUMNS) != 0 ? reversed : rows;
+    return source[(symmetry & REVERSE_ROWS) != 0 ? height - 1 - y : y];
+  }
+
+  private int compare(int symmetry, int other, int height) {
+    for(var y = 0; y < height; y++) {
+      var comparison = Long.compareUnsigned(row(symmetry, y, height), row(other, y, height));
+      if(comparison != 0) {
+        return comparison;
+      }
+    }
+    return 0;
+  }
+
+  /**
+   * @return the symmetry giving the canonical image of the last quilt
+   * canonicalized or hashed
+   */
+  public int symmetry() {
+    return symmetry;
+  }
+
+}
@@ -1,11 +1,12 @@
 package fr.uge.patchwork.model.component.gameboard;
 
 import java.util.ArrayList;
-import java.util.Collections;
 import java.util.List;
 import java.util.Objects;
+import java.util.concurrent.ThreadLocalRandom;
 import java.util.stream.IntStream;
 
+import fr.uge.patchwork.model.SplitMix64;
 import fr.uge.patchwork.model.component.patch.RegularPatch;
 
 /**
@@ -18,13 +19,47 @@ public class PatchManager {
   private int neutralToken;
   private final ArrayList<RegularPatch> patches;
 
-  public PatchManager(List<RegularPatch> patches) {
+  /**
+   * Create a patch manager with the patches shuffled by a generator,
+   * the same generator state always gives the same circle of patches
+   * @param patches
+   * @param random the generator used to shuffle the patches
+   */
+  public PatchManager(List<RegularPatch> patches, SplitMix64 random) {
     Objects.requireNonNull(patches, "The list of patch can't be null");
+    Objects.requireNonNull(random, "The random generator can't be null");
     this.patches = new ArrayList<>(patches);
-    Collections.shuffle(this.patches);
+    random.shuffle(this.patches);
     this.neutralToken = minPatch(this.patches);
   }
 
+  /**
+   * Create a patch manager with the patches shuffled with a random seed
+   * @param patches
+   */
+  public PatchManager(List<RegularPatch> patches) {
+    this(patches, new SplitMix64(ThreadLocalRandom.current().nextLong()));
+  }
+
+  private PatchManager(ArrayList<RegularPatch> patches, int neutralToken) {
+    this.patches = patches;
+    this.neutralToken = neutralToken;
+  }
+
+  /**
+   * Restore a patch manager saved with {@link #circle()} and {@link #neutralToken()}
+   * @param circle the patches in their order around the board
+   * @param neutralToken
+   * @return the patch manager
+   */
+  public static PatchManager restore(List<RegularPatch> circle, int neutralToken) {
+    Objects.requireNonNull(circle, "The list of patch can't be null");
+    if(neutralToken < 0) {
+      throw new IllegalArgumentException("The neutral token can't be negative");
+    }
+    return new PatchManager(new ArrayList<>(circle), neutralToken);
+  }
+
   /**
    * Move the token by looping trough the patches, when arrives at the end.
    * @param n
@@ -66,6 +101,20 @@ public class PatchManager {
   public int numberOfPatches() {
     return patches.size();
   }
+
+  /**
+   * @return all the patches, in their order around the board
+   */
+  public List<RegularPatch> circle() {
+    return List.copyOf(patches);
+  }
+
+  /**
+   * @return the index in the circle of the patch before the neutral token
+   */
+  public int neutralToken() {
+    return neutralToken;
+  }
   
   /**
    * Return index of the smallest patch in a list
@@ -11,6 +11,7 @@ import java.util.Set;
 
 import fr.uge.patchwork.model.component.gameboard.event.Event;
 import fr.uge.patchwork.model.component.player.Player;
+import fr.uge.patchwork.monitoring.TrackMoveEvent;
 
 /**
  * 
@@ -58,6 +59,9 @@ public class TrackBoard {
    * @param newPosition
    */
   public List<Event> movePlayer(Player player, int moves) {
+    var event = new TrackMoveEvent();
+    event.begin();
+    var from = player.position();
     var newpos = Math.max(0, Math.min(player.position() + moves, spaces));
     var triggeredEvents = new ArrayList<Event>();
     // Check if events on path (only when moving forward !)
@@ -69,6 +73,14 @@ public class TrackBoard {
     players.remove(player);
     player.move(newpos);
     players.add(player);
+    if (event.shouldCommit()) {
+      event.player = player.name();
+      event.from = from;
+      event.to = newpos;
+      event.events = events.size();
+      event.triggered = triggeredEvents.size();
+      event.commit();
+    }
     return triggeredEvents;
   }
   
@@ -90,7 +102,7 @@ public class TrackBoard {
   	 * other player is in front of him 
   	 * (on the same place but below him so in front of him) */
     return player.position() != spaces 
-        && (nextPlayerFrom(player.position() + 1) != null
+        && (nextPlayerFrom(player.position() + 1).isPresent()
         || countPlayersAt(player.position()) > 1);
   }
 
@@ -100,26 +112,21 @@ public class TrackBoard {
   }
 
   /**
-   * Search the first next player who can play.
-   * The search starts at a given position.
+   * Search the first next player who can play:
+   * the one with the lowest position from a given position,
+   * the last arrived if several players are on this space.
    * 
    * @param position
-   * @return the player, or null
+   * @return the player, or an empty optional
    */
   public Optional<Player> nextPlayerFrom(int position) {
     Player nextPlayer = null;
-    var iterator = players.iterator();
-    while (iterator.hasNext()) {
-      var player = iterator.next();
-        if (nextPlayer != null) {
-          if (nextPlayer.position() == player.position()) {
-            nextPlayer = player;
-          } else {
-            break;
-          }
-        } else if(player.position() >= position) {
-          nextPlayer = player;
-        }
+    // players are in the order of arrival, the last arrived is on top
+    for (var player : players) {
+      if (player.position() >= position
+          && (nextPlayer == null || player.position() <= nextPlayer.position())) {
+        nextPlayer = player;
+      }
     }
     return Optional.ofNullable(nextPlayer);
   }
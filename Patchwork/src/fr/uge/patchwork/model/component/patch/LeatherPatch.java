@@ -107,4 +107,9 @@ public final class LeatherPatch implements Patch {
     patch.absoluteMoveTo(coordinates);
   }
   
+  @Override
+  public Coordinates absoluteOrigin() {
+    return patch.absoluteOrigin();
+  }
+  
 }
\ No newline at end of file
@@ -107,5 +107,12 @@ public sealed interface Patch permits Patch2D, RegularPatch, LeatherPatch {
    * @param coordinates
    */
   void absoluteMoveTo(Coordinates coordinates);
+  
+  /**
+   * Return the absolute coordinates associated to the relative origin 
+   * of the patch
+   * @return the absolute origin
+   */
+  Coordinates absoluteOrigin();
 
 }
@@ -229,6 +229,17 @@ public final class Patch2D implements Patch {
     absoluteOrigin = coordinates;
   }
 
+  /**
+   * Return the absolute coordinates associated to the relative origin of the
+   * patch
+   * 
+   * @return the absolute origin
+   */
+  @Override
+  public Coordinates absoluteOrigin() {
+    return absoluteOrigin;
+  }
+
   @Override
   public String toString() {
     return form().coordinates() + "AbsOrigin: " + absoluteOrigin;
@@ -160,6 +160,11 @@ public final class RegularPatch implements Patch {
   public void absoluteMoveTo(Coordinates coordinates) {
     patch.absoluteMoveTo(coordinates);
   }
+  
+  @Override
+  public Coordinates absoluteOrigin() {
+    return patch.absoluteOrigin();
+  }
    
   /**
    * Parse a file with regular patches in it
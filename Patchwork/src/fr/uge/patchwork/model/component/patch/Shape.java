@@ -0,0 +1,282 @@
+package fr.uge.patchwork.model.component.patch;
+
+import java.util.Arrays;
+import java.util.Objects;
+
+/**
+ *
+ * Implements the shape of a form as rows of bits,
+ * translated so its upper left corner is (0,0).
+ *
+ * <p>
+ * The bit x of the row y is set if the form has a cell in (y,x).
+ * A quilt is represented the same way, one long by row, so a shape
+ * is placed or tested on a quilt with a shift and a AND by row.
+ * The quilts are therefore limited to 64 columns.
+ *
+ */
+public final class Shape {
+
+  /**
+   * Number of orientations of a form,
+   * see {@link #transform(Form, int)}
+   */
+  public static final int ORIENTATIONS = 8;
+
+  private final long[] rows;
+  private final int width;
+  private final int cells;
+  // coordinates of the relative origin of the form in the shape
+  private final int originY;
+  private final int originX;
+
+  private Shape(long[] rows, int width, int cells, int originY, int originX) {
+    this.rows = rows;
+    this.width = width;
+    this.cells = cells;
+    this.originY = originY;
+    this.originX = originX;
+  }
+
+  /**
+   * Build the shape of a form
+   * @param form
+   * @return the shape
+   */
+  public static Shape of(Form form) {
+    Objects.requireNonNull(form, "The form can't be null");
+    var minY = Integer.MAX_VALUE;
+    var minX = Integer.MAX_VALUE;
+    var maxY = Integer.MIN_VALUE;
+    var maxX = Integer.MIN_VALUE;
+    for(var c: form.coordinates()) {
+      minY = Math.min(minY, c.y());
+      minX = Math.min(minX, c.x());
+      maxY = Math.max(maxY, c.y());
+      maxX = Math.max(maxX, c.x());
+    }
+    if(maxX - minX >= Long.SIZE) {
+      throw new IllegalArgumentException("A shape can't be wider than " + Long.SIZE);
+    }
+    var rows = new long[maxY - minY + 1];
+    for(var c: form.coordinates()) {
+      rows[c.y() - minY] |= 1L << (c.x() - minX);
+    }
+    return new Shape(rows, maxX - minX + 1, form.countCoordinates(), -minY, -minX);
+  }
+
+  /**
+   * Transform a form to one of its orientations. <br>
+   * The orientation 'o' is the form flipped if o &gt;= 4,
+   * then rotated (o % 4) times to the right,
+   * so 0 is the form itself.
+   * @param form
+   * @param orientation in [0;8[
+   * @return the transformed form
+   */
+  public static Form transform(Form form, int orientation) {
+    Objects.requireNonNull(form, "The form can't be null");
+    Objects.checkIndex(orientation, ORIENTATIONS);
+    var transformed = orientation >= 4 ? form.flip() : form;
+    for(var i = 0; i < orientation % 4; i++) {
+      transformed = transformed.rotateRight();
+    }
+    return transformed;
+  }
+
+  /**
+   * Apply the transformation of an orientation on a patch,
+   * see {@link #transform(Form, int)}
+   * @param patch
+   * @param orientation in [0;8[
+   */
+  public static void transform(Patch patch, int orientation) {
+    Objects.requireNonNull(patch, "The patch can't be null");
+    Objects.checkIndex(orientation, ORIENTATIONS);
+    if(orientation >= 4) {
+      patch.flip();
+    }
+    for(var i = 0; i < orientation % 4; i++) {
+      patch.rotateRight();
+    }
+  }
+
+  /**
+   * The shapes of all the orientations of a form,
+   * indexed by orientation
+   * @param form
+   * @return the shapes
+   */
+  public static Shape[] orientations(Form form) {
+    var shapes = new Shape[ORIENTATIONS];
+    for(var o = 0; o < ORIENTATIONS; o++) {
+      shapes[o] = of(transform(form, o));
+    }
+    return shapes;
+  }
+
+  public int height() {
+    return rows.length;
+  }
+
+  public int width() {
+    return width;
+  }
+
+  public int cells() {
+    return cells;
+  }
+
+  /**
+   * @param y
+   * @return the bits of a row of the shape
+   */
+  public long row(int y) {
+    return rows[y];
+  }
+
+  /**
+   * Vertical position of the relative origin of the form in the shape
+   * @return
+   */
+  public int originY() {
+    return originY;
+  }
+
+  /**
+   * Horizontal position of the relative origin of the form in the shape
+   * @return
+   */
+  public int originX() {
+    return originX;
+  }
+
+  /**
+   * Test if the shape can be placed with its upper left corner in (y,x)
+   * on a quilt, without exceeding its borders nor overlapping its cells
+   * @param quilt the rows of the quilt
+   * @param width the width of the quilt
+   * @param y
+   * @param x
+   * @return true if the shape can be placed
+   */
+  public boolean fits(long[] quilt, int width, int y, int x) {
+    if(y < 0 || x < 0 || y + rows.length > quilt.length || x + this.width > width) {
+      return false;
+    }
+    for(var r = 0; r < rows.length; r++) {
+      if((quilt[y + r] & (rows[r] << x)) != 0) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * The columns where the shape can be placed with its upper left corner
+   * on the row y of a quilt, computed for all the columns at once:
+   * each cell of the shape shifts the row it covers to the right,
+   * so a set bit x of the result is a column where a cell overlaps.
+   * @param quilt the rows of the quilt
+   * @param width the width of the quilt
+   * @param y
+   * @return the bits of the columns x where {@link #fits(long[], int, int, int)} is true
+   */
+  public long placements(long[] quilt, int width, int y) {
+    if(y < 0 || y + rows.length > quilt.length || this.width > width) {
+      return 0;
+    }
+    // the columns where the shape doesn't exceed the right border
+    var starts = width - this.width + 1;
+    var free = starts == Long.SIZE ? -1L : (1L << starts) - 1;
+    for(var r = 0; r < rows.length && free != 0; r++) {
+      var quiltRow = quilt[y + r];
+      for(var cells = rows[r]; cells != 0; cells &= cells - 1) {
+        free &= ~(quiltRow >>> Long.numberOfTrailingZeros(cells));
+      }
+    }
+    return free;
+  }
+
+  /**
+   * Test if the shape can be placed somewhere on a quilt
+   * @param quilt the rows of the quilt
+   * @param width the width of the quilt
+   * @return true if there is a place where the shape fits
+   */
+  public boolean fitsAnywhere(long[] quilt, int width) {
+    for(var y = 0; y + rows.length <= quilt.length; y++) {
+      if(placements(quilt, width, y) != 0) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Place the shape with its upper left corner in (y,x) on a quilt,
+   * or remove it if it was already placed there.
+   * There is no check, see {@link #fits(long[], int, int, int)}
+   * @param quilt the rows of the quilt
+   * @param y
+   * @param x
+   */
+  public void toggle(long[] quilt, int y, int x) {
+    for(var r = 0; r < rows.length; r++) {
+      quilt[y + r] ^= rows[r] << x;
+    }
+  }
+
+  /**
+   * Test if a quilt has a filled square of size 'side'
+   * @param quilt the rows of the quilt
+   * @param side
+   * @return true if there is such a square
+   */
+  public static boolean hasFilledSquare(long[] quilt, int side) {
+    if(side < 1) {
+      throw new IllegalArgumentException("The square must be at least 1x1");
+    }
+    for(var y = 0; y + side <= quilt.length; y++) {
+      // cells filled in all the rows of the square
+      var filled = -1L;
+      for(var r = y; r < y + side; r++) {
+        filled &= quilt[r];
+      }
+      // cells starting 'side' filled cells in a row
+      var start = filled;
+      for(var i = 1; i < side && start != 0; i++) {
+        start &= filled >>> i;
+      }
+      if(start != 0) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  @Override
+  public boolean equals(Object obj) {
+    return obj instanceof Shape other
+        && width == other.width
+        && Arrays.equals(rows, other.rows);
+  }
+
+  @Override
+  public int hashCode() {
+    return Arrays.hashCode(rows);
+  }
+
+  @Override
+  public String toString() {
+    var builder = new StringBuilder();
+    for(var row: rows) {
+      for(var x = 0; x < width; x++) {
+        builder.append((row & (1L << x)) != 0 ? 'x' : ' ');
+      }
+      builder.append('\n');
+    }
+    return builder.toString();
+  }
+
+}
@@ -66,12 +66,13 @@ public class HumanPlayer implements Player {
    */
   public boolean placePatch(Patch patch) {
     Objects.requireNonNull(patch, "The patch can't be null");
-    if(patch instanceof RegularPatch) {
-    	if (canAdd((RegularPatch) patch)) {
-        buttons -= ((RegularPatch) patch).price();
-    	} else {
-    		return false;
-    	}
+    if(patch instanceof RegularPatch regular) {
+      if (!canAdd(regular) || !quilt.add(regular)) {
+        return false;
+      }
+      // paid once placed, the quilt counts the buttons of the patch
+      buttons -= regular.price();
+      return true;
     }
     return quilt.add(patch);
   }
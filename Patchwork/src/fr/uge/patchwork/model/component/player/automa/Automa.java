@@ -1,11 +1,12 @@
 package fr.uge.patchwork.model.component.player.automa;
 
 import java.util.ArrayList;
-import java.util.Collections;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Objects;
+import java.util.concurrent.ThreadLocalRandom;
 
+import fr.uge.patchwork.model.SplitMix64;
 import fr.uge.patchwork.model.component.patch.Patch;
 import fr.uge.patchwork.model.component.patch.RegularPatch;
 import fr.uge.patchwork.model.component.player.Player;
@@ -18,6 +19,8 @@ import fr.uge.patchwork.model.component.player.Player;
 public class Automa implements Player {
   private final LinkedList<RegularPatch> patches = new LinkedList<>();
   private final List<Card> deck;
+  // shuffles the deck when all the cards are discarded
+  private final SplitMix64 random;
   private int position;
   private final AutomaDifficulty difficulty;
   private boolean specialTile = false;
@@ -25,10 +28,38 @@ public class Automa implements Player {
   
   private int currentCard;
   
-  public Automa(AutomaDifficulty difficulty, List<Card> cards) {
+  /**
+   * @param difficulty
+   * @param cards the deck, in the order it is played
+   * @param random the generator used to shuffle the deck once all its cards are discarded
+   */
+  public Automa(AutomaDifficulty difficulty, List<Card> cards, SplitMix64 random) {
     this.difficulty = Objects.requireNonNull(difficulty);
+    this.random = Objects.requireNonNull(random, "The random generator can't be null");
     deck = new ArrayList<>(cards);
   }
+
+  /**
+   * Create an Automa shuffling its deck with a random seed
+   * @param difficulty
+   * @param cards
+   */
+  public Automa(AutomaDifficulty difficulty, List<Card> cards) {
+    this(difficulty, cards, new SplitMix64(ThreadLocalRandom.current().nextLong()));
+  }
+
+  /**
+   * Restore an Automa saved with {@link #deck()}, {@link #currentCard()}
+   * and {@link #randomState()}
+   * @param difficulty
+   * @param deck the cards in their current order
+   * @param currentCard index of the current card in the deck
+   * @param random the generator of the deck
+   */
+  public Automa(AutomaDifficulty difficulty, List<Card> deck, int currentCard, SplitMix64 random) {
+    this(difficulty, deck, random);
+    this.currentCard = Objects.checkIndex(currentCard, deck.size());
+  }
   
   @Override
   public void move(int position) {
@@ -95,10 +126,31 @@ public class Automa implements Player {
     return deck.get(currentCard);
   }
   
+  /**
+   * @return the cards of the deck, in their current order
+   */
+  public List<Card> deck() {
+    return List.copyOf(deck);
+  }
+
+  /**
+   * @return the index of the current card in the deck
+   */
+  public int currentCard() {
+    return currentCard;
+  }
+
+  /**
+   * @return the state of the generator shuffling the deck
+   */
+  public SplitMix64.State randomState() {
+    return random.state();
+  }
+
   public void discardCard() {
     if(currentCard == deck.size() - 1) {
       currentCard = 0;
-      Collections.shuffle(deck);
+      random.shuffle(deck);
     }else {
       currentCard++;
     }
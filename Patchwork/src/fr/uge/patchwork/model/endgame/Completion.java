@@ -0,0 +1,63 @@
+package fr.uge.patchwork.model.endgame;
+
+import java.util.List;
+import java.util.Objects;
+
+import fr.uge.patchwork.model.component.patch.Shape;
+
+/**
+ * The result of the search of the covers of a quilt,
+ * see {@link CompletionSolver}
+ * @param outcome
+ * @param cost the buttons of the cheapest cover found, -1 if none was found
+ * @param steps the patches of the cheapest cover and their places
+ * @param optimal true if the search was complete: no cover is cheaper
+ * @param nodes number of positions searched
+ */
+public record Completion(Outcome outcome, int cost, List<Step> steps, boolean optimal, long nodes) {
+
+  /**
+   * What the search found
+   */
+  public enum Outcome {
+    /**
+     * The empty cells can be exactly covered
+     */
+    TILEABLE,
+    /**
+     * The patches left can't cover exactly the empty cells
+     */
+    IMPOSSIBLE,
+    /**
+     * The budget was exhausted before a cover was found
+     */
+    UNKNOWN
+  }
+
+  /**
+   * A patch of a cover, at its place on the quilt
+   * @param patch index of the patch in the patches given to the solver
+   * @param orientation see {@link Shape#transform(fr.uge.patchwork.model.component.patch.Form, int)}
+   * @param y row of the upper left corner of the shape
+   * @param x column of the upper left corner of the shape
+   */
+  public record Step(int patch, int orientation, int y, int x) {
+
+    public Step {
+      Objects.checkIndex(orientation, Shape.ORIENTATIONS);
+    }
+  }
+
+  public Completion {
+    Objects.requireNonNull(outcome, "The outcome can't be null");
+    steps = List.copyOf(steps);
+  }
+
+  /**
+   * @return true if the quilt can be finished without any empty cell
+   */
+  public boolean isPerfectFinish() {
+    return outcome == Outcome.TILEABLE;
+  }
+
+}
@@ -0,0 +1,268 @@
+package fr.uge.patchwork.model.endgame;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.IntStream;
+
+import fr.uge.patchwork.model.component.QuiltBoard;
+import fr.uge.patchwork.model.component.patch.RegularPatch;
+import fr.uge.patchwork.model.endgame.Completion.Outcome;
+import fr.uge.patchwork.model.endgame.Completion.Step;
+import fr.uge.patchwork.model.engine.Engine;
+import fr.uge.patchwork.model.engine.Piece;
+import fr.uge.patchwork.monitoring.Histogram;
+import fr.uge.patchwork.monitoring.MetricsRegistry;
+
+/**
+ *
+ * Search if the empty cells of a quilt can be exactly covered
+ * by some of the patches left, and the cover with the lowest price.
+ *
+ * <p>
+ * It is an exact cover problem (see {@link ExactCover}): a primary column
+ * by empty cell, a secondary column by patch as a patch is used once,
+ * and a row by place of a patch in one of its orientations,
+ * found with {@link fr.uge.patchwork.model.component.patch.Shape#placements(long[], int, int)}.
+ * <p>
+ * The empty cell with the fewest places is chosen first, each of its places
+ * is a branch searched by one of the threads, each thread having its own
+ * matrix. The threads share the best price found, to skip the places
+ * that can't beat it, and a budget of nodes, so a search always ends
+ * in a bounded time, with an {@link Outcome#UNKNOWN} outcome if the
+ * budget is exhausted before a cover is found.
+ *
+ */
+public final class CompletionSolver {
+
+  private static final Histogram SOLVES = MetricsRegistry.global().histogram("endgame.solve");
+
+  private final long budget;
+  private final int threads;
+
+  /**
+   * @param budget max number of nodes of a search
+   * @param threads number of threads of a search
+   */
+  public CompletionSolver(long budget, int threads) {
+    if(budget < 1) {
+      throw new IllegalArgumentException("The budget must be positive");
+    }
+    if(threads < 1) {
+      throw new IllegalArgumentException("At least one thread is needed");
+    }
+    this.budget = budget;
+    this.threads = threads;
+  }
+
+  /**
+   * Search the covers of the quilt of a side of the engine
+   * with the patches of the circle
+   * @param engine
+   * @param side a side with a quilt
+   * @return the completion, the steps are indexes in the circle
+   */
+  public Completion solve(Engine engine, int side) {
+    Objects.requireNonNull(engine, "The engine can't be null");
+    if(engine.isAutoma(side)) {
+      throw new IllegalArgumentException("An Automa has no quilt");
+    }
+    var rows = new long[engine.rules().quiltHeight()];
+    for(var y = 0; y < rows.length; y++) {
+      rows[y] = engine.quiltRow(side, y);
+    }
+    var pieces = new ArrayList<Piece>();
+    for(var i = 0; i < engine.circleSize(); i++) {
+      pieces.add(engine.circlePiece(i));
+    }
+    return solve(rows, engine.rules().quiltWidth(), pieces);
+  }
+
+  /**
+   * Search the covers of a quilt with some patches
+   * @param quilt
+   * @param patches the patches left
+   * @return the completion, the steps are indexes in the patches
+   */
+  public Completion solve(QuiltBoard quilt, List<RegularPatch> patches) {
+    Objects.requireNonNull(quilt, "The quilt can't be null");
+    Objects.requireNonNull(patches, "The patches can't be null");
+    var pieces = new ArrayList<Piece>();
+    for(var i = 0; i < patches.size(); i++) {
+      pieces.add(new Piece(i, patches.get(i)));
+    }
+    return solve(quilt.rows(), quilt.width(), pieces);
+  }
+
+  /**
+   * Search the covers of a quilt
+   * @param rows the rows of the quilt
+   * @param width the width of the quilt
+   * @param pieces the patches left
+   * @return the completion, the steps are indexes in the pieces
+   */
+  public Completion solve(long[] rows, int width, List<Piece> pieces) {
+    Objects.requireNonNull(rows, "The rows can't be null");
+    Objects.requireNonNull(pieces, "The pieces can't be null");
+    var start = System.nanoTime();
+    try {
+      return new Problem(rows, width, pieces).solve();
+    } finally {
+      SOLVES.recordSince(start);
+    }
+  }
+
+  /**
+   * The rows of the exact cover of a quilt, built once
+   * then copied in the matrix of each thread
+   */
+  private final class Problem implements ExactCover.Bounds {
+    private final int cells;
+    private final int patches;
+    private final List<int[]> columns = new ArrayList<>();
+    private final List<Step> steps = new ArrayList<>();
+    private final List<Integer> costs = new ArrayList<>();
+    private final List<Integer> weights = new ArrayList<>();
+    private int links;
+    // cells of the patches having a place
+    private int coverable;
+    private double ratio = Double.POSITIVE_INFINITY;
+    // shared by the threads
+    private final AtomicLong left = new AtomicLong(budget);
+    private volatile int best = Integer.MAX_VALUE;
+    private int[] bestRows = new int[0];
+    private volatile boolean exhausted;
+
+    private Problem(long[] rows, int width, List<Piece> pieces) {
+      // the primary column of each empty cell, from 1
+      var index = new int[rows.length][width];
+      var count = 0;
+      for(var y = 0; y < rows.length; y++) {
+        for(var x = 0; x < width; x++) {
+          if((rows[y] & (1L << x)) == 0) {
+            index[y][x] = ++count;
+          }
+        }
+      }
+      cells = count;
+      patches = pieces.size();
+      // the cheapest patches by cell first, their covers are found first
+      var order = IntStream.range(0, patches).boxed()
+          .sorted(Comparator.comparingDouble(i -> (double) pieces.get(i).price() / pieces.get(i).cells()))
+          .toList();
+      var buffer = new int[Long.SIZE + 1];
+      for(var p: order) {
+        var piece = pieces.get(p);
+        var placed = false;
+        for(var i = 0; i < piece.distinctOrientations(); i++) {
+          var orientation = piece.distinctOrientation(i);
+          var shape = piece.shape(orientation);
+          for(var y = 0; y + shape.height() <= rows.length; y++) {
+            for(var free = shape.placements(rows, width, y); free != 0; free &= free - 1) {
+              var x = Long.numberOfTrailingZeros(free);
+              var n = 0;
+              for(var r = 0; r < shape.height(); r++) {
+                for(var bits = shape.row(r); bits != 0; bits &= bits - 1) {
+                  buffer[n++] = index[y + r][x + Long.numberOfTrailingZeros(bits)];
+                }
+              }
+              buffer[n++] = cells + 1 + p;
+              columns.add(Arrays.copyOf(buffer, n));
+              steps.add(new Step(p, orientation, y, x));
+              costs.add(piece.price());
+              weights.add(shape.cells());
+              links += n;
+              ratio = Math.min(ratio, (double) piece.price() / piece.cells());
+              placed = true;
+            }
+          }
+        }
+        if(placed) {
+          coverable += piece.cells();
+        }
+      }
+    }
+
+    private ExactCover matrix() {
+      var matrix = new ExactCover(cells, patches, links, columns.size(), ratio);
+      for(var r = 0; r < columns.size(); r++) {
+        matrix.addRow(columns.get(r), columns.get(r).length, weights.get(r), costs.get(r));
+      }
+      return matrix;
+    }
+
+    private Completion solve() {
+      if(cells == 0) {
+        return new Completion(Outcome.TILEABLE, 0, List.of(), true, 0);
+      }
+      if(coverable < cells) {
+        return new Completion(Outcome.IMPOSSIBLE, -1, List.of(), true, 0);
+      }
+      var matrix = matrix();
+      var branches = matrix.rowsOf(matrix.choose());
+      var next = new AtomicInteger();
+      var nodes = new AtomicLong();
+      var workers = Math.min(threads, branches.length);
+      if(workers <= 1) {
+        nodes.addAndGet(work(matrix, branches, next));
+      } else {
+        var pool = new ForkJoinPool(workers);
+        try {
+          pool.submit(() -> IntStream.range(0, workers).parallel()
+              .forEach(w -> nodes.addAndGet(work(matrix(), branches, next)))).join();
+        } finally {
+          pool.shutdown();
+        }
+      }
+      if(best == Integer.MAX_VALUE) {
+        var outcome = exhausted ? Outcome.UNKNOWN : Outcome.IMPOSSIBLE;
+        return new Completion(outcome, -1, List.of(), !exhausted, nodes.get());
+      }
+      var cover = new ArrayList<Step>();
+      for(var r: bestRows) {
+        cover.add(steps.get(r));
+      }
+      return new Completion(Outcome.TILEABLE, best, cover, !exhausted, nodes.get());
+    }
+
+    /**
+     * Search the branches on a matrix until there is no branch left
+     */
+    private long work(ExactCover matrix, int[] branches, AtomicInteger next) {
+      var start = new int[1];
+      var nodes = 0L;
+      for(int b; (b = next.getAndIncrement()) < branches.length && !exhausted; ) {
+        start[0] = branches[b];
+        nodes += matrix.search(start, 1, this);
+        if(matrix.exhausted()) {
+          exhausted = true;
+        }
+      }
+      return nodes;
+    }
+
+    @Override
+    public int best() {
+      return best;
+    }
+
+    @Override
+    public synchronized void found(int cost, int[] rows, int count) {
+      if(cost < best) {
+        bestRows = Arrays.copyOf(rows, count);
+        best = cost;
+      }
+    }
+
+    @Override
+    public boolean take(int nodes) {
+      return left.addAndGet(-nodes) >= 0;
+    }
+  }
+
+}
@@ -0,0 +1,291 @@
+package fr.uge.patchwork.model.endgame;
+
+/**
+ *
+ * Dancing links of an exact cover problem with costs (Knuth's algorithm X).
+ *
+ * <p>
+ * The primary columns must be covered exactly once, the secondary ones
+ * at most once. Each row has a cost, the search looks for the cover of
+ * the primary columns with the lowest cost, and skips the rows that
+ * can't beat the best cover found, by this search or another one
+ * sharing the same {@link Bounds}.
+ * <p>
+ * The links are in int arrays, nothing is allocated by the search.
+ * A matrix is not thread safe: each thread searches its own.
+ *
+ */
+final class ExactCover {
+
+  /**
+   * The best cost and the node budget shared by the searches of a problem
+   */
+  interface Bounds {
+
+    /**
+     * @return the cost of the best cover found so far
+     */
+    int best();
+
+    /**
+     * Called when a cover is found, with the rows of the cover
+     * @param cost
+     * @param rows
+     * @param count the number of rows
+     */
+    void found(int cost, int[] rows, int count);
+
+    /**
+     * Take some nodes of the budget
+     * @param nodes
+     * @return false if the budget is exhausted
+     */
+    boolean take(int nodes);
+  }
+
+  // nodes taken from the budget at once
+  private static final int BATCH = 1024;
+
+  // node 0 is the root, then the column headers, then the cells of the rows
+  private final int[] left;
+  private final int[] right;
+  private final int[] up;
+  private final int[] down;
+  private final int[] column;
+  private final int[] row;
+  private final int[] size;
+  private final int[] rowCost;
+  private final int[] rowWeight;
+  private final int[] rowFirst;
+  private final int primary;
+  private int nodes;
+  private int rows;
+  // search
+  private final int[] partial;
+  private final double ratio;
+  private Bounds bounds;
+  private int remaining;
+  private int cost;
+  private int credit;
+  private long searched;
+  private boolean exhausted;
+
+  /**
+   * @param primary number of primary columns
+   * @param secondary number of secondary columns
+   * @param cells total number of cells of the rows
+   * @param capacity max number of rows
+   * @param ratio lowest cost of a primary column, for the bound of the costs
+   */
+  ExactCover(int primary, int secondary, int cells, int capacity, double ratio) {
+    var columns = primary + secondary;
+    var total = 1 + columns + cells;
+    left = new int[total];
+    right = new int[total];
+    up = new int[total];
+    down = new int[total];
+    column = new int[total];
+    row = new int[total];
+    size = new int[columns + 1];
+    rowCost = new int[capacity];
+    rowWeight = new int[capacity];
+    rowFirst = new int[capacity];
+    partial = new int[primary + 1];
+    this.primary = primary;
+    this.ratio = ratio;
+    // only the primary columns are linked to the root
+    for(var c = 0; c <= columns; c++) {
+      up[c] = c;
+      down[c] = c;
+      left[c] = c;
+      right[c] = c;
+    }
+    for(var c = 1; c <= primary; c++) {
+      left[c] = c - 1;
+      right[c - 1] = c;
+    }
+    left[0] = primary;
+    right[primary] = 0;
+    nodes = columns + 1;
+  }
+
+  /**
+   * Add a row
+   * @param columns the columns of the row, primary ones in [1;primary],
+   * secondary ones after
+   * @param count number of columns
+   * @param weight number of primary columns of the row
+   * @param cost
+   * @return the index of the row
+   */
+  int addRow(int[] columns, int count, int weight, int cost) {
+    var index = rows++;
+    rowCost[index] = cost;
+    rowWeight[index] = weight;
+    var first = nodes;
+    rowFirst[index] = first;
+    for(var i = 0; i < count; i++) {
+      var node = nodes++;
+      var c = columns[i];
+      column[node] = c;
+      row[node] = index;
+      up[node] = up[c];
+      down[node] = c;
+      down[up[c]] = node;
+      up[c] = node;
+      size[c]++;
+      left[node] = i == 0 ? node : node - 1;
+      right[node] = first;
+      right[left[node]] = node;
+      left[first] = node;
+    }
+    return index;
+  }
+
+  /**
+   * @return the primary column with the fewest rows, 0 if all are covered
+   */
+  int choose() {
+    var best = 0;
+    var bestSize = Integer.MAX_VALUE;
+    for(var c = right[0]; c != 0; c = right[c]) {
+      if(size[c] < bestSize) {
+        best = c;
+        bestSize = size[c];
+      }
+    }
+    return best;
+  }
+
+  /**
+   * @param c a column
+   * @return the rows of a column, in their order
+   */
+  int[] rowsOf(int c) {
+    var result = new int[size[c]];
+    var i = 0;
+    for(var node = down[c]; node != c; node = down[node]) {
+      result[i++] = row[node];
+    }
+    return result;
+  }
+
+  private void cover(int c) {
+    right[left[c]] = right[c];
+    left[right[c]] = left[c];
+    for(var i = down[c]; i != c; i = down[i]) {
+      for(var j = right[i]; j != i; j = right[j]) {
+        up[down[j]] = up[j];
+        down[up[j]] = down[j];
+        size[column[j]]--;
+      }
+    }
+  }
+
+  private void uncover(int c) {
+    for(var i = up[c]; i != c; i = up[i]) {
+      for(var j = left[i]; j != i; j = left[j]) {
+        size[column[j]]++;
+        up[down[j]] = j;
+        down[up[j]] = j;
+      }
+    }
+    right[left[c]] = c;
+    left[right[c]] = c;
+  }
+
+  /**
+   * Select a row: cover all its columns
+   */
+  private void select(int r) {
+    var first = rowFirst[r];
+    cover(column[first]);
+    for(var j = right[first]; j != first; j = right[j]) {
+      cover(column[j]);
+    }
+  }
+
+  /**
+   * Search the covers starting with some rows
+   * @param start the rows already in the cover, in the matrix
+   * @param count number of rows of start
+   * @param bounds the best cost and the budget, shared
+   * @return the number of nodes searched
+   */
+  long search(int[] start, int count, Bounds bounds) {
+    this.bounds = bounds;
+    remaining = primary;
+    cost = 0;
+    credit = 0;
+    searched = 0;
+    exhausted = false;
+    for(var i = 0; i < count; i++) {
+      select(start[i]);
+      partial[i] = start[i];
+      remaining -= rowWeight[start[i]];
+      cost += rowCost[start[i]];
+    }
+    search(count);
+    // put back the matrix for the next search
+    for(var i = count - 1; i >= 0; i--) {
+      var first = rowFirst[start[i]];
+      for(var j = left[first]; j != first; j = left[j]) {
+        uncover(column[j]);
+      }
+      uncover(column[first]);
+    }
+    return searched;
+  }
+
+  /**
+   * @return true if the search stopped because the budget was exhausted
+   */
+  boolean exhausted() {
+    return exhausted;
+  }
+
+  private void search(int depth) {
+    if(credit == 0) {
+      if(!bounds.take(BATCH)) {
+        exhausted = true;
+        return;
+      }
+      credit = BATCH;
+    }
+    credit--;
+    searched++;
+    if(right[0] == 0) {
+      if(cost < bounds.best()) {
+        bounds.found(cost, partial, depth);
+      }
+      return;
+    }
+    var c = choose();
+    if(size[c] == 0) {
+      return;
+    }
+    cover(c);
+    for(var i = down[c]; i != c && !exhausted; i = down[i]) {
+      var r = row[i];
+      var rest = remaining - rowWeight[r];
+      // the other columns cost at least the ratio each
+      if(cost + rowCost[r] + (int) Math.ceil(rest * ratio - 1e-9) >= bounds.best()) {
+        continue;
+      }
+      partial[depth] = r;
+      for(var j = right[i]; j != i; j = right[j]) {
+        cover(column[j]);
+      }
+      remaining = rest;
+      cost += rowCost[r];
+      search(depth + 1);
+      cost -= rowCost[r];
+      remaining += rowWeight[r];
+      for(var j = left[i]; j != i; j = left[j]) {
+        uncover(column[j]);
+      }
+    }
+    uncover(c);
+  }
+
+}
@@ -0,0 +1,6 @@
+/**
+ * Provides the endgame solver: whether the empty cells of a quilt
+ * can be exactly covered by the patches left around the board,
+ * and for how many buttons at least
+ */
+package fr.uge.patchwork.model.endgame;
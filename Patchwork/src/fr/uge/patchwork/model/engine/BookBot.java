@@ -0,0 +1,53 @@
+package fr.uge.patchwork.model.engine;
+
+import java.util.Objects;
+
+import fr.uge.patchwork.monitoring.Counter;
+import fr.uge.patchwork.monitoring.MetricsRegistry;
+
+/**
+ *
+ * Bot playing the moves of an opening book, see {@link OpeningBook},
+ * and the moves of another bot once the position is not in the book.
+ *
+ */
+public final class BookBot implements Bot {
+
+  private static final Counter HITS = MetricsRegistry.global().counter("bot.book.hits");
+  private static final Counter MISSES = MetricsRegistry.global().counter("bot.book.misses");
+
+  private final OpeningBook book;
+  private final Bot bot;
+
+  /**
+   * @param book
+   * @param bot the bot playing the positions not in the book
+   */
+  public BookBot(OpeningBook book, Bot bot) {
+    this.book = Objects.requireNonNull(book, "The book can't be null");
+    this.bot = Objects.requireNonNull(bot, "The bot can't be null");
+  }
+
+  @Override
+  public int chooseMove(Engine engine) {
+    var move = book.move(engine);
+    if(move >= 0) {
+      bot.stopPondering();
+      HITS.increment();
+      return move;
+    }
+    MISSES.increment();
+    return bot.chooseMove(engine);
+  }
+
+  @Override
+  public void ponder(Engine engine) {
+    bot.ponder(engine);
+  }
+
+  @Override
+  public void stopPondering() {
+    bot.stopPondering();
+  }
+
+}
@@ -0,0 +1,46 @@
+package fr.uge.patchwork.model.engine;
+
+/**
+ *
+ * A player choosing the moves of a side played with a quilt.
+ *
+ */
+@FunctionalInterface
+public interface Bot {
+
+  /**
+   * Choose a legal move for the current side of an engine.
+   * The engine must be left as it was given.
+   * @param engine
+   * @return the move
+   */
+  int chooseMove(Engine engine);
+
+  /**
+   * Use the time the opponent thinks on the engine, where it must play.
+   * By default a bot does nothing.
+   * @param engine
+   */
+  default void ponder(Engine engine) {
+    // nothing to do
+  }
+
+  /**
+   * Stop what {@link #ponder(Engine)} started, before the next move of the bot
+   */
+  default void stopPondering() {
+    // nothing to do
+  }
+
+  /**
+   * Return the move of a side, the one of the card
+   * for an Automa, the one of the bot otherwise
+   * @param engine
+   * @param bot
+   * @return the move
+   */
+  static int nextMove(Engine engine, Bot bot) {
+    return engine.isAutoma(engine.current()) ? engine.automaMove() : bot.chooseMove(engine);
+  }
+
+}
@@ -0,0 +1,337 @@
+package fr.uge.patchwork.model.engine;
+
+import java.io.IOException;
+import java.nio.ShortBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.IntStream;
+
+import fr.uge.patchwork.model.SplitMix64;
+import fr.uge.patchwork.monitoring.Histogram;
+import fr.uge.patchwork.monitoring.MetricsRegistry;
+
+/**
+ *
+ * Table of the buttons a quilt side can still earn on the track board,
+ * without the geometry of the quilt.
+ *
+ * <p>
+ * A state is a position, the cells covered, the button income and the
+ * buttons (at most {@link #MAX_BUTTONS}, for the prices). From a state, a
+ * side advances one space for one button, or buys a patch it can afford
+ * and that still fits in the area of the quilt: it pays its price,
+ * earns two points by cell (the empty cells cost two points at the end)
+ * and its income at each button income event it crosses.
+ * The table gives the best gain until the end of the track.
+ * <p>
+ * It is a relaxation: any patch of the rules can be bought at any time,
+ * as many times as wanted, and the opponent is ignored, so the gain is
+ * an optimistic value of a position, known in a lookup.
+ * <p>
+ * A table only depends on the rules: it is generated once, position by
+ * position from the end, each position on a pool of threads, then saved
+ * in a file read with a memory mapping, see {@link #of(Rules)}.
+ *
+ */
+public final class EconomyTable {
+
+  /**
+   * Buttons of a state, more buttons have the gain of this number
+   */
+  public static final int MAX_BUTTONS = 63;
+
+  private static final Histogram GENERATIONS = MetricsRegistry.global().histogram("economy.generation");
+  private static final int MAGIC = 0x50574531; // PWE1
+  // magic, fingerprint and the 4 dimensions
+  private static final int HEADER = Integer.BYTES + Long.BYTES + 4 * Integer.BYTES;
+  private static final Path DIRECTORY = Path.of(System.getProperty("patchwork.economy",
+      System.getProperty("java.io.tmpdir")));
+  // tables by fingerprint of their rules, loaded or generated in the background
+  private static final ConcurrentHashMap<Long, CompletableFuture<EconomyTable>> TABLES = new ConcurrentHashMap<>();
+  // a daemon thread by table, a process stops without waiting for a generation
+  private static final Executor LOADER = task -> {
+    var thread = new Thread(task, "economy-table");
+    thread.setDaemon(true);
+    thread.start();
+  };
+
+  private final long fingerprint;
+  private final int positions;
+  private final int cells;
+  private final int incomes;
+  private final int buttons;
+  // gains by (position, cells, income, buttons)
+  private final ShortBuffer gains;
+
+  private EconomyTable(long fingerprint, int positions, int cells, int incomes, int buttons, ShortBuffer gains) {
+    this.fingerprint = fingerprint;
+    this.positions = positions;
+    this.cells = cells;
+    this.incomes = incomes;
+    this.buttons = buttons;
+    this.gains = gains;
+  }
+
+  /**
+   * The patches of the rules with distinct economics: price, moves, income and cells
+   */
+  private static int[][] economics(Rules rules) {
+    var seen = new HashSet<List<Integer>>();
+    var list = new ArrayList<int[]>();
+    for(var i = 0; i < rules.pieces(); i++) {
+      var piece = rules.piece(i);
+      if(seen.add(List.of(piece.price(), piece.moves(), piece.buttons(), piece.cells()))) {
+        list.add(new int[] { piece.price(), piece.moves(), piece.buttons(), piece.cells() });
+      }
+    }
+    return list.toArray(int[][]::new);
+  }
+
+  /**
+   * @return a hash of what the table depends on in the rules
+   */
+  private static long fingerprint(Rules rules) {
+    var hash = SplitMix64.mix64(rules.spaces());
+    hash = SplitMix64.mix64(hash ^ rules.quiltWidth() * rules.quiltHeight());
+    for(var i = 0; i < rules.buttonIncomeEvents(); i++) {
+      hash = SplitMix64.mix64(hash ^ rules.buttonIncome(i));
+    }
+    for(var economics: economics(rules)) {
+      for(var value: economics) {
+        hash = SplitMix64.mix64(hash ^ value);
+      }
+    }
+    return hash;
+  }
+
+  /**
+   * Generate the table of some rules
+   * @param rules
+   * @param threads number of threads of the generation
+   * @return the table, in memory
+   */
+  public static EconomyTable generate(Rules rules, int threads) {
+    Objects.requireNonNull(rules, "The rules can't be null");
+    if(threads < 1) {
+      throw new IllegalArgumentException("At least one thread is needed");
+    }
+    var start = System.nanoTime();
+    var patches = economics(rules);
+    var positions = rules.spaces() + 1;
+    var area = rules.quiltWidth() * rules.quiltHeight();
+    // each patch is once in the rules, the income can't be higher than their sum
+    var maxIncome = 0;
+    for(var i = 0; i < rules.pieces(); i++) {
+      maxIncome += rules.piece(i).buttons();
+    }
+    var table = new EconomyTable(fingerprint(rules), positions, area + 1, maxIncome + 1, MAX_BUTTONS + 1,
+        ShortBuffer.wrap(new short[positions * (area + 1) * (maxIncome + 1) * (MAX_BUTTONS + 1)]));
+    // events crossed from a position to another
+    var events = new int[positions + 1];
+    for(var i = 0; i < rules.buttonIncomeEvents(); i++) {
+      events[Math.min(rules.buttonIncome(i), positions)]++;
+    }
+    for(var p = 1; p <= positions; p++) {
+      events[p] += events[p - 1];
+    }
+    var pool = new ForkJoinPool(threads);
+    try {
+      // the last position gains nothing, the others only depend on the next ones
+      for(var p = positions - 2; p >= 0; p--) {
+        var position = p;
+        pool.submit(() -> IntStream.range(0, area + 1).parallel()
+            .forEach(c -> table.fill(position, c, area, patches, events))).join();
+      }
+    } finally {
+      pool.shutdown();
+    }
+    GENERATIONS.recordSince(start);
+    return table;
+  }
+
+  /**
+   * Fill the gains of a position and a number of covered cells
+   * @param events the number of events up to each position
+   */
+  private void fill(int position, int covered, int area, int[][] patches, int[] events) {
+    var last = positions - 1;
+    for(var income = 0; income < incomes; income++) {
+      for(var b = 0; b < buttons; b++) {
+        // advance one space
+        var earned = 1 + income * (events[position + 1] - events[position]);
+        var best = earned + gain(position + 1, covered, income, b + earned);
+        for(var patch: patches) {
+          var price = patch[0];
+          var size = patch[3];
+          if(price > b || covered + size > area) {
+            continue;
+          }
+          var to = Math.min(position + patch[1], last);
+          var newIncome = income + patch[2];
+          earned = newIncome * (events[to] - events[position]);
+          var value = earned - price + 2 * size
+              + gain(to, covered + size, Math.min(newIncome, incomes - 1), b - price + earned);
+          best = Math.max(best, value);
+        }
+        gains.put(index(position, covered, income, b), (short) best);
+      }
+    }
+  }
+
+  private int index(int position, int covered, int income, int b) {
+    return ((position * cells + covered) * incomes + income) * buttons + b;
+  }
+
+  /**
+   * @param position on the track board
+   * @param covered the cells covered on the quilt
+   * @param income the button income
+   * @param buttons the buttons, more than {@link #MAX_BUTTONS} count as {@link #MAX_BUTTONS}
+   * @return the best points still to earn, buttons and covered cells
+   */
+  public int gain(int position, int covered, int income, int buttons) {
+    Objects.checkIndex(position, positions);
+    Objects.checkIndex(covered, cells);
+    if(income < 0 || buttons < 0) {
+      throw new IllegalArgumentException("The income and the buttons can't be negative");
+    }
+    return gains.get(index(position, covered, Math.min(income, incomes - 1), Math.min(buttons, this.buttons - 1)));
+  }
+
+  /**
+   * @param engine
+   * @param side a quilt side
+   * @return the best points a side can still earn, see {@link #gain(int, int, int, int)}
+   */
+  public int gain(Engine engine, int side) {
+    Objects.requireNonNull(engine, "The engine can't be null");
+    if(engine.isAutoma(side)) {
+      throw new IllegalArgumentException("An Automa has no economy");
+    }
+    return gain(engine.position(side), cells - 1 - engine.emptyCells(side), engine.income(side), engine.buttons(side));
+  }
+
+  /**
+   * Write the table in a file, replacing the previous one atomically
+   * @param path
+   * @throws IOException if the file can't be written
+   */
+  public void save(Path path) throws IOException {
+    Objects.requireNonNull(path, "The path can't be null");
+    var directory = path.toAbsolutePath().getParent();
+    var temporary = Files.createTempFile(directory, path.getFileName().toString(), ".tmp");
+    try {
+      try(var channel = FileChannel.open(temporary, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+        var size = HEADER + (long) gains.capacity() * Short.BYTES;
+        var buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+        buffer.putInt(MAGIC).putLong(fingerprint)
+            .putInt(positions).putInt(cells).putInt(incomes).putInt(buttons);
+        buffer.asShortBuffer().put(gains.duplicate().clear());
+        buffer.force(); // on the disk before the rename
+      }
+      try {
+        Files.move(temporary, path, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+      } catch(AtomicMoveNotSupportedException e) {
+        Files.move(temporary, path, StandardCopyOption.REPLACE_EXISTING);
+      }
+    } finally {
+      Files.deleteIfExists(temporary);
+    }
+  }
+
+  /**
+   * Map a table written by {@link #save(Path)}, the gains are read
+   * from the file when they are looked up
+   * @param path
+   * @param rules the rules of the table
+   * @return the table
+   * @throws IOException if the file can't be read, is not a table or is the table of other rules
+   */
+  public static EconomyTable load(Path path, Rules rules) throws IOException {
+    Objects.requireNonNull(path, "The path can't be null");
+    Objects.requireNonNull(rules, "The rules can't be null");
+    try(var channel = FileChannel.open(path, StandardOpenOption.READ)) {
+      if(channel.size() < HEADER) {
+        throw new IOException("Invalid economy table: too short");
+      }
+      var buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+      if(buffer.getInt() != MAGIC) {
+        throw new IOException("Invalid economy table: bad magic number");
+      }
+      var fingerprint = buffer.getLong();
+      if(fingerprint != fingerprint(rules)) {
+        throw new IOException("Invalid economy table: generated for other rules");
+      }
+      var positions = buffer.getInt();
+      var cells = buffer.getInt();
+      var incomes = buffer.getInt();
+      var buttons = buffer.getInt();
+      if(positions != rules.spaces() + 1 || cells != rules.quiltWidth() * rules.quiltHeight() + 1
+          || incomes < 1 || buttons != MAX_BUTTONS + 1
+          || channel.size() != HEADER + (long) positions * cells * incomes * buttons * Short.BYTES) {
+        throw new IOException("Invalid economy table: bad size");
+      }
+      // the mapping stays valid once the channel is closed
+      return new EconomyTable(fingerprint, positions, cells, incomes, buttons, buffer.slice().asShortBuffer());
+    }
+  }
+
+  /**
+   * Return the table of some rules, shared by the bots of the process.
+   * It is mapped from its file in the directory -Dpatchwork.economy,
+   * the temporary directory by default, or generated on all the cores
+   * and saved there if the file is missing or invalid, a few seconds once.
+   * This waits for the table, see {@link #ifReady(Rules)} to not wait
+   * @param rules
+   * @return the table
+   */
+  public static EconomyTable of(Rules rules) {
+    return future(rules).join();
+  }
+
+  /**
+   * Return the table of some rules if it is ready, without waiting:
+   * the first call starts to load or generate it on a background thread,
+   * as {@link #of(Rules)} does
+   * @param rules
+   * @return the table, or null if it is not ready yet
+   */
+  public static EconomyTable ifReady(Rules rules) {
+    return future(rules).getNow(null);
+  }
+
+  private static CompletableFuture<EconomyTable> future(Rules rules) {
+    Objects.requireNonNull(rules, "The rules can't be null");
+    return TABLES.computeIfAbsent(fingerprint(rules),
+        fingerprint -> CompletableFuture.supplyAsync(() -> loadOrGenerate(rules, fingerprint), LOADER));
+  }
+
+  private static EconomyTable loadOrGenerate(Rules rules, long fingerprint) {
+    var path = DIRECTORY.resolve("patchwork-economy-" + Long.toHexString(fingerprint) + ".bin");
+    try {
+      return load(path, rules);
+    } catch(IOException e) {
+      // missing or invalid, generated below
+    }
+    var table = generate(rules, Runtime.getRuntime().availableProcessors());
+    try {
+      table.save(path);
+    } catch(IOException e) {
+      // the table is kept in memory
+    }
+    return table;
+  }
+
+}
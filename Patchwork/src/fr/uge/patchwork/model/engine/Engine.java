@@ -0,0 +1,1069 @@
+package fr.uge.patchwork.model.engine;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Objects;
+
+import fr.uge.patchwork.model.SplitMix64;
+import fr.uge.patchwork.model.component.QuiltRegions;
+import fr.uge.patchwork.model.component.QuiltSymmetry;
+import fr.uge.patchwork.model.component.patch.Shape;
+import fr.uge.patchwork.model.component.player.automa.AutomaDifficulty;
+import fr.uge.patchwork.model.component.player.automa.Card;
+import fr.uge.patchwork.monitoring.Counter;
+import fr.uge.patchwork.monitoring.MetricsRegistry;
+
+/**
+ *
+ * Compact engine of a 1vs1 patchwork game, with the same rules
+ * as the controller, but without any interface.
+ *
+ * <p>
+ * The quilts are rows of bits, the moves are ints (see {@link Move})
+ * and a move can be played then undone, so a game can be simulated
+ * or searched without allocating anything. The places of the patches
+ * can be kept in the {@link PlacementCache} shared by the engines,
+ * see {@link PlacementCache#enabled()}. <br>
+ * A side is played by a player with a quilt or by an Automa.
+ * The Automa has no choice, its move is given by {@link #automaMove()}.
+ * <p>
+ * The side 0 plays first. When a player crosses leather patch events
+ * it plays the leather moves before the turn goes to the latest player.
+ * The engine is not thread safe, use {@link #copy()} for each thread.
+ *
+ */
+public final class Engine {
+
+  public static final int SIDES = 2;
+  private static final Counter MOVES = MetricsRegistry.global().counter("engine.moves");
+  private static final Counter UNDOS = MetricsRegistry.global().counter("engine.undos");
+  // special tile
+  private static final int SQUARE_SIDE = 7;
+  private static final int SQUARE_BONUS = 7;
+  // patches available after the neutral token
+  private static final int SLOTS = 3;
+
+  private final Rules rules;
+  // circle of patches, by piece id
+  private final int[] circle;
+  private int circleSize;
+  private int token;
+  // sides
+  private final int[] position = new int[SIDES];
+  private final int[] buttons = new int[SIDES];
+  // buttons on the patches of the side
+  private final int[] income = new int[SIDES];
+  private final int[] patches = new int[SIDES];
+  private final int[] empty = new int[SIDES];
+  // the last arrived on a space is on top of the others
+  private final long[] arrival = new long[SIDES];
+  private long clock;
+  // null for an Automa
+  private final long[][] quilts = new long[SIDES][];
+  // null for a quilt
+  private final AutomaDifficulty[] difficulties = new AutomaDifficulty[SIDES];
+  private final Card[][] decks = new Card[SIDES][];
+  private final SplitMix64[] deckRandoms = new SplitMix64[SIDES];
+  private final int[] card = new int[SIDES];
+  private int special = -1;
+  // leather patch events already taken
+  private long claimed;
+  // leather patch events crossed by the current side, waiting for a leather move
+  private long pending;
+  private int current;
+
+  // undo stack, FRAME values by played move
+  private static final int FRAME = 24;
+  private long[] frames = new long[FRAME * 128];
+  private int[] played = new int[128];
+  private int ply;
+  private final ArrayDeque<DeckState> shuffledDecks = new ArrayDeque<>();
+  // buffers of the analysis of the quilts
+  private final QuiltRegions regions = new QuiltRegions();
+  private final QuiltSymmetry symmetry = new QuiltSymmetry();
+  // the last canonicalized quilt of each side, its canonical image, its key and its symmetry
+  private final long[][] canonicalRows = new long[SIDES][];
+  private final long[][] canonicalImages = new long[SIDES][];
+  private final long[] canonicalKeys = new long[SIDES];
+  private final int[] canonicalSymmetries = new int[SIDES];
+  // the cache of the places of the patches, null to find them each time
+  private PlacementCache placementCache;
+
+  private record DeckState(int side, Card[] cards, SplitMix64.State random) {}
+
+  private Engine(Rules rules) {
+    this.rules = rules;
+    circle = new int[rules.pieces()];
+    placementCache = PlacementCache.enabled() ? PlacementCache.shared() : null;
+  }
+
+  /**
+   * Create the engine of a new game. <br>
+   * The patches are shuffled with a first split of the seed, then each
+   * Automa gets its own split, in the order of the sides,
+   * to shuffle its deck when it is empty.
+   * @param rules
+   * @param first setup of the side 0, playing first
+   * @param second setup of the side 1
+   * @param seed
+   * @return the engine
+   */
+  public static Engine create(Rules rules, SideSetup first, SideSetup second, long seed) {
+    Objects.requireNonNull(rules, "The rules can't be null");
+    Objects.requireNonNull(first, "The setup of the first side can't be null");
+    Objects.requireNonNull(second, "The setup of the second side can't be null");
+    var engine = new Engine(rules);
+    var random = new SplitMix64(seed);
+    var n = rules.pieces();
+    for(var i = 0; i < n; i++) {
+      engine.circle[i] = i;
+    }
+    random.split().shuffle(engine.circle, n);
+    engine.circleSize = n;
+    engine.token = minPiece(rules, engine.circle, n);
+    var setups = new SideSetup[] { first, second };
+    for(var side = 0; side < SIDES; side++) {
+      var setup = setups[side];
+      engine.buttons[side] = setup.isAutoma() ? 0 : rules.startingButtons();
+      engine.empty[side] = rules.quiltWidth() * rules.quiltHeight();
+      if(setup.isAutoma()) {
+        engine.difficulties[side] = setup.difficulty();
+        engine.decks[side] = setup.deck().toArray(Card[]::new);
+        engine.deckRandoms[side] = random.split();
+      } else {
+        engine.quilts[side] = new long[rules.quiltHeight()];
+      }
+    }
+    // the first side is on top of the other one
+    engine.clock = 1;
+    engine.arrival[0] = 1;
+    engine.current = 0;
+    return engine;
+  }
+
+  /**
+   * The smallest patch of the circle, the first one if several
+   * have the same size, as the patch manager does
+   */
+  private static int minPiece(Rules rules, int[] circle, int n) {
+    var min = 0;
+    for(var i = 1; i < n; i++) {
+      if(rules.piece(circle[i]).cells() < rules.piece(circle[min]).cells()) {
+        min = i;
+      }
+    }
+    return min;
+  }
+
+  /**
+   * @return a copy of the engine, sharing nothing mutable with it.
+   * The moves played before can't be undone on the copy.
+   */
+  public Engine copy() {
+    var copy = new Engine(rules);
+    System.arraycopy(circle, 0, copy.circle, 0, circle.length);
+    copy.circleSize = circleSize;
+    copy.token = token;
+    for(var side = 0; side < SIDES; side++) {
+      copy.position[side] = position[side];
+      copy.buttons[side] = buttons[side];
+      copy.income[side] = income[side];
+      copy.patches[side] = patches[side];
+      copy.empty[side] = empty[side];
+      copy.arrival[side] = arrival[side];
+      copy.quilts[side] = quilts[side] == null ? null : quilts[side].clone();
+      copy.difficulties[side] = difficulties[side];
+      copy.decks[side] = decks[side] == null ? null : decks[side].clone();
+      copy.deckRandoms[side] = deckRandoms[side] == null ? null : deckRandoms[side].copy();
+      copy.card[side] = card[side];
+    }
+    copy.clock = clock;
+    copy.special = special;
+    copy.claimed = claimed;
+    copy.pending = pending;
+    copy.current = current;
+    copy.placementCache = placementCache;
+    return copy;
+  }
+
+  public Rules rules() {
+    return rules;
+  }
+
+  /**
+   * @return the side that must play
+   */
+  public int current() {
+    return current;
+  }
+
+  /**
+   * The game is finished when the latest side is on the last space
+   * @return true if the game is finished
+   */
+  public boolean isFinished() {
+    return pending == 0 && position[current] == rules.spaces();
+  }
+
+  public int position(int side) {
+    return position[side];
+  }
+
+  public int buttons(int side) {
+    return buttons[side];
+  }
+
+  /**
+   * @param side
+   * @return the buttons on the patches of a side
+   */
+  public int income(int side) {
+    return income[side];
+  }
+
+  /**
+   * @param side
+   * @return the number of patches bought by a side
+   */
+  public int patches(int side) {
+    return patches[side];
+  }
+
+  /**
+   * @param side
+   * @return the empty cells of the quilt of a side
+   */
+  public int emptyCells(int side) {
+    return empty[side];
+  }
+
+  /**
+   * The empty cells of the quilt of a side that no patch of the circle
+   * can fill, the regions smaller than its smallest patch,
+   * see {@link QuiltRegions}
+   * @param side a side with a quilt
+   * @return the number of dead cells
+   */
+  public int deadCells(int side) {
+    var smallest = Integer.MAX_VALUE;
+    for(var i = 0; i < circleSize; i++) {
+      smallest = Math.min(smallest, rules.piece(circle[i]).cells());
+    }
+    return regions.deadCells(quilts[side], rules.quiltWidth(), smallest);
+  }
+
+  public boolean isAutoma(int side) {
+    return quilts[side] == null;
+  }
+
+  /**
+   * @param side
+   * @return the difficulty of an Automa, null for a quilt
+   */
+  public AutomaDifficulty difficulty(int side) {
+    return difficulties[side];
+  }
+
+  /**
+   * @param side
+   * @return the current card of an Automa
+   */
+  public Card card(int side) {
+    if(!isAutoma(side)) {
+      throw new IllegalArgumentException("The side " + side + " has no deck");
+    }
+    return decks[side][card[side]];
+  }
+
+  /**
+   * @param side
+   * @return the number of cards of an Automa not drawn yet, the current card included
+   */
+  public int remainingCards(int side) {
+    if(!isAutoma(side)) {
+      throw new IllegalArgumentException("The side " + side + " has no deck");
+    }
+    return decks[side].length - card[side];
+  }
+
+  /**
+   * Swap two cards of an Automa not drawn yet. <br>
+   * The order of these cards is hidden to the players, a search
+   * can swap them to try each card as the current one, then swap
+   * them again to restore the deck, before undoing the moves played since.
+   * @param side
+   * @param i index of a card after the current one, 0 for the current card
+   * @param j index of a card after the current one
+   */
+  public void swapCards(int side, int i, int j) {
+    var remaining = remainingCards(side);
+    Objects.checkIndex(i, remaining);
+    Objects.checkIndex(j, remaining);
+    var deck = decks[side];
+    var tmp = deck[card[side] + i];
+    deck[card[side] + i] = deck[card[side] + j];
+    deck[card[side] + j] = tmp;
+  }
+
+  /**
+   * @param side
+   * @return true if the side was the last to arrive
+   * on its space, or if the sides are on different spaces
+   */
+  public boolean onTop(int side) {
+    return arrival[side] > arrival[1 - side];
+  }
+
+  /**
+   * @return the side owning the special tile, -1 if nobody
+   */
+  public int specialTile() {
+    return special;
+  }
+
+  /**
+   * @return the number of leather patches the current side must place
+   */
+  public int pendingLeathers() {
+    return Long.bitCount(pending);
+  }
+
+  /**
+   * @param index of a leather patch event
+   * @return true if the leather patch of the event was taken
+   */
+  public boolean leatherTaken(int index) {
+    return (claimed & (1L << index)) != 0;
+  }
+
+  /**
+   * Hash of the position, the same for the same position whatever the moves
+   * played to reach it. The order of the cards of an Automa not drawn yet
+   * is hidden, so it is not part of the position.
+   * @return the hash
+   */
+  public long hash() {
+    return hash(null);
+  }
+
+  /**
+   * Hash of the position up to the symmetries of the quilts: each quilt
+   * is hashed by the hash of its canonical image (see {@link QuiltSymmetry}),
+   * so the positions with the same quilts rotated or reflected,
+   * which have the same value, have the same hash.
+   * The moves of the side to play can be moved from a position to the other
+   * with {@link #transformMove(int, int)}.
+   * @param symmetries the symmetry giving the canonical quilt of each side,
+   * filled for the quilt sides, at least {@link #SIDES} ints
+   * @return the hash
+   */
+  public long canonicalHash(int[] symmetries) {
+    Objects.requireNonNull(symmetries, "The symmetries can't be null");
+    Objects.checkIndex(SIDES - 1, symmetries.length);
+    return hash(symmetries);
+  }
+
+  private long hash(int[] symmetries) {
+    var h = SplitMix64.mix64(current | (long) token << 8 | (long) circleSize << 16
+        | (long) (special + 1) << 24 | (arrival[0] > arrival[1] ? 1L : 0L) << 26);
+    h = SplitMix64.mix64(h ^ claimed);
+    h = SplitMix64.mix64(h ^ pending);
+    for(var i = 0; i < circleSize; i++) {
+      h = SplitMix64.mix64(h ^ circle[i]);
+    }
+    for(var side = 0; side < SIDES; side++) {
+      h = SplitMix64.mix64(h ^ (position[side] | (long) buttons[side] << 16 | (long) income[side] << 32
+          | (long) patches[side] << 48));
+      if(isAutoma(side)) {
+        h = SplitMix64.mix64(h ^ card[side]);
+      } else if(symmetries != null) {
+        canonicalize(side);
+        h = SplitMix64.mix64(h ^ canonicalKeys[side]);
+        symmetries[side] = canonicalSymmetries[side];
+      } else {
+        for(var row: quilts[side]) {
+          h = SplitMix64.mix64(h ^ row);
+        }
+      }
+    }
+    return h;
+  }
+
+  /**
+   * Find the canonical image of the quilt of a side, its key and its symmetry,
+   * again only if the quilt changed since the last time,
+   * as the quilt of the side not playing stays the same
+   */
+  private void canonicalize(int side) {
+    var quilt = quilts[side];
+    if(canonicalRows[side] != null && Arrays.equals(canonicalRows[side], quilt)) {
+      return;
+    }
+    if(canonicalRows[side] == null) {
+      canonicalRows[side] = new long[quilt.length];
+      canonicalImages[side] = new long[quilt.length];
+    }
+    System.arraycopy(quilt, 0, canonicalRows[side], 0, quilt.length);
+    var image = canonicalImages[side];
+    canonicalSymmetries[side] = symmetry.canonicalize(quilt, rules.quiltWidth(), image);
+    var key = SplitMix64.mix64(image.length | (long) rules.quiltWidth() << 32);
+    for(var row: image) {
+      key = SplitMix64.mix64(key ^ row);
+    }
+    canonicalKeys[side] = key;
+  }
+
+  /**
+   * @return the image of a place of a piece by a symmetry of the quilt,
+   * packed by {@link PlacementCache#pack(int, int, int)}
+   */
+  private int transformPlace(Piece piece, int orientation, int y, int x, int symmetry) {
+    var height = rules.quiltHeight();
+    var width = rules.quiltWidth();
+    var shape = piece.shape(orientation);
+    // the upper left corner of the image of the rectangle of the shape
+    var bottom = y + shape.height() - 1;
+    var right = x + shape.width() - 1;
+    return PlacementCache.pack(piece.image(orientation, symmetry),
+        Math.min(QuiltSymmetry.row(y, x, height, width, symmetry),
+            QuiltSymmetry.row(bottom, right, height, width, symmetry)),
+        Math.min(QuiltSymmetry.column(y, x, height, width, symmetry),
+            QuiltSymmetry.column(bottom, right, height, width, symmetry)));
+  }
+
+  /**
+   * Transform a move of the current side as if its quilt was transformed
+   * by a symmetry: the patch is placed in the image of its place,
+   * in the distinct orientation of the image of its shape
+   * @param move a move of the current side
+   * @param symmetry see {@link QuiltSymmetry}
+   * @return the move
+   * @throws IllegalStateException if the current side is an Automa
+   */
+  public int transformMove(int move, int symmetry) {
+    if(isAutoma(current)) {
+      throw new IllegalStateException("An Automa has no quilt");
+    }
+    var height = rules.quiltHeight();
+    var width = rules.quiltWidth();
+    if(symmetry >= QuiltSymmetry.symmetries(height, width)) {
+      throw new IllegalArgumentException("Not a symmetry of the quilt: " + symmetry);
+    }
+    return switch(Move.kind(move)) {
+      case Move.BUY -> {
+        var place = transformPlace(slotPiece(Move.slot(move)), Move.orientation(move), Move.y(move), Move.x(move),
+            symmetry);
+        yield Move.buy(Move.slot(move), PlacementCache.orientation(place), PlacementCache.y(place),
+            PlacementCache.x(place));
+      }
+      case Move.LEATHER -> Move.leather(QuiltSymmetry.row(Move.y(move), Move.x(move), height, width, symmetry),
+          QuiltSymmetry.column(Move.y(move), Move.x(move), height, width, symmetry));
+      default -> move;
+    };
+  }
+
+  /**
+   * @return the number of moves played since the creation or the copy
+   */
+  public int ply() {
+    return ply;
+  }
+
+  /**
+   * @param index in [0;ply()[
+   * @return a played move
+   */
+  public int playedMove(int index) {
+    Objects.checkIndex(index, ply);
+    return played[index];
+  }
+
+  /**
+   * @param index in [0;ply()[
+   * @return the side that played a move
+   */
+  public int playedBy(int index) {
+    Objects.checkIndex(index, ply);
+    return (int) frames[index * FRAME + 18];
+  }
+
+  /**
+   * @return the number of patches around the board
+   */
+  public int circleSize() {
+    return circleSize;
+  }
+
+  /**
+   * @return the index of the neutral token in the circle
+   */
+  public int token() {
+    return token;
+  }
+
+  /**
+   * @param index in [0;circleSize()[
+   * @return the patch at a given index of the circle
+   */
+  public Piece circlePiece(int index) {
+    Objects.checkIndex(index, circleSize);
+    return rules.piece(circle[index]);
+  }
+
+  /**
+   * @return the number of patches a player can choose from
+   */
+  public int slots() {
+    return Math.min(SLOTS, circleSize);
+  }
+
+  /**
+   * @param slot in [0;slots()[
+   * @return the patch of a slot after the neutral token
+   */
+  public Piece slotPiece(int slot) {
+    Objects.checkIndex(slot, slots());
+    return rules.piece(circle[(token + 1 + slot) % circleSize]);
+  }
+
+  /**
+   * @param side
+   * @param y
+   * @return the bits of a row of the quilt of a side
+   */
+  public long quiltRow(int side, int y) {
+    return quilts[side][y];
+  }
+
+  /**
+   * Return the score of a side, following the rules of the players
+   * and of the Automa difficulties
+   * @param side
+   * @return the score
+   */
+  public int score(int side) {
+    var bonus = special == side ? SQUARE_BONUS : 0;
+    if(!isAutoma(side)) {
+      return buttons[side] + bonus - empty[side] * 2;
+    }
+    return switch(difficulties[side]) {
+      case INTERN -> bonus;
+      case APPRENTICE -> buttons[side] + bonus;
+      case FELLOW -> buttons[side] + patches[side] + bonus;
+      case MASTER -> buttons[side] + income[side] + bonus;
+      case LEGEND -> buttons[side] + income[side] + patches[side] + bonus;
+    };
+  }
+
+  /**
+   * @return the side with the best score, -1 in case of tie
+   */
+  public int winner() {
+    var first = score(0);
+    var second = score(1);
+    return first == second ? -1 : first > second ? 0 : 1;
+  }
+
+  /**
+   * The latest side on the board,
+   * the one on top if both are on the same space
+   */
+  private int latest() {
+    if(position[0] != position[1]) {
+      return position[0] < position[1] ? 0 : 1;
+    }
+    return arrival[0] > arrival[1] ? 0 : 1;
+  }
+
+  /**
+   * Return the move of the current side if it is an Automa,
+   * following the rules of its current card
+   * @return the move
+   */
+  public int automaMove() {
+    var side = current;
+    if(!isAutoma(side)) {
+      throw new IllegalStateException("The current side is not an Automa");
+    }
+    var n = circleSize;
+    if(n == 0) {
+      return Move.ADVANCE;
+    }
+    var card = decks[side][this.card[side]];
+    var affordable = 0;
+    var chosen = -1;
+    // as the patch manager, the entries may repeat a patch when less than 3 are left
+    for(var k = 0; k < SLOTS; k++) {
+      if(entry(k).price() <= card.virtualButtons()) {
+        affordable++;
+        chosen = chosen < 0 ? k : chosen;
+      }
+    }
+    if(affordable == 0) {
+      return Move.ADVANCE;
+    }
+    if(affordable > 1) {
+      chosen = playCard(side, card);
+    }
+    // first entry holding the chosen patch
+    var index = (token + 1 + chosen) % n;
+    var slot = 0;
+    while((token + 1 + slot) % n != index) {
+      slot++;
+    }
+    return Move.buy(slot, 0, 0, 0);
+  }
+
+  private Piece entry(int k) {
+    return rules.piece(circle[(token + 1 + k) % circleSize]);
+  }
+
+  /**
+   * Filters of the card on the patches after the token,
+   * as the controller does
+   * @return the entry of the chosen patch
+   */
+  private int playCard(int side, Card card) {
+    var other = 1 - side;
+    var maxPosition = position[other] >= position[side] + 1
+        ? position[other] - position[side]
+        : rules.spaces();
+    var chosen = SLOTS - 1;
+    var filters = card.filters();
+    for(var i = 0; i < filters.size(); i++) {
+      switch(filters.get(i)) {
+        case LARGEST -> {
+          var max = -1;
+          for(var k = 0; k < SLOTS; k++) {
+            if(entry(k).cells() >= max) {
+              max = entry(k).cells();
+              chosen = k;
+            }
+          }
+        }
+        case MOST_BUTTONS -> {
+          var max = -1;
+          for(var k = 0; k < SLOTS; k++) {
+            if(entry(k).buttons() >= max) {
+              max = entry(k).buttons();
+              chosen = k;
+            }
+          }
+        }
+        case NO_OVERTAKE -> {
+          var max = -1;
+          for(var k = 0; k < SLOTS; k++) {
+            if(entry(k).moves() <= maxPosition && entry(k).buttons() >= max) {
+              max = entry(k).buttons();
+              chosen = k;
+            }
+          }
+        }
+      }
+    }
+    return chosen;
+  }
+
+  /**
+   * Generate the legal moves of the current side
+   * @param moves buffer of at least {@link Rules#maxMoves()} moves
+   * @return the number of moves written in the buffer
+   */
+  public int legalMoves(int[] moves) {
+    if(isFinished()) {
+      return 0;
+    }
+    var side = current;
+    if(isAutoma(side)) {
+      moves[0] = automaMove();
+      return 1;
+    }
+    var quilt = quilts[side];
+    var width = rules.quiltWidth();
+    var height = rules.quiltHeight();
+    var count = 0;
+    if(pending != 0) {
+      for(var y = 0; y < height; y++) {
+        for(var x = 0; x < width; x++) {
+          if((quilt[y] & (1L << x)) == 0) {
+            moves[count++] = Move.leather(y, x);
+          }
+        }
+      }
+      return count;
+    }
+    moves[count++] = Move.ADVANCE;
+    var slots = slots();
+    for(var slot = 0; slot < slots; slot++) {
+      var piece = slotPiece(slot);
+      if(piece.price() > buttons[side]) {
+        continue;
+      }
+      count = buyMoves(side, slot, piece, moves, count);
+    }
+    return count;
+  }
+
+  /**
+   * Generate the moves buying the patch of a slot, in the order of their
+   * orientation, row and column. The places of the patch are found with
+   * {@link Shape#placements(long[], int, int)}, or in the {@link PlacementCache}
+   * of the engine if any, the same places in the same order.
+   * @return the number of moves in the buffer
+   */
+  private int buyMoves(int side, int slot, Piece piece, int[] moves, int count) {
+    var start = count;
+    if(placementCache == null) {
+      count = findPlaces(quilts[side], piece, moves, count);
+    } else {
+      count = cachedPlaces(side, piece, moves, count);
+    }
+    for(var i = start; i < count; i++) {
+      moves[i] = Move.buy(slot, PlacementCache.orientation(moves[i]), PlacementCache.y(moves[i]),
+          PlacementCache.x(moves[i]));
+    }
+    return count;
+  }
+
+  /**
+   * Find the places of a piece on a quilt, packed by {@link PlacementCache#pack(int, int, int)}
+   * @return the number of places in the buffer
+   */
+  private int findPlaces(long[] quilt, Piece piece, int[] places, int count) {
+    var width = rules.quiltWidth();
+    for(var i = 0; i < piece.distinctOrientations(); i++) {
+      var orientation = piece.distinctOrientation(i);
+      var shape = piece.shape(orientation);
+      for(var y = 0; y + shape.height() <= quilt.length; y++) {
+        for(var free = shape.placements(quilt, width, y); free != 0; free &= free - 1) {
+          places[count++] = PlacementCache.pack(orientation, y, Long.numberOfTrailingZeros(free));
+        }
+      }
+    }
+    return count;
+  }
+
+  /**
+   * Keep the places of the patches in a cache, or find them each time,
+   * the shared cache if it is enabled by default
+   * @param cache the cache, or null
+   */
+  void usePlacementCache(PlacementCache cache) {
+    placementCache = cache;
+  }
+
+  /**
+   * Find the places of a piece on the quilt of a side in the cache,
+   * or find them and add them to the cache
+   * @return the number of places in the buffer
+   */
+  private int cachedPlaces(int side, Piece piece, int[] places, int count) {
+    var cache = placementCache;
+    canonicalize(side);
+    var key = canonicalKeys[side];
+    var image = canonicalImages[side];
+    var symmetry = canonicalSymmetries[side];
+    var start = count;
+    var found = cache.get(key, image, piece.shapeKey(), places, start);
+    if(found == -1) {
+      count = findPlaces(quilts[side], piece, places, count);
+      cache.put(key, image, piece.shapeKey(), symmetry, places, start, count - start);
+      return count;
+    }
+    count += PlacementCache.count(found);
+    var from = PlacementCache.symmetry(found);
+    if(from != symmetry) {
+      // the places of another image of the quilt go to the canonical quilt then to this one
+      var inverse = QuiltSymmetry.inverse(symmetry);
+      for(var i = start; i < count; i++) {
+        var place = transformPlace(piece, PlacementCache.orientation(places[i]), PlacementCache.y(places[i]),
+            PlacementCache.x(places[i]), from);
+        places[i] = transformPlace(piece, PlacementCache.orientation(place), PlacementCache.y(place),
+            PlacementCache.x(place), inverse);
+      }
+      Arrays.sort(places, start, count);
+    }
+    return count;
+  }
+
+  /**
+   * Test if a move can be played by the current side
+   * @param move
+   * @return true if the move is legal
+   */
+  public boolean isLegal(int move) {
+    if(isFinished()) {
+      return false;
+    }
+    var side = current;
+    if(isAutoma(side)) {
+      return move == automaMove();
+    }
+    return switch(Move.kind(move)) {
+      case Move.ADVANCE -> move == Move.ADVANCE && pending == 0;
+      case Move.BUY -> {
+        if(pending != 0 || Move.slot(move) >= slots()) {
+          yield false;
+        }
+        var piece = slotPiece(Move.slot(move));
+        yield piece.price() <= buttons[side]
+            && piece.shape(Move.orientation(move))
+              .fits(quilts[side], rules.quiltWidth(), Move.y(move), Move.x(move));
+      }
+      case Move.LEATHER -> pending != 0
+          && Move.y(move) < rules.quiltHeight() && Move.x(move) < rules.quiltWidth()
+          && (quilts[side][Move.y(move)] & (1L << Move.x(move))) == 0;
+      default -> false;
+    };
+  }
+
+  /**
+   * Play a move for the current side
+   * @param move
+   * @throws IllegalArgumentException if the move is not legal
+   */
+  public void play(int move) {
+    if(!isLegal(move)) {
+      throw new IllegalArgumentException("Illegal move: " + Move.toString(move));
+    }
+    MOVES.increment();
+    pushFrame();
+    played[ply] = move;
+    ply++;
+    var side = current;
+    if(isAutoma(side)) {
+      playAutoma(side, move);
+      return;
+    }
+    switch(Move.kind(move)) {
+      case Move.ADVANCE -> {
+        var moves = advance(side);
+        buttons[side] += moves;
+      }
+      case Move.BUY -> {
+        var piece = slotPiece(Move.slot(move));
+        buttons[side] -= piece.price();
+        piece.shape(Move.orientation(move)).toggle(quilts[side], Move.y(move), Move.x(move));
+        empty[side] -= piece.cells();
+        income[side] += piece.buttons();
+        patches[side]++;
+        take(Move.slot(move));
+        moveSide(side, piece.moves());
+      }
+      case Move.LEATHER -> {
+        quilts[side][Move.y(move)] |= 1L << Move.x(move);
+        empty[side]--;
+        claimed |= Long.lowestOneBit(pending);
+        pending &= pending - 1;
+      }
+      default -> throw new AssertionError();
+    }
+    if(pending != 0 && empty[side] == 0) {
+      pending = 0; // no more space for a leather patch
+    }
+    if(pending == 0) {
+      if(special < 0 && Shape.hasFilledSquare(quilts[side], SQUARE_SIDE)) {
+        special = side;
+      }
+      current = latest();
+    }
+  }
+
+  private void playAutoma(int side, int move) {
+    var card = decks[side][this.card[side]];
+    var buttonEvents = 0;
+    if(Move.kind(move) == Move.ADVANCE) {
+      var from = position[side];
+      advance(side);
+      buttonEvents = buttonEvents(from, position[side]);
+    } else {
+      var piece = slotPiece(Move.slot(move));
+      income[side] += piece.buttons();
+      patches[side]++;
+      take(Move.slot(move));
+      var from = position[side];
+      moveSide(side, piece.moves());
+      buttonEvents = buttonEvents(from, position[side]);
+    }
+    buttons[side] += card.buttonIncome() * buttonEvents;
+    pending = 0; // an Automa does not take leather patches
+    if(special < 0 && position[side] >= rules.spaces() - difficulties[side].spaces()) {
+      special = side;
+    }
+    discardCard(side);
+    current = latest();
+  }
+
+  private void discardCard(int side) {
+    if(card[side] == decks[side].length - 1) {
+      shuffledDecks.push(new DeckState(side, decks[side].clone(), deckRandoms[side].state()));
+      card[side] = 0;
+      deckRandoms[side].shuffle(decks[side]);
+    } else {
+      card[side]++;
+    }
+  }
+
+  /**
+   * Move a side in front of the other one, or of one space
+   * @return the number of spaces to move
+   */
+  private int advance(int side) {
+    var other = 1 - side;
+    var moves = position[other] > position[side] ? position[other] + 1 - position[side] : 1;
+    moveSide(side, moves);
+    return moves;
+  }
+
+  private int buttonEvents(int from, int to) {
+    var count = 0;
+    for(var i = 0; i < rules.buttonIncomeEvents(); i++) {
+      var event = rules.buttonIncome(i);
+      if(event > from && event <= to) {
+        count++;
+      }
+    }
+    return count;
+  }
+
+  /**
+   * Move a side on the track board and trigger the crossed events
+   */
+  private void moveSide(int side, int moves) {
+    var from = position[side];
+    var to = Math.max(0, Math.min(from + moves, rules.spaces()));
+    if(to > from && !isAutoma(side)) {
+      buttons[side] += income[side] * buttonEvents(from, to);
+      for(var i = 0; i < rules.patchIncomeEvents(); i++) {
+        var event = rules.patchIncome(i);
+        if(event > from && event <= to && (claimed & (1L << i)) == 0) {
+          pending |= 1L << i;
+        }
+      }
+    }
+    position[side] = to;
+    arrival[side] = ++clock;
+  }
+
+  /**
+   * Take the patch of a slot, as the patch manager does
+   */
+  private void take(int slot) {
+    var n = circleSize;
+    token = (token + slot) % n;
+    var index = (token + 1) % n;
+    var frame = (ply - 1) * FRAME;
+    frames[frame + 21] = index;
+    frames[frame + 22] = circle[index];
+    System.arraycopy(circle, index + 1, circle, index, n - index - 1);
+    circleSize--;
+  }
+
+  private void pushFrame() {
+    if(ply == played.length) {
+      played = Arrays.copyOf(played, ply * 2);
+      frames = Arrays.copyOf(frames, ply * 2 * FRAME);
+    }
+    var frame = ply * FRAME;
+    var f = frames;
+    f[frame] = position[0];
+    f[frame + 1] = position[1];
+    f[frame + 2] = buttons[0];
+    f[frame + 3] = buttons[1];
+    f[frame + 4] = income[0];
+    f[frame + 5] = income[1];
+    f[frame + 6] = patches[0];
+    f[frame + 7] = patches[1];
+    f[frame + 8] = empty[0];
+    f[frame + 9] = empty[1];
+    f[frame + 10] = arrival[0];
+    f[frame + 11] = arrival[1];
+    f[frame + 12] = card[0];
+    f[frame + 13] = card[1];
+    f[frame + 14] = clock;
+    f[frame + 15] = special;
+    f[frame + 16] = claimed;
+    f[frame + 17] = pending;
+    f[frame + 18] = current;
+    f[frame + 19] = token;
+    f[frame + 20] = circleSize;
+    f[frame + 21] = -1; // index of the taken patch
+    f[frame + 22] = -1; // id of the taken patch
+    f[frame + 23] = shuffledDecks.size();
+  }
+
+  /**
+   * Undo the last played move
+   * @throws IllegalStateException if there is no move to undo
+   */
+  public void undo() {
+    if(ply == 0) {
+      throw new IllegalStateException("No move to undo");
+    }
+    UNDOS.increment();
+    ply--;
+    var move = played[ply];
+    var frame = ply * FRAME;
+    var f = frames;
+    var side = (int) f[frame + 18];
+    // quilt
+    if(!isAutoma(side)) {
+      switch(Move.kind(move)) {
+        case Move.BUY -> rules.piece((int) f[frame + 22]).shape(Move.orientation(move))
+            .toggle(quilts[side], Move.y(move), Move.x(move));
+        case Move.LEATHER -> quilts[side][Move.y(move)] ^= 1L << Move.x(move);
+        default -> {
+          // nothing placed
+        }
+      }
+    }
+    // circle
+    var index = (int) f[frame + 21];
+    if(index >= 0) {
+      System.arraycopy(circle, index, circle, index + 1, circleSize - index);
+      circle[index] = (int) f[frame + 22];
+    }
+    // deck
+    while(shuffledDecks.size() > f[frame + 23]) {
+      var state = shuffledDecks.pop();
+      decks[state.side()] = state.cards();
+      deckRandoms[state.side()] = new SplitMix64(state.random());
+    }
+    position[0] = (int) f[frame];
+    position[1] = (int) f[frame + 1];
+    buttons[0] = (int) f[frame + 2];
+    buttons[1] = (int) f[frame + 3];
+    income[0] = (int) f[frame + 4];
+    income[1] = (int) f[frame + 5];
+    patches[0] = (int) f[frame + 6];
+    patches[1] = (int) f[frame + 7];
+    empty[0] = (int) f[frame + 8];
+    empty[1] = (int) f[frame + 9];
+    arrival[0] = f[frame + 10];
+    arrival[1] = f[frame + 11];
+    card[0] = (int) f[frame + 12];
+    card[1] = (int) f[frame + 13];
+    clock = f[frame + 14];
+    special = (int) f[frame + 15];
+    claimed = f[frame + 16];
+    pending = f[frame + 17];
+    current = side;
+    token = (int) f[frame + 19];
+    circleSize = (int) f[frame + 20];
+  }
+
+  @Override
+  public String toString() {
+    var builder = new StringBuilder();
+    for(var side = 0; side < SIDES; side++) {
+      builder.append(isAutoma(side) ? "Automa " + difficulties[side] : "Player " + (side + 1))
+        .append(" position: ").append(position[side])
+        .append(", buttons: ").append(buttons[side])
+        .append(", score: ").append(score(side))
+        .append(side == current ? " *" : "")
+        .append('\n');
+    }
+    return builder.append(circleSize).append(" patches left").toString();
+  }
+
+}
@@ -0,0 +1,95 @@
+package fr.uge.patchwork.model.engine;
+
+/**
+ *
+ * Static evaluation of a position of the engine.
+ *
+ */
+public final class Evaluation {
+
+  private Evaluation() {}
+
+  /**
+   * Evaluate a position for a side: the difference of the scores,
+   * plus for the quilts the buttons they will still earn with the
+   * button income events in front of them, and one button by space
+   * left as advancing earns one button by space.
+   * <p>
+   * Until the end of the game, a quilt also loses half a point by edge between
+   * an empty cell and a covered one, the borders of the quilt not counted.
+   * It measures how much the empty cells are cut in pieces: all the places
+   * of a patch give the same score, but the patches placed along the borders
+   * and against each other leave the empty cells in one piece, where the next
+   * patches fit, as the square of the special tile.
+   * @param engine
+   * @param side
+   * @return the evaluation, higher is better for the side
+   */
+  public static int evaluate(Engine engine, int side) {
+    return value(engine, side) - value(engine, 1 - side);
+  }
+
+  /**
+   * Evaluate a position for a side with the buttons the quilts can
+   * still earn of an economy table: twice {@link #evaluate(Engine, int)},
+   * plus the difference of the gains of the table
+   * @param engine
+   * @param side
+   * @param economy the table of the rules of the engine
+   * @return the evaluation, higher is better for the side
+   */
+  public static int evaluate(Engine engine, int side, EconomyTable economy) {
+    var value = 2 * evaluate(engine, side);
+    if(!engine.isAutoma(side)) {
+      value += economy.gain(engine, side);
+    }
+    if(!engine.isAutoma(1 - side)) {
+      value -= economy.gain(engine, 1 - side);
+    }
+    return value;
+  }
+
+  private static int value(Engine engine, int side) {
+    var value = engine.score(side);
+    if(!engine.isAutoma(side)) {
+      value += engine.income(side) * remainingButtonEvents(engine.rules(), engine.position(side))
+          + engine.rules().spaces() - engine.position(side);
+      if(!engine.isFinished()) {
+        value -= edges(engine, side) / 2;
+      }
+    }
+    return value;
+  }
+
+  /**
+   * @return the number of edges between an empty cell and a covered one
+   * in the quilt of a side, the borders of the quilt are not counted
+   */
+  private static int edges(Engine engine, int side) {
+    var rules = engine.rules();
+    // the bits having a neighbor in their row
+    var inside = (1L << rules.quiltWidth() - 1) - 1;
+    var previous = engine.quiltRow(side, 0);
+    var count = Long.bitCount((previous ^ previous >>> 1) & inside);
+    for(var y = 1; y < rules.quiltHeight(); y++) {
+      var row = engine.quiltRow(side, y);
+      count += Long.bitCount((row ^ row >>> 1) & inside) + Long.bitCount(row ^ previous);
+      previous = row;
+    }
+    return count;
+  }
+
+  /**
+   * @param rules
+   * @param position
+   * @return the number of button income events after a position
+   */
+  public static int remainingButtonEvents(Rules rules, int position) {
+    var count = 0;
+    for(var i = rules.buttonIncomeEvents() - 1; i >= 0 && rules.buttonIncome(i) > position; i--) {
+      count++;
+    }
+    return count;
+  }
+
+}
@@ -0,0 +1,45 @@
+package fr.uge.patchwork.model.engine;
+
+import fr.uge.patchwork.monitoring.Histogram;
+import fr.uge.patchwork.monitoring.MetricsRegistry;
+
+/**
+ *
+ * Bot playing the move with the best evaluation
+ * just after it, see {@link Evaluation}.
+ * The first of the best moves is played, so the bot is deterministic.
+ *
+ */
+public final class GreedyBot implements Bot {
+
+  private static final Histogram DECISIONS = MetricsRegistry.global().histogram("bot.greedy.decision");
+
+  private int[] moves = new int[0];
+
+  @Override
+  public int chooseMove(Engine engine) {
+    var start = System.nanoTime();
+    if(moves.length < engine.rules().maxMoves()) {
+      moves = new int[engine.rules().maxMoves()];
+    }
+    var side = engine.current();
+    var count = engine.legalMoves(moves);
+    if(count == 0) {
+      throw new IllegalStateException("No move to play");
+    }
+    var best = moves[0];
+    var bestValue = Integer.MIN_VALUE;
+    for(var i = 0; i < count; i++) {
+      engine.play(moves[i]);
+      var value = Evaluation.evaluate(engine, side);
+      engine.undo();
+      if(value > bestValue) {
+        bestValue = value;
+        best = moves[i];
+      }
+    }
+    DECISIONS.recordSince(start);
+    return best;
+  }
+
+}
@@ -0,0 +1,94 @@
+package fr.uge.patchwork.model.engine;
+
+/**
+ *
+ * The moves of the engine, encoded in an int
+ * so they can be generated and stored without allocation.
+ *
+ * <pre>
+ * bits  0-1  kind: advance, buy or leather
+ * bits  2-3  slot of the bought patch after the neutral token, in [0;3[
+ * bits  4-6  orientation of the patch
+ * bits  8-15 row of the upper left corner of the shape on the quilt
+ * bits 16-23 column of the upper left corner of the shape on the quilt
+ * </pre>
+ *
+ * For an Automa only the kind and the slot are used.
+ *
+ */
+public final class Move {
+
+  public static final int ADVANCE = 0;
+  public static final int BUY = 1;
+  public static final int LEATHER = 2;
+
+  private Move() {}
+
+  /**
+   * @return the move advancing in front of the next player
+   */
+  public static int advance() {
+    return ADVANCE;
+  }
+
+  /**
+   * @param slot of the patch after the neutral token
+   * @param orientation of the patch
+   * @param y row of the upper left corner of the shape
+   * @param x column of the upper left corner of the shape
+   * @return the move buying and placing a patch
+   */
+  public static int buy(int slot, int orientation, int y, int x) {
+    if(slot < 0 || slot > 2 || orientation < 0 || orientation > 7
+        || y < 0 || y > 255 || x < 0 || x > 255) {
+      throw new IllegalArgumentException("Invalid buy move");
+    }
+    return BUY | slot << 2 | orientation << 4 | y << 8 | x << 16;
+  }
+
+  /**
+   * @param y
+   * @param x
+   * @return the move placing a leather patch
+   */
+  public static int leather(int y, int x) {
+    if(y < 0 || y > 255 || x < 0 || x > 255) {
+      throw new IllegalArgumentException("Invalid leather move");
+    }
+    return LEATHER | y << 8 | x << 16;
+  }
+
+  public static int kind(int move) {
+    return move & 0b11;
+  }
+
+  public static int slot(int move) {
+    return (move >>> 2) & 0b11;
+  }
+
+  public static int orientation(int move) {
+    return (move >>> 4) & 0b111;
+  }
+
+  public static int y(int move) {
+    return (move >>> 8) & 0xFF;
+  }
+
+  public static int x(int move) {
+    return (move >>> 16) & 0xFF;
+  }
+
+  /**
+   * @param move
+   * @return a readable text of the move
+   */
+  public static String toString(int move) {
+    return switch(kind(move)) {
+      case ADVANCE -> "advance";
+      case BUY -> "buy " + slot(move) + " o" + orientation(move) + " (" + y(move) + "," + x(move) + ")";
+      case LEATHER -> "leather (" + y(move) + "," + x(move) + ")";
+      default -> "invalid " + move;
+    };
+  }
+
+}
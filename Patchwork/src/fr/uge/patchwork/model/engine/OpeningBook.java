@@ -0,0 +1,370 @@
+package fr.uge.patchwork.model.engine;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.IntStream;
+
+import fr.uge.patchwork.model.GameMode;
+import fr.uge.patchwork.model.SplitMix64;
+import fr.uge.patchwork.monitoring.Histogram;
+import fr.uge.patchwork.monitoring.MetricsRegistry;
+
+/**
+ *
+ * Book of the first purchases of the quilt sides, built by self-play.
+ *
+ * <p>
+ * An entry of the book is an action in a position: advance, or buy
+ * a given patch from a given slot, with the mean score difference at the end
+ * of the games where it was played. The position is the side to play
+ * and the position, buttons, income and empty cells of each side,
+ * see {@link #key(Engine)}: neither the circle nor the places of the
+ * patches on the quilts are in it, so a book built with some seeds
+ * is used in the games of other seeds, and an action is valued
+ * whatever the patches of the other slots.
+ * <p>
+ * The book is built by {@link #selfPlay(Rules, int, int, long, int)}: in the
+ * first moves of each game, each side plays one of its actions at random,
+ * then the game is played to the end by the evaluation alone.
+ * The book plays the action with the best mean, if all the actions
+ * of the position are in the book, and places the patch at the place
+ * of the best evaluation.
+ * <p>
+ * The file of a book is its entries sorted by key, read with a memory
+ * mapping: an action is found by a binary search in the file.
+ *
+ */
+public final class OpeningBook {
+
+  private static final Histogram BUILDS = MetricsRegistry.global().histogram("book.build");
+  private static final int MAGIC = 0x50574231; // PWB1
+  // magic, game mode and number of entries
+  private static final int HEADER = Integer.BYTES + Integer.BYTES + Integer.BYTES;
+  // key, visits and mean score difference
+  private static final int ENTRY = Long.BYTES + Integer.BYTES + Float.BYTES;
+  // the advance action, the buy actions are 1 + slot
+  private static final int ADVANCE = 0;
+  // visits of an action to be in the book
+  private static final int MIN_VISITS = 8;
+
+  /**
+   * An action in a position of the book
+   * @param key see {@link OpeningBook#key(Engine)} and {@link OpeningBook#key(long, Engine, int)}
+   * @param visits number of games where the action was played
+   * @param mean mean score difference at the end of these games, for the side playing it
+   */
+  public record Entry(long key, int visits, double mean) {}
+
+  private final GameMode gameMode;
+  private final int size;
+  private final ByteBuffer entries;
+
+  private OpeningBook(GameMode gameMode, int size, ByteBuffer entries) {
+    this.gameMode = gameMode;
+    this.size = size;
+    this.entries = entries;
+  }
+
+  /**
+   * @param engine
+   * @return the key of the current position of an engine in a book
+   */
+  public static long key(Engine engine) {
+    Objects.requireNonNull(engine, "The engine can't be null");
+    var h = SplitMix64.mix64(engine.current() | (engine.onTop(0) ? 1L : 0L) << 8);
+    for(var side = 0; side < Engine.SIDES; side++) {
+      h = SplitMix64.mix64(h ^ (engine.position(side) | (long) engine.buttons(side) << 16
+          | (long) engine.income(side) << 32 | (long) engine.emptyCells(side) << 48));
+    }
+    return h;
+  }
+
+  /**
+   * @param position the key of the position, see {@link #key(Engine)}
+   * @param engine
+   * @param action 0 to advance, 1 + slot to buy the patch of a slot
+   * @return the key of an action in the current position of an engine
+   */
+  public static long key(long position, Engine engine, int action) {
+    var piece = action == ADVANCE ? -1 : engine.slotPiece(action - 1).id();
+    return SplitMix64.mix64(position ^ SplitMix64.mix64(action | (long) (piece + 1) << 8));
+  }
+
+  /**
+   * @return the action of a move, 0 to advance, 1 + slot to buy a patch
+   */
+  private static int action(int move) {
+    return Move.kind(move) == Move.BUY ? 1 + Move.slot(move) : ADVANCE;
+  }
+
+  /**
+   * @return the game mode of the book
+   */
+  public GameMode gameMode() {
+    return gameMode;
+  }
+
+  /**
+   * @return the number of entries of the book
+   */
+  public int size() {
+    return size;
+  }
+
+  /**
+   * @param index in [0;size()[
+   * @return the entry of an index, sorted by key
+   */
+  public Entry entry(int index) {
+    Objects.checkIndex(index, size);
+    var offset = index * ENTRY;
+    return new Entry(entries.getLong(offset), entries.getInt(offset + Long.BYTES),
+        entries.getFloat(offset + Long.BYTES + Integer.BYTES));
+  }
+
+  /**
+   * @return the index of the entry of a key, -1 if there is none
+   */
+  private int find(long key) {
+    var low = 0;
+    var high = size - 1;
+    while(low <= high) {
+      var middle = (low + high) >>> 1;
+      var found = entries.getLong(middle * ENTRY);
+      if(found < key) {
+        low = middle + 1;
+      } else if(found > key) {
+        high = middle - 1;
+      } else {
+        return middle;
+      }
+    }
+    return -1;
+  }
+
+  /**
+   * Search the actions of the current position of an engine in the book
+   * @param engine
+   * @return the move of the action with the best mean, with the place of the best
+   * evaluation, see {@link Evaluation#evaluate(Engine, int, EconomyTable)},
+   * -1 if an action of the position is not in the book
+   */
+  public int move(Engine engine) {
+    Objects.requireNonNull(engine, "The engine can't be null");
+    if(engine.rules().gameMode() != gameMode || engine.isFinished()
+        || engine.isAutoma(engine.current()) || engine.pendingLeathers() != 0) {
+      return -1;
+    }
+    var moves = new int[1 + engine.slots()];
+    bestMoves(engine, EconomyTable.of(engine.rules()), new int[engine.rules().maxMoves()], moves, new int[moves.length]);
+    var position = key(engine);
+    var best = -1;
+    var bestMean = Float.NEGATIVE_INFINITY;
+    for(var action = 0; action < moves.length; action++) {
+      if(moves[action] < 0) {
+        continue;
+      }
+      var index = find(key(position, engine, action));
+      if(index < 0) {
+        return -1;
+      }
+      var mean = entries.getFloat(index * ENTRY + Long.BYTES + Integer.BYTES);
+      if(mean > bestMean) {
+        bestMean = mean;
+        best = moves[action];
+      }
+    }
+    return best;
+  }
+
+  /**
+   * Find the legal move of each action with the best evaluation
+   * @param buffer for the legal moves
+   * @param moves the best move of each action, -1 if it has none
+   * @param values the value of the best move of each action
+   * @return the action of the best move
+   */
+  private static int bestMoves(Engine engine, EconomyTable economy, int[] buffer, int[] moves, int[] values) {
+    Arrays.fill(moves, -1);
+    Arrays.fill(values, Integer.MIN_VALUE);
+    var side = engine.current();
+    var count = engine.legalMoves(buffer);
+    var best = action(buffer[0]);
+    for(var i = 0; i < count; i++) {
+      engine.play(buffer[i]);
+      var value = Evaluation.evaluate(engine, side, economy);
+      engine.undo();
+      var action = action(buffer[i]);
+      if(moves[action] < 0 || value > values[action]) {
+        values[action] = value;
+        moves[action] = buffer[i];
+      }
+      if(value > values[best]) {
+        best = action;
+      }
+    }
+    return best;
+  }
+
+  /**
+   * Build the entries of a book by self-play between two quilt sides
+   * @param rules
+   * @param games number of games
+   * @param plies the positions of the book are in the first plies of the games
+   * @param seed the game of index i has the seed of index i of the generator of this seed
+   * @param threads number of threads playing the games
+   * @return the entries, sorted by key
+   */
+  public static List<Entry> selfPlay(Rules rules, int games, int plies, long seed, int threads) {
+    Objects.requireNonNull(rules, "The rules can't be null");
+    if(games < 1 || plies < 1 || threads < 1) {
+      throw new IllegalArgumentException("The games, the plies and the threads must be positive");
+    }
+    var start = System.nanoTime();
+    var economy = EconomyTable.of(rules);
+    List<long[]> samples;
+    var pool = new ForkJoinPool(threads);
+    try {
+      samples = pool.submit(() -> IntStream.range(0, games).parallel()
+          .mapToObj(game -> play(rules, economy, plies, new SplitMix64(seed + game * SplitMix64.GOLDEN_GAMMA).nextLong()))
+          .toList()).join();
+    } finally {
+      pool.shutdown();
+    }
+    // visits and sum of the score differences by key, in the order of the games
+    var stats = new HashMap<Long, long[]>();
+    for(var game: samples) {
+      for(var i = 0; i < game.length; i += 2) {
+        var stat = stats.computeIfAbsent(game[i], key -> new long[2]);
+        stat[0]++;
+        stat[1] += game[i + 1];
+      }
+    }
+    var entries = new ArrayList<Entry>();
+    for(var entry: stats.entrySet()) {
+      var stat = entry.getValue();
+      if(stat[0] >= MIN_VISITS) {
+        entries.add(new Entry(entry.getKey(), (int) stat[0], (double) stat[1] / stat[0]));
+      }
+    }
+    entries.sort(Comparator.comparingLong(Entry::key));
+    BUILDS.recordSince(start);
+    return entries;
+  }
+
+  /**
+   * Play a game of the self-play
+   * @return the key of the action and the final score difference for the side
+   * of each position of the book
+   */
+  private static long[] play(Rules rules, EconomyTable economy, int plies, long seed) {
+    var engine = Engine.create(rules, SideSetup.quilt(), SideSetup.quilt(), seed);
+    var random = new SplitMix64(~seed);
+    var buffer = new int[rules.maxMoves()];
+    var moves = new int[1 + engine.slots()];
+    var values = new int[moves.length];
+    var available = new int[moves.length];
+    var played = new long[2 * plies];
+    var sides = new int[plies];
+    var count = 0;
+    while(!engine.isFinished()) {
+      var side = engine.current();
+      var best = bestMoves(engine, economy, buffer, moves, values);
+      if(engine.ply() < plies && engine.pendingLeathers() == 0) {
+        var actions = 0;
+        for(var action = 0; action < moves.length; action++) {
+          if(moves[action] >= 0) {
+            available[actions++] = action;
+          }
+        }
+        best = available[random.nextInt(actions)];
+        played[2 * count] = key(key(engine), engine, best);
+        sides[count++] = side;
+      }
+      engine.play(moves[best]);
+    }
+    for(var i = 0; i < count; i++) {
+      played[2 * i + 1] = engine.score(sides[i]) - engine.score(1 - sides[i]);
+    }
+    return Arrays.copyOf(played, 2 * count);
+  }
+
+  /**
+   * Write the entries of a book in a file, replacing the previous one atomically
+   * @param entries sorted by key
+   * @param gameMode the game mode of the entries
+   * @param path
+   * @throws IOException if the file can't be written
+   */
+  public static void write(List<Entry> entries, GameMode gameMode, Path path) throws IOException {
+    Objects.requireNonNull(entries, "The entries can't be null");
+    Objects.requireNonNull(gameMode, "The game mode can't be null");
+    Objects.requireNonNull(path, "The path can't be null");
+    var directory = path.toAbsolutePath().getParent();
+    var temporary = Files.createTempFile(directory, path.getFileName().toString(), ".tmp");
+    try {
+      try(var channel = FileChannel.open(temporary, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+        var buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, HEADER + (long) entries.size() * ENTRY);
+        buffer.putInt(MAGIC).putInt(gameMode.ordinal()).putInt(entries.size());
+        var previous = Long.MIN_VALUE;
+        for(var i = 0; i < entries.size(); i++) {
+          var entry = entries.get(i);
+          if(i > 0 && entry.key() <= previous) {
+            throw new IllegalArgumentException("The entries must be sorted by distinct keys");
+          }
+          previous = entry.key();
+          buffer.putLong(entry.key()).putInt(entry.visits()).putFloat((float) entry.mean());
+        }
+        buffer.force(); // on the disk before the rename
+      }
+      try {
+        Files.move(temporary, path, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+      } catch(AtomicMoveNotSupportedException e) {
+        Files.move(temporary, path, StandardCopyOption.REPLACE_EXISTING);
+      }
+    } finally {
+      Files.deleteIfExists(temporary);
+    }
+  }
+
+  /**
+   * Map a book written by {@link #write(List, GameMode, Path)}
+   * @param path
+   * @return the book
+   * @throws IOException if the file can't be read or is not a book
+   */
+  public static OpeningBook load(Path path) throws IOException {
+    Objects.requireNonNull(path, "The path can't be null");
+    try(var channel = FileChannel.open(path, StandardOpenOption.READ)) {
+      if(channel.size() < HEADER) {
+        throw new IOException("Invalid opening book: too short");
+      }
+      var buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+      if(buffer.getInt() != MAGIC) {
+        throw new IOException("Invalid opening book: bad magic number");
+      }
+      var mode = buffer.getInt();
+      var size = buffer.getInt();
+      if(mode < 0 || mode >= GameMode.values().length || size < 0
+          || channel.size() != HEADER + (long) size * ENTRY) {
+        throw new IOException("Invalid opening book: bad header");
+      }
+      // the mapping stays valid once the channel is closed
+      return new OpeningBook(GameMode.values()[mode], size, buffer.slice());
+    }
+  }
+
+}
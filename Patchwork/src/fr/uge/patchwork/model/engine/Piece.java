@@ -0,0 +1,177 @@
+package fr.uge.patchwork.model.engine;
+
+import java.util.ArrayList;
+import java.util.Objects;
+
+import fr.uge.patchwork.model.SplitMix64;
+import fr.uge.patchwork.model.component.QuiltSymmetry;
+import fr.uge.patchwork.model.component.patch.Form;
+import fr.uge.patchwork.model.component.patch.RegularPatch;
+import fr.uge.patchwork.model.component.patch.Shape;
+
+/**
+ *
+ * An immutable patch of the engine, with the shapes
+ * of all its orientations computed once.
+ *
+ */
+public final class Piece {
+
+  private final int id;
+  private final int price;
+  private final int moves;
+  private final int buttons;
+  private final Form form;
+  private final Shape[] shapes;
+  // orientations giving different shapes
+  private final int[] distinct;
+  // distinct orientation of the image of each orientation by each symmetry
+  private final int[][] images;
+  private final long shapeKey;
+
+  /**
+   * @param id the index of the patch in its settings file
+   * @param patch
+   */
+  public Piece(int id, RegularPatch patch) {
+    Objects.requireNonNull(patch, "The patch can't be null");
+    if(id < 0) {
+      throw new IllegalArgumentException("The id can't be negative");
+    }
+    this.id = id;
+    price = patch.price();
+    moves = patch.moves();
+    buttons = patch.buttons();
+    form = patch.form();
+    shapes = Shape.orientations(form);
+    var orientations = new ArrayList<Integer>();
+    for(var o = 0; o < Shape.ORIENTATIONS; o++) {
+      var known = false;
+      for(var previous: orientations) {
+        known |= shapes[previous].equals(shapes[o]);
+      }
+      if(!known) {
+        orientations.add(o);
+      }
+    }
+    distinct = orientations.stream().mapToInt(Integer::intValue).toArray();
+    images = new int[QuiltSymmetry.SYMMETRIES][Shape.ORIENTATIONS];
+    for(var symmetry = 0; symmetry < QuiltSymmetry.SYMMETRIES; symmetry++) {
+      for(var o = 0; o < Shape.ORIENTATIONS; o++) {
+        images[symmetry][o] = image(shapes[o], symmetry);
+      }
+    }
+    var key = SplitMix64.mix64(shapes[0].width());
+    for(var y = 0; y < shapes[0].height(); y++) {
+      key = SplitMix64.mix64(key ^ shapes[0].row(y));
+    }
+    shapeKey = key;
+  }
+
+  /**
+   * @return the distinct orientation of the image of a shape by a symmetry
+   */
+  private int image(Shape shape, int symmetry) {
+    var rows = new long[shape.height()];
+    for(var y = 0; y < rows.length; y++) {
+      rows[y] = shape.row(y);
+    }
+    var image = new long[(symmetry & QuiltSymmetry.TRANSPOSE) != 0 ? shape.width() : shape.height()];
+    QuiltSymmetry.transform(rows, shape.width(), symmetry, image);
+    for(var orientation: distinct) {
+      var candidate = shapes[orientation];
+      if(candidate.height() != image.length) {
+        continue;
+      }
+      var same = true;
+      for(var y = 0; y < image.length; y++) {
+        same &= candidate.row(y) == image[y];
+      }
+      if(same) {
+        return orientation;
+      }
+    }
+    throw new AssertionError("The image of a shape is one of its orientations");
+  }
+
+  public int id() {
+    return id;
+  }
+
+  public int price() {
+    return price;
+  }
+
+  public int moves() {
+    return moves;
+  }
+
+  public int buttons() {
+    return buttons;
+  }
+
+  public int cells() {
+    return shapes[0].cells();
+  }
+
+  /**
+   * @return the form of the patch as written in the settings
+   */
+  public Form form() {
+    return form;
+  }
+
+  /**
+   * @param orientation see {@link Shape#transform(Form, int)}
+   * @return the shape of an orientation
+   */
+  public Shape shape(int orientation) {
+    return shapes[orientation];
+  }
+
+  /**
+   * @return the number of orientations giving different shapes
+   */
+  public int distinctOrientations() {
+    return distinct.length;
+  }
+
+  /**
+   * @param index in [0;distinctOrientations()[
+   * @return an orientation giving a shape different from the other ones
+   */
+  public int distinctOrientation(int index) {
+    return distinct[index];
+  }
+
+  /**
+   * @param orientation
+   * @param symmetry see {@link QuiltSymmetry}
+   * @return the distinct orientation of the shape of an orientation
+   * transformed by a symmetry of a quilt
+   */
+  public int image(int orientation, int symmetry) {
+    return images[symmetry][orientation];
+  }
+
+  /**
+   * @return a hash of the shape of the patch, the same for the patches
+   * of the same form, whatever their price
+   */
+  public long shapeKey() {
+    return shapeKey;
+  }
+
+  /**
+   * @return a new regular patch with the same data
+   */
+  public RegularPatch toPatch() {
+    return new RegularPatch(price, moves, buttons, form);
+  }
+
+  @Override
+  public String toString() {
+    return "#" + id + " (p: " + price + ", m: " + moves + ", b: " + buttons + ")";
+  }
+
+}
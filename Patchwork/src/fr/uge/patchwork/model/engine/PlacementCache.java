@@ -0,0 +1,346 @@
+package fr.uge.patchwork.model.engine;
+
+import java.util.Arrays;
+import java.util.Objects;
+import java.util.concurrent.atomic.LongAdder;
+
+import fr.uge.patchwork.model.SplitMix64;
+import fr.uge.patchwork.monitoring.MetricsRegistry;
+
+/**
+ *
+ * Cache of the places where a patch fits on a quilt, shared by the threads.
+ *
+ * <p>
+ * A quilt is known by its canonical image (see {@link fr.uge.patchwork.model.component.QuiltSymmetry}),
+ * a patch by the key of its shape (see {@link Piece#shapeKey()}),
+ * so the places found on a quilt are reused on its rotations and reflections.
+ * An entry keeps the rows of the canonical image with their hash, and a lookup
+ * compares the rows when the hashes are the same: two quilts with the same hash
+ * never share their places.
+ * The places are stored as they were found on the quilt that added them,
+ * each packed in an int (see {@link #pack(int, int, int)}), with the
+ * symmetry giving its canonical image: the same quilt reads them as they are,
+ * its images by a symmetry have to move them.
+ * <p>
+ * The entries are in sets of {@link #WAYS}, a pair of keys always goes
+ * in the same set. The keys, the rows and the places are in arrays of primitives,
+ * the places of the entries of a set one after the other in a part of
+ * {@link #SET_PLACES} ints, so the cache allocates nothing once created.
+ * When an entry doesn't fit in its set, the least recently used entries
+ * of the set are removed until there is room: with 8 entries by set,
+ * a use stamp by entry is enough, without a list to keep in order.
+ * Each set has its own lock, held while its entries are read or written.
+ * <p>
+ * Finding the places again is fast, in a greedy game the cache saves nothing,
+ * it only pays when the same quilts come back often, as in a deep search
+ * (the legal moves of a walk of depth 3 are found in 0.6 of the time).
+ * The {@link SearchBot} does not find the same quilts often enough: its table
+ * of positions already skips most of the positions searched again, and its games
+ * are as fast with the cache (within 3%, the best of 8 rounds of 6 games at
+ * 50000 positions by move), the cache only adding its memory and its locks.
+ * So the engines use the cache of the process only if the property
+ * <code>patchwork.placementCache</code> is true, it is created with the first engine.
+ *
+ */
+public final class PlacementCache {
+
+  /**
+   * Number of entries of a set
+   */
+  public static final int WAYS = 8;
+  /**
+   * Number of places of all the entries of a set, the places
+   * of a patch on an empty quilt of 9x9 are less than 400
+   */
+  public static final int SET_PLACES = 1024;
+
+  private static final boolean ENABLED = Boolean.getBoolean("patchwork.placementCache");
+  // rows of the quilts of the cache of the process, the quilts of the game
+  private static final int SHARED_HEIGHT = 9;
+
+  // created at the first use of the cache of the process
+  private static final class Shared {
+    private static final PlacementCache CACHE = new PlacementCache(1 << 12, SHARED_HEIGHT);
+
+    static {
+      var metrics = MetricsRegistry.global();
+      metrics.gauge("placements.cache.hits", CACHE.hits::sum);
+      metrics.gauge("placements.cache.misses", CACHE.misses::sum);
+      metrics.gauge("placements.cache.hitRate", () -> Math.round(CACHE.hitRate() * 1000));
+    }
+  }
+
+  private final int sets;
+  private final int height;
+  private final Object[] locks;
+  // by entry, an empty entry has a length of -1
+  private final long[] quiltKeys;
+  private final long[] patchKeys;
+  // the rows of the canonical quilt of the entry i from i * height
+  private final long[] quilts;
+  private final int[] starts;
+  private final int[] lengths;
+  private final byte[] symmetries;
+  private final long[] stamps;
+  // by set
+  private final long[] clocks;
+  private final int[] used;
+  private final int[] places;
+  private final LongAdder hits = new LongAdder();
+  private final LongAdder misses = new LongAdder();
+
+  /**
+   * @param capacity number of entries, a power of 2, at least {@link #WAYS},
+   * the places take {@link #SET_PLACES} ints by set of {@link #WAYS} entries
+   * @param height number of rows of the quilts of the cache, the places
+   * of the other quilts are not kept
+   */
+  public PlacementCache(int capacity, int height) {
+    if(capacity < WAYS || Integer.bitCount(capacity) != 1) {
+      throw new IllegalArgumentException("The capacity must be a power of 2, at least " + WAYS);
+    }
+    if(height < 1) {
+      throw new IllegalArgumentException("The height must be positive");
+    }
+    sets = capacity / WAYS;
+    this.height = height;
+    locks = new Object[sets];
+    Arrays.setAll(locks, i -> new Object());
+    quiltKeys = new long[capacity];
+    patchKeys = new long[capacity];
+    quilts = new long[capacity * height];
+    starts = new int[capacity];
+    lengths = new int[capacity];
+    Arrays.fill(lengths, -1);
+    symmetries = new byte[capacity];
+    stamps = new long[capacity];
+    clocks = new long[sets];
+    used = new int[sets];
+    places = new int[sets * SET_PLACES];
+  }
+
+  /**
+   * @return true if the engines use the cache of the process,
+   * if the property <code>patchwork.placementCache</code> is true
+   */
+  public static boolean enabled() {
+    return ENABLED;
+  }
+
+  /**
+   * @return the cache of the process, created at the first call,
+   * 4096 entries of quilts of 9 rows (2.3 MB),
+   * its hits, misses and hit rate in thousandths are the gauges "placements.cache.*"
+   */
+  public static PlacementCache shared() {
+    return Shared.CACHE;
+  }
+
+  /**
+   * @param orientation
+   * @param y row of the upper left corner of the shape
+   * @param x column of the upper left corner of the shape
+   * @return a place packed in an int, sorted by orientation, then row, then column
+   */
+  public static int pack(int orientation, int y, int x) {
+    return orientation << 16 | y << 8 | x;
+  }
+
+  public static int orientation(int place) {
+    return place >>> 16;
+  }
+
+  public static int y(int place) {
+    return place >>> 8 & 0xFF;
+  }
+
+  public static int x(int place) {
+    return place & 0xFF;
+  }
+
+  /**
+   * @param found a result of {@link #get(long, long, int[], int)}
+   * @return the number of places found
+   */
+  public static int count(int found) {
+    return found >>> 3;
+  }
+
+  /**
+   * @param found a result of {@link #get(long, long, int[], int)}
+   * @return the symmetry of the canonical image of the quilt that added the places
+   */
+  public static int symmetry(int found) {
+    return found & 7;
+  }
+
+  private int set(long quilt, long patch) {
+    return (int) SplitMix64.mix64(quilt ^ patch) & (sets - 1);
+  }
+
+  private int find(int first, long key, long[] quilt, long patch) {
+    for(var i = first; i < first + WAYS; i++) {
+      if(lengths[i] >= 0 && quiltKeys[i] == key && patchKeys[i] == patch
+          && Arrays.equals(quilts, i * height, (i + 1) * height, quilt, 0, height)) {
+        return i;
+      }
+    }
+    return -1;
+  }
+
+  /**
+   * Copy the places of a patch on a quilt in a buffer
+   * @param key the hash of the canonical quilt
+   * @param quilt the rows of the canonical quilt
+   * @param patch the key of the shape of the patch
+   * @param buffer
+   * @param offset index of the first place in the buffer
+   * @return -1 if the places are not in the cache, otherwise their number
+   * and the symmetry of the quilt that added them, see {@link #count(int)}
+   * and {@link #symmetry(int)}
+   */
+  public int get(long key, long[] quilt, long patch, int[] buffer, int offset) {
+    Objects.requireNonNull(quilt, "The quilt can't be null");
+    Objects.requireNonNull(buffer, "The buffer can't be null");
+    if(quilt.length != height) {
+      misses.increment();
+      return -1;
+    }
+    var set = set(key, patch);
+    synchronized(locks[set]) {
+      var entry = find(set * WAYS, key, quilt, patch);
+      if(entry == -1) {
+        misses.increment();
+        return -1;
+      }
+      stamps[entry] = ++clocks[set];
+      var length = lengths[entry];
+      System.arraycopy(places, set * SET_PLACES + starts[entry], buffer, offset, length);
+      hits.increment();
+      return length << 3 | symmetries[entry];
+    }
+  }
+
+  /**
+   * Add the places of a patch on a quilt, replacing entries of its set
+   * if there is no room. More than {@link #SET_PLACES} places are not added,
+   * nor the places on a quilt without the height of the cache
+   * @param key the hash of the canonical quilt
+   * @param quilt the rows of the canonical quilt
+   * @param patch the key of the shape of the patch
+   * @param symmetry the symmetry of the canonical image of the quilt
+   * @param buffer the places on the quilt, see {@link #pack(int, int, int)}
+   * @param offset index of the first place in the buffer
+   * @param count number of places
+   */
+  public void put(long key, long[] quilt, long patch, int symmetry, int[] buffer, int offset, int count) {
+    Objects.requireNonNull(quilt, "The quilt can't be null");
+    Objects.requireNonNull(buffer, "The buffer can't be null");
+    Objects.checkIndex(symmetry, 8);
+    Objects.checkFromIndexSize(offset, count, buffer.length);
+    if(count > SET_PLACES || quilt.length != height) {
+      return;
+    }
+    var set = set(key, patch);
+    var first = set * WAYS;
+    synchronized(locks[set]) {
+      if(find(first, key, quilt, patch) != -1) {
+        return; // added by another thread
+      }
+      var entry = free(first);
+      if(entry == -1 || used[set] + count > SET_PLACES) {
+        entry = evict(set, count);
+      }
+      quiltKeys[entry] = key;
+      patchKeys[entry] = patch;
+      System.arraycopy(quilt, 0, quilts, entry * height, height);
+      starts[entry] = used[set];
+      lengths[entry] = count;
+      symmetries[entry] = (byte) symmetry;
+      stamps[entry] = ++clocks[set];
+      System.arraycopy(buffer, offset, places, set * SET_PLACES + used[set], count);
+      used[set] += count;
+    }
+  }
+
+  private int free(int first) {
+    for(var i = first; i < first + WAYS; i++) {
+      if(lengths[i] < 0) {
+        return i;
+      }
+    }
+    return -1;
+  }
+
+  /**
+   * Remove the least recently used entries of a set until there is
+   * an empty entry and room for some places, then move the places left
+   * to the start of the set
+   * @return an empty entry
+   */
+  private int evict(int set, int count) {
+    var first = set * WAYS;
+    var room = SET_PLACES;
+    for(var i = first; i < first + WAYS; i++) {
+      room -= Math.max(lengths[i], 0);
+    }
+    var entry = free(first);
+    while(entry == -1 || room < count) {
+      var oldest = -1;
+      for(var i = first; i < first + WAYS; i++) {
+        if(lengths[i] >= 0 && (oldest == -1 || stamps[i] < stamps[oldest])) {
+          oldest = i;
+        }
+      }
+      room += lengths[oldest];
+      lengths[oldest] = -1;
+      entry = oldest;
+    }
+    // the places left move down, in the order of their start
+    var base = set * SET_PLACES;
+    var end = 0;
+    var moved = 0; // bit by entry of the set
+    for(;;) {
+      var next = -1;
+      for(var i = first; i < first + WAYS; i++) {
+        if(lengths[i] >= 0 && (moved & 1 << (i - first)) == 0 && (next == -1 || starts[i] < starts[next])) {
+          next = i;
+        }
+      }
+      if(next == -1) {
+        break;
+      }
+      moved |= 1 << (next - first);
+      System.arraycopy(places, base + starts[next], places, base + end, lengths[next]);
+      starts[next] = end;
+      end += lengths[next];
+    }
+    used[set] = end;
+    return entry;
+  }
+
+  /**
+   * @return the number of lookups that found their places
+   */
+  public long hits() {
+    return hits.sum();
+  }
+
+  /**
+   * @return the number of lookups that didn't find their places
+   */
+  public long misses() {
+    return misses.sum();
+  }
+
+  /**
+   * @return the part of the lookups that found their places, 0 if there was none
+   */
+  public double hitRate() {
+    var hits = this.hits.sum();
+    var lookups = hits + misses.sum();
+    return lookups == 0 ? 0 : (double) hits / lookups;
+  }
+
+}
@@ -0,0 +1,182 @@
+package fr.uge.patchwork.model.engine;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+
+import fr.uge.patchwork.model.Game;
+import fr.uge.patchwork.model.GameMode;
+import fr.uge.patchwork.model.component.patch.RegularPatch;
+import fr.uge.patchwork.model.component.player.automa.Card;
+import fr.uge.patchwork.model.component.player.automa.DeckType;
+
+/**
+ *
+ * The immutable data of a game mode for the engine: patches,
+ * track board and events, the same as the ones of {@link Game}.
+ * The settings files are read once, the rules are shared by all the engines.
+ *
+ */
+public final class Rules {
+
+  private static final ConcurrentHashMap<GameMode, Rules> RULES = new ConcurrentHashMap<>();
+  private static final ConcurrentHashMap<DeckType, List<Card>> DECKS = new ConcurrentHashMap<>();
+
+  private final GameMode gameMode;
+  private final Piece[] pieces;
+  private final int spaces;
+  private final int[] buttonIncome;
+  private final int[] patchIncome;
+  private final int quiltWidth;
+  private final int quiltHeight;
+  private final int startingButtons;
+
+  /**
+   * @param gameMode
+   * @param patches in the order of the settings file
+   * @param spaces number of spaces of the track board
+   * @param buttonIncome positions of the button income events
+   * @param patchIncome positions of the leather patch events
+   * @param quiltWidth at most 64
+   * @param quiltHeight at most 256
+   * @param startingButtons
+   */
+  public Rules(GameMode gameMode, List<RegularPatch> patches, int spaces,
+      List<Integer> buttonIncome, List<Integer> patchIncome,
+      int quiltWidth, int quiltHeight, int startingButtons) {
+    this.gameMode = Objects.requireNonNull(gameMode, "The game mode can't be null");
+    Objects.requireNonNull(patches, "The patches can't be null");
+    if(spaces < 1) {
+      throw new IllegalArgumentException("The number of spaces on the board can't be lower than 1");
+    }
+    if(quiltWidth < 1 || quiltWidth > Long.SIZE || quiltHeight < 1 || quiltHeight > 256) {
+      throw new IllegalArgumentException("The quilt must be between 1x1 and 64x256");
+    }
+    if(patchIncome.size() > Long.SIZE) {
+      throw new IllegalArgumentException("Too many leather patch events");
+    }
+    if(startingButtons < 0) {
+      throw new IllegalArgumentException("The players can't have debts at start-up");
+    }
+    pieces = new Piece[patches.size()];
+    for(var i = 0; i < pieces.length; i++) {
+      pieces[i] = new Piece(i, patches.get(i));
+    }
+    this.spaces = spaces - 1; // 54 spaces => [0;53]
+    this.buttonIncome = buttonIncome.stream().mapToInt(Integer::intValue).sorted().toArray();
+    this.patchIncome = patchIncome.stream().mapToInt(Integer::intValue).sorted().toArray();
+    this.quiltWidth = quiltWidth;
+    this.quiltHeight = quiltHeight;
+    this.startingButtons = startingButtons;
+  }
+
+  /**
+   * Return the rules of a game mode
+   * @param gameMode
+   * @return the rules
+   * @throws IOException if the settings files can't be read
+   */
+  public static Rules of(GameMode gameMode) throws IOException {
+    Objects.requireNonNull(gameMode, "The game mode can't be null");
+    var rules = RULES.get(gameMode);
+    if(rules == null) {
+      var patches = RegularPatch.fromFile(Game.patchesPath(gameMode));
+      var events = gameMode != GameMode.PATCHWORK_BASIC;
+      rules = new Rules(gameMode, patches, Game.SPACES,
+          events ? Game.BUTTON_INCOME_POSITIONS : List.of(),
+          events ? Game.PATCH_INCOME_POSITIONS : List.of(),
+          Game.QUILT_SIDE, Game.QUILT_SIDE, Game.STARTING_BUTTONS);
+      var previous = RULES.putIfAbsent(gameMode, rules);
+      rules = previous == null ? rules : previous;
+    }
+    return rules;
+  }
+
+  /**
+   * Return the cards of a deck, in the order of its settings file
+   * @param deckType
+   * @return the cards
+   * @throws IOException if the settings file can't be read
+   */
+  public static List<Card> deck(DeckType deckType) throws IOException {
+    Objects.requireNonNull(deckType, "The deck type can't be null");
+    var deck = DECKS.get(deckType);
+    if(deck == null) {
+      deck = List.copyOf(DeckType.fromType(deckType));
+      var previous = DECKS.putIfAbsent(deckType, deck);
+      deck = previous == null ? deck : previous;
+    }
+    return deck;
+  }
+
+  public GameMode gameMode() {
+    return gameMode;
+  }
+
+  /**
+   * @return the number of patches
+   */
+  public int pieces() {
+    return pieces.length;
+  }
+
+  /**
+   * @param id
+   * @return the patch of the given id
+   */
+  public Piece piece(int id) {
+    return pieces[id];
+  }
+
+  /**
+   * @return the last space of the track board
+   */
+  public int spaces() {
+    return spaces;
+  }
+
+  public int buttonIncomeEvents() {
+    return buttonIncome.length;
+  }
+
+  /**
+   * @param index
+   * @return the position of a button income event, sorted by position
+   */
+  public int buttonIncome(int index) {
+    return buttonIncome[index];
+  }
+
+  public int patchIncomeEvents() {
+    return patchIncome.length;
+  }
+
+  /**
+   * @param index
+   * @return the position of a leather patch event, sorted by position
+   */
+  public int patchIncome(int index) {
+    return patchIncome[index];
+  }
+
+  public int quiltWidth() {
+    return quiltWidth;
+  }
+
+  public int quiltHeight() {
+    return quiltHeight;
+  }
+
+  public int startingButtons() {
+    return startingButtons;
+  }
+
+  /**
+   * @return the max number of moves a position can have
+   */
+  public int maxMoves() {
+    return 1 + 3 * 8 * quiltWidth * quiltHeight;
+  }
+
+}
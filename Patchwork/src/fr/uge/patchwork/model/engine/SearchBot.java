@@ -0,0 +1,677 @@
+package fr.uge.patchwork.model.engine;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Objects;
+
+import fr.uge.patchwork.model.component.QuiltSymmetry;
+import fr.uge.patchwork.model.endgame.Completion;
+import fr.uge.patchwork.model.endgame.CompletionSolver;
+import fr.uge.patchwork.monitoring.Counter;
+import fr.uge.patchwork.monitoring.Histogram;
+import fr.uge.patchwork.monitoring.MetricsRegistry;
+
+/**
+ *
+ * Bot searching the moves of both sides with a time limit by move.
+ *
+ * <p>
+ * The search is an iterative deepening alpha-beta on the engine,
+ * the positions at the last depth are valued with {@link Evaluation},
+ * with the {@link EconomyTable} of the rules by default. The table is
+ * loaded or generated in the background, the searches never wait for it:
+ * until it is ready, the positions are valued without it.
+ * The patches of the circle are known, but the order of the cards of an
+ * Automa is hidden, so a move of an Automa is a chance node: the value
+ * is the mean of the values of each card not drawn yet, the cards giving
+ * the same move and the same income being searched once.
+ * <p>
+ * The time is checked during the search: when the deadline is reached
+ * the search stops, and the best move of the deepest completed depth
+ * is played, or of the current depth if it already searched the best move
+ * of the previous one, see {@link #lastReport()}.
+ * <p>
+ * The values of the positions are kept in a table by position hash,
+ * between the depths and between the moves. The hash is the one of the
+ * quilts up to their symmetries (see {@link Engine#canonicalHash(int[])}):
+ * a position with a rotated or reflected quilt has the same value,
+ * and its best move is the image of the stored one. The table only keeps
+ * the hashes, not the positions: two positions with the same hash share
+ * an entry, as in any table of positions by hash. The stored move is only
+ * tried first if it is one of the legal moves, so a shared entry can change
+ * the value of a position (the 48 bits of the hash not giving the entry
+ * have to be the same, about one chance in 2^48 by lookup) but never
+ * make the bot play an illegal move.
+ * While the opponent thinks,
+ * {@link #ponder(Engine)} searches its position in the background, so
+ * the search of the next move starts with the positions after the move
+ * of the opponent already in the table.
+ * <p>
+ * With a {@link CompletionSolver}, once the quilt of the bot has few empty
+ * cells left, the bot searches first the patch of the cheapest cover
+ * of these cells in the slots, at its place in the cover,
+ * see {@link #lastCompletion()}.
+ * Nothing is allocated by searched position, use one bot by thread.
+ *
+ */
+public final class SearchBot implements Bot {
+
+  private static final Histogram DECISIONS = MetricsRegistry.global().histogram("bot.search.decision");
+  private static final Counter NODES = MetricsRegistry.global().counter("bot.search.nodes");
+  private static final int MAX_DEPTH = 64;
+  // nodes searched between two reads of the clock
+  private static final int CLOCK_MASK = 31;
+  // pondering stops by itself after this time
+  private static final long PONDER_LIMIT = Duration.ofMinutes(2).toNanos();
+  // table of the values by position hash
+  private static final int TABLE_SIZE = 1 << 16;
+  private static final int EXACT = 0;
+  private static final int LOWER = 1;
+  private static final int UPPER = 2;
+  // depth of a value searched to the end of the game
+  private static final int FULL_DEPTH = Byte.MAX_VALUE;
+  // the endgame solver is used below this number of empty cells
+  private static final int ENDGAME_CELLS = 16;
+
+  private final long budget;
+  // positions searched at most for a move
+  private final long maxNodes;
+  private final CompletionSolver endgame;
+  private final boolean economy;
+  // the economy table of the rules of the searched engine, null if not used
+  private EconomyTable economyTable;
+  private Completion completion;
+  // buffers by level of the search
+  private final int[][] moves = new int[MAX_DEPTH + 1][];
+  private final long[][] keys = new long[MAX_DEPTH + 1][];
+  private final int[][] outcomes = new int[MAX_DEPTH + 1][];
+  private final int[][] weights = new int[MAX_DEPTH + 1][];
+  private int[] rootValues = new int[0];
+  private int side;
+  private long deadline;
+  private long nodes;
+  private boolean aborted;
+  // true if a position was valued before the end of the game
+  private boolean cut;
+  private Report report = new Report(0, 0, 0, 0);
+  // an entry is empty if its depth is 0
+  private final long[] tableHashes = new long[TABLE_SIZE];
+  private final int[] tableMoves = new int[TABLE_SIZE];
+  private final float[] tableValues = new float[TABLE_SIZE];
+  private final byte[] tableDepths = new byte[TABLE_SIZE];
+  private final byte[] tableBounds = new byte[TABLE_SIZE];
+  // side of the values of the table
+  private int tableSide = -1;
+  // true if the values of the table were found with the economy table
+  private boolean tableEconomy;
+  // symmetry of the canonical quilt of each side, the moves of the table are in these quilts
+  private final int[] symmetries = new int[Engine.SIDES];
+  private Thread ponderer;
+  private volatile boolean cancelled;
+  private Report ponderReport = new Report(0, 0, 0, 0);
+
+  /**
+   * The result of the last search
+   * @param depth the deepest completed depth, in moves of both sides
+   * @param nodes number of positions searched
+   * @param nanos time of the search
+   * @param value value of the played move, for the side of the bot
+   */
+  public record Report(int depth, long nodes, long nanos, double value) {
+
+    /**
+     * @return the number of positions searched by second
+     */
+    public double nodesPerSecond() {
+      return nanos == 0 ? 0 : nodes * 1_000_000_000.0 / nanos;
+    }
+  }
+
+  /**
+   * @param budget the time limit of a move
+   */
+  public SearchBot(Duration budget) {
+    this(budget, null, true);
+  }
+
+  /**
+   * @param budget the time limit of a move
+   * @param endgame the solver of the quilt of the bot near the end, or null,
+   * its search is part of the time of a move
+   */
+  public SearchBot(Duration budget, CompletionSolver endgame) {
+    this(budget, endgame, true);
+  }
+
+  /**
+   * @param budget the time limit of a move
+   * @param endgame the solver of the quilt of the bot near the end, or null,
+   * its search is part of the time of a move
+   * @param economy true to evaluate the positions with the economy table
+   * of the rules once it is ready, see {@link Evaluation#evaluate(Engine, int, EconomyTable)}
+   * and {@link EconomyTable#ifReady(Rules)}
+   */
+  public SearchBot(Duration budget, CompletionSolver endgame, boolean economy) {
+    this(checkBudget(budget).toNanos(), Long.MAX_VALUE, endgame, economy);
+  }
+
+  private SearchBot(long budget, long maxNodes, CompletionSolver endgame, boolean economy) {
+    this.budget = budget;
+    this.maxNodes = maxNodes;
+    this.endgame = endgame;
+    this.economy = economy;
+  }
+
+  private static Duration checkBudget(Duration budget) {
+    Objects.requireNonNull(budget, "The budget can't be null");
+    if(budget.isNegative() || budget.isZero()) {
+      throw new IllegalArgumentException("The budget must be positive");
+    }
+    return budget;
+  }
+
+  /**
+   * Create a bot searching a number of positions by move, without time limit:
+   * its moves only depend on the positions, not on the speed of the machine
+   * @param nodes the number of positions searched by move
+   * @param endgame the solver of the quilt of the bot near the end, or null
+   * @param economy true to evaluate the positions with the economy table
+   * of the rules once it is ready
+   * @return the bot
+   */
+  public static SearchBot ofNodes(long nodes, CompletionSolver endgame, boolean economy) {
+    if(nodes < 1) {
+      throw new IllegalArgumentException("The number of positions must be positive");
+    }
+    // the clock is compared to the deadline by difference, this one is never reached
+    return new SearchBot(Long.MAX_VALUE, nodes, endgame, economy);
+  }
+
+  /**
+   * @return the time limit of a move, Long.MAX_VALUE nanoseconds for a bot of a number of positions
+   */
+  public Duration budget() {
+    return Duration.ofNanos(budget);
+  }
+
+  /**
+   * @return the report of the last chosen move
+   */
+  public Report lastReport() {
+    return report;
+  }
+
+  /**
+   * @return the cover of the quilt of the bot found for the last chosen move,
+   * null if there was no endgame solver or too many empty cells
+   */
+  public Completion lastCompletion() {
+    return completion;
+  }
+
+  /**
+   * @return the report of the last pondering, once the next move is chosen
+   */
+  public Report lastPonderReport() {
+    return ponderReport;
+  }
+
+  /**
+   * Search in the background the position of the opponent while it thinks,
+   * until {@link #stopPondering()} or {@link #chooseMove(Engine)} is called.
+   * The search runs on a daemon thread of low priority and checks
+   * the cancellation at each position.
+   * @param engine a position where the opponent of the bot must play,
+   * it is copied so the caller can keep using it
+   * @throws IllegalArgumentException if the opponent is an Automa
+   */
+  @Override
+  public void ponder(Engine engine) {
+    Objects.requireNonNull(engine, "The engine can't be null");
+    awaitPonderer();
+    if(engine.isFinished()) {
+      return;
+    }
+    var opponent = engine.current();
+    if(engine.isAutoma(opponent)) {
+      throw new IllegalArgumentException("An Automa does not think");
+    }
+    var copy = engine.copy();
+    var thread = new Thread(() -> ponder(copy, 1 - opponent), "search-ponder");
+    thread.setDaemon(true);
+    thread.setPriority(Thread.MIN_PRIORITY);
+    ponderer = thread;
+    thread.start();
+  }
+
+  /**
+   * Cancel the pondering, if any, without waiting for its thread.
+   * The next search waits for the thread, a few microseconds
+   * once it is scheduled, within the time limit of the move.
+   */
+  @Override
+  public void stopPondering() {
+    if(ponderer != null) {
+      cancelled = true;
+    }
+  }
+
+  /**
+   * Wait for the end of the pondering, if any
+   */
+  private void awaitPonderer() {
+    var thread = ponderer;
+    if(thread == null) {
+      return;
+    }
+    cancelled = true;
+    var interrupted = false;
+    for(;;) {
+      try {
+        thread.join();
+        break;
+      } catch(InterruptedException e) {
+        interrupted = true;
+      }
+    }
+    ponderer = null;
+    cancelled = false;
+    if(interrupted) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  private void ponder(Engine engine, int side) {
+    var start = System.nanoTime();
+    begin(engine, side, start + PONDER_LIMIT);
+    var depth = 0;
+    for(var d = 1; d < MAX_DEPTH; d++) {
+      cut = false;
+      search(engine, d, Double.NEGATIVE_INFINITY, Double.POSITIVE_INFINITY, 0);
+      if(aborted) {
+        break;
+      }
+      depth = d;
+      if(!cut) {
+        break;
+      }
+    }
+    ponderReport = new Report(depth, nodes, System.nanoTime() - start, 0);
+  }
+
+  private void begin(Engine engine, int side, long deadline) {
+    this.side = side;
+    economyTable = economy ? EconomyTable.ifReady(engine.rules()) : null;
+    this.deadline = deadline;
+    nodes = 0;
+    aborted = false;
+    // the values of another side or of another evaluation are not comparable
+    if(tableSide != side || tableEconomy != (economyTable != null)) {
+      Arrays.fill(tableDepths, (byte) 0);
+      tableSide = side;
+      tableEconomy = economyTable != null;
+    }
+  }
+
+  private int[] moves(int level, int size) {
+    if(moves[level] == null || moves[level].length < size) {
+      moves[level] = new int[size];
+      keys[level] = new long[size];
+    }
+    return moves[level];
+  }
+
+  @Override
+  public int chooseMove(Engine engine) {
+    var start = System.nanoTime();
+    awaitPonderer();
+    begin(engine, engine.current(), start + budget);
+    var maxMoves = engine.rules().maxMoves();
+    var root = moves(0, maxMoves);
+    var count = engine.legalMoves(root);
+    if(count == 0) {
+      throw new IllegalStateException("No move to play");
+    }
+    if(rootValues.length < count) {
+      rootValues = new int[maxMoves];
+    }
+    var best = root[0];
+    var bestValue = 0.0;
+    var depth = 0;
+    completion = null;
+    if(count > 1) {
+      var hash = engine.canonicalHash(symmetries);
+      var symmetry = symmetries[engine.current()];
+      order(engine, 0, count, true);
+      var entry = entry(hash);
+      if(tableHashes[entry] == hash && tableDepths[entry] != 0) {
+        tableMoveToFront(engine, root, count, tableMoves[entry], symmetry);
+      }
+      completion = solveQuilt(engine);
+      if(completion != null) {
+        toFront(root, count, coverMove(engine, completion));
+      }
+      for(var d = 1; d <= MAX_DEPTH - 1 && !aborted; d++) {
+        cut = false;
+        var iterationBest = -1;
+        var iterationValue = Double.NEGATIVE_INFINITY;
+        for(var i = 0; i < count; i++) {
+          engine.play(root[i]);
+          var value = search(engine, d - 1, iterationValue, Double.POSITIVE_INFINITY, 1);
+          engine.undo();
+          if(aborted) {
+            break;
+          }
+          rootValues[i] = (int) Math.round(value);
+          if(value > iterationValue) {
+            iterationValue = value;
+            iterationBest = i;
+          }
+        }
+        // the first move searched is the best of the previous depth
+        if(iterationBest >= 0) {
+          best = root[iterationBest];
+          bestValue = iterationValue;
+        }
+        if(aborted) {
+          break;
+        }
+        depth = d;
+        store(hash, d, !cut, iterationValue, EXACT, engine.transformMove(best, symmetry));
+        if(!cut) {
+          break; // the end of the game is reached everywhere
+        }
+        sortRoot(count, iterationBest);
+      }
+    }
+    var nanos = System.nanoTime() - start;
+    NODES.add(nodes);
+    DECISIONS.record(nanos);
+    report = new Report(depth, nodes, nanos, bestValue);
+    return best;
+  }
+
+  /**
+   * @return the cover of the quilt of the bot, null if it is not solved
+   */
+  private Completion solveQuilt(Engine engine) {
+    if(endgame == null) {
+      return null;
+    }
+    var empty = engine.emptyCells(side);
+    if(empty == 0 || empty > ENDGAME_CELLS) {
+      return null;
+    }
+    return endgame.solve(engine, side);
+  }
+
+  /**
+   * @return the move buying a patch of a cover in a slot, at its place
+   * in the cover, -1 if there is none
+   */
+  private static int coverMove(Engine engine, Completion completion) {
+    var size = engine.circleSize();
+    for(var step: completion.steps()) {
+      var slot = Math.floorMod(step.patch() - engine.token() - 1, size);
+      if(slot < engine.slots()) {
+        return Move.buy(slot, step.orientation(), step.y(), step.x());
+      }
+    }
+    return -1;
+  }
+
+  /**
+   * Put the best root move first, then the others by decreasing value
+   */
+  private void sortRoot(int count, int best) {
+    var root = moves[0];
+    var key = keys[0];
+    for(var i = 0; i < count; i++) {
+      var value = i == best ? Integer.MAX_VALUE : rootValues[i];
+      // decreasing values, then the previous order
+      key[i] = (long) -value << 32 | i;
+    }
+    Arrays.sort(key, 0, count);
+    var sorted = moves(MAX_DEPTH, count);
+    for(var i = 0; i < count; i++) {
+      sorted[i] = root[(int) key[i]];
+    }
+    System.arraycopy(sorted, 0, root, 0, count);
+  }
+
+  private static int entry(long hash) {
+    return (int) hash & (TABLE_SIZE - 1);
+  }
+
+  /**
+   * @return the value of the table for a position if it is
+   * usable with a depth and a window, NaN otherwise
+   */
+  private double probe(long hash, int depth, double alpha, double beta) {
+    var entry = entry(hash);
+    if(tableHashes[entry] != hash || tableDepths[entry] < depth) {
+      return Double.NaN;
+    }
+    var value = (double) tableValues[entry];
+    var bound = tableBounds[entry];
+    if(bound == EXACT || bound == LOWER && value >= beta || bound == UPPER && value <= alpha) {
+      if(tableDepths[entry] != FULL_DEPTH) {
+        cut = true;
+      }
+      return value;
+    }
+    return Double.NaN;
+  }
+
+  private void store(long hash, int depth, boolean full, double value, int bound, int move) {
+    var entry = entry(hash);
+    tableHashes[entry] = hash;
+    tableDepths[entry] = (byte) (full ? FULL_DEPTH : depth);
+    tableValues[entry] = (float) value;
+    tableBounds[entry] = (byte) bound;
+    tableMoves[entry] = move;
+  }
+
+  /**
+   * Put the move of a table entry first, moved from the canonical quilt
+   * to the quilt of the position. The entry may have been stored by another
+   * position with the same hash, so its move is only used if it is legal here
+   * @param symmetry the symmetry of the canonical quilt of the side to play
+   */
+  private static void tableMoveToFront(Engine engine, int[] list, int count, int move, int symmetry) {
+    if(Move.kind(move) == Move.BUY && Move.slot(move) >= engine.slots()) {
+      return;
+    }
+    toFront(list, count, engine.transformMove(move, QuiltSymmetry.inverse(symmetry)));
+  }
+
+  /**
+   * Put a move first, if it is in the list
+   */
+  private static void toFront(int[] list, int count, int move) {
+    for(var i = 0; i < count; i++) {
+      if(list[i] == move) {
+        System.arraycopy(list, 0, list, 1, i);
+        list[0] = move;
+        return;
+      }
+    }
+  }
+
+  /**
+   * @return true if the time is over or the search is cancelled
+   */
+  private boolean tick() {
+    nodes++;
+    if(cancelled || nodes >= maxNodes || (nodes & CLOCK_MASK) == 0 && System.nanoTime() - deadline >= 0) {
+      aborted = true;
+    }
+    return aborted;
+  }
+
+  /**
+   * Order the moves by their static value, the best first for the side
+   * of the bot if max is true, the worst first otherwise.
+   * The order is unchanged if the time is over.
+   */
+  private void order(Engine engine, int level, int count, boolean max) {
+    var list = moves[level];
+    var key = keys[level];
+    for(var i = 0; i < count; i++) {
+      engine.play(list[i]);
+      var value = evaluate(engine);
+      engine.undo();
+      if(tick()) {
+        return;
+      }
+      key[i] = (long) (max ? -value : value) << 32 | i;
+    }
+    Arrays.sort(key, 0, count);
+    var sorted = moves(MAX_DEPTH, count);
+    for(var i = 0; i < count; i++) {
+      sorted[i] = list[(int) key[i]];
+    }
+    System.arraycopy(sorted, 0, list, 0, count);
+  }
+
+  private int evaluate(Engine engine) {
+    return economyTable == null ? Evaluation.evaluate(engine, side) : Evaluation.evaluate(engine, side, economyTable);
+  }
+
+  /**
+   * @return the value of the position for the side of the bot
+   */
+  private double search(Engine engine, int depth, double alpha, double beta, int level) {
+    if(tick()) {
+      return 0;
+    }
+    if(engine.isFinished()) {
+      return evaluate(engine);
+    }
+    if(depth == 0) {
+      cut = true;
+      return evaluate(engine);
+    }
+    // the table is only used far from the leaves, where a hash is cheap
+    var hash = 0L;
+    var symmetry = 0;
+    if(depth > 1) {
+      hash = engine.canonicalHash(symmetries);
+      symmetry = symmetries[engine.current()];
+      var value = probe(hash, depth, alpha, beta);
+      if(!Double.isNaN(value)) {
+        return value;
+      }
+    }
+    var outerCut = cut;
+    cut = false;
+    var current = engine.current();
+    var value = engine.isAutoma(current)
+        ? chance(engine, current, depth, level)
+        : choice(engine, current == side, hash, symmetry, depth, alpha, beta, level);
+    if(depth > 1 && !aborted && engine.isAutoma(current)) {
+      store(hash, depth, !cut, value, EXACT, 0);
+    }
+    cut |= outerCut;
+    return value;
+  }
+
+  /**
+   * Alpha-beta on the moves of a quilt side
+   * @param max true if the side is the one of the bot
+   * @param symmetry the symmetry of the canonical quilt of the side
+   */
+  private double choice(Engine engine, boolean max, long hash, int symmetry, int depth, double alpha, double beta,
+      int level) {
+    var list = moves(level, engine.rules().maxMoves());
+    var count = engine.legalMoves(list);
+    if(depth > 1) {
+      order(engine, level, count, max);
+      if(aborted) {
+        return 0;
+      }
+      var entry = entry(hash);
+      if(tableHashes[entry] == hash && tableDepths[entry] != 0) {
+        tableMoveToFront(engine, list, count, tableMoves[entry], symmetry);
+      }
+    }
+    var initialAlpha = alpha;
+    var initialBeta = beta;
+    var best = list[0];
+    for(var i = 0; i < count; i++) {
+      engine.play(list[i]);
+      var value = search(engine, depth - 1, alpha, beta, level + 1);
+      engine.undo();
+      if(aborted) {
+        return 0;
+      }
+      if(max && value > alpha) {
+        alpha = value;
+        best = list[i];
+      } else if(!max && value < beta) {
+        beta = value;
+        best = list[i];
+      }
+      if(alpha >= beta) {
+        break;
+      }
+    }
+    var value = max ? alpha : beta;
+    if(depth > 1) {
+      var bound = value <= initialAlpha ? UPPER : value >= initialBeta ? LOWER : EXACT;
+      store(hash, depth, !cut, value, bound, engine.transformMove(best, symmetry));
+    }
+    return value;
+  }
+
+  /**
+   * Mean value of the move of an Automa over the cards it may draw
+   */
+  private double chance(Engine engine, int automa, int depth, int level) {
+    var remaining = engine.remainingCards(automa);
+    if(outcomes[level] == null || outcomes[level].length < remaining) {
+      outcomes[level] = new int[remaining];
+      weights[level] = new int[remaining];
+    }
+    var cards = outcomes[level];
+    var weight = weights[level];
+    // index of a card for each distinct outcome
+    var distinct = 0;
+    for(var i = 0; i < remaining; i++) {
+      engine.swapCards(automa, 0, i);
+      var move = engine.automaMove();
+      var income = engine.card(automa).buttonIncome();
+      engine.swapCards(automa, 0, i);
+      var k = 0;
+      while(k < distinct && !sameOutcome(engine, automa, cards[k], move, income)) {
+        k++;
+      }
+      if(k == distinct) {
+        cards[distinct] = i;
+        weight[distinct++] = 0;
+      }
+      weight[k]++;
+    }
+    var sum = 0.0;
+    for(var k = 0; k < distinct; k++) {
+      engine.swapCards(automa, 0, cards[k]);
+      engine.play(engine.automaMove());
+      var value = search(engine, depth - 1, Double.NEGATIVE_INFINITY, Double.POSITIVE_INFINITY, level + 1);
+      engine.undo();
+      engine.swapCards(automa, 0, cards[k]);
+      if(aborted) {
+        return 0;
+      }
+      sum += weight[k] * value;
+    }
+    return sum / remaining;
+  }
+
+  private static boolean sameOutcome(Engine engine, int automa, int card, int move, int income) {
+    engine.swapCards(automa, 0, card);
+    var same = engine.automaMove() == move && engine.card(automa).buttonIncome() == income;
+    engine.swapCards(automa, 0, card);
+    return same;
+  }
+
+}
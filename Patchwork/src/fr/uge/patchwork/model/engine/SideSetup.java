@@ -0,0 +1,53 @@
+package fr.uge.patchwork.model.engine;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Objects;
+
+import fr.uge.patchwork.model.component.player.automa.AutomaDifficulty;
+import fr.uge.patchwork.model.component.player.automa.Card;
+import fr.uge.patchwork.model.component.player.automa.DeckType;
+
+/**
+ * Who plays a side of the engine: a player with a quilt,
+ * or an Automa with its difficulty and its deck
+ * @param difficulty of the Automa, null for a quilt
+ * @param deck of the Automa, null for a quilt
+ */
+public record SideSetup(AutomaDifficulty difficulty, List<Card> deck) {
+
+  public SideSetup {
+    if((difficulty == null) != (deck == null)) {
+      throw new IllegalArgumentException("An Automa needs a difficulty and a deck");
+    }
+    if(deck != null) {
+      if(deck.isEmpty()) {
+        throw new IllegalArgumentException("The deck can't be empty");
+      }
+      deck = List.copyOf(deck);
+    }
+  }
+
+  /**
+   * @return a side played by a player with a quilt
+   */
+  public static SideSetup quilt() {
+    return new SideSetup(null, null);
+  }
+
+  /**
+   * @param difficulty
+   * @param deckType
+   * @return a side played by an Automa
+   * @throws IOException if the deck can't be read
+   */
+  public static SideSetup automa(AutomaDifficulty difficulty, DeckType deckType) throws IOException {
+    Objects.requireNonNull(difficulty, "The difficulty can't be null");
+    return new SideSetup(difficulty, Rules.deck(deckType));
+  }
+
+  public boolean isAutoma() {
+    return difficulty != null;
+  }
+
+}
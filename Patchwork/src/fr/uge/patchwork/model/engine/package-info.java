@@ -0,0 +1,16 @@
+/**
+ * Provides a compact engine of the patchwork rules,
+ * without any interface, to simulate and search games quickly.
+ *
+ * <p>
+ * The object model ({@link fr.uge.patchwork.model.Game}) is made to be drawn
+ * and played by people: the players, patches and quilts are objects, and a turn
+ * creates lists of patches and events. The bots look at thousands of positions
+ * by move and the tournaments play millions of games: they need to play and undo
+ * a move without allocating, and to copy and hash a position.
+ * The engine keeps a position in arrays of numbers (a quilt is a row of bits
+ * by line, a move is an int, see {@link fr.uge.patchwork.model.engine.Move})
+ * with the same rules as the object model: its games replayed on the object model
+ * with {@link fr.uge.patchwork.model.archive.GameReplayer} end with the same scores.
+ */
+package fr.uge.patchwork.model.engine;
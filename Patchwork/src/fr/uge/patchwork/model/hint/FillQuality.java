@@ -0,0 +1,85 @@
+package fr.uge.patchwork.model.hint;
+
+import java.util.Objects;
+
+import fr.uge.patchwork.model.component.patch.Shape;
+
+/**
+ *
+ * Measures of how well a quilt is filled, on its rows of bits
+ * (see {@link Shape}), computed with shifts and ANDs by row.
+ * The cells outside of the quilt count as filled.
+ *
+ */
+public final class FillQuality {
+
+  private FillQuality() {}
+
+  private static long mask(int width) {
+    return width == Long.SIZE ? -1L : (1L << width) - 1;
+  }
+
+  /**
+   * @param rows the rows of the quilt
+   * @param width the width of the quilt
+   * @param y
+   * @return the cells of a row that are filled, the cells outside included
+   */
+  private static long filled(long[] rows, int width, int y) {
+    return y < 0 || y >= rows.length ? -1L : rows[y] | ~mask(width);
+  }
+
+  /**
+   * Count the sides of a shape placed on a quilt touching
+   * the filled cells of the quilt or its borders
+   * @param rows the rows of the quilt, without the shape
+   * @param width
+   * @param shape
+   * @param y row of the upper left corner of the shape
+   * @param x column of the upper left corner of the shape
+   * @return the number of sides in contact
+   */
+  public static int contacts(long[] rows, int width, Shape shape, int y, int x) {
+    Objects.requireNonNull(rows, "The rows can't be null");
+    Objects.requireNonNull(shape, "The shape can't be null");
+    var contacts = 0;
+    for(var r = 0; r < shape.height(); r++) {
+      var cells = shape.row(r) << x;
+      var filled = filled(rows, width, y + r);
+      contacts += Long.bitCount(cells & (filled << 1 | 1L))
+          + Long.bitCount(cells & (filled >>> 1 | 1L << (width - 1)))
+          + Long.bitCount(cells & filled(rows, width, y + r - 1))
+          + Long.bitCount(cells & filled(rows, width, y + r + 1));
+    }
+    return contacts;
+  }
+
+  /**
+   * The filled cells of the best square of a quilt, how close the quilt is
+   * to a filled square like the one of the special tile
+   * @param rows
+   * @param width
+   * @param side of the square
+   * @return the max number of filled cells of a square of this side,
+   * 0 if the quilt is smaller than the square
+   */
+  public static int squareFill(long[] rows, int width, int side) {
+    Objects.requireNonNull(rows, "The rows can't be null");
+    if(side < 1 || side > Long.SIZE) {
+      throw new IllegalArgumentException("The side of the square must be in [1;" + Long.SIZE + "]");
+    }
+    var best = 0;
+    for(var x = 0; x + side <= width; x++) {
+      var mask = mask(side) << x;
+      for(var y = 0; y + side <= rows.length; y++) {
+        var count = 0;
+        for(var r = y; r < y + side; r++) {
+          count += Long.bitCount(rows[r] & mask);
+        }
+        best = Math.max(best, count);
+      }
+    }
+    return best;
+  }
+
+}
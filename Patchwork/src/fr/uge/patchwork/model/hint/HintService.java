@@ -0,0 +1,195 @@
+package fr.uge.patchwork.model.hint;
+
+import static java.util.Comparator.comparingInt;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import fr.uge.patchwork.model.component.QuiltBoard;
+import fr.uge.patchwork.model.component.QuiltRegions;
+import fr.uge.patchwork.model.component.patch.Form;
+import fr.uge.patchwork.model.component.patch.Shape;
+import fr.uge.patchwork.monitoring.Histogram;
+import fr.uge.patchwork.monitoring.MetricsRegistry;
+
+/**
+ *
+ * Compute in the background the best places of a patch on a quilt.
+ *
+ * <p>
+ * Each orientation of the patch is tested at each place of the quilt
+ * with the rows of bits of its shape, the places where it fits are scored
+ * by the contacts of the patch, the empty cells it cuts off in regions
+ * too small for the patches left (see {@link QuiltRegions}) and the filling
+ * of the square of the special tile, see {@link FillQuality}.
+ * The best places found so far are published after each orientation,
+ * so {@link #hints()} never waits, and a new request or a cancel
+ * stops the computation in progress.
+ *
+ */
+public final class HintService {
+
+  private static final Histogram COMPUTATIONS = MetricsRegistry.global().histogram("hint.computation");
+  // weights of the score
+  private static final int CONTACT = 2;
+  private static final int HOLE = -6;
+  private static final int SQUARE = 1;
+  // side of the square of the special tile
+  private static final int SQUARE_SIDE = 7;
+  private static final Comparator<Placement> RANKING = comparingInt(Placement::score).reversed()
+      .thenComparingInt(Placement::holes)
+      .thenComparingInt(Placement::y)
+      .thenComparingInt(Placement::x)
+      .thenComparingInt(Placement::orientation);
+
+  /**
+   * The hints of a request
+   * @param placements the best places found, the best first
+   * @param complete true if all the places were tested
+   */
+  public record Hints(List<Placement> placements, boolean complete) {
+
+    /**
+     * No hints, nothing requested
+     */
+    public static final Hints NONE = new Hints(List.of(), true);
+
+    public Hints {
+      placements = List.copyOf(placements);
+    }
+  }
+
+  private final int limit;
+  private final ExecutorService executor = Executors.newSingleThreadExecutor(runnable -> {
+    var thread = new Thread(runnable, "hints");
+    thread.setDaemon(true);
+    thread.setPriority(Thread.MIN_PRIORITY);
+    return thread;
+  });
+  // changed by each request and cancel, a computation stops when it changes
+  private volatile long generation;
+  private volatile Hints hints = Hints.NONE;
+  // used by the thread of the executor only
+  private final QuiltRegions regions = new QuiltRegions();
+
+  /**
+   * @param limit number of places of the hints
+   */
+  public HintService(int limit) {
+    if(limit < 1) {
+      throw new IllegalArgumentException("The hints need at least one place");
+    }
+    this.limit = limit;
+  }
+
+  /**
+   * Start the computation of the hints of a patch on a quilt,
+   * the computation in progress is cancelled
+   * @param quilt
+   * @param form the form of the patch
+   * @param smallest the cells of the smallest patch left to buy
+   */
+  public void request(QuiltBoard quilt, Form form, int smallest) {
+    Objects.requireNonNull(quilt, "The quilt can't be null");
+    Objects.requireNonNull(form, "The form can't be null");
+    if(smallest < 1) {
+      throw new IllegalArgumentException("A patch has at least one cell");
+    }
+    var rows = quilt.rows();
+    var width = quilt.width();
+    long id;
+    synchronized(this) {
+      id = ++generation;
+      hints = new Hints(List.of(), false);
+    }
+    executor.execute(() -> compute(id, rows, width, form, smallest));
+  }
+
+  /**
+   * Cancel the computation in progress, the hints are removed
+   */
+  public synchronized void cancel() {
+    generation++;
+    hints = Hints.NONE;
+  }
+
+  /**
+   * @return the best places found so far for the last request
+   */
+  public Hints hints() {
+    return hints;
+  }
+
+  private synchronized void publish(long id, List<Placement> placements, boolean complete) {
+    if(generation == id) {
+      hints = new Hints(placements, complete);
+    }
+  }
+
+  private void compute(long id, long[] rows, int width, Form form, int smallest) {
+    var start = System.nanoTime();
+    var dead = regions.deadCells(rows, width, smallest);
+    var square = FillQuality.squareFill(rows, width, SQUARE_SIDE);
+    var best = new ArrayList<Placement>();
+    var shapes = Shape.orientations(form);
+    for(var o = 0; o < Shape.ORIENTATIONS; o++) {
+      var shape = shapes[o];
+      if(isDuplicate(shapes, o)) {
+        continue;
+      }
+      for(var y = 0; y + shape.height() <= rows.length; y++) {
+        for(var x = 0; x + shape.width() <= width; x++) {
+          if(generation != id) {
+            return;
+          }
+          if(!shape.fits(rows, width, y, x)) {
+            continue;
+          }
+          var contacts = FillQuality.contacts(rows, width, shape, y, x);
+          shape.toggle(rows, y, x);
+          var newHoles = regions.deadCells(rows, width, smallest) - dead;
+          var newSquare = FillQuality.squareFill(rows, width, SQUARE_SIDE);
+          shape.toggle(rows, y, x);
+          var score = CONTACT * contacts + HOLE * newHoles + SQUARE * (newSquare - square);
+          add(best, new Placement(shape, o, y, x, contacts, newHoles, newSquare, score));
+        }
+      }
+      publish(id, best, false);
+    }
+    publish(id, best, true);
+    COMPUTATIONS.recordSince(start);
+  }
+
+  /**
+   * @return true if an orientation before o has the same shape
+   */
+  private static boolean isDuplicate(Shape[] shapes, int o) {
+    for(var i = 0; i < o; i++) {
+      if(shapes[i].equals(shapes[o])) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Insert a place in the best ones, sorted, if it is good enough
+   */
+  private void add(List<Placement> best, Placement placement) {
+    var index = 0;
+    while(index < best.size() && RANKING.compare(best.get(index), placement) <= 0) {
+      index++;
+    }
+    if(index < limit) {
+      best.add(index, placement);
+      if(best.size() > limit) {
+        best.remove(limit);
+      }
+    }
+  }
+
+}
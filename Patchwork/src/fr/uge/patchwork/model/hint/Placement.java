@@ -0,0 +1,37 @@
+package fr.uge.patchwork.model.hint;
+
+import java.util.Objects;
+
+import fr.uge.patchwork.model.component.patch.Shape;
+
+/**
+ * A place of a patch on a quilt, with the measures of its quality
+ * @param shape the shape of the patch in its orientation
+ * @param orientation see {@link Shape#transform(fr.uge.patchwork.model.component.patch.Form, int)}
+ * @param y row of the upper left corner of the shape
+ * @param x column of the upper left corner of the shape
+ * @param contacts sides of the patch touching other patches or the borders
+ * @param holes empty cells cut off by the patch in regions too small for the patches left,
+ * see {@link fr.uge.patchwork.model.component.QuiltRegions#deadCells(long[], int, int)}
+ * @param square filled cells of the best square of the special tile after the patch
+ * @param score the quality of the place, higher is better
+ */
+public record Placement(Shape shape, int orientation, int y, int x, int contacts, int holes, int square, int score) {
+
+  public Placement {
+    Objects.requireNonNull(shape, "The shape can't be null");
+    Objects.checkIndex(orientation, Shape.ORIENTATIONS);
+  }
+
+  /**
+   * @param y
+   * @param x
+   * @return true if the patch covers the cell (y,x) of the quilt
+   */
+  public boolean covers(int y, int x) {
+    var r = y - this.y;
+    var c = x - this.x;
+    return r >= 0 && r < shape.height() && c >= 0 && c < shape.width() && (shape.row(r) & (1L << c)) != 0;
+  }
+
+}
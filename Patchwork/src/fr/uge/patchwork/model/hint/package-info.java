@@ -0,0 +1,6 @@
+/**
+ * Provides the placement hints of the human players: the best places
+ * of a patch on a quilt, ranked by the quality of the filling
+ * and computed in the background while the player moves the patch
+ */
+package fr.uge.patchwork.model.hint;
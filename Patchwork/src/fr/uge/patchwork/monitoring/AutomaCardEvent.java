@@ -0,0 +1,46 @@
+package fr.uge.patchwork.monitoring;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * The resolution of the filters of an Automa card
+ */
+@Name("fr.uge.patchwork.AutomaCard")
+@Label("Automa Card")
+@Category({"Patchwork", "Automa"})
+@Description("Choice of a patch by the filter chain of an Automa card")
+public final class AutomaCardEvent extends Event {
+
+  @Label("Difficulty")
+  public String difficulty;
+
+  @Label("Tactical")
+  public boolean tactical;
+
+  @Label("Filters")
+  public String filters;
+
+  @Label("Virtual Buttons")
+  public int virtualButtons;
+
+  @Label("Candidates")
+  public int candidates;
+
+  @Label("Max Moves")
+  @Description("Spaces the Automa can move without overtaking")
+  public int maxMoves;
+
+  @Label("Chosen Price")
+  public int chosenPrice;
+
+  @Label("Chosen Moves")
+  public int chosenMoves;
+
+  @Label("Chosen Buttons")
+  public int chosenButtons;
+
+}
@@ -0,0 +1,38 @@
+package fr.uge.patchwork.monitoring;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ *
+ * A counter of a metrics registry, incremented without lock
+ * by any number of threads.
+ *
+ */
+public final class Counter {
+
+  private final LongAdder adder = new LongAdder();
+
+  Counter() {}
+
+  public void increment() {
+    adder.increment();
+  }
+
+  /**
+   * @param amount a positive amount
+   */
+  public void add(long amount) {
+    if(amount < 0) {
+      throw new IllegalArgumentException("A counter can't decrease");
+    }
+    adder.add(amount);
+  }
+
+  /**
+   * @return the current value
+   */
+  public long sum() {
+    return adder.sum();
+  }
+
+}
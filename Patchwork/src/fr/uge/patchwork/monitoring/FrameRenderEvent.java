@@ -0,0 +1,24 @@
+package fr.uge.patchwork.monitoring;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * The rendering of a frame of the graphical interface
+ */
+@Name("fr.uge.patchwork.FrameRender")
+@Label("Frame Render")
+@Category({"Patchwork", "GUI"})
+@Description("Rendering of the queued drawing actions of a frame")
+public final class FrameRenderEvent extends Event {
+
+  @Label("Drawing Actions")
+  public int actions;
+
+  @Label("Overlay")
+  public boolean overlay;
+
+}
@@ -0,0 +1,149 @@
+package fr.uge.patchwork.monitoring;
+
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ *
+ * Histogram of positive values (latencies in nanoseconds, sizes...)
+ * with logarithmic buckets, recorded without lock by any number of threads.
+ *
+ * <p>
+ * As in a HDR histogram, each power of 2 is divided in 8 buckets,
+ * so a percentile is known with a precision of 12.5%, whatever the value.
+ * The values below 8 are exact.
+ *
+ */
+public final class Histogram {
+
+  private static final int SUB_BITS = 3;
+  private static final int SUB_BUCKETS = 1 << SUB_BITS;
+  static final int BUCKETS = (Long.SIZE - SUB_BITS) * SUB_BUCKETS;
+
+  private final LongAdder[] buckets = new LongAdder[BUCKETS];
+  private final LongAdder count = new LongAdder();
+  private final LongAdder sum = new LongAdder();
+  private final LongAccumulator max = new LongAccumulator(Math::max, 0);
+
+  Histogram() {
+    for(var i = 0; i < BUCKETS; i++) {
+      buckets[i] = new LongAdder();
+    }
+  }
+
+  /**
+   * @param value
+   * @return the index of the bucket of a value
+   */
+  static int bucket(long value) {
+    if(value < SUB_BUCKETS) {
+      return (int) Math.max(0, value);
+    }
+    var exponent = Long.SIZE - 1 - Long.numberOfLeadingZeros(value);
+    var mantissa = (int) (value >>> (exponent - SUB_BITS)) & (SUB_BUCKETS - 1);
+    return (exponent - SUB_BITS + 1) * SUB_BUCKETS + mantissa;
+  }
+
+  /**
+   * @param bucket
+   * @return the lowest value of a bucket
+   */
+  static long lowerBound(int bucket) {
+    if(bucket < SUB_BUCKETS) {
+      return bucket;
+    }
+    var exponent = bucket / SUB_BUCKETS + SUB_BITS - 1;
+    var mantissa = bucket % SUB_BUCKETS;
+    return (long) (SUB_BUCKETS + mantissa) << (exponent - SUB_BITS);
+  }
+
+  /**
+   * @param bucket
+   * @return the highest value of a bucket
+   */
+  static long upperBound(int bucket) {
+    return bucket == BUCKETS - 1 ? Long.MAX_VALUE : lowerBound(bucket + 1) - 1;
+  }
+
+  /**
+   * Record a value, a negative value is recorded as 0
+   * @param value
+   */
+  public void record(long value) {
+    var positive = Math.max(0, value);
+    buckets[bucket(positive)].increment();
+    count.increment();
+    sum.add(positive);
+    max.accumulate(positive);
+  }
+
+  /**
+   * Record the time elapsed since a start
+   * @param start given by {@link System#nanoTime()}
+   */
+  public void recordSince(long start) {
+    record(System.nanoTime() - start);
+  }
+
+  /**
+   * Take a snapshot of the histogram. The recording
+   * can go on during the snapshot, so the snapshot may miss
+   * the values recorded meanwhile.
+   * @return the snapshot
+   */
+  public Snapshot snapshot() {
+    var counts = new long[BUCKETS];
+    var total = 0L;
+    for(var i = 0; i < BUCKETS; i++) {
+      counts[i] = buckets[i].sum();
+      total += counts[i];
+    }
+    return new Snapshot(total, sum.sum(), max.get(), counts);
+  }
+
+  /**
+   * Values of a histogram at a given time
+   * @param count number of values
+   * @param sum sum of the values
+   * @param max max value
+   * @param buckets number of values by bucket
+   */
+  public record Snapshot(long count, long sum, long max, long[] buckets) {
+
+    public Snapshot {
+      buckets = buckets.clone();
+    }
+
+    /**
+     * @return the mean of the values, 0 if there is none
+     */
+    public double mean() {
+      return count == 0 ? 0 : (double) sum / count;
+    }
+
+    /**
+     * Return a percentile, the highest value of the bucket it
+     * falls in, but never more than the max value
+     * @param percentile in [0;100]
+     * @return the percentile, 0 if there is no value
+     */
+    public long percentile(double percentile) {
+      if(percentile < 0 || percentile > 100) {
+        throw new IllegalArgumentException("A percentile is in [0;100]");
+      }
+      if(count == 0) {
+        return 0;
+      }
+      var rank = Math.max(1, (long) Math.ceil(percentile * count / 100));
+      var seen = 0L;
+      for(var i = 0; i < buckets.length; i++) {
+        seen += buckets[i];
+        if(seen >= rank) {
+          return Math.min(upperBound(i), max);
+        }
+      }
+      return max;
+    }
+  }
+
+}
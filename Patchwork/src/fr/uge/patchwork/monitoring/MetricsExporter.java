@@ -0,0 +1,141 @@
+package fr.uge.patchwork.monitoring;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.Objects;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ *
+ * Export the snapshots of a metrics registry in a file,
+ * on demand or periodically on a daemon thread.
+ *
+ * <p>
+ * In text format the file holds the last snapshot.
+ * In CSV format the snapshots are appended, so the file
+ * shows the metrics over time.
+ * A failed periodic export is counted in the counter
+ * {@code metrics.export.errors} of the registry and reported on the
+ * error output, the next exports are still done.
+ *
+ */
+public final class MetricsExporter implements AutoCloseable {
+
+  /**
+   * Format of the exported file
+   */
+  public enum Format {
+    TEXT, CSV
+  }
+
+  private final MetricsRegistry registry;
+  private final Path path;
+  private final Format format;
+  private final Counter errors;
+  private ScheduledExecutorService scheduler;
+
+  /**
+   * @param registry
+   * @param path of the file
+   * @param format
+   */
+  public MetricsExporter(MetricsRegistry registry, Path path, Format format) {
+    this.registry = Objects.requireNonNull(registry, "The registry can't be null");
+    this.path = Objects.requireNonNull(path, "The path can't be null");
+    this.format = Objects.requireNonNull(format, "The format can't be null");
+    errors = registry.counter("metrics.export.errors");
+  }
+
+  /**
+   * Choose the format from the extension of the file, CSV for ".csv"
+   * @param registry
+   * @param path
+   * @return the exporter
+   */
+  public static MetricsExporter of(MetricsRegistry registry, Path path) {
+    var csv = path.getFileName().toString().endsWith(".csv");
+    return new MetricsExporter(registry, path, csv ? Format.CSV : Format.TEXT);
+  }
+
+  /**
+   * Export a snapshot now
+   * @throws IOException if the file can't be written
+   */
+  public synchronized void export() throws IOException {
+    var snapshot = registry.snapshot();
+    var parent = path.toAbsolutePath().getParent();
+    if(parent != null) {
+      Files.createDirectories(parent);
+    }
+    switch(format) {
+      case TEXT -> {
+        try(var writer = Files.newBufferedWriter(path)) {
+          snapshot.writeText(writer);
+        }
+      }
+      case CSV -> {
+        var header = !Files.exists(path) || Files.size(path) == 0;
+        try(var writer = Files.newBufferedWriter(path,
+            StandardOpenOption.CREATE, StandardOpenOption.APPEND)) {
+          if(header) {
+            writer.write(MetricsSnapshot.CSV_HEADER + "\n");
+          }
+          snapshot.writeCsv(writer);
+        }
+      }
+    }
+  }
+
+  /**
+   * Export a snapshot periodically, until the exporter is closed.
+   * Does nothing if it is already started
+   * @param period at least one millisecond
+   */
+  public synchronized void start(Duration period) {
+    Objects.requireNonNull(period, "The period can't be null");
+    if(period.toMillis() < 1) {
+      throw new IllegalArgumentException("The period must be at least 1 ms");
+    }
+    if(scheduler != null) {
+      return;
+    }
+    scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+      var thread = new Thread(runnable, "metrics-exporter");
+      thread.setDaemon(true);
+      return thread;
+    });
+    // an exception thrown by the task would cancel the next exports
+    scheduler.scheduleAtFixedRate(() -> {
+      try {
+        export();
+      } catch (IOException | UncheckedIOException e) {
+        errors.increment();
+        System.err.println("The metrics can't be exported to " + path + ": " + e.getMessage());
+      }
+    }, period.toMillis(), period.toMillis(), TimeUnit.MILLISECONDS);
+  }
+
+  /**
+   * Stop the periodic export and export a last snapshot
+   * if it was started
+   */
+  @Override
+  public void close() throws IOException {
+    ScheduledExecutorService running;
+    synchronized(this) {
+      running = scheduler;
+      scheduler = null;
+    }
+    if(running != null) {
+      running.shutdownNow();
+      export();
+    }
+  }
+
+}
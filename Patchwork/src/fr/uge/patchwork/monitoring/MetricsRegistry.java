@@ -0,0 +1,81 @@
+package fr.uge.patchwork.monitoring;
+
+import java.util.Objects;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.LongSupplier;
+
+/**
+ *
+ * Registry of the metrics of the process: counters, gauges
+ * and histograms, found by name.
+ *
+ * <p>
+ * The metrics are created on first use, so a class keeps
+ * its metrics in constants and records them without any lookup.
+ * The names are dotted, like "engine.moves".
+ *
+ */
+public final class MetricsRegistry {
+
+  private static final MetricsRegistry GLOBAL = new MetricsRegistry();
+
+  private final ConcurrentHashMap<String, Counter> counters = new ConcurrentHashMap<>();
+  private final ConcurrentHashMap<String, LongSupplier> gauges = new ConcurrentHashMap<>();
+  private final ConcurrentHashMap<String, Histogram> histograms = new ConcurrentHashMap<>();
+
+  /**
+   * @return the registry used by the game
+   */
+  public static MetricsRegistry global() {
+    return GLOBAL;
+  }
+
+  private static String checkName(String name) {
+    Objects.requireNonNull(name, "The name can't be null");
+    if(name.isBlank()) {
+      throw new IllegalArgumentException("The name can't be blank");
+    }
+    return name;
+  }
+
+  /**
+   * @param name
+   * @return the counter of this name
+   */
+  public Counter counter(String name) {
+    return counters.computeIfAbsent(checkName(name), n -> new Counter());
+  }
+
+  /**
+   * Register a gauge, replacing the previous one of the same name
+   * @param name
+   * @param gauge read when a snapshot is taken
+   */
+  public void gauge(String name, LongSupplier gauge) {
+    Objects.requireNonNull(gauge, "The gauge can't be null");
+    gauges.put(checkName(name), gauge);
+  }
+
+  /**
+   * @param name
+   * @return the histogram of this name
+   */
+  public Histogram histogram(String name) {
+    return histograms.computeIfAbsent(checkName(name), n -> new Histogram());
+  }
+
+  /**
+   * @return the current values of all the metrics, sorted by name
+   */
+  public MetricsSnapshot snapshot() {
+    var counterValues = new TreeMap<String, Long>();
+    counters.forEach((name, counter) -> counterValues.put(name, counter.sum()));
+    var gaugeValues = new TreeMap<String, Long>();
+    gauges.forEach((name, gauge) -> gaugeValues.put(name, gauge.getAsLong()));
+    var histogramValues = new TreeMap<String, Histogram.Snapshot>();
+    histograms.forEach((name, histogram) -> histogramValues.put(name, histogram.snapshot()));
+    return new MetricsSnapshot(System.currentTimeMillis(), counterValues, gaugeValues, histogramValues);
+  }
+
+}
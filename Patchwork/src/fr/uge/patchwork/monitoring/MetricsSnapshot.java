@@ -0,0 +1,78 @@
+package fr.uge.patchwork.monitoring;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.time.Instant;
+import java.util.Collections;
+import java.util.Locale;
+import java.util.Objects;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+/**
+ * The values of the metrics of a registry at a given time
+ * @param timestamp in milliseconds since the epoch
+ * @param counters by name
+ * @param gauges by name
+ * @param histograms by name
+ */
+public record MetricsSnapshot(long timestamp, SortedMap<String, Long> counters,
+    SortedMap<String, Long> gauges, SortedMap<String, Histogram.Snapshot> histograms) {
+
+  /**
+   * Header of the CSV lines, see {@link #writeCsv(Writer)}
+   */
+  public static final String CSV_HEADER = "timestamp,name,type,count,sum,mean,p50,p90,p99,max";
+
+  public MetricsSnapshot {
+    counters = Collections.unmodifiableSortedMap(new TreeMap<>(counters));
+    gauges = Collections.unmodifiableSortedMap(new TreeMap<>(gauges));
+    histograms = Collections.unmodifiableSortedMap(new TreeMap<>(histograms));
+  }
+
+  /**
+   * Write the snapshot as text, one metric by line
+   * @param writer
+   * @throws IOException
+   */
+  public void writeText(Writer writer) throws IOException {
+    Objects.requireNonNull(writer, "The writer can't be null");
+    writer.write("metrics at " + Instant.ofEpochMilli(timestamp) + "\n");
+    for(var entry: counters.entrySet()) {
+      writer.write(String.format(Locale.ROOT, "  %-36s %d\n", entry.getKey(), entry.getValue()));
+    }
+    for(var entry: gauges.entrySet()) {
+      writer.write(String.format(Locale.ROOT, "  %-36s %d\n", entry.getKey(), entry.getValue()));
+    }
+    for(var entry: histograms.entrySet()) {
+      var h = entry.getValue();
+      writer.write(String.format(Locale.ROOT,
+          "  %-36s count %d  mean %.0f  p50 %d  p90 %d  p99 %d  max %d\n",
+          entry.getKey(), h.count(), h.mean(), h.percentile(50), h.percentile(90),
+          h.percentile(99), h.max()));
+    }
+  }
+
+  /**
+   * Write the snapshot as CSV lines, without header,
+   * see {@link #CSV_HEADER}
+   * @param writer
+   * @throws IOException
+   */
+  public void writeCsv(Writer writer) throws IOException {
+    Objects.requireNonNull(writer, "The writer can't be null");
+    for(var entry: counters.entrySet()) {
+      writer.write(timestamp + "," + entry.getKey() + ",counter,," + entry.getValue() + ",,,,,\n");
+    }
+    for(var entry: gauges.entrySet()) {
+      writer.write(timestamp + "," + entry.getKey() + ",gauge,," + entry.getValue() + ",,,,,\n");
+    }
+    for(var entry: histograms.entrySet()) {
+      var h = entry.getValue();
+      writer.write(String.format(Locale.ROOT, "%d,%s,histogram,%d,%d,%.1f,%d,%d,%d,%d\n",
+          timestamp, entry.getKey(), h.count(), h.sum(), h.mean(), h.percentile(50),
+          h.percentile(90), h.percentile(99), h.max()));
+    }
+  }
+
+}
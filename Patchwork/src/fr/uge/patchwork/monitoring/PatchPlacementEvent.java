@@ -0,0 +1,27 @@
+package fr.uge.patchwork.monitoring;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * The validation of the placement of a patch on a quilt
+ */
+@Name("fr.uge.patchwork.PatchPlacement")
+@Label("Patch Placement")
+@Category({"Patchwork", "Model"})
+@Description("Test if a patch fits on a quilt without overlapping")
+public final class PatchPlacementEvent extends Event {
+
+  @Label("Cells")
+  public int cells;
+
+  @Label("Patches On Quilt")
+  public int patches;
+
+  @Label("Valid")
+  public boolean valid;
+
+}
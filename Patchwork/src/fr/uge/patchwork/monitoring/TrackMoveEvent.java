@@ -0,0 +1,33 @@
+package fr.uge.patchwork.monitoring;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * A move of a player on the track board, with the events it triggers
+ */
+@Name("fr.uge.patchwork.TrackMove")
+@Label("Track Move")
+@Category({"Patchwork", "Model"})
+@Description("Move of a player on the track board and triggering of the crossed events")
+public final class TrackMoveEvent extends Event {
+
+  @Label("Player")
+  public String player;
+
+  @Label("From")
+  public int from;
+
+  @Label("To")
+  public int to;
+
+  @Label("Events On Board")
+  public int events;
+
+  @Label("Triggered Events")
+  public int triggered;
+
+}
@@ -0,0 +1,40 @@
+package fr.uge.patchwork.monitoring;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * A turn of a player, from its start to the end of its events
+ */
+@Name("fr.uge.patchwork.Turn")
+@Label("Turn")
+@Category({"Patchwork", "Controller"})
+@Description("A turn of a player, with its action")
+public final class TurnEvent extends Event {
+
+  @Label("Player")
+  public String player;
+
+  @Label("Automa")
+  public boolean automa;
+
+  @Label("Action")
+  @Description("advance, buy or quit")
+  public String action;
+
+  @Label("Position Before")
+  public int positionBefore;
+
+  @Label("Position After")
+  public int positionAfter;
+
+  @Label("Buttons After")
+  public int buttons;
+
+  @Label("Triggered Events")
+  public int triggeredEvents;
+
+}
@@ -0,0 +1,11 @@
+/**
+ * Provides the monitoring of the game: Java Flight Recorder events
+ * emitted by the controller, the model and the graphical interface,
+ * and a registry of metrics (counters, gauges, histograms)
+ * exported in text or CSV.
+ * <p>
+ * The events are in the "Patchwork" category and are recorded by any
+ * recording, for example started with
+ * {@code jcmd <pid> JFR.start duration=60s filename=patchwork.jfr}
+ */
+package fr.uge.patchwork.monitoring;
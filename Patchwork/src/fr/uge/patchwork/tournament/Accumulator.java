@@ -0,0 +1,70 @@
+package fr.uge.patchwork.tournament;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * The statistics of a contestant against an opponent, updated by
+ * all the threads of a tournament without lock
+ */
+final class Accumulator {
+
+  // scores out of the range are counted on its bounds
+  static final int MIN_SCORE = -200;
+  static final int MAX_SCORE = 200;
+
+  private final LongAdder games = new LongAdder();
+  private final LongAdder wins = new LongAdder();
+  private final LongAdder ties = new LongAdder();
+  private final LongAdder specialTiles = new LongAdder();
+  private final LongAdder plies = new LongAdder();
+  private final LongAdder scores = new LongAdder();
+  private final LongAdder[] distribution = new LongAdder[MAX_SCORE - MIN_SCORE + 1];
+
+  Accumulator() {
+    for(var i = 0; i < distribution.length; i++) {
+      distribution[i] = new LongAdder();
+    }
+  }
+
+  /**
+   * Add the result of a game
+   * @param score of the contestant
+   * @param won true if the contestant won
+   * @param tie true if nobody won
+   * @param specialTile true if the contestant got the special tile
+   * @param ply number of moves of the game
+   */
+  void add(int score, boolean won, boolean tie, boolean specialTile, int ply) {
+    games.increment();
+    if(won) {
+      wins.increment();
+    }
+    if(tie) {
+      ties.increment();
+    }
+    if(specialTile) {
+      specialTiles.increment();
+    }
+    plies.add(ply);
+    scores.add(score);
+    distribution[Math.max(MIN_SCORE, Math.min(score, MAX_SCORE)) - MIN_SCORE].increment();
+  }
+
+  /**
+   * Add the statistics to totals, in the order of the fields of a {@link Standing}
+   * @param totals games, wins, ties, special tiles, plies, sum of the scores
+   * @param histogram number of games by score, from {@link #MIN_SCORE}
+   */
+  void addTo(long[] totals, long[] histogram) {
+    totals[0] += games.sum();
+    totals[1] += wins.sum();
+    totals[2] += ties.sum();
+    totals[3] += specialTiles.sum();
+    totals[4] += plies.sum();
+    totals[5] += scores.sum();
+    for(var i = 0; i < distribution.length; i++) {
+      histogram[i] += distribution[i].sum();
+    }
+  }
+
+}
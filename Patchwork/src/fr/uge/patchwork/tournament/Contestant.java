@@ -0,0 +1,166 @@
+package fr.uge.patchwork.tournament;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Objects;
+import java.util.function.Supplier;
+
+import fr.uge.patchwork.model.archive.GameRecord;
+import fr.uge.patchwork.model.component.player.automa.AutomaDifficulty;
+import fr.uge.patchwork.model.component.player.automa.DeckType;
+import fr.uge.patchwork.model.engine.BookBot;
+import fr.uge.patchwork.model.engine.Bot;
+import fr.uge.patchwork.model.engine.EconomyTable;
+import fr.uge.patchwork.model.engine.GreedyBot;
+import fr.uge.patchwork.model.engine.OpeningBook;
+import fr.uge.patchwork.model.engine.Rules;
+import fr.uge.patchwork.model.engine.SearchBot;
+
+/**
+ * A contestant of a tournament: an Automa, or a bot playing with a quilt
+ * @param name unique in a tournament
+ * @param side how the contestant plays its side
+ * @param bot creates the bot of a quilt side, one by thread, null for an Automa
+ * @param economy whether the bot values the positions with the economy table of the rules,
+ * see {@link EconomyTable}
+ */
+public record Contestant(String name, GameRecord.Side side, Supplier<Bot> bot, boolean economy) {
+
+  public Contestant {
+    Objects.requireNonNull(name, "The name can't be null");
+    Objects.requireNonNull(side, "The side can't be null");
+    if(side.isAutoma() == (bot != null)) {
+      throw new IllegalArgumentException("A bot plays a quilt side, an Automa has no bot");
+    }
+  }
+
+  /**
+   * A contestant that doesn't use the economy table
+   */
+  public Contestant(String name, GameRecord.Side side, Supplier<Bot> bot) {
+    this(name, side, bot, false);
+  }
+
+  /**
+   * Load or generate the economy table of the rules if a contestant uses it,
+   * so that the search bots use it from their first move
+   * @param rules
+   * @param contestants
+   */
+  public static void prepare(Rules rules, List<Contestant> contestants) {
+    Objects.requireNonNull(rules, "The rules can't be null");
+    if(contestants.stream().anyMatch(Contestant::economy)) {
+      EconomyTable.of(rules);
+    }
+  }
+
+  /**
+   * @param difficulty
+   * @param deckType
+   * @return an Automa named automa-difficulty-deck
+   */
+  public static Contestant automa(AutomaDifficulty difficulty, DeckType deckType) {
+    return new Contestant(
+        "automa-" + difficulty.name().toLowerCase(Locale.ROOT) + "-" + deckType.name().toLowerCase(Locale.ROOT),
+        GameRecord.Side.automa(difficulty, deckType), null);
+  }
+
+  /**
+   * @return the greedy bot, see {@link GreedyBot}
+   */
+  public static Contestant greedy() {
+    return new Contestant("greedy", GameRecord.Side.quilt(), GreedyBot::new);
+  }
+
+  /**
+   * @param budget time limit of a move
+   * @return the search bot named search-budget, see {@link SearchBot}
+   */
+  public static Contestant search(Duration budget) {
+    Objects.requireNonNull(budget, "The budget can't be null");
+    return new Contestant("search-" + budget.toMillis() + "ms", GameRecord.Side.quilt(), () -> new SearchBot(budget), true);
+  }
+
+  /**
+   * @param book
+   * @param budget time limit of a move out of the book
+   * @return the search bot with an opening book named book-search-budget, see {@link BookBot}
+   */
+  public static Contestant book(OpeningBook book, Duration budget) {
+    Objects.requireNonNull(book, "The book can't be null");
+    Objects.requireNonNull(budget, "The budget can't be null");
+    return new Contestant("book-search-" + budget.toMillis() + "ms", GameRecord.Side.quilt(),
+        () -> new BookBot(book, new SearchBot(budget)), true);
+  }
+
+  /**
+   * @return an Automa for each difficulty and each deck
+   */
+  public static List<Contestant> automata() {
+    var automata = new ArrayList<Contestant>();
+    for(var difficulty: AutomaDifficulty.values()) {
+      for(var deckType: DeckType.values()) {
+        automata.add(automa(difficulty, deckType));
+      }
+    }
+    return automata;
+  }
+
+  /**
+   * Parse a list of contestants separated by commas:
+   * <pre>
+   *   greedy                     the greedy bot
+   *   search[:ms]                the search bot, 50 ms by move by default
+   *   book:file[:ms]             the search bot with the opening book of a file
+   *   automa:difficulty[:deck]   an Automa, with the normal deck by default
+   *   automata                   an Automa for each difficulty and each deck
+   * </pre>
+   * @param text
+   * @return the contestants
+   * @throws IllegalArgumentException if a contestant is unknown
+   */
+  public static List<Contestant> parse(String text) {
+    Objects.requireNonNull(text, "The text can't be null");
+    var contestants = new ArrayList<Contestant>();
+    for(var token: text.split(",")) {
+      var parts = token.trim().toUpperCase(Locale.ROOT).split(":");
+      switch(parts[0]) {
+        case "GREEDY" -> contestants.add(greedy());
+        case "SEARCH" -> {
+          if(parts.length > 2) {
+            throw new IllegalArgumentException("Expected search[:ms] in " + token);
+          }
+          contestants.add(search(Duration.ofMillis(parts.length == 2 ? Long.parseLong(parts[1]) : 50)));
+        }
+        case "BOOK" -> {
+          if(parts.length < 2 || parts.length > 3) {
+            throw new IllegalArgumentException("Expected book:file[:ms] in " + token);
+          }
+          // the case of the file name is kept
+          var file = token.trim().split(":")[1];
+          try {
+            contestants.add(book(OpeningBook.load(Path.of(file)),
+                Duration.ofMillis(parts.length == 3 ? Long.parseLong(parts[2]) : 50)));
+          } catch(IOException e) {
+            throw new IllegalArgumentException("Can't read the opening book " + file + ": " + e.getMessage(), e);
+          }
+        }
+        case "AUTOMATA" -> contestants.addAll(automata());
+        case "AUTOMA" -> {
+          if(parts.length < 2 || parts.length > 3) {
+            throw new IllegalArgumentException("Expected automa:difficulty[:deck] in " + token);
+          }
+          contestants.add(automa(AutomaDifficulty.valueOf(parts[1]),
+              parts.length == 3 ? DeckType.valueOf(parts[2]) : DeckType.NORMAL));
+        }
+        default -> throw new IllegalArgumentException("Unknown contestant " + token);
+      }
+    }
+    return contestants;
+  }
+
+}
@@ -0,0 +1,108 @@
+package fr.uge.patchwork.tournament;
+
+import java.util.List;
+import java.util.Locale;
+import java.util.Objects;
+
+/**
+ * The statistics of a contestant in a tournament,
+ * against an opponent or against all of them
+ * @param contestant
+ * @param opponent the name of the opponent, "*" for all the opponents
+ * @param games
+ * @param wins
+ * @param losses
+ * @param ties
+ * @param meanScore
+ * @param scorePercentiles p10, p50 and p90 of the scores
+ * @param minScore
+ * @param maxScore
+ * @param meanPlies mean number of moves of a game, both sides included
+ * @param specialTileRate part of the games with the special tile for the contestant
+ */
+public record Standing(String contestant, String opponent, long games, long wins, long losses, long ties,
+    double meanScore, List<Integer> scorePercentiles, int minScore, int maxScore,
+    double meanPlies, double specialTileRate) {
+
+  /**
+   * Header of the CSV lines, see {@link #toCsv(String)}
+   */
+  public static final String CSV_HEADER = "mode,contestant,opponent,games,wins,losses,ties,win_rate,"
+      + "mean_score,score_p10,score_p50,score_p90,min_score,max_score,mean_plies,special_tile_rate";
+
+  public Standing {
+    Objects.requireNonNull(contestant, "The contestant can't be null");
+    Objects.requireNonNull(opponent, "The opponent can't be null");
+    scorePercentiles = List.copyOf(scorePercentiles);
+  }
+
+  /**
+   * Build a standing from the statistics of several accumulators
+   */
+  static Standing of(String contestant, String opponent, List<Accumulator> accumulators) {
+    var totals = new long[6];
+    var histogram = new long[Accumulator.MAX_SCORE - Accumulator.MIN_SCORE + 1];
+    for(var accumulator: accumulators) {
+      accumulator.addTo(totals, histogram);
+    }
+    var games = totals[0];
+    var min = 0;
+    var max = 0;
+    if(games != 0) {
+      min = firstScore(histogram, 1);
+      max = Accumulator.MIN_SCORE + histogram.length - 1;
+      while(histogram[max - Accumulator.MIN_SCORE] == 0) {
+        max--;
+      }
+    }
+    var percentiles = List.of(
+        percentile(histogram, games, 10), percentile(histogram, games, 50), percentile(histogram, games, 90));
+    return new Standing(contestant, opponent, games, totals[1], games - totals[1] - totals[2], totals[2],
+        games == 0 ? 0 : (double) totals[5] / games, percentiles, min, max,
+        games == 0 ? 0 : (double) totals[4] / games,
+        games == 0 ? 0 : (double) totals[3] / games);
+  }
+
+  /**
+   * @return the lowest score with at least 'rank' games below or on it
+   */
+  private static int firstScore(long[] histogram, long rank) {
+    var count = 0L;
+    for(var i = 0; i < histogram.length; i++) {
+      count += histogram[i];
+      if(count >= rank) {
+        return Accumulator.MIN_SCORE + i;
+      }
+    }
+    return Accumulator.MAX_SCORE;
+  }
+
+  private static int percentile(long[] histogram, long games, int percentile) {
+    if(games == 0) {
+      return 0;
+    }
+    return firstScore(histogram, Math.max(1, (games * percentile + 99) / 100));
+  }
+
+  public double winRate() {
+    return games == 0 ? 0 : (double) wins / games;
+  }
+
+  /**
+   * @param mode the game mode of the tournament
+   * @return the CSV line of the standing, without end of line
+   */
+  public String toCsv(String mode) {
+    return String.format(Locale.ROOT, "%s,%s,%s,%d,%d,%d,%d,%.4f,%.2f,%d,%d,%d,%d,%d,%.2f,%.4f",
+        mode, contestant, opponent, games, wins, losses, ties, winRate(), meanScore,
+        scorePercentiles.get(0), scorePercentiles.get(1), scorePercentiles.get(2),
+        minScore, maxScore, meanPlies, specialTileRate);
+  }
+
+  @Override
+  public String toString() {
+    return String.format(Locale.ROOT, "%-26s %-26s %7d games  win %5.1f%%  score %7.2f (p50 %4d)  %6.1f plies  special tile %5.1f%%",
+        contestant, opponent, games, winRate() * 100, meanScore, scorePercentiles.get(1), meanPlies, specialTileRate * 100);
+  }
+
+}
@@ -0,0 +1,309 @@
+package fr.uge.patchwork.tournament;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Objects;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+import fr.uge.patchwork.model.GameMode;
+import fr.uge.patchwork.model.SplitMix64;
+import fr.uge.patchwork.model.engine.Bot;
+import fr.uge.patchwork.model.engine.Engine;
+import fr.uge.patchwork.model.engine.Rules;
+import fr.uge.patchwork.model.engine.SideSetup;
+
+/**
+ *
+ * A round robin tournament between contestants, played with the engine.
+ *
+ * <p>
+ * Each pair of contestants plays a number of games, the games go by two
+ * with the same seed, each contestant playing first once.
+ * The games are split on a fork/join pool, each thread has its own bots and
+ * engines, and the results are added to lock-free accumulators,
+ * so the throughput grows with the number of cores.
+ * The seeds of the games only depend on the seed of the tournament,
+ * so a tournament gives the same results whatever the number of threads.
+ *
+ */
+public final class Tournament {
+
+  // games played by a task without splitting it
+  private static final int GAMES_BY_TASK = 8;
+
+  private final GameMode gameMode;
+  private final Rules rules;
+  private final List<Contestant> contestants;
+  private final SideSetup[] setups;
+  private final int gamesByPairing;
+  private final long seed;
+  // pairings of contestant indexes
+  private final int[][] pairings;
+  // [contestant][opponent]
+  private final Accumulator[][] accumulators;
+
+  /**
+   * @param gameMode
+   * @param contestants at least two, with different names
+   * @param gamesByPairing number of games of each pair of contestants
+   * @param seed
+   * @throws IOException if the rules or the decks can't be read
+   */
+  public Tournament(GameMode gameMode, List<Contestant> contestants, int gamesByPairing, long seed) throws IOException {
+    this.gameMode = Objects.requireNonNull(gameMode, "The game mode can't be null");
+    this.contestants = List.copyOf(contestants);
+    if(this.contestants.size() < 2) {
+      throw new IllegalArgumentException("A tournament needs at least two contestants");
+    }
+    var names = new HashSet<String>();
+    for(var contestant: this.contestants) {
+      if(!names.add(contestant.name())) {
+        throw new IllegalArgumentException("Two contestants are named " + contestant.name());
+      }
+    }
+    if(gamesByPairing < 1) {
+      throw new IllegalArgumentException("Each pairing must play at least one game");
+    }
+    this.gamesByPairing = gamesByPairing;
+    this.seed = seed;
+    rules = Rules.of(gameMode);
+    var n = this.contestants.size();
+    setups = new SideSetup[n];
+    for(var i = 0; i < n; i++) {
+      setups[i] = this.contestants.get(i).side().setup();
+    }
+    var list = new ArrayList<int[]>();
+    for(var i = 0; i < n; i++) {
+      for(var j = i + 1; j < n; j++) {
+        list.add(new int[] { i, j });
+      }
+    }
+    pairings = list.toArray(int[][]::new);
+    accumulators = new Accumulator[n][n];
+    for(var i = 0; i < n; i++) {
+      for(var j = 0; j < n; j++) {
+        if(i != j) {
+          accumulators[i][j] = new Accumulator();
+        }
+      }
+    }
+  }
+
+  public GameMode gameMode() {
+    return gameMode;
+  }
+
+  /**
+   * @return the number of games of the tournament
+   */
+  public long games() {
+    return (long) pairings.length * gamesByPairing;
+  }
+
+  /**
+   * Play all the games of the tournament
+   * @param threads number of threads playing the games
+   * @return the standings of each contestant against each opponent,
+   * then against all of them
+   */
+  public List<Standing> run(int threads) {
+    if(threads < 1) {
+      throw new IllegalArgumentException("At least one thread is needed");
+    }
+    Contestant.prepare(rules, contestants);
+    var pool = new ForkJoinPool(threads);
+    try {
+      pool.invoke(new Games(0, games()));
+    } finally {
+      pool.shutdown();
+    }
+    return standings();
+  }
+
+  /**
+   * The games of a range of indexes, split until they are few
+   */
+  private final class Games extends RecursiveAction {
+    private static final long serialVersionUID = 1L;
+    private final long from;
+    private final long to;
+
+    private Games(long from, long to) {
+      this.from = from;
+      this.to = to;
+    }
+
+    @Override
+    protected void compute() {
+      if(to - from > GAMES_BY_TASK) {
+        var middle = (from + to) >>> 1;
+        invokeAll(new Games(from, middle), new Games(middle, to));
+        return;
+      }
+      var bots = new Bot[contestants.size()];
+      for(var game = from; game < to; game++) {
+        play(game, bots);
+      }
+    }
+  }
+
+  /**
+   * The seed of a game, shared by the two games where each contestant plays first.
+   * It is the value of index 'game' of the generator of the tournament seed,
+   * computed without the values before it.
+   */
+  private long gameSeed(long game) {
+    var shared = game - (game % gamesByPairing) % 2;
+    return new SplitMix64(seed + shared * SplitMix64.GOLDEN_GAMMA).nextLong();
+  }
+
+  private void play(long game, Bot[] bots) {
+    var pairing = pairings[(int) (game / gamesByPairing)];
+    // the contestants swap their seats each game
+    var swap = (game % gamesByPairing) % 2 == 1;
+    var first = swap ? pairing[1] : pairing[0];
+    var second = swap ? pairing[0] : pairing[1];
+    var sides = new int[] { first, second };
+    var engine = Engine.create(rules, setups[first], setups[second], gameSeed(game));
+    while(!engine.isFinished()) {
+      var side = engine.current();
+      if(engine.isAutoma(side)) {
+        engine.play(engine.automaMove());
+      } else {
+        var contestant = sides[side];
+        if(bots[contestant] == null) {
+          bots[contestant] = contestants.get(contestant).bot().get();
+        }
+        engine.play(bots[contestant].chooseMove(engine));
+      }
+    }
+    var winner = engine.winner();
+    for(var side = 0; side < Engine.SIDES; side++) {
+      accumulators[sides[side]][sides[1 - side]].add(engine.score(side), winner == side, winner < 0,
+          engine.specialTile() == side, engine.ply());
+    }
+  }
+
+  private List<Standing> standings() {
+    var standings = new ArrayList<Standing>();
+    var n = contestants.size();
+    for(var i = 0; i < n; i++) {
+      var all = new ArrayList<Accumulator>();
+      for(var j = 0; j < n; j++) {
+        if(i != j) {
+          all.add(accumulators[i][j]);
+          standings.add(Standing.of(contestants.get(i).name(), contestants.get(j).name(), List.of(accumulators[i][j])));
+        }
+      }
+      standings.add(Standing.of(contestants.get(i).name(), "*", all));
+    }
+    return standings;
+  }
+
+  /**
+   * Write standings in CSV, see {@link Standing#CSV_HEADER}
+   * @param gameMode
+   * @param standings
+   * @param path
+   * @throws IOException
+   */
+  public static void writeCsv(GameMode gameMode, List<Standing> standings, Path path) throws IOException {
+    Objects.requireNonNull(gameMode, "The game mode can't be null");
+    Objects.requireNonNull(standings, "The standings can't be null");
+    Objects.requireNonNull(path, "The path can't be null");
+    var mode = gameMode.name().toLowerCase(Locale.ROOT);
+    try(Writer writer = Files.newBufferedWriter(path)) {
+      writer.write(Standing.CSV_HEADER);
+      writer.write('\n');
+      for(var standing: standings) {
+        writer.write(standing.toCsv(mode));
+        writer.write('\n');
+      }
+    }
+  }
+
+  private static void usage() {
+    System.err.println("""
+        tournament [options]
+          --mode basic|full|automa   game mode (default full)
+          --players list             contestants separated by commas (default greedy,automata):
+                                     greedy, search[:ms], book:file[:ms], automa:difficulty[:deck],
+                                     automata
+          --games n                  games by pairing (default 100)
+          --threads n                threads (default: the number of cores)
+          --seed n                   seed of the tournament (default 0)
+          --output file              write the standings in CSV""");
+  }
+
+  /**
+   * Parse a game mode given by its short name or its name
+   * @param text
+   * @return the game mode
+   * @throws IllegalArgumentException if the game mode is unknown
+   */
+  public static GameMode parseGameMode(String text) {
+    var name = text.toUpperCase(Locale.ROOT);
+    return GameMode.valueOf(name.startsWith("PATCHWORK_") ? name : "PATCHWORK_" + name);
+  }
+
+  /**
+   * Run a tournament from the command line, see the options with --help
+   * @param args
+   * @return the exit status
+   */
+  public static int command(String[] args) {
+    var gameMode = GameMode.PATCHWORK_FULL;
+    var players = "greedy,automata";
+    var games = 100;
+    var threads = Runtime.getRuntime().availableProcessors();
+    var seed = 0L;
+    Path output = null;
+    try {
+      for(var i = 0; i < args.length; i++) {
+        switch(args[i]) {
+          case "--mode" -> gameMode = parseGameMode(args[++i]);
+          case "--players" -> players = args[++i];
+          case "--games" -> games = Integer.parseInt(args[++i]);
+          case "--threads" -> threads = Integer.parseInt(args[++i]);
+          case "--seed" -> seed = Long.parseLong(args[++i]);
+          case "--output" -> output = Path.of(args[++i]);
+          case "--help" -> {
+            usage();
+            return 0;
+          }
+          default -> throw new IllegalArgumentException("Unknown option " + args[i]);
+        }
+      }
+      var tournament = new Tournament(gameMode, Contestant.parse(players), games, seed);
+      var start = System.nanoTime();
+      var standings = tournament.run(threads);
+      var time = (System.nanoTime() - start) / 1_000_000_000.0;
+      standings.stream().filter(s -> s.opponent().equals("*")).forEach(System.out::println);
+      System.out.println(String.format(Locale.ROOT, "%d games in %.1f s, %.0f games/s on %d threads",
+          tournament.games(), time, tournament.games() / time, threads));
+      if(output != null) {
+        writeCsv(gameMode, standings, output);
+      }
+      return 0;
+    } catch(IllegalArgumentException | IndexOutOfBoundsException e) {
+      System.err.println(e.getMessage());
+      usage();
+      return 2;
+    } catch(IOException e) {
+      System.err.println(e.getMessage());
+      return 1;
+    }
+  }
+
+  public static void main(String[] args) {
+    System.exit(command(args));
+  }
+
+}
@@ -0,0 +1,6 @@
+/**
+ * Provides the headless tournaments: games between Automa and bots
+ * played with the engine on all the cores, with the statistics
+ * of each contestant written in CSV
+ */
+package fr.uge.patchwork.tournament;
@@ -11,6 +11,9 @@ import fr.uge.patchwork.model.component.gameboard.TrackBoard;
 import fr.uge.patchwork.model.component.patch.Patch;
 import fr.uge.patchwork.model.component.patch.RegularPatch;
 import fr.uge.patchwork.model.component.player.HumanPlayer;
+import fr.uge.patchwork.model.endgame.Completion;
+import fr.uge.patchwork.model.hint.HintService;
+import fr.uge.patchwork.view.input.InputQueue;
 
 public interface UserInterface {
   
@@ -45,6 +48,22 @@ public interface UserInterface {
    */
   void drawDummyQuilt(HumanPlayer player, Patch patch);
   
+  /**
+   * Draw the best places found for the patch manipulated
+   * on the quilt of a player, over the dummy quilt
+   * @param player
+   * @param hints
+   */
+  void drawHints(HumanPlayer player, HintService.Hints hints);
+  
+  /**
+   * Draw whether the quilt of a player can be finished without hole
+   * with the patches left, and for how many buttons
+   * @param player
+   * @param completion
+   */
+  void drawCompletion(HumanPlayer player, Completion completion);
+  
   /**
    * Print the interface
    */
@@ -60,6 +79,14 @@ public interface UserInterface {
    */
   void close();
   
+  /**
+   * Statistics on the user inputs: 
+   * number of inputs, dropped inputs and latency
+   * between the capture of an input and its use
+   * @return the statistics
+   */
+  InputQueue.Statistics inputStatistics();
+  
   /**
    * Display a menu as the game mode selection menu.
    * (The game menu)
@@ -114,9 +141,11 @@ public interface UserInterface {
   Optional<KeybindedChoice> getInput(Set<KeybindedChoice> choices);
   
   /**
-   * Make the user select a patch a given patch list
+   * Make the user select a patch a given patch list,
+   * the patches that can't be selected are greyed out
    * @param patches
+   * @param selectable the patches the player can buy and place
    * @return the selected patch or null
    */
-  Optional<RegularPatch> selectPatch(List<RegularPatch> patches, PatchManager manager);
+  Optional<RegularPatch> selectPatch(List<RegularPatch> patches, Set<RegularPatch> selectable, PatchManager manager);
 }
@@ -7,6 +7,7 @@ import java.util.Objects;
 import java.util.Optional;
 import java.util.Scanner;
 import java.util.Set;
+import java.util.concurrent.TimeUnit;
 
 import fr.uge.patchwork.controller.KeybindedChoice;
 import fr.uge.patchwork.model.component.QuiltBoard;
@@ -20,7 +21,13 @@ import fr.uge.patchwork.model.component.patch.RegularPatch;
 import fr.uge.patchwork.model.component.player.HumanPlayer;
 import fr.uge.patchwork.model.component.player.Player;
 import fr.uge.patchwork.model.component.player.automa.Automa;
+import fr.uge.patchwork.model.endgame.Completion;
+import fr.uge.patchwork.model.hint.HintService;
+import fr.uge.patchwork.monitoring.Histogram;
+import fr.uge.patchwork.monitoring.MetricsRegistry;
 import fr.uge.patchwork.view.UserInterface;
+import fr.uge.patchwork.view.input.InputEvent;
+import fr.uge.patchwork.view.input.InputQueue;
 
 /**
  * 
@@ -33,8 +40,15 @@ public final class CommandLineInterface implements UserInterface {
   // and closing a PatchworkCLI instance (therefore the scanner) 
   // would mess with other instance also using System.in
   private static final Scanner scanner = new Scanner(System.in); 
+  // The lines of System.in are captured on their own thread
+  private static final InputQueue input = new InputQueue("cli-input", 64);
+  private static final Histogram DISPLAYS = MetricsRegistry.global().histogram("cli.display");
+  // wait for a line at most this time while hints are computed, to draw them
+  private static final long HINTS_REFRESH = 50;
   // It's like the window, we draw our elements on it and we refresh the display
   private final StringBuilder builder = new StringBuilder();
+  // true if the drawn hints are not complete
+  private boolean hintsPending;
   
   /**
    * Access the string builder of the command line interface
@@ -52,11 +66,32 @@ public final class CommandLineInterface implements UserInterface {
    */
   @Override
   public void close() {
+    input.stop();
     scanner.close();
   }
   
+  /**
+   * Init the interface: <br>
+   * 
+   * start the capture of the lines of {@link System#in}
+   */
+  @Override
+  public void init() {
+    input.start(() -> scanner.hasNextLine() ? scanner.nextLine() : null);
+  }
+  
   @Override
-  public void init() {}
+  public InputQueue.Statistics inputStatistics() {
+    return input.statistics();
+  }
+  
+  /**
+   * Wait for the next line typed by the user
+   * @return the line, or an empty string if there is no more input
+   */
+  private String nextLine() {
+    return input.take().map(InputEvent::value).orElse("");
+  }
 
   @Override
   public Optional<KeybindedChoice> gameModeMenu(Set<KeybindedChoice> choices) {
@@ -75,7 +110,16 @@ public final class CommandLineInterface implements UserInterface {
 
   @Override
   public Optional<KeybindedChoice> manipulatePatch(Set<KeybindedChoice> choices) {
-    return simpleMenu("", choices);
+    if(!hintsPending) {
+      return simpleMenu("", choices);
+    }
+    // the menu is drawn again with the new hints if nothing is typed
+    printMenu("", choices);
+    var line = input.poll(HINTS_REFRESH, TimeUnit.MILLISECONDS);
+    if(line.isEmpty()) {
+      return Optional.empty();
+    }
+    return choice(line.get().value(), choices);
   }
   
   public void draw(KeybindedChoice choice) {
@@ -211,7 +255,9 @@ public final class CommandLineInterface implements UserInterface {
   
   @Override
   public void display() {
+    var start = System.nanoTime();
     System.out.print(builder);
+    DISPLAYS.recordSince(start);
   }
   
   @Override
@@ -219,6 +265,7 @@ public final class CommandLineInterface implements UserInterface {
     System.out.print("\033[H\033[2J");
     // System.out.flush();
     builder.setLength(0);
+    hintsPending = false;
     drawSplashScreen();
   }
   
@@ -258,19 +305,28 @@ public final class CommandLineInterface implements UserInterface {
   }
 
   @Override
-  public Optional<RegularPatch> selectPatch(List<RegularPatch> patches, PatchManager manager) {
+  public Optional<RegularPatch> selectPatch(List<RegularPatch> patches, Set<RegularPatch> selectable,
+      PatchManager manager) {
     Objects.requireNonNull(patches);
+    Objects.requireNonNull(selectable, "The selectable patches can't be null");
     if(patches.isEmpty()) {
       throw new IllegalArgumentException("Their should be at least 1 patch in the list");
     }
     var i = 0;
     clear();
-    // Draw choices
+    // Draw choices, the ones that can't be selected in grey
     builder.append("\n");
     for(var patch: patches) {
       i++;
+      var greyed = !selectable.contains(patch);
+      if(greyed) {
+        builder.append(CLIColor.ANSI_GREY);
+      }
       builder.append(i + ". ");
       draw(patch);
+      if(greyed) {
+        builder.append("  (can't be bought or placed)\n").append(CLIColor.ANSI_RESET);
+      }
       builder.append("\n");
     }
     display();
@@ -281,14 +337,13 @@ public final class CommandLineInterface implements UserInterface {
     .append("\nChoose : ")
     .append(CLIColor.ANSI_RESET);
     System.out.print(localBuilder);
-    if(scanner.hasNextInt()) {
-      var input = scanner.nextInt();
-      scanner.nextLine();
-      if(input > 0 && input <= i) {
-        return Optional.of(patches.get(input - 1));
+    try {
+      var index = Integer.parseInt(nextLine().trim());
+      if(index > 0 && index <= i && selectable.contains(patches.get(index - 1))) {
+        return Optional.of(patches.get(index - 1));
       }
-    }else {
-      scanner.nextLine();
+    } catch (NumberFormatException e) {
+      // not a number, wrong choice
     }
     System.out.println("Wrong choice\n");
     return Optional.empty();
@@ -339,6 +394,60 @@ public final class CommandLineInterface implements UserInterface {
     builder.append("┘");
   }
   
+  @Override
+  public void drawHints(HumanPlayer player, HintService.Hints hints) {
+    Objects.requireNonNull(player, "The player can't be null");
+    Objects.requireNonNull(hints, "The hints can't be null");
+    hintsPending = !hints.complete();
+    var placements = hints.placements();
+    builder.append(CLIColor.ANSI_ORANGE).append("\nHints").append(CLIColor.ANSI_RESET)
+    .append(hints.complete() ? "" : " (searching...)").append("\n");
+    if(placements.isEmpty()) {
+      builder.append(hints.complete() ? "  the patch fits nowhere\n" : "");
+      return;
+    }
+    // the quilt with the rank of the hint covering each cell, the best on top
+    var quilt = player.quilt();
+    for(var y = 0; y < quilt.height(); y++) {
+      builder.append("  ");
+      for(var x = 0; x < quilt.width(); x++) {
+        var rank = 0;
+        while(rank < placements.size() && !placements.get(rank).covers(y, x)) {
+          rank++;
+        }
+        if(rank < placements.size()) {
+          builder.append(rank + 1);
+        } else {
+          builder.append(quilt.occupied(new Coordinates(y, x)) ? "▒" : "·");
+        }
+      }
+      builder.append("\n");
+    }
+    for(var i = 0; i < placements.size(); i++) {
+      var placement = placements.get(i);
+      builder.append("  ").append(i + 1).append(". row ").append(placement.y() + 1)
+      .append(", column ").append(placement.x() + 1)
+      .append(": contacts ").append(placement.contacts())
+      .append(", cut off ").append(placement.holes())
+      .append(", square ").append(placement.square()).append("\n");
+    }
+  }
+  
+  @Override
+  public void drawCompletion(HumanPlayer player, Completion completion) {
+    Objects.requireNonNull(player, "The player can't be null");
+    Objects.requireNonNull(completion, "The completion can't be null");
+    builder.append(CLIColor.ANSI_ORANGE).append("\nPerfect finish of ").append(player.name())
+    .append(CLIColor.ANSI_RESET).append(": ");
+    switch(completion.outcome()) {
+      case TILEABLE -> builder.append("possible with ").append(completion.steps().size())
+        .append(" patches, for ").append(completion.optimal() ? "" : "at most ")
+        .append(completion.cost()).append(" buttons\n");
+      case IMPOSSIBLE -> builder.append("impossible with the patches left\n");
+      case UNKNOWN -> builder.append("unknown, too many ways to search\n");
+    }
+  }
+  
   /**
    * Draw the splash screen
    */
@@ -362,6 +471,11 @@ public final class CommandLineInterface implements UserInterface {
 
   @Override
   public Optional<KeybindedChoice> simpleMenu(String title, Set<KeybindedChoice> choices) {
+    printMenu(title, choices);
+    return choice(nextLine(), choices);
+  }
+  
+  private void printMenu(String title, Set<KeybindedChoice> choices) {
     Objects.requireNonNull(choices, "the quilt can't be null");
     if(choices.isEmpty()) {
       throw new IllegalArgumentException("The set of choices can't be empty");
@@ -375,11 +489,12 @@ public final class CommandLineInterface implements UserInterface {
       localBuilder.append(option).append("\n"));
     localBuilder.append("\nChoice ? : ");
     System.out.print(localBuilder);
-    String input;
-    if(scanner.hasNextLine() 
-        && (input = scanner.nextLine()).length() == 1) {
+  }
+  
+  private static Optional<KeybindedChoice> choice(String line, Set<KeybindedChoice> choices) {
+    if(line.length() == 1) {
       for(var choice: choices) {
-        if(choice.key() == input.charAt(0)) {
+        if(choice.key() == line.charAt(0)) {
           return Optional.of(choice);
         }
       }
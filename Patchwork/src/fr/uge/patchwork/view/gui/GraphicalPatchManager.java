@@ -5,9 +5,9 @@ import java.awt.Color;
 import java.awt.Font;
 import java.awt.Polygon;
 import java.awt.geom.Rectangle2D;
+import java.util.List;
 import java.util.Objects;
 
-import fr.uge.patchwork.model.component.QuiltBoard;
 import fr.uge.patchwork.model.component.gameboard.PatchManager;
 import fr.uge.patchwork.model.component.patch.Coordinates;
 import fr.uge.patchwork.model.component.patch.RegularPatch;
@@ -26,6 +26,8 @@ public class GraphicalPatchManager {
   private final int shown; // max patch to display
   private final int squareSide;
   private RegularPatch toEnhance;
+  private List<RegularPatch> greyedOut = List.of();
+  private final BasicStroke stroke = new BasicStroke(2.0f);
   
   public GraphicalPatchManager(PatchManager manager, int shown, int x, int y, int width, int height) {
     this.manager = Objects.requireNonNull(manager);
@@ -75,28 +77,51 @@ public class GraphicalPatchManager {
     toEnhance = patch;
   }
   
+  /**
+   * Set the patches drawn in grey, the ones that can't be selected
+   * @param patches
+   */
+  public void greyOut(List<RegularPatch> patches) {
+    Objects.requireNonNull(patches, "Can't grey out null");
+    greyedOut = List.copyOf(patches);
+  }
+  
   private void drawPatch(GraphicalUserInterface ui, RegularPatch patch, int x, int y, int side) {
-    var width = 1;
-    var height = 1;
-    do {
-      width += 1;
-      height += 1;
-      patch.absoluteMoveTo(new Coordinates(height / 2, width / 2));     
-    }while(!patch.fits(width, height));
-    // draw the patch
-    var quilt = new QuiltBoard(width, height);
-    var quiltSide = side / 2;
-    new GraphicalQuiltBoard(quilt, x + quiltSide, y, quiltSide).drawPatch(ui, patch);
+    // the patch is centered in a box of half the side,
+    // with a margin of a square around it
+    var boxSide = side / 2;
+    var unitBounds = PatchShapeCache.shape(patch.form(), 1).bounds();
+    var squares = Math.max(unitBounds.getWidth(), unitBounds.getHeight()) + 1;
+    var shape = PatchShapeCache.shape(patch.form(), Math.max(1, (int) (boxSide / squares)));
+    var bounds = shape.bounds();
+    var shapeX = x + boxSide + (boxSide - bounds.getWidth()) / 2 - bounds.getX();
+    var shapeY = y + (boxSide - bounds.getHeight()) / 2 - bounds.getY();
+    // we compare pointers here
+    var greyed = greyedOut.stream().anyMatch(p -> p == patch);
+    var patchColor = greyed ? Color.LIGHT_GRAY : new Color(patch.hashCode());
+    var textColor = greyed ? Color.GRAY : Color.BLACK;
+    ui.addDrawingAction(g2 -> {
+      g2.translate(shapeX, shapeY);
+      g2.setColor(patchColor);
+      g2.fill(shape.outline());
+      g2.setColor(textColor);
+      g2.setStroke(stroke);
+      g2.draw(shape.squares());
+      g2.translate(-shapeX, -shapeY);
+    });
     // info
     var fontSize = (int) (squareSide * 0.1);
-    var font = new Font("", Font.BOLD, (int) (squareSide * 0.1));
+    var font = TextCache.font("", Font.BOLD, fontSize);
+    var price = "Price " + patch.price();
+    var moves = "Moves " + patch.moves();
+    var buttons = patch.buttons() > 0 ? "Buttons " + patch.buttons() : "";
+    var textX = x + boxSide + squareSide;
+    var textY = y + squareSide / 2;
     ui.addDrawingAction(g2 -> {
-      g2.setFont(font);
-      g2.drawString("Price "+ patch.price(), x + quiltSide+ squareSide, y + squareSide / 2);
-      g2.drawString("Moves "+ patch.moves(), x + quiltSide+ squareSide, y + squareSide / 2 + fontSize);
-      g2.drawString((patch.buttons() > 0? "\nButtons " + patch.buttons() : "")
-          , x + quiltSide+ squareSide,
-          y + squareSide / 2 + fontSize * 2);
+      g2.setColor(textColor);
+      TextCache.drawString(g2, price, font, textX, textY);
+      TextCache.drawString(g2, moves, font, textX, textY + fontSize);
+      TextCache.drawString(g2, buttons, font, textX, textY + fontSize * 2);
     });
     if(toEnhance == patch) { // we compare pointers here
       var rect = new Rectangle2D.Double(x ,  y + squareSide / 4, squareSide / 4, squareSide / 6);
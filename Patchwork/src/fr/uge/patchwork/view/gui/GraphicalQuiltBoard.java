@@ -4,6 +4,7 @@ import java.awt.BasicStroke;
 import java.awt.Color;
 import java.awt.Font;
 import java.awt.Shape;
+import java.awt.geom.Area;
 import java.awt.geom.Rectangle2D;
 import java.util.HashSet;
 import java.util.LinkedList;
@@ -14,6 +15,7 @@ import fr.uge.patchwork.controller.KeybindedChoice;
 import fr.uge.patchwork.model.component.QuiltBoard;
 import fr.uge.patchwork.model.component.patch.Coordinates;
 import fr.uge.patchwork.model.component.patch.Patch;
+import fr.uge.patchwork.model.hint.HintService;
 
 /**
  * 
@@ -27,7 +29,12 @@ public class GraphicalQuiltBoard {
   private final Coordinates origin;
   private final int width;
   private final Color bgColor = new Color(140, 85, 52);
-  private final double squareSide; // side of a square
+  private final int squareSide; // side of a square, in pixels
+  private final BasicStroke stroke = new BasicStroke(2.0f);
+  private final BasicStroke hintStroke = new BasicStroke(3.0f, BasicStroke.CAP_BUTT, BasicStroke.JOIN_MITER,
+      10.0f, new float[] { 8.0f, 6.0f }, 0.0f);
+  private final Color hintColor = new Color(24, 120, 48);
+  private final Color hintFill = new Color(60, 200, 90, 90);
   private Set<KeybindedChoice> infos = new HashSet<KeybindedChoice>();
   
   public GraphicalQuiltBoard(QuiltBoard board, int x, int y, int width) {
@@ -59,20 +66,76 @@ public class GraphicalQuiltBoard {
    * @param ui a graphical user interface
    */
   public void drawWithPatchAsDummy(GraphicalUserInterface ui, Patch patch) {
+    var shape = PatchShapeCache.shape(patch.form(), squareSide);
+    var x = origin.x() + patch.absoluteOrigin().x() * squareSide;
+    var y = origin.y() + patch.absoluteOrigin().y() * squareSide;
+    var color = new Color(patch.hashCode());
+    // only the overlapping squares are drawn one by one
+    var overlapping = new LinkedList<Shape>();
+    for(var coord: patch.absoluteCoordinates()) {
+      if(board.occupied(coord)) {
+        overlapping.add(new Rectangle2D.Double(origin.x() + coord.x() * squareSide, 
+            origin.y() + coord.y() * squareSide, squareSide, squareSide));
+      }
+    }
     ui.addDrawingAction(g2 -> {
-      for(var coord: patch.absoluteCoordinates()) {
-        g2.setColor(new Color(patch.hashCode()));
-        if(board.occupied(coord)) {
-          g2.setColor(Color.RED);
+      g2.translate(x, y);
+      g2.setColor(color);
+      g2.fill(shape.outline());
+      g2.translate(-x, -y);
+      g2.setColor(Color.RED);
+      overlapping.forEach(g2::fill);
+      g2.translate(x, y);
+      g2.setColor(Color.BLACK);
+      g2.setStroke(stroke);
+      g2.draw(shape.squares());
+      g2.translate(-x, -y);
+    });
+  }
+  
+  /**
+   * Draw the hints of the manipulated patch: the outline of each place,
+   * the best one filled, with its rank in the corner
+   * @param ui a graphical user interface
+   * @param hints
+   */
+  public void drawHints(GraphicalUserInterface ui, HintService.Hints hints) {
+    var placements = hints.placements();
+    var font = TextCache.font("", Font.BOLD, (int) (squareSide * 0.4));
+    for(var rank = placements.size() - 1; rank >= 0; rank--) {
+      var placement = placements.get(rank);
+      var cells = new Area();
+      for(var y = 0; y < placement.shape().height(); y++) {
+        for(var x = 0; x < placement.shape().width(); x++) {
+          if(placement.covers(placement.y() + y, placement.x() + x)) {
+            cells.add(new Area(new Rectangle2D.Double(origin.x() + (placement.x() + x) * squareSide,
+                origin.y() + (placement.y() + y) * squareSide, squareSide, squareSide)));
+          }
         }
-        var rect = new Rectangle2D.Double(origin.x() + coord.x() * squareSide, 
-            origin.y() + coord.y() * squareSide, squareSide, squareSide);
-        g2.fill(rect);
-        g2.setColor(Color.BLACK);
-        g2.setStroke(new BasicStroke(2.0f));
-        g2.draw(rect);
       }
-    });
+      var best = rank == 0;
+      var label = Integer.toString(rank + 1);
+      var labelX = (float) (origin.x() + placement.x() * squareSide + squareSide * 0.1);
+      var labelY = (float) (origin.y() + placement.y() * squareSide + squareSide * 0.5);
+      ui.addDrawingAction(g2 -> {
+        if(best) {
+          g2.setColor(hintFill);
+          g2.fill(cells);
+        }
+        g2.setColor(hintColor);
+        g2.setStroke(hintStroke);
+        g2.draw(cells);
+        TextCache.drawString(g2, label, font, labelX, labelY);
+      });
+    }
+    var status = hints.complete() ? placements.isEmpty() ? "The patch fits nowhere" : "" : "Searching hints...";
+    if(!status.isEmpty()) {
+      var statusFont = TextCache.font("", Font.BOLD, (int) (squareSide * 0.3));
+      ui.addDrawingAction(g2 -> {
+        g2.setColor(Color.BLACK);
+        TextCache.drawString(g2, status, statusFont, origin.x(), origin.y() + width + 30);
+      });
+    }
   }
   
   /**
@@ -80,17 +143,18 @@ public class GraphicalQuiltBoard {
    * @param ui a graphical user interface
    */
   public void drawPatch(GraphicalUserInterface ui, Patch patch) {
-    var squares = new LinkedList<Shape>();
-    for(var coord: patch.absoluteCoordinates()) {
-      squares.add(new Rectangle2D.Double(origin.x() + coord.x() * squareSide, 
-          origin.y() + coord.y() * squareSide, squareSide, squareSide));
-    }
+    var shape = PatchShapeCache.shape(patch.form(), squareSide);
+    var x = origin.x() + patch.absoluteOrigin().x() * squareSide;
+    var y = origin.y() + patch.absoluteOrigin().y() * squareSide;
+    var color = new Color(patch.hashCode());
     ui.addDrawingAction(g2 -> {
-      g2.setColor(new Color(patch.hashCode()));
-      squares.forEach(g2::fill);
+      g2.translate(x, y);
+      g2.setColor(color);
+      g2.fill(shape.outline());
       g2.setColor(Color.BLACK);
-      g2.setStroke(new BasicStroke(2.0f));
-      squares.forEach(g2::draw);
+      g2.setStroke(stroke);
+      g2.draw(shape.squares());
+      g2.translate(-x, -y);
     });
   }
   
@@ -107,13 +171,11 @@ public class GraphicalQuiltBoard {
   }
   
   private void drawInfo(GraphicalUserInterface ui) {
-    var fontSize = (int) (squareSide * 0.3);
-    var font = new Font("", Font.BOLD, fontSize);
+    var font = TextCache.font("", Font.BOLD, (int) (squareSide * 0.3));
+    var txt = "Buttons : " + board.buttons();
     ui.addDrawingAction(g2 -> {
-      g2.setFont(font);
-      var txt = "Buttons : " + board.buttons();
-      var txtWidth = g2.getFontMetrics().stringWidth(txt);
-      g2.drawString(txt, origin.x() + width - txtWidth, origin.y() + width + 20);
+      var txtWidth = TextCache.width(g2, txt, font);
+      TextCache.drawString(g2, txt, font, origin.x() + width - txtWidth, origin.y() + width + 20);
     });
     
   }
@@ -129,6 +191,7 @@ public class GraphicalQuiltBoard {
     infos.add(new KeybindedChoice('a', "rotate right"));
     infos.add(new KeybindedChoice('f', "flip"));
     infos.add(new KeybindedChoice('b', "back"));
+    infos.add(new KeybindedChoice('h', "hints"));
   }
   
   public Set<KeybindedChoice> infos(){
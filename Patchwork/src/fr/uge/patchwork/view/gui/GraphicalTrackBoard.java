@@ -90,14 +90,15 @@ public class GraphicalTrackBoard {
     var tokenHeight = squareSide * 0.3;
     var bottomSide = new Ellipse2D.Double(x, y + tokenHeight, tokenWidth, tokenHeight);
     var topSide = new Ellipse2D.Double(x, y + tokenHeight - 5, tokenWidth, tokenHeight);
+    var specialTileFont = TextCache.font("Arial", Font.BOLD, (int) squareSide / 2);
+    var nameFont = TextCache.font("Arial", Font.BOLD, 15);
     ui.addDrawingAction(g2 -> {
       if(player.isAutonomous()) {
         var automa = (Automa) player;
         if(!automa.specialTile()) {
           var specialPatchPos = posToPoint(board.spaces() - automa.difficulty().spaces() + offset);
           g2.setColor(new Color(160, 84, 51));
-          g2.setFont(new Font("Arial", Font.BOLD, (int) squareSide / 2));
-          g2.drawString("S", (int) (specialPatchPos.x + squareSide / 2)
+          TextCache.drawString(g2, "S", specialTileFont, (int) (specialPatchPos.x + squareSide / 2)
               , (int) (specialPatchPos.y + squareSide / 2));
         } 
       }
@@ -112,8 +113,7 @@ public class GraphicalTrackBoard {
       g2.setColor(Color.BLACK);
       g2.drawOval((int) x, (int) (y + tokenHeight - 5), (int) tokenWidth, (int) tokenHeight);
       // name
-      g2.setFont(new Font("Arial", Font.BOLD, 15));
-      g2.drawString(player.name(), (int) (x + 2), (int) (y + squareSide / 2));
+      TextCache.drawString(g2, player.name(), nameFont, (int) (x + 2), (int) (y + squareSide / 2));
       
     });
   }
@@ -17,6 +17,7 @@ import java.util.Locale;
 import java.util.Objects;
 import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.TimeUnit;
 import java.util.function.Consumer;
 
 import fr.uge.patchwork.controller.KeybindedChoice;
@@ -27,10 +28,16 @@ import fr.uge.patchwork.model.component.patch.RegularPatch;
 import fr.uge.patchwork.model.component.player.HumanPlayer;
 import fr.uge.patchwork.model.component.player.Player;
 import fr.uge.patchwork.model.component.player.automa.Automa;
+import fr.uge.patchwork.model.endgame.Completion;
+import fr.uge.patchwork.model.hint.HintService;
+import fr.uge.patchwork.monitoring.FrameRenderEvent;
+import fr.uge.patchwork.monitoring.Histogram;
+import fr.uge.patchwork.monitoring.MetricsRegistry;
 import fr.uge.patchwork.view.UserInterface;
+import fr.uge.patchwork.view.input.InputQueue;
 import fr.umlv.zen5.ApplicationContext;
-import fr.umlv.zen5.Event;
 import fr.umlv.zen5.Event.Action;
+import fr.umlv.zen5.KeyboardKey;
 
 /**
  * 
@@ -45,21 +52,69 @@ public class GraphicalUserInterface implements UserInterface {
   private final int fps = 20;
   private final Color backgroundColor = new Color(201, 153, 68);
   private final Color buttonColor = new Color(47, 115, 138);
+  private final Color automaColor = new Color(184, 113, 37);
+  private final Color tacticalCardColor = new Color(149, 65, 19);
+  private final Color tacticalButtonsColor = new Color(227, 201, 21);
+  private final Color selectedChoiceColor = new Color(193, 86, 78);
+  private final Color splashColor = new Color(104, 107, 107);
+  private final Color winnerColor = new Color(134, 123, 189);
+  private final BasicStroke cardStroke = new BasicStroke(5.0f);
   
+  private static final Histogram FRAMES = MetricsRegistry.global().histogram("gui.frame");
   private final LinkedList<Consumer<Graphics2D>> drawingActions = new LinkedList<>();
+  // the window only, as the queue registers its gauges, null offscreen
+  private final InputQueue input;
+  // toggled with the O key, null offscreen
+  private final PerformanceOverlay overlay;
   private KeybindedChoice choice;
   private RegularPatch selectedPatch;
   
   private long time;
   
   public GraphicalUserInterface(ApplicationContext context) {
-    this.context = Objects.requireNonNull(context);
-    var screenInfo = context.getScreenInfo();
-    this.width = screenInfo.getWidth();
-    this.height = screenInfo.getHeight();
+    this(Objects.requireNonNull(context), context.getScreenInfo().getWidth(), 
+        context.getScreenInfo().getHeight());
+  }
+  
+  private GraphicalUserInterface(ApplicationContext context, float width, float height) {
+    this.context = context;
+    this.width = width;
+    this.height = height;
+    input = context == null ? null : new InputQueue("gui-input", 64);
+    overlay = context == null ? null : new PerformanceOverlay();
     time = Instant.now().toEpochMilli();
   }
   
+  /**
+   * Create an interface without window, only able to draw.
+   * The drawing actions are executed with {@link #render(Graphics2D)}
+   * on any graphics, e.g. the one of an image. It has no input queue
+   * nor performance overlay, so it registers no metrics.
+   * @param width
+   * @param height
+   * @return the interface
+   */
+  public static GraphicalUserInterface offscreen(int width, int height) {
+    if(width < 1 || height < 1) {
+      throw new IllegalArgumentException("The interface must be at least 1x1");
+    }
+    return new GraphicalUserInterface(null, width, height);
+  }
+  
+  private ApplicationContext context() {
+    if(context == null) {
+      throw new IllegalStateException("An offscreen interface has no window");
+    }
+    return context;
+  }
+  
+  private InputQueue input() {
+    if(input == null) {
+      throw new IllegalStateException("An offscreen interface has no input");
+    }
+    return input;
+  }
+  
   /**
    * Add a drawing action that will be executed 
    * at the next displayed frame
@@ -75,6 +130,22 @@ public class GraphicalUserInterface implements UserInterface {
    */
   @Override
   public void init() throws IOException {
+    var context = context();
+    input().start(() -> {
+      for(;;) {
+        if(Thread.interrupted()) {
+          throw new InterruptedException();
+        }
+        var event = context.pollOrWaitEvent(100);
+        if(event != null && event.getAction() == Action.KEY_PRESSED) {
+          if(event.getKey() == KeyboardKey.O) {
+            overlay.toggle();
+            continue;
+          }
+          return event.getKey().toString();
+        }
+      }
+    });
     drawingActions.add(graphics -> {
       graphics.setColor(Color.ORANGE);
       graphics.fill(new  Rectangle2D.Float(0, 0, 500, 500));
@@ -91,7 +162,22 @@ public class GraphicalUserInterface implements UserInterface {
     var currentTime = Instant.now().toEpochMilli();
     // cap the refresh rate
     if(currentTime - time > 1000 / fps) {
+      var context = context();
+      var start = System.nanoTime();
+      var event = new FrameRenderEvent();
+      event.begin();
+      overlay.beginFrame(drawingActions.size());
       drawingActions.forEach(context::renderFrame);
+      overlay.endFrame();
+      if(overlay.visible()) {
+        context.renderFrame(overlay::draw);
+      }
+      FRAMES.recordSince(start);
+      if(event.shouldCommit()) {
+        event.actions = drawingActions.size();
+        event.overlay = overlay.visible();
+        event.commit();
+      }
       time = Instant.now().toEpochMilli();
     }
   }
@@ -111,7 +197,24 @@ public class GraphicalUserInterface implements UserInterface {
 
   @Override
   public void close() {
-    context.exit(0);
+    if(context != null) {
+      input.stop();
+      context.exit(0);
+    }
+  }
+  
+  @Override
+  public InputQueue.Statistics inputStatistics() {
+    return input().statistics();
+  }
+  
+  /**
+   * Run all the drawing actions on a given graphics
+   * @param graphics
+   */
+  public void render(Graphics2D graphics) {
+    Objects.requireNonNull(graphics, "the graphics can't be null");
+    drawingActions.forEach(action -> action.accept(graphics));
   }
   
   /**
@@ -136,10 +239,8 @@ public class GraphicalUserInterface implements UserInterface {
     Objects.requireNonNull(title);
     Objects.requireNonNull(choices, "the choies can't be null");
     var choiceList = List.copyOf(choices);
-    addDrawingAction(g2 -> {
-      g2.setFont(new Font("", Font.BOLD, 80));
-     g2.drawString(title, width / 2, height /2); 
-    });
+    var font = TextCache.font("", Font.BOLD, 80);
+    addDrawingAction(g2 -> TextCache.drawString(g2, title, font, width / 2, height / 2));
     renderChoices(choiceList, 
         width / 2 - 400, 
         height / 2 - (choices.size() * 95) / 2, 
@@ -167,25 +268,29 @@ public class GraphicalUserInterface implements UserInterface {
    * @param fontSize
    */
   private void drawPlayerInfo(Player player, int x, int y, int fontSize) {
+    var font = TextCache.font("", Font.BOLD, fontSize);
+    var name = player.name();
+    var buttons = player.buttons() + " buttons";
     addDrawingAction(g2 -> {
-      g2.setFont(new Font("", Font.BOLD, fontSize));
-      g2.drawString(player.name(), x,y );
+      TextCache.drawString(g2, name, font, x, y);
       g2.setColor(buttonColor);
-      g2.drawString(player.buttons() + " buttons", (int) x, (int) y + fontSize);
-      if(player.isAutonomous()) {
-        var automa = (Automa) player;
-        g2.setColor(new Color(184, 113, 37));
-        g2.drawString("" + automa.difficulty(), (int) x, (int) y + fontSize * 2);
-        if(automa.patches().size() != 0) {
-          g2.setColor(Color.BLACK);
-          g2.drawString("" + automa.patches().size() 
-              + " patch"+ (automa.patches().size() > 1 ? "es" : "")  +" totalling " 
-              + automa.buttonsOnPatches()
-              + " button" + (automa.buttonsOnPatches() > 1 ? "s" : "")
-              , (int) x, (int) y + fontSize * 3);
-        } 
-      }
+      TextCache.drawString(g2, buttons, font, x, y + fontSize);
     });
+    if(player.isAutonomous()) {
+      var automa = (Automa) player;
+      var difficulty = automa.difficulty().toString();
+      var patches = automa.patches().size() == 0 ? "" 
+          : automa.patches().size() 
+            + " patch"+ (automa.patches().size() > 1 ? "es" : "")  +" totalling " 
+            + automa.buttonsOnPatches()
+            + " button" + (automa.buttonsOnPatches() > 1 ? "s" : "");
+      addDrawingAction(g2 -> {
+        g2.setColor(automaColor);
+        TextCache.drawString(g2, difficulty, font, x, y + fontSize * 2);
+        g2.setColor(Color.BLACK);
+        TextCache.drawString(g2, patches, font, x, y + fontSize * 3);
+      });
+    }
   }
   
   private void draw(HumanPlayer player, int x, int y, int w) {
@@ -196,23 +301,23 @@ public class GraphicalUserInterface implements UserInterface {
   private void draw(Automa automa, int x, int y, int w) {
     var card = automa.card();
     if(card.tactical()) {
+      var fontSize = (int) (((w * 0.75) / 4 ) * 0.5);
+      var font = TextCache.font("", Font.BOLD, fontSize);
+      var txtBtn = "" + card.virtualButtons();
       addDrawingAction(g2 -> {
         // brown back
-        g2.setColor(new Color(149, 65, 19));
+        g2.setColor(tacticalCardColor);
         g2.fillRect(x + w / 4, y, w / 2, (int) (w * 0.75));
         // yellow rect
-        g2.setColor(new Color(227, 201, 21));
+        g2.setColor(tacticalButtonsColor);
         g2.fillRect(x + w / 4, y, w / 2, (int) ((w * 0.75) / 4 ));
         g2.setColor(buttonColor);
-        var fontSize = (int) (((w * 0.75) / 4 ) * 0.5);
-        g2.setFont(new Font("", Font.BOLD, fontSize));
-        var txtBtn = "" + card.virtualButtons();
-        var txtw = g2.getFontMetrics().stringWidth(txtBtn);
-        g2.drawString(txtBtn, x + (w / 2) - txtw / 2
+        var txtw = TextCache.width(g2, txtBtn, font);
+        TextCache.drawString(g2, txtBtn, font, x + (w / 2) - txtw / 2
             , (int) (y + ((w * 0.75) / 4 ) / 2) + fontSize / 2);
         // white border
         g2.setColor(Color.WHITE);
-        g2.setStroke(new BasicStroke(5.0f));
+        g2.setStroke(cardStroke);
         g2.drawRect(x + w / 4, y, w / 2, (int) (w * 0.75));
       });
     }
@@ -314,8 +419,10 @@ public class GraphicalUserInterface implements UserInterface {
    * with a given restricted list of patches used as available choices
    * and a patch manager
    */
-  public Optional<RegularPatch> selectPatch(List<RegularPatch> patches, PatchManager manager) {
+  public Optional<RegularPatch> selectPatch(List<RegularPatch> patches, Set<RegularPatch> selectable,
+      PatchManager manager) {
     Objects.requireNonNull(patches, "the list of choices can't be null");
+    Objects.requireNonNull(selectable, "the selectable patches can't be null");
     Objects.requireNonNull(manager, "the list of choices can't be null");
     var i = 0;
     if(selectedPatch != null) {
@@ -323,20 +430,20 @@ public class GraphicalUserInterface implements UserInterface {
     }
     var gmanager = new GraphicalPatchManager(manager, 9, 0, (int) 20, (int) (width / 7), (int) (height - (height/10)*2));
     gmanager.enhance(patches.get(i));
+    gmanager.greyOut(patches.stream().filter(p -> !selectable.contains(p)).toList());
     gmanager.draw(this);
-    Event event = context.pollOrWaitEvent(10);
-    if(event != null) {
-      Action action = event.getAction();
-      if (action == Action.KEY_PRESSED) {
-        var keyname = event.getKey().toString();
-          switch(keyname) {
-            case "UP" -> selectedPatch = patches.get(Integer.min(patches.size() - 1, i + 1));
-            case "DOWN" -> selectedPatch = patches.get(Integer.max(i - 1, 0));
-            case "SPACE" -> {
-              choice = null;
-              return Optional.of(patches.get(i));
-            }
+    var event = input().poll(10, TimeUnit.MILLISECONDS);
+    if(event.isPresent()) {
+      var keyname = event.get().value();
+      switch(keyname) {
+        case "UP" -> selectedPatch = patches.get(Integer.min(patches.size() - 1, i + 1));
+        case "DOWN" -> selectedPatch = patches.get(Integer.max(i - 1, 0));
+        case "SPACE" -> {
+          if(selectable.contains(patches.get(i))) {
+            choice = null;
+            return Optional.of(patches.get(i));
           }
+        }
       }
     }
     return Optional.empty();
@@ -355,8 +462,8 @@ public class GraphicalUserInterface implements UserInterface {
   public void renderChoices(List<KeybindedChoice> choices, double posx, double posy, 
       double w, double h,  int margin, int fontsize) {
     Objects.requireNonNull(choices);
+    var font = TextCache.font("Arial", Font.TRUETYPE_FONT, fontsize);
     Consumer<Graphics2D> runnable = graphics -> {
-      graphics.setFont(new Font("Arial", Font.TRUETYPE_FONT, fontsize));
       var x = posx;
       var y = posy;
       Color color;
@@ -369,13 +476,13 @@ public class GraphicalUserInterface implements UserInterface {
         color = Color.BLACK;
         if(j == i) {
           // enhance choice 
-          color = new Color(193, 86, 78);
+          color = selectedChoiceColor;
           graphics.setColor(color);
           graphics.fill(new Rectangle2D.Double(x - margin, y + 4, 8, fontsize));
         }
         graphics.setColor(color);
         // print description
-        graphics.drawString(choices.get(j).description(), (int) x , (int) y + fontsize);
+        TextCache.drawString(graphics, choices.get(j).description(), font, (int) x , (int) y + fontsize);
         y += 70 + margin;
       }
     };
@@ -394,47 +501,76 @@ public class GraphicalUserInterface implements UserInterface {
     if(choice != null) {
       i = choices.indexOf(choice);
     }
-    Event event = context.pollOrWaitEvent(10);
-    if(event != null) {
-      Action action = event.getAction();
-      if (action == Action.KEY_PRESSED) {
-        var keyname = event.getKey().toString();
-          switch(keyname) {
-            case "UP" -> choice = choices.get(Integer.max(0, i - 1));
-            case "DOWN" -> choice = choices.get(Integer.min(i + 1, choices.size() - 1));
-            case "SPACE" -> {
-              choice = null;
-              return Optional.of(choices.get(i));
-            }
-          }
+    var event = input().poll(10, TimeUnit.MILLISECONDS);
+    if(event.isPresent()) {
+      var keyname = event.get().value();
+      switch(keyname) {
+        case "UP" -> choice = choices.get(Integer.max(0, i - 1));
+        case "DOWN" -> choice = choices.get(Integer.min(i + 1, choices.size() - 1));
+        case "SPACE" -> {
+          choice = null;
+          return Optional.of(choices.get(i));
+        }
       }
     }
     return Optional.empty();
   }
   
-  @Override
-  public void drawDummyQuilt(HumanPlayer player, Patch patch) {
+  /**
+   * The quilt of a player at the center of the window,
+   * where a patch is manipulated
+   */
+  private GraphicalQuiltBoard dummyQuilt(HumanPlayer player) {
     var quiltSide = height / 2;
     var x = (int) ((width / 2) - quiltSide / 2);
     var y = (int) ((height / 2) - quiltSide / 2);
-    var quilt = new GraphicalQuiltBoard(player.quilt()
-        , x
-        , y
-        , (int) quiltSide);
+    return new GraphicalQuiltBoard(player.quilt(), x, y, (int) quiltSide);
+  }
+  
+  @Override
+  public void drawDummyQuilt(HumanPlayer player, Patch patch) {
+    var quilt = dummyQuilt(player);
     quilt.draw(this);
     quilt.drawWithPatchAsDummy(this, patch);
     var fontSize = 35;
-    drawPlayerInfo(player, (int) x, (int) y - fontSize * 2, fontSize);
+    drawPlayerInfo(player, quilt.coords().x(), quilt.coords().y() - fontSize * 2, fontSize);
     drawOptions(this, quilt);
 
   }
   
+  @Override
+  public void drawHints(HumanPlayer player, HintService.Hints hints) {
+    Objects.requireNonNull(player, "The player can't be null");
+    Objects.requireNonNull(hints, "The hints can't be null");
+    dummyQuilt(player).drawHints(this, hints);
+  }
+  
+  @Override
+  public void drawCompletion(HumanPlayer player, Completion completion) {
+    Objects.requireNonNull(player, "The player can't be null");
+    Objects.requireNonNull(completion, "The completion can't be null");
+    var text = switch(completion.outcome()) {
+      case TILEABLE -> "Perfect finish possible for " + (completion.optimal() ? "" : "at most ")
+          + completion.cost() + " buttons";
+      case IMPOSSIBLE -> "No perfect finish with the patches left";
+      case UNKNOWN -> "Perfect finish unknown";
+    };
+    var font = TextCache.font("", Font.BOLD, 25);
+    var x = (int) width / 4;
+    var y = (int) height / 4 + 640;
+    addDrawingAction(g2 -> {
+      g2.setColor(completion.isPerfectFinish() ? buttonColor : Color.BLACK);
+      TextCache.drawString(g2, text, font, x, y);
+    });
+  }
+  
   private void drawOption(GraphicalUserInterface ui, KeybindedChoice info, int x, int y) {
+    var font = TextCache.font("Arial", Font.BOLD, 30);
+    var txt = info.toString();
   	ui.addDrawingAction(g2 -> {
-			var stringRect = g2.getFontMetrics().getStringBounds(info.toString(), g2);
 	    g2.setColor(Color.BLACK);
-	    g2.setFont(new Font("Arial", Font.BOLD, 30));
-	    g2.drawString(info.toString(), x - (int) stringRect.getCenterX(), y + (int) stringRect.getCenterY());
+	    TextCache.drawString(g2, txt, font, x - TextCache.width(g2, txt, font) / 2, 
+	        y - TextCache.height(g2, txt, font) / 2);
   	}); 
   }
   
@@ -449,10 +585,10 @@ public class GraphicalUserInterface implements UserInterface {
   }
   
   public void drawSplashScreen(int x, int y, int fontsize) {
+    var font = TextCache.font("Arial", Font.BOLD, fontsize);
     addDrawingAction(g2 -> {
-      g2.setColor(new Color(104, 107, 107));
-      g2.setFont(new Font("Arial", Font.BOLD, fontsize));
-      g2.drawString("Patchwork", x, y);
+      g2.setColor(splashColor);
+      TextCache.drawString(g2, "Patchwork", font, x, y);
     });
   }
 
@@ -460,22 +596,20 @@ public class GraphicalUserInterface implements UserInterface {
   public void drawScoreBoard(TrackBoard trackBoard) {
     Objects.requireNonNull(trackBoard, "the track board can't be null");
     var sortedPlayers = trackBoard.players().stream().sorted(reverseOrder()).toList();
+    var scores = sortedPlayers.stream().map(p -> p.name() + " " + p.score()).toList();
+    var winner = sortedPlayers.get(0).name() + " Wins !";
+    var fontSize =  (int) (height * 0.04);
+    var font = TextCache.font("", Font.CENTER_BASELINE, fontSize);
     addDrawingAction(g2 -> {
       var x = width / 2;
       var y = height / 6;
       var margin = 10;
-      var fontSize =  (int) (height * 0.04);
-      g2.setFont(new Font("", Font.CENTER_BASELINE, fontSize));
-      var fontMetrics = g2.getFontMetrics();
-      for(var player: sortedPlayers) {
-        var txt = player.name() + " " + player.score();
-        var txtWidth = fontMetrics.stringWidth(txt);
-        g2.drawString(txt, x - txtWidth / 2, y);
+      for(var txt: scores) {
+        TextCache.drawString(g2, txt, font, x - TextCache.width(g2, txt, font) / 2, y);
         y += fontSize + margin;
       }
-      g2.setColor(new Color(134, 123, 189));
-      var txt = sortedPlayers.get(0).name() + " Wins !";
-      g2.drawString(txt, x - (fontMetrics.stringWidth(txt) / 2), y + fontSize + margin);
+      g2.setColor(winnerColor);
+      TextCache.drawString(g2, winner, font, x - TextCache.width(g2, winner, font) / 2, y + fontSize + margin);
     });
   }
 
@@ -499,15 +633,12 @@ public class GraphicalUserInterface implements UserInterface {
   @Override
   public Optional<KeybindedChoice> getInput(Set<KeybindedChoice> choices) {
     Objects.requireNonNull(choices);
-    Event event = context.pollOrWaitEvent(10);
-    if(event != null) {
-      Action action = event.getAction();
-      if (action == Action.KEY_PRESSED) {
-        var keyname = event.getKey().toString();
-        if(keyname.length() == 1) {
-          var key = keyname.toLowerCase(Locale.ROOT).charAt(0);
-          return choices.stream().filter(c -> c.key() == key).findFirst();
-        }
+    var event = input().poll(10, TimeUnit.MILLISECONDS);
+    if(event.isPresent()) {
+      var keyname = event.get().value();
+      if(keyname.length() == 1) {
+        var key = keyname.toLowerCase(Locale.ROOT).charAt(0);
+        return choices.stream().filter(c -> c.key() == key).findFirst();
       }
     }
     return Optional.empty();
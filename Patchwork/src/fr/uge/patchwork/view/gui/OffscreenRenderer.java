@@ -0,0 +1,173 @@
+package fr.uge.patchwork.view.gui;
+
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.function.IntFunction;
+
+import javax.imageio.ImageIO;
+
+import fr.uge.patchwork.model.Game;
+import fr.uge.patchwork.model.archive.GameRecord;
+import fr.uge.patchwork.model.archive.GameReplayer;
+
+/**
+ *
+ * Render game positions into images, without any window.
+ *
+ * <p>
+ * The drawing code of the graphical interface is reused on the
+ * graphics of an image, so a position looks exactly as in the game.
+ * The renderer has no state, it can be used by several threads.
+ *
+ */
+public final class OffscreenRenderer {
+
+  private final int width;
+  private final int height;
+
+  /**
+   * @param width of the images
+   * @param height of the images
+   */
+  public OffscreenRenderer(int width, int height) {
+    if(width < 1 || height < 1) {
+      throw new IllegalArgumentException("The images must be at least 1x1");
+    }
+    this.width = width;
+    this.height = height;
+  }
+
+  /**
+   * Render a game position: the track board, the players
+   * and the patch manager
+   * @param game
+   * @return the image
+   */
+  public BufferedImage render(Game game) {
+    Objects.requireNonNull(game, "The game can't be null");
+    var ui = GraphicalUserInterface.offscreen(width, height);
+    ui.clear();
+    ui.draw(game.trackBoard());
+    ui.draw(game.patchManager());
+    var image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+    var graphics = image.createGraphics();
+    try {
+      graphics.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+      ui.render(graphics);
+    } finally {
+      graphics.dispose();
+    }
+    return image;
+  }
+
+  /**
+   * Render a game position into a png file
+   * @param game
+   * @param path of the file
+   * @throws IOException if the file can't be written
+   */
+  public void export(Game game, Path path) throws IOException {
+    Objects.requireNonNull(path, "The path can't be null");
+    if(!ImageIO.write(render(game), "png", path.toFile())) {
+      throw new IOException("No writer for png images");
+    }
+  }
+
+  /**
+   * Render a sequence of positions into png files, frame-00000.png, frame-00001.png...
+   * in a given directory, using a pool of workers.
+   * <p>
+   * Each worker builds its own position with the given function,
+   * the positions must not share mutable data.
+   *
+   * @param frames number of frames
+   * @param positions build the game position of a frame index
+   * @param directory where to write the frames, created if needed
+   * @param threads number of workers
+   * @return the paths of the frames, in order
+   * @throws IOException if a frame can't be written
+   */
+  public List<Path> exportAll(int frames, IntFunction<Game> positions, Path directory, int threads)
+      throws IOException {
+    Objects.requireNonNull(positions, "The positions can't be null");
+    Objects.requireNonNull(directory, "The directory can't be null");
+    if(frames < 0) {
+      throw new IllegalArgumentException("The number of frames can't be negative");
+    }
+    if(threads < 1) {
+      throw new IllegalArgumentException("There must be at least one worker");
+    }
+    Files.createDirectories(directory);
+    var tasks = new ArrayList<Callable<Path>>();
+    for(var i = 0; i < frames; i++) {
+      var frame = i;
+      tasks.add(() -> {
+        var path = directory.resolve(String.format("frame-%05d.png", frame));
+        export(positions.apply(frame), path);
+        return path;
+      });
+    }
+    var executor = Executors.newFixedThreadPool(threads);
+    try {
+      var paths = new ArrayList<Path>();
+      for(var future: executor.invokeAll(tasks)) {
+        paths.add(future.get());
+      }
+      return paths;
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IOException("Interrupted while rendering", e);
+    } catch (ExecutionException e) {
+      if(e.getCause() instanceof IOException cause) {
+        throw cause;
+      }
+      if(e.getCause() instanceof UncheckedIOException cause) {
+        throw cause.getCause();
+      }
+      throw new IllegalStateException(e.getCause());
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  /**
+   * Render a recorded game move by move into png files, as {@link #exportAll}:
+   * the frame n is the position after n moves, Automa included,
+   * from the first position to the last one.
+   * <p>
+   * Each frame replays the record from the start on its own game,
+   * so the workers share nothing.
+   *
+   * @param record the game to render
+   * @param directory where to write the frames, created if needed
+   * @param threads number of workers
+   * @return the paths of the frames, in order
+   * @throws IOException if the record can't be replayed or a frame can't be written
+   * @throws IllegalArgumentException if the object model has no game with the sides of the record
+   */
+  public List<Path> exportRecord(GameRecord record, Path directory, int threads) throws IOException {
+    Objects.requireNonNull(record, "The record can't be null");
+    var replayer = new GameReplayer(record);
+    while(replayer.hasNext()) {
+      replayer.next();
+    }
+    return exportAll(replayer.ply() + 1, ply -> {
+      try {
+        return GameReplayer.replay(record, ply);
+      } catch (IOException e) {
+        throw new UncheckedIOException(e);
+      }
+    }, directory, threads);
+  }
+
+}
@@ -0,0 +1,145 @@
+package fr.uge.patchwork.view.gui;
+
+import java.awt.Rectangle;
+import java.awt.Shape;
+import java.awt.geom.AffineTransform;
+import java.awt.geom.Area;
+import java.awt.geom.Path2D;
+import java.awt.geom.PathIterator;
+import java.awt.geom.Point2D;
+import java.awt.geom.Rectangle2D;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+
+import fr.uge.patchwork.model.component.patch.Form;
+
+/**
+ *
+ * Cache of the graphical shapes of the patches.
+ *
+ * <p>
+ * The shape of a patch only depends on its form (which carries
+ * the orientation) and on the side of a square, in pixels.
+ * It is computed once, relative to the relative origin of the form,
+ * and then only translated where the patch has to be drawn.
+ * There are a few sides by size of window, so a few shapes by form.
+ *
+ */
+public final class PatchShapeCache {
+
+  private static final ConcurrentHashMap<Key, PatchShape> SHAPES = new ConcurrentHashMap<>();
+
+  private record Key(Form form, int squareSide) {}
+
+  /**
+   * The cached shape of a patch, the shapes can't be modified
+   *
+   * @param outline the squares of the patch merged in one outline, filled to draw the patch
+   * @param squares all the squares of the patch, stroked to draw the border of each square
+   */
+  public record PatchShape(Shape outline, Shape squares) {
+
+    /**
+     * @return a new bounding box of the patch
+     */
+    public Rectangle2D bounds() {
+      return outline.getBounds2D();
+    }
+  }
+
+  // a shape that can't be modified, it only reads its path
+  private static final class FixedShape implements Shape {
+    private final Path2D path;
+
+    private FixedShape(Path2D path) {
+      this.path = path;
+    }
+
+    @Override
+    public Rectangle getBounds() {
+      return path.getBounds();
+    }
+
+    @Override
+    public Rectangle2D getBounds2D() {
+      return path.getBounds2D();
+    }
+
+    @Override
+    public boolean contains(double x, double y) {
+      return path.contains(x, y);
+    }
+
+    @Override
+    public boolean contains(Point2D p) {
+      return path.contains(p);
+    }
+
+    @Override
+    public boolean intersects(double x, double y, double w, double h) {
+      return path.intersects(x, y, w, h);
+    }
+
+    @Override
+    public boolean intersects(Rectangle2D r) {
+      return path.intersects(r);
+    }
+
+    @Override
+    public boolean contains(double x, double y, double w, double h) {
+      return path.contains(x, y, w, h);
+    }
+
+    @Override
+    public boolean contains(Rectangle2D r) {
+      return path.contains(r);
+    }
+
+    @Override
+    public PathIterator getPathIterator(AffineTransform at) {
+      return path.getPathIterator(at);
+    }
+
+    @Override
+    public PathIterator getPathIterator(AffineTransform at, double flatness) {
+      return path.getPathIterator(at, flatness);
+    }
+  }
+
+  private PatchShapeCache() {}
+
+  /**
+   * Return the shape of a form for a given side of square
+   * @param form
+   * @param squareSide in pixels
+   * @return the shape, relative to the relative origin of the form
+   */
+  public static PatchShape shape(Form form, int squareSide) {
+    Objects.requireNonNull(form, "The form can't be null");
+    if(squareSide <= 0) {
+      throw new IllegalArgumentException("The side of a square must be positive");
+    }
+    return SHAPES.computeIfAbsent(new Key(form, squareSide), PatchShapeCache::build);
+  }
+
+  private static PatchShape build(Key key) {
+    var side = key.squareSide();
+    var squares = new Path2D.Double(Path2D.WIND_NON_ZERO);
+    var outline = new Area();
+    for(var coord: key.form().coordinates()) {
+      var square = new Rectangle2D.Double(coord.x() * side, coord.y() * side, side, side);
+      squares.append(square, false);
+      outline.add(new Area(square));
+    }
+    return new PatchShape(new FixedShape(new Path2D.Double(outline)), new FixedShape(squares));
+  }
+
+  /**
+   * Number of cached shapes
+   * @return
+   */
+  public static int size() {
+    return SHAPES.size();
+  }
+
+}
@@ -0,0 +1,141 @@
+package fr.uge.patchwork.view.gui;
+
+import java.awt.Color;
+import java.awt.Font;
+import java.awt.Graphics2D;
+import java.lang.management.ManagementFactory;
+import java.util.Arrays;
+
+/**
+ *
+ * Overlay showing the rendering performances of the graphical interface:
+ * frames per second, frame time percentiles over the last frames,
+ * number of queued drawing actions, bytes allocated by the game thread
+ * per frame and the time spent in the controller versus in rendering.
+ *
+ * <p>
+ * The frames are measured on the game thread, the one calling
+ * {@link GraphicalUserInterface#display()}.
+ * The time between the end of a frame and the start
+ * of the next one is the time spent in the controller.
+ *
+ */
+public final class PerformanceOverlay {
+
+  // number of frames kept for the percentiles
+  private static final int FRAMES = 120;
+  private final long[] frameTimes = new long[FRAMES];
+  private final long[] sortedFrameTimes = new long[FRAMES];
+  private int frames; // number of measured frames, up to FRAMES
+  private int next; // index of the next frame time
+  // last frame
+  private long frameStart;
+  private long frameEnd;
+  private long renderTime;
+  private long controllerTime;
+  private long allocationStart;
+  private long allocated;
+  private int queuedActions;
+  private volatile boolean visible;
+  // null if the allocated bytes can't be measured
+  private final com.sun.management.ThreadMXBean threads;
+  private final Font font = TextCache.font("Monospaced", Font.BOLD, 14);
+  private final Color background = new Color(0, 0, 0, 170);
+
+  public PerformanceOverlay() {
+    var bean = ManagementFactory.getThreadMXBean();
+    if(bean instanceof com.sun.management.ThreadMXBean sunBean
+        && sunBean.isThreadAllocatedMemorySupported()) {
+      sunBean.setThreadAllocatedMemoryEnabled(true);
+      threads = sunBean;
+    } else {
+      threads = null;
+    }
+  }
+
+  /**
+   * Show or hide the overlay
+   */
+  public void toggle() {
+    visible = !visible;
+  }
+
+  public boolean visible() {
+    return visible;
+  }
+
+  /**
+   * Must be called when the rendering of a frame starts
+   * @param queuedActions the number of drawing actions of the frame
+   */
+  public void beginFrame(int queuedActions) {
+    var now = System.nanoTime();
+    var allocation = threads == null ? 0 : threads.getCurrentThreadAllocatedBytes();
+    if(frameStart != 0) {
+      frameTimes[next] = now - frameStart;
+      next = (next + 1) % FRAMES;
+      frames = Math.min(frames + 1, FRAMES);
+      renderTime = frameEnd - frameStart;
+      controllerTime = now - frameEnd;
+      allocated = allocation - allocationStart;
+    }
+    frameStart = now;
+    allocationStart = allocation;
+    this.queuedActions = queuedActions;
+  }
+
+  /**
+   * Must be called when the rendering of a frame ends
+   */
+  public void endFrame() {
+    frameEnd = System.nanoTime();
+  }
+
+  /**
+   * Return a percentile of the frame times
+   * @param percentile in [0;100]
+   * @return the frame time in nanoseconds
+   */
+  public long frameTimePercentile(int percentile) {
+    if(percentile < 0 || percentile > 100) {
+      throw new IllegalArgumentException("A percentile is in [0;100]");
+    }
+    if(frames == 0) {
+      return 0;
+    }
+    System.arraycopy(frameTimes, 0, sortedFrameTimes, 0, frames);
+    Arrays.sort(sortedFrameTimes, 0, frames);
+    return sortedFrameTimes[Math.min(frames - 1, (frames * percentile) / 100)];
+  }
+
+  /**
+   * Draw the overlay in the upper left corner
+   * @param g2
+   */
+  public void draw(Graphics2D g2) {
+    var lastFrame = frames == 0 ? 0 : frameTimes[(next + FRAMES - 1) % FRAMES];
+    var fps = lastFrame == 0 ? 0 : 1_000_000_000.0 / lastFrame;
+    var busy = renderTime + controllerTime;
+    var lines = new String[] {
+        String.format("FPS        %6.1f", fps),
+        String.format("frame p50  %6.1f ms", frameTimePercentile(50) / 1_000_000.0),
+        String.format("frame p99  %6.1f ms", frameTimePercentile(99) / 1_000_000.0),
+        String.format("actions    %6d", queuedActions),
+        threads == null ? "alloc/frame    n/a"
+            : String.format("alloc/frame %6d KiB", allocated / 1024),
+        String.format("controller %6.1f ms (%d%%)", controllerTime / 1_000_000.0,
+            busy == 0 ? 0 : (controllerTime * 100) / busy),
+        String.format("rendering  %6.1f ms (%d%%)", renderTime / 1_000_000.0,
+            busy == 0 ? 0 : (renderTime * 100) / busy)
+    };
+    var lineHeight = font.getSize() + 4;
+    g2.setColor(background);
+    g2.fillRect(0, 0, 260, lineHeight * lines.length + 10);
+    g2.setColor(Color.GREEN);
+    g2.setFont(font);
+    for(var i = 0; i < lines.length; i++) {
+      g2.drawString(lines[i], 8, 5 + lineHeight * (i + 1));
+    }
+  }
+
+}
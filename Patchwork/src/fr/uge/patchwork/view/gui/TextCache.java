@@ -0,0 +1,157 @@
+package fr.uge.patchwork.view.gui;
+
+import java.awt.Font;
+import java.awt.Graphics2D;
+import java.awt.font.FontRenderContext;
+import java.awt.font.TextLayout;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ *
+ * Cache of the fonts and of the laid out texts of the graphical interface.
+ *
+ * <p>
+ * The fonts are cached by family, style and size.
+ * The texts are laid out once for a font and a rendering context,
+ * so drawing or measuring a stable text (menu labels, prices, names...)
+ * does not allocate anything once it has been drawn.
+ * Above {@value #MAX_LAYOUTS} texts, the least recently used one is evicted.
+ *
+ */
+public final class TextCache {
+
+  private static final int MAX_LAYOUTS = 2048;
+  private static final ConcurrentHashMap<FontKey, Font> FONTS = new ConcurrentHashMap<>();
+  // in access order, guarded by itself
+  private static final LinkedHashMap<LayoutKey, TextLayout> LAYOUTS =
+      new LinkedHashMap<>(MAX_LAYOUTS * 4 / 3 + 1, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<LayoutKey, TextLayout> eldest) {
+          return size() > MAX_LAYOUTS;
+        }
+      };
+  // the key of the lookups, reused under the lock of LAYOUTS
+  private static final LayoutKey PROBE = new LayoutKey();
+
+  private record FontKey(String family, int style, int size) {}
+
+  // mutable so a lookup doesn't allocate, the keys in LAYOUTS are never changed
+  private static final class LayoutKey {
+    private String text;
+    private Font font;
+    private FontRenderContext context;
+    private int hash;
+
+    private LayoutKey set(String text, Font font, FontRenderContext context) {
+      this.text = text;
+      this.font = font;
+      this.context = context;
+      hash = (text.hashCode() * 31 + font.hashCode()) * 31 + context.hashCode();
+      return this;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+      return obj instanceof LayoutKey other
+          && hash == other.hash
+          && text.equals(other.text)
+          && font.equals(other.font)
+          && context.equals(other.context);
+    }
+
+    @Override
+    public int hashCode() {
+      return hash;
+    }
+  }
+
+  private TextCache() {}
+
+  /**
+   * Return the font for a given family, style and size
+   * @param family the font family, empty for the default one
+   * @param style see {@link Font#getStyle()}
+   * @param size
+   * @return the font
+   */
+  public static Font font(String family, int style, int size) {
+    Objects.requireNonNull(family, "The font family can't be null");
+    return FONTS.computeIfAbsent(new FontKey(family, style, size),
+        k -> new Font(k.family(), k.style(), k.size()));
+  }
+
+  /**
+   * Return the layout of a text for a given font
+   * and rendering context
+   * @param text a non empty text
+   * @param font
+   * @param context
+   * @return the layout
+   */
+  public static TextLayout layout(String text, Font font, FontRenderContext context) {
+    Objects.requireNonNull(text, "The text can't be null");
+    Objects.requireNonNull(font, "The font can't be null");
+    Objects.requireNonNull(context, "The rendering context can't be null");
+    if(text.isEmpty()) {
+      throw new IllegalArgumentException("Can't lay out an empty text");
+    }
+    synchronized(LAYOUTS) {
+      var layout = LAYOUTS.get(PROBE.set(text, font, context));
+      if(layout == null) {
+        layout = new TextLayout(text, font, context);
+        LAYOUTS.put(new LayoutKey().set(text, font, context), layout);
+      }
+      return layout;
+    }
+  }
+
+  /**
+   * Draw a text with the current color of the graphics.
+   * The position is the one of the baseline, as for
+   * {@link Graphics2D#drawString(String, float, float)}
+   * @param g2
+   * @param text
+   * @param font
+   * @param x
+   * @param y
+   */
+  public static void drawString(Graphics2D g2, String text, Font font, float x, float y) {
+    if(text.isEmpty()) {
+      return;
+    }
+    layout(text, font, g2.getFontRenderContext()).draw(g2, x, y);
+  }
+
+  /**
+   * Return the width of a text for a given font
+   * @param g2
+   * @param text
+   * @param font
+   * @return the width of the text
+   */
+  public static float width(Graphics2D g2, String text, Font font) {
+    if(text.isEmpty()) {
+      return 0;
+    }
+    return layout(text, font, g2.getFontRenderContext()).getAdvance();
+  }
+
+  /**
+   * Return the height of a text for a given font
+   * @param g2
+   * @param text
+   * @param font
+   * @return the height of the text (ascent and descent)
+   */
+  public static float height(Graphics2D g2, String text, Font font) {
+    if(text.isEmpty()) {
+      return 0;
+    }
+    var layout = layout(text, font, g2.getFontRenderContext());
+    return layout.getAscent() + layout.getDescent();
+  }
+
+}
@@ -0,0 +1,18 @@
+package fr.uge.patchwork.view.input;
+
+import java.util.Objects;
+
+/**
+ * A captured user input
+ * 
+ * @param value the key name for a graphical interface, 
+ * the typed line for a command line interface
+ * @param timestamp the {@link System#nanoTime()} of the capture
+ */
+public record InputEvent(String value, long timestamp) {
+  
+  public InputEvent {
+    Objects.requireNonNull(value, "The value of an input can't be null");
+  }
+  
+}
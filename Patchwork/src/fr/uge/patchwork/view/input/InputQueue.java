@@ -0,0 +1,177 @@
+package fr.uge.patchwork.view.input;
+
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+import fr.uge.patchwork.monitoring.Histogram;
+import fr.uge.patchwork.monitoring.MetricsRegistry;
+
+/**
+ *
+ * Bounded queue of user inputs.
+ *
+ * <p>
+ * The inputs are captured from a source on their own thread
+ * and timestamped, so an input made while the game thread
+ * is busy (long redraw, automa turn...) is kept until
+ * the interface asks for it. When the queue is full the oldest
+ * input is dropped.
+ * <p>
+ * The latency of an input is the time between its capture
+ * and the moment it is taken from the queue.
+ *
+ */
+public final class InputQueue {
+
+  private final String name;
+  private final ArrayBlockingQueue<InputEvent> queue;
+  private Thread capture;
+  // statistics
+  private final LongAdder consumed = new LongAdder();
+  private final LongAdder dropped = new LongAdder();
+  private final LongAdder totalLatency = new LongAdder();
+  private final AtomicLong maxLatency = new AtomicLong();
+  private final Histogram latencies;
+
+  /**
+   * Statistics on the inputs of a queue
+   * @param consumed number of inputs taken from the queue
+   * @param dropped number of inputs dropped because the queue was full
+   * @param pending number of inputs waiting in the queue
+   * @param meanLatency mean latency in nanoseconds
+   * @param maxLatency max latency in nanoseconds
+   */
+  public record Statistics(long consumed, long dropped, int pending,
+      long meanLatency, long maxLatency) {
+
+    @Override
+    public String toString() {
+      return "inputs: " + consumed
+          + ", dropped: " + dropped
+          + ", pending: " + pending
+          + ", latency mean: " + String.format("%.2f", meanLatency / 1_000_000.0) + " ms"
+          + ", max: " + String.format("%.2f", maxLatency / 1_000_000.0) + " ms";
+    }
+  }
+
+  /**
+   * @param name the name of the capture thread
+   * @param capacity max number of pending inputs
+   */
+  public InputQueue(String name, int capacity) {
+    this.name = Objects.requireNonNull(name, "The name can't be null");
+    if(capacity < 1) {
+      throw new IllegalArgumentException("The capacity must be at least 1");
+    }
+    queue = new ArrayBlockingQueue<>(capacity);
+    var metrics = MetricsRegistry.global();
+    latencies = metrics.histogram("input." + name + ".latency");
+    metrics.gauge("input." + name + ".pending", queue::size);
+    metrics.gauge("input." + name + ".dropped", dropped::sum);
+  }
+
+  /**
+   * Start capturing the inputs of a source on a daemon thread.
+   * Does nothing if the capture is already started
+   * @param source
+   */
+  public synchronized void start(InputSource source) {
+    Objects.requireNonNull(source, "The source can't be null");
+    if(capture != null) {
+      return;
+    }
+    capture = new Thread(() -> {
+      try {
+        String value;
+        while((value = source.next()) != null) {
+          push(new InputEvent(value, System.nanoTime()));
+        }
+      } catch (InterruptedException e) {
+        // capture stopped
+      } catch (RuntimeException e) {
+        // the source is closed
+      }
+    }, name);
+    capture.setDaemon(true);
+    capture.start();
+  }
+
+  /**
+   * Stop the capture
+   */
+  public synchronized void stop() {
+    if(capture != null) {
+      capture.interrupt();
+      capture = null;
+    }
+  }
+
+  /**
+   * Add an input to the queue, dropping the oldest
+   * pending input if the queue is full
+   * @param event
+   */
+  public void push(InputEvent event) {
+    Objects.requireNonNull(event, "The input can't be null");
+    while(!queue.offer(event)) {
+      if(queue.poll() != null) {
+        dropped.increment();
+      }
+    }
+  }
+
+  /**
+   * Take the next input, waiting at most the given time
+   * @param timeout
+   * @param unit
+   * @return the input, or an empty optional if there was none in time
+   */
+  public Optional<InputEvent> poll(long timeout, TimeUnit unit) {
+    InputEvent event;
+    try {
+      event = queue.poll(timeout, unit);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      return Optional.empty();
+    }
+    if(event == null) {
+      return Optional.empty();
+    }
+    var latency = System.nanoTime() - event.timestamp();
+    consumed.increment();
+    totalLatency.add(latency);
+    maxLatency.accumulateAndGet(latency, Math::max);
+    latencies.record(latency);
+    return Optional.of(event);
+  }
+
+  /**
+   * Take the next input, waiting for it
+   * @return the input, or an empty optional if the waiting thread is interrupted
+   */
+  public Optional<InputEvent> take() {
+    Optional<InputEvent> event;
+    do {
+      event = poll(1, TimeUnit.SECONDS);
+    } while(event.isEmpty() && !Thread.currentThread().isInterrupted() && isCapturing());
+    return event.isPresent() ? event : poll(0, TimeUnit.SECONDS);
+  }
+
+  private synchronized boolean isCapturing() {
+    return capture != null && capture.isAlive();
+  }
+
+  /**
+   * @return the statistics of the queue
+   */
+  public Statistics statistics() {
+    var count = consumed.sum();
+    return new Statistics(count, dropped.sum(), queue.size(),
+        count == 0 ? 0 : totalLatency.sum() / count, maxLatency.get());
+  }
+
+}
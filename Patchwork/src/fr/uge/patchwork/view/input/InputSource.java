@@ -0,0 +1,20 @@
+package fr.uge.patchwork.view.input;
+
+/**
+ * 
+ * A blocking source of user inputs, 
+ * read by the capture thread of an {@link InputQueue}
+ *
+ */
+@FunctionalInterface
+public interface InputSource {
+  
+  /**
+   * Wait for the next input
+   * @return the value of the input, 
+   * or null if there will be no more inputs
+   * @throws InterruptedException if the capture is stopped while waiting
+   */
+  String next() throws InterruptedException;
+  
+}
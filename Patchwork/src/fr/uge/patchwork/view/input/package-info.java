@@ -0,0 +1,5 @@
+/**
+ * Provides the capture of the user inputs, 
+ * on their own thread, for the interfaces
+ */
+package fr.uge.patchwork.view.input;
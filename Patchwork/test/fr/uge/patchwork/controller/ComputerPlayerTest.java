@@ -0,0 +1,134 @@
+package fr.uge.patchwork.controller;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.Optional;
+import java.util.Random;
+import java.util.Set;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import fr.uge.patchwork.model.archive.GameRecord;
+import fr.uge.patchwork.model.archive.Replayer;
+import fr.uge.patchwork.model.component.gameboard.PatchManager;
+import fr.uge.patchwork.model.component.gameboard.TrackBoard;
+import fr.uge.patchwork.model.component.patch.Patch;
+import fr.uge.patchwork.model.component.patch.RegularPatch;
+import fr.uge.patchwork.model.component.player.HumanPlayer;
+import fr.uge.patchwork.model.endgame.Completion;
+import fr.uge.patchwork.model.engine.SearchBot;
+import fr.uge.patchwork.model.hint.HintService;
+import fr.uge.patchwork.view.UserInterface;
+import fr.uge.patchwork.view.input.InputQueue;
+
+/**
+ * A human who always advances plays a whole game against the computer:
+ * the moves of the computer follow the rules of the engine,
+ * so the game is archived and replays to its end.
+ */
+public class ComputerPlayerTest {
+
+  static {
+    // the controller deletes the saved game at the end of a game
+    System.setProperty("patchwork.save",
+        Path.of(System.getProperty("java.io.tmpdir"), "computer-player-test.sav").toString());
+  }
+
+  /**
+   * Chooses the game against the computer, always advances,
+   * and moves the leather patches at random until they can be placed
+   */
+  private static final class AdvancingUser implements UserInterface {
+    private final Random random = new Random(0);
+
+    private static Optional<KeybindedChoice> choice(Set<KeybindedChoice> choices, char key) {
+      return choices.stream().filter(choice -> choice.key() == key).findFirst();
+    }
+
+    @Override public void init() {}
+    @Override public void draw(TrackBoard trackboard) {}
+    @Override public void draw(PatchManager manager) {}
+    @Override public void drawScoreBoard(TrackBoard trackboard) {}
+    @Override public void drawDummyQuilt(HumanPlayer player, Patch patch) {}
+    @Override public void drawHints(HumanPlayer player, HintService.Hints hints) {}
+    @Override public void drawCompletion(HumanPlayer player, Completion completion) {}
+    @Override public void display() {}
+    @Override public void clear() {}
+    @Override public void close() {}
+
+    @Override
+    public InputQueue.Statistics inputStatistics() {
+      return null;
+    }
+
+    @Override
+    public Optional<KeybindedChoice> gameModeMenu(Set<KeybindedChoice> choices) {
+      return choice(choices, 'c');
+    }
+
+    @Override
+    public Optional<KeybindedChoice> simpleMenu(String title, Set<KeybindedChoice> choices) {
+      // a new game rather than a saved one
+      return choice(choices, 'n');
+    }
+
+    @Override
+    public Optional<KeybindedChoice> endGameMenu(Set<KeybindedChoice> choices) {
+      return choice(choices, 'q');
+    }
+
+    @Override
+    public Optional<KeybindedChoice> turnMenu(Set<KeybindedChoice> choices) {
+      return choice(choices, 'a').or(() -> choice(choices, 'r'));
+    }
+
+    @Override
+    public Optional<KeybindedChoice> manipulatePatch(Set<KeybindedChoice> choices) {
+      var place = choice(choices, 'p');
+      if(place.isPresent()) {
+        return place;
+      }
+      var moves = choices.stream().filter(choice -> "swdq".indexOf(choice.key()) != -1).toList();
+      return Optional.of(moves.get(random.nextInt(moves.size())));
+    }
+
+    @Override
+    public Optional<KeybindedChoice> getInput(Set<KeybindedChoice> choices) {
+      return Optional.empty();
+    }
+
+    @Override
+    public Optional<RegularPatch> selectPatch(List<RegularPatch> patches, Set<RegularPatch> selectable,
+        PatchManager manager) {
+      throw new AssertionError("The human always advances");
+    }
+  }
+
+  @Test
+  public void theComputerPlaysAWholeGame(@TempDir Path directory) throws IOException {
+    var archive = directory.resolve("games.bin");
+    System.setProperty("patchwork.archive", archive.toString());
+    System.setProperty("patchwork.seed", "1");
+    try {
+      var controller = new PatchworkController(new AdvancingUser(),
+          () -> new SearchBot(Duration.ofMillis(5), null, false));
+      assertTrue(controller.init());
+      assertFalse(controller.run());
+    } finally {
+      System.clearProperty("patchwork.archive");
+      System.clearProperty("patchwork.seed");
+    }
+    var records = GameRecord.readAll(archive);
+    assertEquals(1, records.size());
+    var engine = Replayer.replay(records.get(0));
+    assertTrue(engine.isFinished());
+    assertTrue(engine.patches(1) > 0);
+  }
+}
@@ -0,0 +1,56 @@
+package fr.uge.patchwork.model.archive;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+
+import fr.uge.patchwork.model.GameMode;
+import fr.uge.patchwork.model.component.player.automa.AutomaDifficulty;
+import fr.uge.patchwork.model.component.player.automa.DeckType;
+import fr.uge.patchwork.model.engine.Bot;
+import fr.uge.patchwork.model.engine.Engine;
+import fr.uge.patchwork.model.engine.GreedyBot;
+import fr.uge.patchwork.model.engine.Rules;
+
+public class GameRecordTest {
+  private static final int GAMES = 10;
+
+  @ParameterizedTest
+  @EnumSource(GameMode.class)
+  public void archivedGamesReplayToTheSameScores(GameMode gameMode, @TempDir Path directory) throws IOException {
+    var rules = Rules.of(gameMode);
+    var first = GameRecord.Side.quilt();
+    var second = gameMode == GameMode.PATCHWORK_AUTOMA
+        ? GameRecord.Side.automa(AutomaDifficulty.FELLOW, DeckType.TACTICAL) : GameRecord.Side.quilt();
+    var archive = directory.resolve("games.bin");
+    var engines = new ArrayList<Engine>();
+    var records = new ArrayList<GameRecord>();
+    var bot = new GreedyBot();
+    for(var seed = 0; seed < GAMES; seed++) {
+      var engine = Engine.create(rules, first.setup(), second.setup(), seed);
+      while(!engine.isFinished()) {
+        engine.play(Bot.nextMove(engine, bot));
+      }
+      var record = GameRecord.of(gameMode, first, second, seed, engine);
+      record.appendTo(archive);
+      engines.add(engine);
+      records.add(record);
+    }
+    var read = GameRecord.readAll(archive);
+    assertEquals(records, read);
+    for(var i = 0; i < GAMES; i++) {
+      var engine = engines.get(i);
+      var replayed = Replayer.replay(read.get(i));
+      assertEquals(engine.ply(), replayed.ply(), "game " + i);
+      assertEquals(engine.score(0), replayed.score(0), "game " + i);
+      assertEquals(engine.score(1), replayed.score(1), "game " + i);
+      assertEquals(records.get(i), GameRecord.fromBytes(records.get(i).toBytes()), "game " + i);
+    }
+  }
+}
@@ -0,0 +1,62 @@
+package fr.uge.patchwork.model.archive;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+
+import fr.uge.patchwork.model.GameMode;
+import fr.uge.patchwork.model.component.player.automa.AutomaDifficulty;
+import fr.uge.patchwork.model.component.player.automa.DeckType;
+import fr.uge.patchwork.model.engine.Bot;
+import fr.uge.patchwork.model.engine.Engine;
+import fr.uge.patchwork.model.engine.GreedyBot;
+import fr.uge.patchwork.model.engine.Rules;
+
+public class SnapshotTest {
+  private static final int SEED = 7;
+
+  // a game of the greedy bot, played on the model until the middle
+  private static Snapshot middleOfAGame(GameMode gameMode) throws IOException {
+    var first = GameRecord.Side.quilt();
+    var second = gameMode == GameMode.PATCHWORK_AUTOMA
+        ? GameRecord.Side.automa(AutomaDifficulty.LEGEND, DeckType.NORMAL) : GameRecord.Side.quilt();
+    var engine = Engine.create(Rules.of(gameMode), first.setup(), second.setup(), SEED);
+    var bot = new GreedyBot();
+    while(!engine.isFinished()) {
+      engine.play(Bot.nextMove(engine, bot));
+    }
+    var record = GameRecord.of(gameMode, first, second, SEED, engine);
+    var ply = engine.ply() / 2;
+    return new Snapshot(GameReplayer.replay(record, ply), GameRecorder.resume(record, ply));
+  }
+
+  @ParameterizedTest
+  @EnumSource(GameMode.class)
+  public void aLoadedGameIsTheSavedOne(GameMode gameMode, @TempDir Path directory) throws IOException {
+    var snapshot = middleOfAGame(gameMode);
+    var saved = directory.resolve("saved.bin");
+    snapshot.save(saved);
+    var loaded = Snapshot.load(saved);
+    // the whole state is saved, so the loaded game is saved the same
+    var again = directory.resolve("again.bin");
+    loaded.save(again);
+    assertArrayEquals(Files.readAllBytes(saved), Files.readAllBytes(again));
+    assertEquals(snapshot.game().gameMode(), loaded.game().gameMode());
+    assertEquals(snapshot.game().seed(), loaded.game().seed());
+    assertEquals(snapshot.recorder().toRecord(), loaded.recorder().toRecord());
+    assertEquals(snapshot.recorder().ply(), loaded.recorder().ply());
+    var players = snapshot.game().trackBoard().players();
+    var loadedPlayers = loaded.game().trackBoard().players();
+    assertEquals(players.size(), loadedPlayers.size());
+    for(var i = 0; i < players.size(); i++) {
+      assertEquals(players.get(i).score(), loadedPlayers.get(i).score(), "player " + i);
+    }
+  }
+}
@@ -0,0 +1,155 @@
+package fr.uge.patchwork.model.component;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+
+import org.junit.jupiter.api.Test;
+
+import fr.uge.patchwork.model.SplitMix64;
+
+/**
+ * The regions found on the rows of bits are the ones found
+ * cell by cell, with a breadth first search, on random quilts.
+ */
+public class QuiltRegionsTest {
+  private static final int QUILTS = 2_000;
+
+  // the regions of a quilt found cell by cell
+  private record Regions(int regions, int largest, int smallest, int[] sizes) {
+    int dead(int minCells) {
+      var dead = 0;
+      for(var size: sizes) {
+        if(size < minCells) {
+          dead += size;
+        }
+      }
+      return dead;
+    }
+  }
+
+  private static boolean isEmpty(long[] rows, int y, int x) {
+    return (rows[y] >>> x & 1) == 0;
+  }
+
+  private static Regions regions(long[] rows, int width) {
+    var height = rows.length;
+    var seen = new boolean[height][width];
+    var sizes = new int[height * width];
+    var regions = 0;
+    var largest = 0;
+    var smallest = 0;
+    var queue = new ArrayDeque<int[]>();
+    for(var y = 0; y < height; y++) {
+      for(var x = 0; x < width; x++) {
+        if(seen[y][x] || !isEmpty(rows, y, x)) {
+          continue;
+        }
+        seen[y][x] = true;
+        queue.add(new int[] { y, x });
+        var size = 0;
+        while(!queue.isEmpty()) {
+          var cell = queue.poll();
+          size++;
+          for(var next: new int[][] { { cell[0] - 1, cell[1] }, { cell[0] + 1, cell[1] },
+              { cell[0], cell[1] - 1 }, { cell[0], cell[1] + 1 } }) {
+            var ny = next[0];
+            var nx = next[1];
+            if(ny >= 0 && ny < height && nx >= 0 && nx < width && !seen[ny][nx] && isEmpty(rows, ny, nx)) {
+              seen[ny][nx] = true;
+              queue.add(next);
+            }
+          }
+        }
+        sizes[regions++] = size;
+        largest = Math.max(largest, size);
+        smallest = regions == 1 ? size : Math.min(smallest, size);
+      }
+    }
+    return new Regions(regions, largest, smallest, Arrays.copyOf(sizes, regions));
+  }
+
+  // the largest rectangle of empty cells, trying every rectangle
+  private static int largestRectangle(long[] rows, int width) {
+    var best = 0;
+    for(var top = 0; top < rows.length; top++) {
+      for(var left = 0; left < width; left++) {
+        for(var bottom = top; bottom < rows.length; bottom++) {
+          for(var right = left; right < width; right++) {
+            if(isEmptyRectangle(rows, top, left, bottom, right)) {
+              best = Math.max(best, (bottom - top + 1) * (right - left + 1));
+            }
+          }
+        }
+      }
+    }
+    return best;
+  }
+
+  private static boolean isEmptyRectangle(long[] rows, int top, int left, int bottom, int right) {
+    for(var y = top; y <= bottom; y++) {
+      for(var x = left; x <= right; x++) {
+        if(!isEmpty(rows, y, x)) {
+          return false;
+        }
+      }
+    }
+    return true;
+  }
+
+  // a quilt with a sixteenth, a quarter, a half or three quarters of its cells set at random
+  private static long[] quilt(SplitMix64 random, int height, int width) {
+    var mask = width == Long.SIZE ? -1L : (1L << width) - 1;
+    var density = random.nextInt(4);
+    var rows = new long[height];
+    for(var y = 0; y < height; y++) {
+      var bits = random.nextLong();
+      bits = switch(density) {
+        case 0 -> bits & random.nextLong() & random.nextLong() & random.nextLong();
+        case 1 -> bits & random.nextLong();
+        case 2 -> bits;
+        default -> bits | random.nextLong();
+      };
+      rows[y] = bits & mask;
+    }
+    return rows;
+  }
+
+  private static void assertSameRegions(long[] rows, int width, String message) {
+    var expected = regions(rows, width);
+    var analysis = new QuiltRegions();
+    for(var minCells = 1; minCells <= 6; minCells++) {
+      analysis.analyze(rows, width, minCells);
+      assertEquals(expected.regions(), analysis.regions(), message);
+      assertEquals(expected.largest(), analysis.largest(), message);
+      assertEquals(expected.smallest(), analysis.smallest(), message);
+      assertEquals(expected.dead(minCells), analysis.deadCells(), message + ", min cells " + minCells);
+      assertEquals(expected.dead(minCells), analysis.deadCells(rows, width, minCells),
+          message + ", min cells " + minCells);
+    }
+  }
+
+  @Test
+  public void theRegionsOfTheQuiltsOfTheGameAreTheOnesFoundCellByCell() {
+    var random = new SplitMix64(1);
+    for(var i = 0; i < QUILTS; i++) {
+      var rows = quilt(random, 9, 9);
+      assertSameRegions(rows, 9, "quilt " + i);
+      assertEquals(largestRectangle(rows, 9), QuiltRegions.largestRectangle(rows, 9), "quilt " + i);
+    }
+  }
+
+  @Test
+  public void theRegionsOfQuiltsOfAnySizeAreTheOnesFoundCellByCell() {
+    var random = new SplitMix64(2);
+    for(var i = 0; i < QUILTS; i++) {
+      var height = 1 + random.nextInt(12);
+      var width = 1 + random.nextInt(Long.SIZE);
+      var rows = quilt(random, height, width);
+      var message = "quilt " + i + " of " + height + "x" + width;
+      assertSameRegions(rows, width, message);
+      assertEquals(largestRectangle(rows, width), QuiltRegions.largestRectangle(rows, width), message);
+    }
+  }
+}
@@ -0,0 +1,74 @@
+package fr.uge.patchwork.model.component;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+
+import java.util.Arrays;
+
+import org.junit.jupiter.api.Test;
+
+import fr.uge.patchwork.model.SplitMix64;
+
+public class QuiltSymmetryTest {
+
+  // a quilt with its cells set at random
+  private static long[] quilt(long seed, int height, int width) {
+    var random = new SplitMix64(seed);
+    var rows = new long[height];
+    for(var y = 0; y < height; y++) {
+      rows[y] = random.nextLong() & (1L << width) - 1;
+    }
+    return rows;
+  }
+
+  private static void assertSameCanonicalImage(long[] rows, int width) {
+    var symmetry = new QuiltSymmetry();
+    var canonical = new long[rows.length];
+    symmetry.canonicalize(rows, width, canonical);
+    var key = symmetry.canonicalHash(rows, width);
+    for(var s = 0; s < QuiltSymmetry.symmetries(rows.length, width); s++) {
+      var transposed = (s & QuiltSymmetry.TRANSPOSE) != 0;
+      var image = new long[transposed ? width : rows.length];
+      QuiltSymmetry.transform(rows, width, s, image);
+      var imageWidth = transposed ? rows.length : width;
+      assertEquals(key, symmetry.canonicalHash(image, imageWidth), "symmetry " + s);
+      var imageCanonical = new long[image.length];
+      var found = symmetry.canonicalize(image, imageWidth, imageCanonical);
+      assertArrayEquals(canonical, imageCanonical, "symmetry " + s);
+      // the symmetry found gives the canonical image
+      var check = new long[image.length];
+      QuiltSymmetry.transform(image, imageWidth, found, check);
+      assertArrayEquals(canonical, check, "symmetry " + s);
+    }
+  }
+
+  @Test
+  public void theSymmetriesOfASquareQuiltHaveTheSameKey() {
+    for(var seed = 0; seed < 20; seed++) {
+      assertSameCanonicalImage(quilt(seed, 9, 9), 9);
+    }
+  }
+
+  @Test
+  public void theSymmetriesOfARectangularQuiltHaveTheSameKey() {
+    for(var seed = 0; seed < 20; seed++) {
+      assertSameCanonicalImage(quilt(seed, 5, 7), 7);
+    }
+  }
+
+  @Test
+  public void anotherQuiltHasAnotherKey() {
+    var symmetry = new QuiltSymmetry();
+    var rows = quilt(42, 9, 9);
+    var other = rows.clone();
+    other[4] ^= 1L << 4; // one cell more or less, the other quilt is not an image of the first one
+    var canonical = new long[9];
+    var otherCanonical = new long[9];
+    symmetry.canonicalize(rows, 9, canonical);
+    symmetry.canonicalize(other, 9, otherCanonical);
+    assertFalse(Arrays.equals(canonical, otherCanonical));
+    assertNotEquals(symmetry.canonicalHash(rows, 9), symmetry.canonicalHash(other, 9));
+  }
+}
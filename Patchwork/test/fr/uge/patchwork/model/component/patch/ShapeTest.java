@@ -0,0 +1,129 @@
+package fr.uge.patchwork.model.component.patch;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.HashSet;
+
+import org.junit.jupiter.api.Test;
+
+import fr.uge.patchwork.model.SplitMix64;
+
+/**
+ * The columns given by the placements of a shape are the ones found
+ * cell by cell, trying every column, on random shapes and quilts.
+ */
+public class ShapeTest {
+  private static final int QUILTS = 2_000;
+
+  // a form of 1 to 5 rows and 1 to 8 columns, with its cells set at random
+  private static Form form(SplitMix64 random) {
+    var height = 1 + random.nextInt(5);
+    var width = 1 + random.nextInt(8);
+    var coordinates = new HashSet<Coordinates>();
+    for(var y = 0; y < height; y++) {
+      for(var x = 0; x < width; x++) {
+        if(random.nextInt(2) == 0) {
+          coordinates.add(new Coordinates(y, x));
+        }
+      }
+    }
+    // the corners keep the size of the form
+    coordinates.add(new Coordinates(0, 0));
+    coordinates.add(new Coordinates(height - 1, width - 1));
+    return new Form(coordinates);
+  }
+
+  // a quilt with a quarter, a half or three quarters of its cells set at random
+  private static long[] quilt(SplitMix64 random, int height, int width) {
+    var mask = width == Long.SIZE ? -1L : (1L << width) - 1;
+    var density = random.nextInt(3);
+    var rows = new long[height];
+    for(var y = 0; y < height; y++) {
+      var bits = random.nextLong();
+      bits = switch(density) {
+        case 0 -> bits & random.nextLong();
+        case 1 -> bits;
+        default -> bits | random.nextLong();
+      };
+      rows[y] = bits & mask;
+    }
+    return rows;
+  }
+
+  // the columns where each cell of the shape is inside the quilt and on an empty cell
+  private static long placements(Shape shape, long[] quilt, int width, int y) {
+    var free = 0L;
+    for(var x = 0; x < Long.SIZE; x++) {
+      if(fits(shape, quilt, width, y, x)) {
+        free |= 1L << x;
+      }
+    }
+    return free;
+  }
+
+  private static boolean fits(Shape shape, long[] quilt, int width, int y, int x) {
+    for(var r = 0; r < shape.height(); r++) {
+      for(var c = 0; c < shape.width(); c++) {
+        if((shape.row(r) >>> c & 1) == 0) {
+          continue;
+        }
+        var cellY = y + r;
+        var cellX = x + c;
+        if(cellY < 0 || cellY >= quilt.length || cellX >= width || (quilt[cellY] >>> cellX & 1) != 0) {
+          return false;
+        }
+      }
+    }
+    return true;
+  }
+
+  private static void assertSamePlacements(Shape shape, long[] quilt, int width, String message) {
+    var anywhere = false;
+    for(var y = -1; y <= quilt.length; y++) {
+      var expected = placements(shape, quilt, width, y);
+      assertEquals(expected, shape.placements(quilt, width, y), message + ", row " + y);
+      for(var x = 0; x < width; x++) {
+        assertEquals((expected >>> x & 1) != 0, shape.fits(quilt, width, y, x),
+            message + ", cell (" + y + "," + x + ")");
+      }
+      anywhere |= expected != 0;
+    }
+    assertEquals(anywhere, shape.fitsAnywhere(quilt, width), message);
+  }
+
+  @Test
+  public void thePlacementsOnTheQuiltsOfTheGameAreTheOnesFoundCellByCell() {
+    var random = new SplitMix64(1);
+    for(var i = 0; i < QUILTS; i++) {
+      var shape = Shape.of(form(random));
+      assertSamePlacements(shape, quilt(random, 9, 9), 9, "quilt " + i + ", shape\n" + shape);
+    }
+  }
+
+  @Test
+  public void thePlacementsOnQuiltsOfAnySizeAreTheOnesFoundCellByCell() {
+    var random = new SplitMix64(2);
+    for(var i = 0; i < QUILTS; i++) {
+      var shape = Shape.of(form(random));
+      var height = 1 + random.nextInt(12);
+      var width = 1 + random.nextInt(Long.SIZE);
+      var message = "quilt " + i + " of " + height + "x" + width + ", shape\n" + shape;
+      assertSamePlacements(shape, quilt(random, height, width), width, message);
+    }
+  }
+
+  @Test
+  public void theOrientationsOfAShapeArePlacedLikeTheShapeOfTheirForm() {
+    var random = new SplitMix64(3);
+    for(var i = 0; i < QUILTS / 10; i++) {
+      var form = form(random);
+      var quilt = quilt(random, 9, 9);
+      var shapes = Shape.orientations(form);
+      for(var o = 0; o < Shape.ORIENTATIONS; o++) {
+        var shape = Shape.of(Shape.transform(form, o));
+        assertEquals(shape, shapes[o], "form " + i + ", orientation " + o);
+        assertSamePlacements(shapes[o], quilt, 9, "form " + i + ", orientation " + o);
+      }
+    }
+  }
+}
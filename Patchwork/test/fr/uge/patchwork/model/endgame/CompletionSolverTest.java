@@ -0,0 +1,80 @@
+package fr.uge.patchwork.model.endgame;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import fr.uge.patchwork.model.component.patch.Form;
+import fr.uge.patchwork.model.component.patch.RegularPatch;
+import fr.uge.patchwork.model.endgame.Completion.Outcome;
+import fr.uge.patchwork.model.engine.Piece;
+
+public class CompletionSolverTest {
+  private static final int WIDTH = 3;
+
+  private static final Piece SQUARE = piece(0, 3, "xx\nox");
+  private static final Piece DOMINO = piece(1, 1, "ox");
+  private static final Piece BAR = piece(2, 2, "oxx");
+  private static final Piece CORNER = piece(3, 2, "ox\nx");
+
+  private static Piece piece(int id, int price, String form) {
+    return new Piece(id, new RegularPatch(price, 1, 0, Form.fromText(form)));
+  }
+
+  // the quilt covered by the steps of a completion
+  private static long[] cover(long[] rows, List<Piece> pieces, Completion completion) {
+    var quilt = rows.clone();
+    for(var step: completion.steps()) {
+      var shape = pieces.get(step.patch()).shape(step.orientation());
+      for(var r = 0; r < shape.height(); r++) {
+        var bits = shape.row(r) << step.x();
+        assertEquals(0, quilt[step.y() + r] & bits, "the patches don't overlap");
+        quilt[step.y() + r] |= bits;
+      }
+    }
+    return quilt;
+  }
+
+  @Test
+  public void aRegionIsFilledWithTheCheapestCover() {
+    // the two last rows are empty: a square and a domino (4) or two bars, but there is one bar
+    var rows = new long[] { 0b111, 0, 0 };
+    var pieces = List.of(SQUARE, DOMINO, BAR);
+    var completion = new CompletionSolver(1_000_000, 1).solve(rows, WIDTH, pieces);
+    assertEquals(Outcome.TILEABLE, completion.outcome());
+    assertTrue(completion.optimal());
+    assertEquals(4, completion.cost());
+    assertArrayEquals(new long[] { 0b111, 0b111, 0b111 }, cover(rows, pieces, completion));
+  }
+
+  @Test
+  public void theThreadsFindTheSameCost() {
+    var rows = new long[] { 0b001, 0, 0 };
+    var pieces = List.of(SQUARE, DOMINO, BAR, CORNER);
+    var completion = new CompletionSolver(1_000_000, 4).solve(rows, WIDTH, pieces);
+    assertEquals(Outcome.TILEABLE, completion.outcome());
+    assertEquals(new CompletionSolver(1_000_000, 1).solve(rows, WIDTH, pieces).cost(), completion.cost());
+    assertArrayEquals(new long[] { 0b111, 0b111, 0b111 }, cover(rows, pieces, completion));
+  }
+
+  @Test
+  public void aRegionThePatchesCantFillIsImpossible() {
+    // a 2x2 region: the corner and the domino have 5 cells, but no cover of 4 cells
+    var rows = new long[] { 0b111, 0b100, 0b100 };
+    var completion = new CompletionSolver(1_000_000, 1).solve(rows, WIDTH, List.of(CORNER, DOMINO));
+    assertEquals(Outcome.IMPOSSIBLE, completion.outcome());
+    assertTrue(completion.optimal());
+    assertEquals(-1, completion.cost());
+  }
+
+  @Test
+  public void tooFewCellsAreImpossible() {
+    var rows = new long[] { 0b111, 0, 0 };
+    var completion = new CompletionSolver(1_000_000, 1).solve(rows, WIDTH, List.of(DOMINO, CORNER));
+    assertEquals(Outcome.IMPOSSIBLE, completion.outcome());
+  }
+}
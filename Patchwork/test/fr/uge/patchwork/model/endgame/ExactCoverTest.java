@@ -0,0 +1,67 @@
+package fr.uge.patchwork.model.endgame;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+import java.util.Arrays;
+
+import org.junit.jupiter.api.Test;
+
+public class ExactCoverTest {
+
+  // keeps the cheapest cover, with an unlimited budget
+  private static final class Best implements ExactCover.Bounds {
+    private int best = Integer.MAX_VALUE;
+    private int[] rows;
+
+    @Override
+    public int best() {
+      return best;
+    }
+
+    @Override
+    public void found(int cost, int[] rows, int count) {
+      best = cost;
+      this.rows = Arrays.copyOf(rows, count);
+      Arrays.sort(this.rows);
+    }
+
+    @Override
+    public boolean take(int nodes) {
+      return true;
+    }
+  }
+
+  private static Best search(ExactCover matrix) {
+    var bounds = new Best();
+    for(var row: matrix.rowsOf(matrix.choose())) {
+      matrix.search(new int[] { row }, 1, bounds);
+    }
+    assertFalse(matrix.exhausted());
+    return bounds;
+  }
+
+  @Test
+  public void theCheapestCoverIsFound() {
+    // 3 primary columns, 1 secondary column
+    var matrix = new ExactCover(3, 1, 8, 4, 1);
+    matrix.addRow(new int[] { 1, 2 }, 2, 2, 5);
+    matrix.addRow(new int[] { 3 }, 1, 1, 1);
+    matrix.addRow(new int[] { 1, 4 }, 2, 1, 1);
+    matrix.addRow(new int[] { 2, 3 }, 2, 2, 1);
+    var bounds = search(matrix);
+    assertEquals(2, bounds.best());
+    assertArrayEquals(new int[] { 2, 3 }, bounds.rows);
+  }
+
+  @Test
+  public void aSecondaryColumnIsCoveredAtMostOnce() {
+    // the two rows covering the column 1 share the secondary column 3
+    var matrix = new ExactCover(2, 1, 4, 2, 1);
+    matrix.addRow(new int[] { 1, 3 }, 2, 1, 1);
+    matrix.addRow(new int[] { 2, 3 }, 2, 1, 1);
+    var bounds = search(matrix);
+    assertEquals(Integer.MAX_VALUE, bounds.best());
+  }
+}
@@ -0,0 +1,75 @@
+package fr.uge.patchwork.model.engine;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.util.function.Supplier;
+
+import org.junit.jupiter.api.Test;
+
+import fr.uge.patchwork.model.GameMode;
+import fr.uge.patchwork.model.archive.GameRecord;
+import fr.uge.patchwork.model.component.player.automa.AutomaDifficulty;
+import fr.uge.patchwork.model.component.player.automa.DeckType;
+
+/**
+ * The bots keep a minimum strength on fixed seeds: the search bot
+ * beats the greedy bot, and both beat the intern Automa.
+ * The search bot searches a number of positions without the economy table,
+ * so the games don't depend on the machine and nothing is written.
+ */
+public class BotStrengthTest {
+  private static final long NODES = 10_000;
+
+  // wins and scores of the first side
+  private record Results(int games, int wins, int score, int opponentScore) {}
+
+  private static Results play(GameMode gameMode, GameRecord.Side second, int games,
+      Supplier<Bot> first, Supplier<Bot> other) throws IOException {
+    var rules = Rules.of(gameMode);
+    var firstSetup = GameRecord.Side.quilt().setup();
+    var secondSetup = second.setup();
+    var wins = 0;
+    var score = 0;
+    var opponentScore = 0;
+    for(var seed = 0; seed < games; seed++) {
+      var engine = Engine.create(rules, firstSetup, secondSetup, seed);
+      var bots = new Bot[] { first.get(), second.isAutoma() ? null : other.get() };
+      while(!engine.isFinished()) {
+        engine.play(Bot.nextMove(engine, bots[engine.current()]));
+      }
+      if(engine.winner() == 0) {
+        wins++;
+      }
+      score += engine.score(0);
+      opponentScore += engine.score(1);
+    }
+    return new Results(games, wins, score, opponentScore);
+  }
+
+  private static Results againstIntern(Supplier<Bot> bot, int games) throws IOException {
+    return play(GameMode.PATCHWORK_AUTOMA, GameRecord.Side.automa(AutomaDifficulty.INTERN, DeckType.NORMAL),
+        games, bot, null);
+  }
+
+  @Test
+  public void greedyBeatsTheInternAutoma() throws IOException {
+    var results = againstIntern(GreedyBot::new, 20);
+    assertTrue(results.wins() >= 15, results.toString());
+    assertTrue(results.score() > results.opponentScore(), results.toString());
+  }
+
+  @Test
+  public void searchBeatsTheInternAutoma() throws IOException {
+    var results = againstIntern(() -> SearchBot.ofNodes(NODES, null, false), 10);
+    assertTrue(results.wins() >= 9, results.toString());
+  }
+
+  @Test
+  public void searchBeatsGreedy() throws IOException {
+    var results = play(GameMode.PATCHWORK_FULL, GameRecord.Side.quilt(), 20,
+        () -> SearchBot.ofNodes(NODES, null, false), GreedyBot::new);
+    assertTrue(results.wins() >= 12, results.toString());
+    assertTrue(results.score() > results.opponentScore(), results.toString());
+  }
+}
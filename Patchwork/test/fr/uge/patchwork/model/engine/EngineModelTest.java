@@ -0,0 +1,65 @@
+package fr.uge.patchwork.model.engine;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.util.List;
+
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+
+import fr.uge.patchwork.model.GameMode;
+import fr.uge.patchwork.model.archive.GameRecord;
+import fr.uge.patchwork.model.archive.GameReplayer;
+import fr.uge.patchwork.model.component.player.HumanPlayer;
+import fr.uge.patchwork.model.component.player.Player;
+import fr.uge.patchwork.model.component.player.automa.AutomaDifficulty;
+import fr.uge.patchwork.model.component.player.automa.DeckType;
+
+/**
+ * The engine plays the rules of the object model: the games of the engine
+ * replayed on the model end with the same scores.
+ */
+public class EngineModelTest {
+  private static final int GAMES = 40;
+
+  @ParameterizedTest
+  @EnumSource(GameMode.class)
+  public void replayedGamesEndWithTheSameScores(GameMode gameMode) throws IOException {
+    var rules = Rules.of(gameMode);
+    var first = GameRecord.Side.quilt();
+    var bot = new GreedyBot();
+    for(var difficulty: gameMode == GameMode.PATCHWORK_AUTOMA
+        ? AutomaDifficulty.values() : new AutomaDifficulty[] { null }) {
+      var second = difficulty == null ? GameRecord.Side.quilt() : GameRecord.Side.automa(difficulty, DeckType.NORMAL);
+      for(var seed = 0; seed < GAMES; seed++) {
+        var engine = Engine.create(rules, first.setup(), second.setup(), seed);
+        while(!engine.isFinished()) {
+          engine.play(Bot.nextMove(engine, bot));
+        }
+        var replayer = new GameReplayer(GameRecord.of(gameMode, first, second, seed, engine));
+        while(replayer.hasNext()) {
+          replayer.next();
+        }
+        var game = replayer.game();
+        var label = gameMode + " " + difficulty + " seed " + seed;
+        assertTrue(game.trackBoard().isFinished(), label);
+        assertEquals(engine.ply(), replayer.ply(), label);
+        var players = game.trackBoard().players();
+        assertEquals(engine.score(0), player(players, true).score(), label);
+        assertEquals(engine.score(1), player(players, false).score(), label);
+      }
+    }
+  }
+
+  // the first player has a quilt, the second one is the other player
+  private static Player player(List<Player> players, boolean first) {
+    for(var player: players) {
+      if(first == (player instanceof HumanPlayer human && human.name().equals("Player 1"))) {
+        return player;
+      }
+    }
+    throw new AssertionError();
+  }
+}
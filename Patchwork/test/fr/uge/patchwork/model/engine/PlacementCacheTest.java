@@ -0,0 +1,86 @@
+package fr.uge.patchwork.model.engine;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+import org.junit.jupiter.api.Test;
+
+import fr.uge.patchwork.model.GameMode;
+import fr.uge.patchwork.model.archive.GameRecord;
+import fr.uge.patchwork.model.component.QuiltSymmetry;
+
+public class PlacementCacheTest {
+  private static final long PATCH = 7;
+  private static final int GAMES = 4;
+
+  @Test
+  public void theSameKeyOnAnotherQuiltIsAMiss() {
+    var cache = new PlacementCache(PlacementCache.WAYS, 2);
+    var places = new int[] { PlacementCache.pack(0, 0, 0), PlacementCache.pack(1, 0, 1) };
+    cache.put(42, new long[] { 1, 0 }, PATCH, 0, places, 0, places.length);
+    var buffer = new int[2];
+    var found = cache.get(42, new long[] { 1, 0 }, PATCH, buffer, 0);
+    assertEquals(2, PlacementCache.count(found));
+    assertEquals(-1, cache.get(42, new long[] { 0, 1 }, PATCH, buffer, 0));
+  }
+
+  @Test
+  public void theLeastRecentlyUsedEntryIsReplaced() {
+    var cache = new PlacementCache(PlacementCache.WAYS, 1);
+    var places = new int[] { PlacementCache.pack(0, 0, 0) };
+    var buffer = new int[1];
+    for(var i = 0; i < PlacementCache.WAYS; i++) {
+      cache.put(i, new long[] { i }, PATCH, 0, places, 0, 1);
+    }
+    cache.get(0, new long[] { 0 }, PATCH, buffer, 0);
+    // a set is full, the entry 1 is the least recently used
+    cache.put(PlacementCache.WAYS, new long[] { PlacementCache.WAYS }, PATCH, 0, places, 0, 1);
+    assertEquals(1, PlacementCache.count(cache.get(0, new long[] { 0 }, PATCH, buffer, 0)));
+    assertEquals(-1, cache.get(1, new long[] { 1 }, PATCH, buffer, 0));
+    assertEquals(1, PlacementCache.count(cache.get(2, new long[] { 2 }, PATCH, buffer, 0)));
+  }
+
+  @Test
+  public void theLegalMovesAreTheSameWithTheCacheOnTheImagesOfTheQuilts() throws IOException {
+    var rules = Rules.of(GameMode.PATCHWORK_FULL);
+    var side = GameRecord.Side.quilt().setup();
+    var symmetries = QuiltSymmetry.symmetries(rules.quiltHeight(), rules.quiltWidth());
+    // shared by the images of the quilts, the places found on one are read on the others
+    var cache = new PlacementCache(1 << 10, rules.quiltHeight());
+    var bot = new GreedyBot();
+    var moves = new int[rules.maxMoves()];
+    var cachedMoves = new int[rules.maxMoves()];
+    for(var seed = 0; seed < GAMES; seed++) {
+      var game = Engine.create(rules, side, side, seed);
+      // the quilts of both sides are the images of the quilts of the game by a symmetry
+      var images = new Engine[symmetries];
+      var cachedImages = new Engine[symmetries];
+      for(var symmetry = 0; symmetry < symmetries; symmetry++) {
+        images[symmetry] = Engine.create(rules, side, side, seed);
+        images[symmetry].usePlacementCache(null);
+        cachedImages[symmetry] = Engine.create(rules, side, side, seed);
+        cachedImages[symmetry].usePlacementCache(cache);
+      }
+      while(!game.isFinished()) {
+        for(var symmetry = 0; symmetry < symmetries; symmetry++) {
+          var count = images[symmetry].legalMoves(moves);
+          var cachedCount = cachedImages[symmetry].legalMoves(cachedMoves);
+          assertArrayEquals(Arrays.copyOf(moves, count), Arrays.copyOf(cachedMoves, cachedCount),
+              "seed " + seed + ", ply " + game.ply() + ", symmetry " + symmetry);
+        }
+        var move = bot.chooseMove(game);
+        for(var symmetry = 0; symmetry < symmetries; symmetry++) {
+          var image = game.transformMove(move, symmetry);
+          images[symmetry].play(image);
+          cachedImages[symmetry].play(image);
+        }
+        game.play(move);
+      }
+    }
+    assertTrue(cache.hitRate() > 0.5, "hit rate " + cache.hitRate());
+  }
+}
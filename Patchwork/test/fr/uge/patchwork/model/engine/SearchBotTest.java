@@ -0,0 +1,45 @@
+package fr.uge.patchwork.model.engine;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.time.Duration;
+
+import org.junit.jupiter.api.Test;
+
+import fr.uge.patchwork.model.GameMode;
+import fr.uge.patchwork.model.archive.GameRecord;
+
+public class SearchBotTest {
+  private static final Duration BUDGET = Duration.ofMillis(50);
+  // the clock is read every few positions, and the pondering thread is joined
+  private static final Duration MARGIN = Duration.ofMillis(50);
+
+  @Test
+  public void aMoveAfterPonderingStaysWithinTheBudget() throws IOException, InterruptedException {
+    var side = GameRecord.Side.quilt().setup();
+    var engine = Engine.create(Rules.of(GameMode.PATCHWORK_FULL), side, side, 0);
+    var bot = new SearchBot(BUDGET, null, false);
+    var opponent = new GreedyBot();
+    // the first search loads the classes of the search
+    bot.chooseMove(engine.copy());
+    for(var turn = 0; turn < 10 && !engine.isFinished(); turn++) {
+      if(engine.current() == 1) {
+        engine.play(bot.chooseMove(engine));
+        continue;
+      }
+      bot.ponder(engine);
+      Thread.sleep(20);
+      bot.stopPondering();
+      engine.play(opponent.chooseMove(engine));
+      if(engine.isFinished() || engine.current() != 1) {
+        continue;
+      }
+      var start = System.nanoTime();
+      engine.play(bot.chooseMove(engine));
+      var time = Duration.ofNanos(System.nanoTime() - start);
+      assertTrue(time.compareTo(BUDGET.plus(MARGIN)) <= 0, "turn " + turn + ": " + time);
+      assertTrue(bot.lastPonderReport().nodes() > 0, "turn " + turn);
+    }
+  }
+}
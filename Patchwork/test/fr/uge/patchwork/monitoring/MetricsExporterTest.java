@@ -0,0 +1,37 @@
+package fr.uge.patchwork.monitoring;
+
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Duration;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+public class MetricsExporterTest {
+
+  @Test
+  public void theExportsGoOnAfterAnError(@TempDir Path directory) throws InterruptedException {
+    var registry = new MetricsRegistry();
+    var errors = registry.counter("metrics.export.errors");
+    // a directory can't be written as a file
+    var exporter = new MetricsExporter(registry, directory, MetricsExporter.Format.TEXT);
+    exporter.start(Duration.ofMillis(1));
+    var deadline = System.nanoTime() + Duration.ofSeconds(10).toNanos();
+    while(errors.sum() < 3 && System.nanoTime() < deadline) {
+      Thread.sleep(1);
+    }
+    assertTrue(errors.sum() >= 3, "errors: " + errors.sum());
+    assertThrows(IOException.class, exporter::close);
+  }
+
+  @Test
+  public void aPeriodUnderAMillisecondIsRejected(@TempDir Path directory) {
+    var exporter = new MetricsExporter(new MetricsRegistry(), directory.resolve("metrics.csv"),
+        MetricsExporter.Format.CSV);
+    assertThrows(IllegalArgumentException.class, () -> exporter.start(Duration.ofNanos(999_999)));
+    assertThrows(IllegalArgumentException.class, () -> exporter.start(Duration.ZERO));
+  }
+}